@@ -0,0 +1,116 @@
+package com.gorokhov.threads;
+
+import com.gorokhov.index.BikeAvailabilityIndex;
+import com.gorokhov.models.*;
+import com.gorokhov.models.enums.City;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import com.gorokhov.repositories.BikesRepository;
+import com.gorokhov.repositories.ClientsRepository;
+import com.gorokhov.repositories.StoragesRepository;
+import com.gorokhov.services.FleetAnalyticsService;
+import com.gorokhov.services.OrdersService;
+import com.gorokhov.util.exceptions.DomainException;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.lang.reflect.Modifier;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Runs orders, index refreshes and the fleet reconcile on virtual threads against a pool of two connections, so
+// they wait for each other, and fails if one of them blocked while holding a monitor of the application
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+                properties = {"virtual-threads.enabled=true", "spring.datasource.hikari.maximum-pool-size=2"})
+public class VirtualThreadsPinningTest {
+
+    private static final int TASKS = 500;
+    private static final int BIKES = 20;
+
+    private final OrdersService ordersService;
+    private final FleetAnalyticsService fleetAnalyticsService;
+    private final BikeAvailabilityIndex availabilityIndex;
+    private final BikesRepository bikesRepository;
+    private final StoragesRepository storagesRepository;
+    private final ClientsRepository clientsRepository;
+
+    @Autowired
+    public VirtualThreadsPinningTest(OrdersService ordersService, FleetAnalyticsService fleetAnalyticsService,
+                                     BikeAvailabilityIndex availabilityIndex, BikesRepository bikesRepository,
+                                     StoragesRepository storagesRepository, ClientsRepository clientsRepository) {
+        this.ordersService = ordersService;
+        this.fleetAnalyticsService = fleetAnalyticsService;
+        this.availabilityIndex = availabilityIndex;
+        this.bikesRepository = bikesRepository;
+        this.storagesRepository = storagesRepository;
+        this.clientsRepository = clientsRepository;
+    }
+
+    @Test
+    public void givenConcurrentOrders_whenRunOnVirtualThreads_thenNeverBlockInsideMonitor() throws Exception {
+        Client client = clientsRepository.save(new Client("vera@email.com", "Vera"));
+        Storage storage = storagesRepository.save(new Storage(new Address(City.MOSCOW, "Tverskaya", 21)));
+        List<Bike> bikes = new ArrayList<>();
+        for (int i = 0; i < BIKES; i++)
+            bikes.add(bikesRepository.save(new Bike(Color.RED, Size.M, Label.STELS, storage)));
+        availabilityIndex.rebuild();
+
+        List<String> pinned = new CopyOnWriteArrayList<>();
+        try (RecordingStream stream = new RecordingStream();
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            stream.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            stream.onEvent("jdk.VirtualThreadPinned", event -> {
+                if (holdsApplicationMonitor(event))
+                    pinned.add(event.getStackTrace().toString());
+            });
+            stream.startAsync();
+
+            LocalDateTime start = LocalDateTime.now().plusDays(1);
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < TASKS; i++) {
+                Bike bike = bikes.get(i % BIKES);
+                LocalDateTime from = start.plusHours(i);
+                tasks.add(executor.submit(() -> {
+                    try {
+                        ordersService.save(new Order(client, new HashSet<>(Set.of(bike)), storage, from,
+                                                     from.plusHours(1)));
+                    } catch (DomainException ignored) {
+                    }
+                    availabilityIndex.refresh(List.of(bike.getId()));
+                    fleetAnalyticsService.reconcile();
+                }));
+            }
+            for (Future<?> task : tasks)
+                task.get();
+            stream.stop();
+        }
+
+        assertEquals(List.of(), pinned);
+    }
+
+    // Blocking inside the JDBC driver itself is left to -Djdk.tracePinnedThreads, only our own monitors fail the test
+    private static boolean holdsApplicationMonitor(RecordedEvent event) {
+        if (event.getStackTrace() == null)
+            return false;
+        for (RecordedFrame frame : event.getStackTrace().getFrames())
+            if (frame.getMethod().getType().getName().startsWith("com.gorokhov.")
+                    && Modifier.isSynchronized(frame.getMethod().getModifiers()))
+                return true;
+        return false;
+    }
+}
@@ -0,0 +1,160 @@
+package com.gorokhov.benchmarks;
+
+import com.gorokhov.BikeRentApplication;
+import com.gorokhov.index.BikeAvailabilityIndex;
+import com.gorokhov.index.ClientNameIndex;
+import com.gorokhov.index.CommentTextIndex;
+import com.gorokhov.index.EmailBloomFilter;
+import com.gorokhov.models.*;
+import com.gorokhov.models.enums.City;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import com.gorokhov.repositories.AddressesRepository;
+import com.gorokhov.repositories.BikesRepository;
+import com.gorokhov.repositories.ClientsRepository;
+import com.gorokhov.services.OrdersService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+// Application context on an in-memory H2 seeded from a fixed random seed, so every run sees the same data
+@State(Scope.Benchmark)
+public class BenchmarkDataset {
+
+    static final String[] SYLLABLES = {"an", "na", "ser", "gei", "ol", "ga", "dmi", "tri", "iv", "ov",
+                                       "mar", "ia", "pet", "rov", "kat", "ya", "ale", "ks", "ei", "lo"};
+    private static final int CHUNK = 1_000;
+
+    // Number of bikes; storages, clients and orders are derived from it
+    @Param("10000")
+    public int datasetSize;
+
+    ConfigurableApplicationContext context;
+    long[] storageIds;
+    long[] clientIds;
+    long[] freeBikeIds;
+    long[] orderIds;
+    long[][] orderBikeIds;
+    long[] orderStorageIds;
+    long[][] spareBikeIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BikeRentApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.jpa.properties.hibernate.show_sql=false",
+                     "--spring.main.banner-mode=off",
+                     "--logging.level.root=warn");
+        seed(new Random(42));
+        context.getBean(BikeAvailabilityIndex.class).rebuild();
+        context.getBean(ClientNameIndex.class).rebuild();
+        context.getBean(EmailBloomFilter.class).rebuild();
+        context.getBean(CommentTextIndex.class).rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    private void seed(Random random) {
+        TransactionTemplate transactionTemplate = bean(TransactionTemplate.class);
+        AddressesRepository addressesRepository = bean(AddressesRepository.class);
+        BikesRepository bikesRepository = bean(BikesRepository.class);
+        ClientsRepository clientsRepository = bean(ClientsRepository.class);
+
+        List<Address> addresses = new ArrayList<>();
+        for (int i = 0; i < Math.max(2, datasetSize / 100); i++) {
+            Address address = new Address(City.values()[random.nextInt(City.values().length)], "Street " + i, i + 1);
+            address.setStorage(new Storage(address));
+            addresses.add(address);
+        }
+        storageIds = saveInChunks(transactionTemplate, addresses, addressesRepository::saveAll).stream()
+                                                                                             .mapToLong(Address::getId)
+                                                                                             .toArray();
+
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < Math.max(10, datasetSize / 10); i++) {
+            StringBuilder name = new StringBuilder();
+            for (int s = 2 + random.nextInt(3); s > 0; s--)
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            clients.add(new Client("client" + i + "@bench.local", name.toString()));
+        }
+        clientIds = saveInChunks(transactionTemplate, clients, clientsRepository::saveAll).stream()
+                                                                                         .mapToLong(Client::getId)
+                                                                                         .toArray();
+
+        List<Bike> bikes = new ArrayList<>();
+        for (int i = 0; i < datasetSize; i++)
+            bikes.add(new Bike(Color.values()[random.nextInt(Color.values().length)],
+                               Size.values()[random.nextInt(Size.values().length)],
+                               Label.values()[random.nextInt(Label.values().length)],
+                               storage(storageIds[random.nextInt(storageIds.length)])));
+        long[] bikeIds = saveInChunks(transactionTemplate, bikes, bikesRepository::saveAll).stream()
+                                                                                           .mapToLong(Bike::getId)
+                                                                                           .toArray();
+
+        // Every twentieth pair of bikes goes to an order and the next ones are its spare pair, the rest stay free for
+        // new orders
+        OrdersService ordersService = bean(OrdersService.class);
+        int orders = datasetSize / 20;
+        orderIds = new long[orders];
+        orderBikeIds = new long[orders][];
+        orderStorageIds = new long[orders];
+        spareBikeIds = new long[orders][];
+        for (int i = 0; i < orders; i++) {
+            orderBikeIds[i] = new long[]{bikeIds[2 * i], bikeIds[2 * i + 1]};
+            spareBikeIds[i] = new long[]{bikeIds[2 * (orders + i)], bikeIds[2 * (orders + i) + 1]};
+            orderStorageIds[i] = storageIds[random.nextInt(storageIds.length)];
+            Order order = new Order(client(clientIds[random.nextInt(clientIds.length)]),
+                                    Set.of(bike(orderBikeIds[i][0]), bike(orderBikeIds[i][1])),
+                                    storage(orderStorageIds[i]));
+            orderIds[i] = ordersService.save(order).getId();
+        }
+        freeBikeIds = new long[bikeIds.length - 4 * orders];
+        System.arraycopy(bikeIds, 4 * orders, freeBikeIds, 0, freeBikeIds.length);
+    }
+
+    private static <T> List<T> saveInChunks(TransactionTemplate transactionTemplate, List<T> entities,
+                                            Function<List<T>, List<T>> saveAll) {
+        List<T> saved = new ArrayList<>(entities.size());
+        for (int from = 0; from < entities.size(); from += CHUNK) {
+            List<T> chunk = entities.subList(from, Math.min(from + CHUNK, entities.size()));
+            saved.addAll(transactionTemplate.execute(status -> saveAll.apply(chunk)));
+        }
+        return saved;
+    }
+
+    static Storage storage(long id) {
+        Address address = new Address();
+        address.setId(id);
+        Storage storage = new Storage(address);
+        storage.setId(id);
+        return storage;
+    }
+
+    static Client client(long id) {
+        Client client = new Client();
+        client.setId(id);
+        return client;
+    }
+
+    static Bike bike(long id) {
+        Bike bike = new Bike();
+        bike.setId(id);
+        return bike;
+    }
+}
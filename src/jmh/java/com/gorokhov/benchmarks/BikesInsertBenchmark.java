@@ -0,0 +1,48 @@
+package com.gorokhov.benchmarks;
+
+import com.gorokhov.models.Bike;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import com.gorokhov.repositories.BikesRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// One chunk of bikes saved per transaction. Pooled sequence ids let Hibernate send the inserts in JDBC batches of
+// hibernate.jdbc.batch_size instead of one statement per bike
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BikesInsertBenchmark {
+
+    @Param("1000")
+    public int chunkSize;
+
+    private BikesRepository bikesRepository;
+    private TransactionTemplate transactionTemplate;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDataset dataset) {
+        bikesRepository = dataset.bean(BikesRepository.class);
+        transactionTemplate = dataset.bean(TransactionTemplate.class);
+    }
+
+    @Benchmark
+    public List<Bike> saveAll(BenchmarkDataset dataset) {
+        List<Bike> bikes = new ArrayList<>(chunkSize);
+        for (int i = 0; i < chunkSize; i++, next++)
+            bikes.add(new Bike(Color.values()[next % Color.values().length],
+                               Size.values()[next % Size.values().length],
+                               Label.values()[next % Label.values().length],
+                               BenchmarkDataset.storage(dataset.storageIds[next % dataset.storageIds.length])));
+        return transactionTemplate.execute(status -> bikesRepository.saveAll(bikes));
+    }
+}
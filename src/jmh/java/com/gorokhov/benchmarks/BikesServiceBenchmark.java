@@ -0,0 +1,38 @@
+package com.gorokhov.benchmarks;
+
+import com.gorokhov.models.Bike;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import com.gorokhov.services.BikesService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BikesServiceBenchmark {
+
+    private BikesService bikesService;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDataset dataset) {
+        bikesService = dataset.bean(BikesService.class);
+    }
+
+    // Moves the free bikes one by one to the next storage
+    @Benchmark
+    public Bike update(BenchmarkDataset dataset) {
+        long bikeId = dataset.freeBikeIds[next % dataset.freeBikeIds.length];
+        long storageId = dataset.storageIds[next % dataset.storageIds.length];
+        next++;
+        Bike bike = new Bike(Color.values()[next % Color.values().length], Size.M, Label.STELS,
+                             BenchmarkDataset.storage(storageId));
+        return bikesService.update(bikeId, bike);
+    }
+}
@@ -0,0 +1,35 @@
+package com.gorokhov.benchmarks;
+
+import com.gorokhov.dto.ClientName;
+import com.gorokhov.services.ClientsService;
+import com.gorokhov.util.CursorPage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ClientsServiceBenchmark {
+
+    private ClientsService clientsService;
+    private String[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDataset dataset) {
+        clientsService = dataset.bean(ClientsService.class);
+        String[] syllables = BenchmarkDataset.SYLLABLES;
+        queries = new String[syllables.length];
+        for (int i = 0; i < syllables.length; i++)
+            queries[i] = syllables[i] + syllables[(i * 7 + 3) % syllables.length];
+    }
+
+    @Benchmark
+    public CursorPage<ClientName> findAllByNameContaining() {
+        return clientsService.findAllByNameContaining(queries[next++ % queries.length], 0L, 50, false);
+    }
+}
@@ -0,0 +1,45 @@
+package com.gorokhov.benchmarks;
+
+import com.gorokhov.services.FleetImportService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+// NDJSON import of new storages with four bikes each, the score is in rows per second. Every invocation uses new
+// streets, so no row fails on a duplicate address
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(FleetImportBenchmark.ROWS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FleetImportBenchmark {
+
+    static final int ROWS = 1_000;
+    private static final String BIKES = "[{\"color\":\"RED\",\"size\":\"M\",\"label\":\"FUJI\"}," +
+            "{\"color\":\"BLACK\",\"size\":\"L\",\"label\":\"STELS\"},{\"color\":\"WHITE\",\"size\":\"S\",\"label\":\"SCOTT\"}," +
+            "{\"color\":\"GREY\",\"size\":\"XL\",\"label\":\"FORWARD\"}]";
+
+    private FleetImportService fleetImportService;
+    private int invocation;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDataset dataset) {
+        fleetImportService = dataset.bean(FleetImportService.class);
+    }
+
+    @Benchmark
+    public void importFleet() throws IOException {
+        StringBuilder rows = new StringBuilder(ROWS * 300);
+        String street = "Import " + invocation++;
+        for (int house = 1; house <= ROWS; house++)
+            rows.append("{\"city\":\"MOSCOW\",\"street\":\"").append(street).append("\",\"house\":").append(house)
+                .append(",\"bikes\":").append(BIKES).append("}\n");
+        fleetImportService.importFleet(new BufferedReader(new StringReader(rows.toString())), Writer.nullWriter());
+    }
+}
@@ -0,0 +1,47 @@
+package com.gorokhov.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gorokhov.models.Bike;
+import com.gorokhov.models.Order;
+import com.gorokhov.repositories.BikesRepository;
+import com.gorokhov.repositories.OrdersRepository;
+import org.hibernate.Hibernate;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Order order;
+    private Bike bike;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDataset dataset) {
+        objectMapper = dataset.bean(ObjectMapper.class);
+        order = dataset.bean(TransactionTemplate.class).execute(status -> {
+            Order found = dataset.bean(OrdersRepository.class).findById(dataset.orderIds[0]).orElseThrow();
+            Hibernate.initialize(found.getBikes());
+            return found;
+        });
+        bike = dataset.bean(BikesRepository.class).findById(dataset.freeBikeIds[0]).orElseThrow();
+    }
+
+    @Benchmark
+    public String serializeOrder() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(order);
+    }
+
+    @Benchmark
+    public String serializeBike() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(bike);
+    }
+}
@@ -0,0 +1,161 @@
+package com.gorokhov.benchmarks;
+
+import com.gorokhov.BikeRentApplication;
+import com.gorokhov.index.BikeAvailabilityIndex;
+import com.gorokhov.models.Address;
+import com.gorokhov.models.Bike;
+import com.gorokhov.models.Client;
+import com.gorokhov.models.Storage;
+import com.gorokhov.models.enums.City;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import com.gorokhov.repositories.AddressesRepository;
+import com.gorokhov.repositories.BikesRepository;
+import com.gorokhov.repositories.ClientsRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Closed-loop load test: each client sends its next request as soon as the previous one is answered. Starts the
+// application on a random port, seeds it and reports throughput and latency of GET /bikes/{id} and POST /orders.
+// Arguments: clients, seconds per scenario, virtual threads (true needs a build with the java21 profile), e.g.
+// java -cp target/test-classes:target/classes:<dependencies> com.gorokhov.benchmarks.LoadTest 2000 30 true
+public class LoadTest {
+
+    private static final int STORAGES = 100;
+    private static final int CLIENTS = 1_000;
+    private static final int BIKES = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        boolean virtualThreads = args.length > 2 && Boolean.parseBoolean(args[2]);
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BikeRentApplication.class)
+                .run("--server.port=0",
+                     "--virtual-threads.enabled=" + virtualThreads,
+                     "--spring.jpa.properties.hibernate.show_sql=false",
+                     "--spring.main.banner-mode=off",
+                     "--logging.level.root=warn");
+        try {
+            long[][] ids = seed(context);
+            long[] clientIds = ids[0];
+            long[] storageIds = ids[1];
+            long[] bikeIds = ids[2];
+            context.getBean(BikeAvailabilityIndex.class).rebuild();
+            String url = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            System.out.printf("%d clients, %d s per scenario, virtual threads %b%n", clients, seconds, virtualThreads);
+
+            run("GET /bikes/{id}", clients, seconds, random ->
+                    HttpRequest.newBuilder(URI.create(url + "/bikes/" + bikeIds[random.nextInt(bikeIds.length)]))
+                               .GET().build());
+
+            // One-hour slots spread over ten years keep most bookings free of conflicts, so the bikes never run out
+            LocalDateTime start = LocalDateTime.of(2030, 1, 1, 0, 0);
+            run("POST /orders", clients, seconds, random -> {
+                int bike = random.nextInt(bikeIds.length);
+                LocalDateTime from = start.plusHours(random.nextInt(24 * 365 * 10));
+                String body = "{\"client\":{\"id\":" + clientIds[random.nextInt(clientIds.length)] + "}," +
+                        "\"storage\":{\"id\":" + storageIds[bike % storageIds.length] + "}," +
+                        "\"bikes\":[{\"id\":" + bikeIds[bike] + "}]," +
+                        "\"startTime\":\"" + from + "\",\"endTime\":\"" + from.plusHours(1) + "\"}";
+                return HttpRequest.newBuilder(URI.create(url + "/orders"))
+                                  .header("Content-Type", "application/json")
+                                  .POST(HttpRequest.BodyPublishers.ofString(body))
+                                  .build();
+            });
+        } finally {
+            context.close();
+        }
+    }
+
+    private static void run(String name, int clients, int seconds, Function<Random, HttpRequest> requests)
+            throws InterruptedException {
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        List<long[]> latencies = new CopyOnWriteArrayList<>();
+        AtomicLong errors = new AtomicLong();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        for (int c = 0; c < clients; c++) {
+            long seed = c;
+            executor.execute(() -> {
+                Random random = new Random(seed);
+                long[] own = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < end) {
+                    long started = System.nanoTime();
+                    try {
+                        int status = httpClient.send(requests.apply(random), HttpResponse.BodyHandlers.discarding())
+                                               .statusCode();
+                        if (status >= 500)
+                            errors.incrementAndGet();
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    if (count == own.length)
+                        own = Arrays.copyOf(own, count * 2);
+                    own[count++] = System.nanoTime() - started;
+                }
+                latencies.add(Arrays.copyOf(own, count));
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(seconds + 120L, TimeUnit.SECONDS);
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        if (all.length == 0) {
+            System.out.printf("%-16s no requests completed%n", name);
+            return;
+        }
+        System.out.printf("%-16s %8.0f req/s  p50 %7.1f ms  p99 %7.1f ms  max %7.1f ms  errors %d%n",
+                          name, all.length / (double) seconds,
+                          all[all.length / 2] / 1e6, all[(int) (all.length * 0.99)] / 1e6, all[all.length - 1] / 1e6,
+                          errors.get());
+    }
+
+    private static long[][] seed(ConfigurableApplicationContext context) {
+        TransactionTemplate transactionTemplate = context.getBean(TransactionTemplate.class);
+        Random random = new Random(42);
+
+        List<Client> clients = new ArrayList<>(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++)
+            clients.add(new Client("load" + i + "@bench.local", "Load" + i));
+        long[] clientIds = transactionTemplate.execute(status -> context.getBean(ClientsRepository.class)
+                .saveAll(clients)).stream().mapToLong(Client::getId).toArray();
+
+        List<Address> addresses = new ArrayList<>(STORAGES);
+        for (int i = 0; i < STORAGES; i++) {
+            Address address = new Address(City.values()[i % City.values().length], "Load street " + i, i + 1);
+            address.setStorage(new Storage(address));
+            addresses.add(address);
+        }
+        long[] storageIds = transactionTemplate.execute(status -> context.getBean(AddressesRepository.class)
+                .saveAll(addresses)).stream().mapToLong(Address::getId).toArray();
+
+        List<Bike> bikes = new ArrayList<>(BIKES);
+        for (int i = 0; i < BIKES; i++)
+            bikes.add(new Bike(Color.values()[random.nextInt(Color.values().length)],
+                               Size.values()[random.nextInt(Size.values().length)],
+                               Label.values()[random.nextInt(Label.values().length)],
+                               BenchmarkDataset.storage(storageIds[i % STORAGES])));
+        long[] bikeIds = transactionTemplate.execute(status -> context.getBean(BikesRepository.class)
+                .saveAll(bikes)).stream().mapToLong(Bike::getId).toArray();
+        return new long[][]{clientIds, storageIds, bikeIds};
+    }
+}
@@ -0,0 +1,68 @@
+package com.gorokhov.benchmarks;
+
+import com.gorokhov.dto.BikeAttributes;
+import com.gorokhov.dto.NearbyStorage;
+import com.gorokhov.index.BikeAvailabilityIndex;
+import com.gorokhov.index.FleetCounters;
+import com.gorokhov.index.StorageLocationIndex;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// The 10 nearest storages with bikes of a size, out of storages spread around the six cities with a quarter of them
+// having no bikes of that size. No storage has XL bikes, its grid is empty and nothing is scanned. The indexes are
+// filled directly, without a database
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NearestStoragesBenchmark {
+
+    private static final double[][] CITIES = {
+            {55.75, 37.62}, {59.94, 30.31}, {56.84, 60.61}, {56.33, 44.00}, {45.04, 38.98}, {55.03, 82.92}};
+
+    @Param("50000")
+    public int storageCount;
+
+    @Param({"M", "XL"})
+    public Size size;
+
+    private StorageLocationIndex locationIndex;
+    private double[][] points;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(24);
+        BikeAvailabilityIndex availabilityIndex = new BikeAvailabilityIndex(null, new FleetCounters(null));
+        locationIndex = new StorageLocationIndex(null, availabilityIndex);
+        List<BikeAttributes> bikes = new ArrayList<>();
+        for (long id = 1; id <= storageCount; id++) {
+            double[] city = CITIES[(int) (id % CITIES.length)];
+            locationIndex.put(id, city[0] + random.nextGaussian() * 0.15, city[1] + random.nextGaussian() * 0.25);
+            for (int i = 0; i < 4; i++)
+                bikes.add(new BikeAttributes(id * 4 + i, id, id % 4 == 0 ? Size.S : Size.M, Color.RED, Label.STELS, true));
+        }
+        availabilityIndex.putAllAttributes(bikes);
+
+        points = new double[1024][];
+        for (int i = 0; i < points.length; i++) {
+            double[] city = CITIES[i % CITIES.length];
+            points[i] = new double[]{city[0] + random.nextGaussian() * 0.2, city[1] + random.nextGaussian() * 0.3};
+        }
+    }
+
+    @Benchmark
+    public List<NearbyStorage> findNearest() {
+        double[] point = points[next++ & (points.length - 1)];
+        return locationIndex.findNearest(point[0], point[1], size, 10);
+    }
+}
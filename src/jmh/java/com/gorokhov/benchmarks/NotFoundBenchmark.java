@@ -0,0 +1,37 @@
+package com.gorokhov.benchmarks;
+
+import com.gorokhov.controllers.BikesController;
+import com.gorokhov.controllers.GlobalExceptionHandler;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// GET /bikes/{id} for ids that do not exist, through the whole Spring MVC dispatch
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NotFoundBenchmark {
+
+    private MockMvc mockMvc;
+    private long next;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDataset dataset) {
+        mockMvc = MockMvcBuilders.standaloneSetup(dataset.bean(BikesController.class))
+                                 .setControllerAdvice(dataset.bean(GlobalExceptionHandler.class))
+                                 .build();
+        next = Long.MAX_VALUE / 2;
+    }
+
+    @Benchmark
+    public int getMissingBike() throws Exception {
+        return mockMvc.perform(get("/bikes/" + next++)).andReturn().getResponse().getStatus();
+    }
+}
@@ -0,0 +1,106 @@
+package com.gorokhov.benchmarks;
+
+import com.gorokhov.BikeRentApplication;
+import com.gorokhov.models.Address;
+import com.gorokhov.models.Bike;
+import com.gorokhov.models.Client;
+import com.gorokhov.models.Order;
+import com.gorokhov.models.Storage;
+import com.gorokhov.models.enums.City;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import com.gorokhov.repositories.AddressesRepository;
+import com.gorokhov.repositories.BikesRepository;
+import com.gorokhov.repositories.ClientsRepository;
+import com.gorokhov.services.OrdersService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// 64 threads placing and returning single-bike orders at random storages. With 10 storages about six threads
+// share each storage, with 1000 they rarely meet, so the gap between the two shows what order placement serializes on
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(64)
+@State(Scope.Benchmark)
+public class OrderContentionBenchmark {
+
+    private static final int BIKES = 8_000;
+
+    @Param({"10", "1000"})
+    public int storages;
+
+    private ConfigurableApplicationContext context;
+    private OrdersService ordersService;
+    private long clientId;
+    private long[] storageIds;
+    private List<ConcurrentLinkedQueue<Long>> freeBikes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BikeRentApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.jpa.properties.hibernate.show_sql=false",
+                     "--spring.main.banner-mode=off",
+                     "--logging.level.root=warn");
+        ordersService = context.getBean(OrdersService.class);
+        TransactionTemplate transactionTemplate = context.getBean(TransactionTemplate.class);
+
+        clientId = transactionTemplate.execute(status -> context.getBean(ClientsRepository.class)
+                .save(new Client("contention@bench.local", "Contention")).getId());
+
+        List<Address> addresses = new ArrayList<>(storages);
+        for (int i = 0; i < storages; i++) {
+            Address address = new Address(City.MOSCOW, "Street " + i, i + 1);
+            address.setStorage(new Storage(address));
+            addresses.add(address);
+        }
+        storageIds = transactionTemplate.execute(status -> context.getBean(AddressesRepository.class)
+                .saveAll(addresses)).stream().mapToLong(Address::getId).toArray();
+
+        List<Bike> bikes = new ArrayList<>(BIKES);
+        for (int i = 0; i < BIKES; i++)
+            bikes.add(new Bike(Color.RED, Size.M, Label.STELS, BenchmarkDataset.storage(storageIds[i % storages])));
+        List<Bike> saved = transactionTemplate.execute(status -> context.getBean(BikesRepository.class).saveAll(bikes));
+        freeBikes = new ArrayList<>(storages);
+        for (int i = 0; i < storages; i++)
+            freeBikes.add(new ConcurrentLinkedQueue<>());
+        for (int i = 0; i < saved.size(); i++)
+            freeBikes.get(i % storages).add(saved.get(i).getId());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long placeAndReturn() {
+        int storage = ThreadLocalRandom.current().nextInt(storages);
+        Long bikeId = freeBikes.get(storage).poll();
+        if (bikeId == null)
+            return 0;
+        try {
+            Order order = ordersService.save(new Order(BenchmarkDataset.client(clientId),
+                                                       Set.of(BenchmarkDataset.bike(bikeId)),
+                                                       BenchmarkDataset.storage(storageIds[storage])));
+            ordersService.close(order.getId(), null);
+            return order.getId();
+        } finally {
+            freeBikes.get(storage).add(bikeId);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.gorokhov.benchmarks;
+
+import com.gorokhov.index.BikeAvailabilityIndex;
+import com.gorokhov.models.Order;
+import com.gorokhov.services.OrdersService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OrdersServiceBenchmark {
+
+    private OrdersService ordersService;
+    private JdbcTemplate jdbcTemplate;
+    private BikeAvailabilityIndex availabilityIndex;
+    private int nextBike;
+    private int nextOrder;
+    private boolean[] moved;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDataset dataset) {
+        ordersService = dataset.bean(OrdersService.class);
+        jdbcTemplate = dataset.bean(JdbcTemplate.class);
+        availabilityIndex = dataset.bean(BikeAvailabilityIndex.class);
+        moved = new boolean[dataset.orderIds.length];
+    }
+
+    @Benchmark
+    public Order save(BenchmarkDataset dataset) {
+        // Free bikes run out eventually; releasing them all at once keeps the cost out of almost every call. The
+        // index does not see the update, so it is rebuilt from the table
+        if (nextBike == dataset.freeBikeIds.length) {
+            jdbcTemplate.update("update bike set available = true");
+            availabilityIndex.rebuild();
+            nextBike = 0;
+        }
+        long bikeId = dataset.freeBikeIds[nextBike++];
+        Order order = new Order(BenchmarkDataset.client(dataset.clientIds[nextBike % dataset.clientIds.length]),
+                                Set.of(BenchmarkDataset.bike(bikeId)),
+                                BenchmarkDataset.storage(dataset.storageIds[nextBike % dataset.storageIds.length]));
+        return ordersService.save(order);
+    }
+
+    // Alternates each order between its own bikes and its spare pair, so every call rewrites four bike_orders rows
+    @Benchmark
+    public Order update(BenchmarkDataset dataset) {
+        int i = nextOrder;
+        nextOrder = (nextOrder + 1) % dataset.orderIds.length;
+        long[] bikes = moved[i] ? dataset.orderBikeIds[i] : dataset.spareBikeIds[i];
+        moved[i] = !moved[i];
+        Order order = new Order(BenchmarkDataset.client(dataset.clientIds[i % dataset.clientIds.length]),
+                                Set.of(BenchmarkDataset.bike(bikes[0]), BenchmarkDataset.bike(bikes[1])),
+                                BenchmarkDataset.storage(dataset.orderStorageIds[i]));
+        return ordersService.update(dataset.orderIds[i], order);
+    }
+}
@@ -2,12 +2,13 @@ package com.gorokhov.controllers;
 
 import com.gorokhov.models.Address;
 import com.gorokhov.services.AddressesService;
-import com.gorokhov.util.ErrorResponse;
+import com.gorokhov.util.CursorPage;
 import com.gorokhov.util.exceptions.AddressNotCreatedException;
 import com.gorokhov.util.exceptions.AddressNotFoundException;
 import com.gorokhov.util.exceptions.AddressNotUpdatedException;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -15,17 +16,18 @@ import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.Set;
 
 @RestController
 @RequestMapping("/addresses")
 public class AddressesController {
 
     private final AddressesService addressesService;
+    private final int maxLimit;
 
     @Autowired
-    public AddressesController(AddressesService addressesService) {
+    public AddressesController(AddressesService addressesService, @Value("${pagination.max-limit}") int maxLimit) {
         this.addressesService = addressesService;
+        this.maxLimit = maxLimit;
     }
 
     @PostMapping()
@@ -44,8 +46,9 @@ public class AddressesController {
     }
 
     @GetMapping()
-    public Set<Address> getAll() {
-        return addressesService.findAll();
+    public CursorPage<Address> getAll(@RequestParam(defaultValue = "0") long after,
+                                      @RequestParam(defaultValue = "${pagination.default-limit}") int limit) {
+        return addressesService.findAll(after, Math.max(1, Math.min(limit, maxLimit)));
     }
 
     @GetMapping("/{id}")
@@ -69,22 +72,4 @@ public class AddressesController {
         addressesService.update(id, address);
         return ResponseEntity.status(HttpStatus.ACCEPTED).body(HttpStatus.ACCEPTED);
     }
-
-    @ExceptionHandler
-    private ResponseEntity<ErrorResponse> handleException(AddressNotFoundException e) {
-        ErrorResponse response = new ErrorResponse(e.getMessage());
-        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-    }
-
-    @ExceptionHandler
-    private ResponseEntity<ErrorResponse> handleException(AddressNotCreatedException e) {
-        ErrorResponse response = new ErrorResponse(e.getMessage());
-        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-    }
-
-    @ExceptionHandler
-    private ResponseEntity<ErrorResponse> handleException(AddressNotUpdatedException e) {
-        ErrorResponse response = new ErrorResponse(e.getMessage());
-        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-    }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.gorokhov.controllers;
+
+import com.gorokhov.dto.FleetAnalytics;
+import com.gorokhov.models.enums.City;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import com.gorokhov.services.FleetAnalyticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/analytics")
+public class AnalyticsController {
+
+    private final FleetAnalyticsService fleetAnalyticsService;
+
+    @Autowired
+    public AnalyticsController(FleetAnalyticsService fleetAnalyticsService) {
+        this.fleetAnalyticsService = fleetAnalyticsService;
+    }
+
+    @GetMapping("/fleet")
+    public FleetAnalytics getFleet(@RequestParam(value = "storage", required = false) Long storageId,
+                                   @RequestParam(required = false) City city,
+                                   @RequestParam(required = false) Label label,
+                                   @RequestParam(required = false) Size size,
+                                   @RequestParam(required = false) Color color,
+                                   @RequestParam(required = false) Boolean available) {
+        return fleetAnalyticsService.findCounts(storageId, city, label, size, color, available);
+    }
+}
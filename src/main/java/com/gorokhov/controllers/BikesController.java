@@ -1,31 +1,41 @@
 package com.gorokhov.controllers;
 
+import com.gorokhov.dto.BikeView;
 import com.gorokhov.models.Bike;
+import com.gorokhov.models.enums.City;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
 import com.gorokhov.services.BikesService;
-import com.gorokhov.util.ErrorResponse;
+import com.gorokhov.util.CursorPage;
 import com.gorokhov.util.exceptions.BikeNotCreatedException;
 import com.gorokhov.util.exceptions.BikeNotFoundException;
 import com.gorokhov.util.exceptions.BikeNotUpdatedException;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/bikes")
 public class BikesController {
 
     private final BikesService bikesService;
+    private final int maxLimit;
 
     @Autowired
-    public BikesController(BikesService bikesService) {
+    public BikesController(BikesService bikesService, @Value("${pagination.max-limit}") int maxLimit) {
         this.bikesService = bikesService;
+        this.maxLimit = maxLimit;
     }
 
     @PostMapping()
@@ -44,8 +54,31 @@ public class BikesController {
     }
 
     @GetMapping()
-    public Set<Bike> getAll() {
-        return bikesService.findAll();
+    public CursorPage<BikeView> getAll(@RequestParam(defaultValue = "0") long after,
+                                       @RequestParam(defaultValue = "${pagination.default-limit}") int limit) {
+        return bikesService.findAll(after, Math.max(1, Math.min(limit, maxLimit)));
+    }
+
+    @GetMapping("/available")
+    public List<Long> getAvailable(@RequestParam("storage") long storageId,
+                                   @RequestParam(required = false) Size size,
+                                   @RequestParam(required = false) Color color,
+                                   @RequestParam(required = false) Label label) {
+        return bikesService.findAvailable(storageId, size, color, label);
+    }
+
+    @GetMapping(value = "/free", params = "storage")
+    public List<Long> getFree(@RequestParam("storage") long storageId,
+                              @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                              @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return bikesService.findFree(storageId, from, to);
+    }
+
+    @GetMapping(value = "/free", params = "city")
+    public Map<Long, List<Long>> getFree(@RequestParam("city") City city,
+                                         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return bikesService.findFree(city, from, to);
     }
 
     @GetMapping("/{id}")
@@ -69,22 +102,4 @@ public class BikesController {
         bikesService.update(id, bike);
         return ResponseEntity.status(HttpStatus.ACCEPTED).body(HttpStatus.ACCEPTED);
     }
-
-    @ExceptionHandler
-    private ResponseEntity<ErrorResponse> handleException(BikeNotFoundException e) {
-        ErrorResponse response = new ErrorResponse(e.getMessage());
-        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-    }
-
-    @ExceptionHandler
-    private ResponseEntity<ErrorResponse> handleException(BikeNotCreatedException e) {
-        ErrorResponse response = new ErrorResponse(e.getMessage());
-        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-    }
-
-    @ExceptionHandler
-    private ResponseEntity<ErrorResponse> handleException(BikeNotUpdatedException e) {
-        ErrorResponse response = new ErrorResponse(e.getMessage());
-        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-    }
 }
\ No newline at end of file
@@ -1,15 +1,19 @@
 package com.gorokhov.controllers;
 
+import com.gorokhov.dto.ClientName;
 import com.gorokhov.models.Client;
 import com.gorokhov.models.Comment;
 import com.gorokhov.services.ClientsService;
+import com.gorokhov.util.CursorPage;
 import com.gorokhov.util.ErrorResponse;
 import com.gorokhov.util.exceptions.ClientNotCreatedException;
 import com.gorokhov.util.exceptions.ClientNotFoundException;
 import com.gorokhov.util.exceptions.ClientNotUpdatedException;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import org.hibernate.LazyInitializationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -17,17 +21,21 @@ import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.Set;
 
 @RestController
 @RequestMapping("/clients")
 public class ClientsController {
 
     private final ClientsService clientsService;
+    private final Validator validator;
+    private final int maxLimit;
 
     @Autowired
-    public ClientsController(ClientsService clientsService) {
+    public ClientsController(ClientsService clientsService, Validator validator,
+                             @Value("${pagination.max-limit}") int maxLimit) {
         this.clientsService = clientsService;
+        this.validator = validator;
+        this.maxLimit = maxLimit;
     }
 
     @PostMapping()
@@ -57,21 +65,17 @@ public class ClientsController {
     }
 
     @GetMapping()
-    public Set<Client> getAll() {
-        return clientsService.findAll();
+    public CursorPage<Client> getAll(@RequestParam(defaultValue = "0") long after,
+                                     @RequestParam(defaultValue = "${pagination.default-limit}") int limit) {
+        return clientsService.findAll(after, Math.max(1, Math.min(limit, maxLimit)));
     }
 
-
-    // For EntityGraph
     @GetMapping("/search")
-    public Set<Client> getAllByNameContaining(@RequestParam String name) {
-        Set<Client> clients = clientsService.findAllByNameContaining(name);
-
-        System.out.println("BEFORE CALL");
-        for (Client c : clients)
-            System.out.println("Name: " + c.getName() + ". " + c.getComments());
-
-        return clients;
+    public CursorPage<ClientName> getAllByNameContaining(@RequestParam String name,
+                                                         @RequestParam(defaultValue = "0") long after,
+                                                         @RequestParam(defaultValue = "${pagination.default-limit}") int limit,
+                                                         @RequestParam(defaultValue = "false") boolean comments) {
+        return clientsService.findAllByNameContaining(name, after, Math.max(1, Math.min(limit, maxLimit)), comments);
     }
 
     @GetMapping("/{id}")
@@ -111,29 +115,30 @@ public class ClientsController {
         return ResponseEntity.status(HttpStatus.CREATED).body(HttpStatus.CREATED);
     }
 
+    @PostMapping("/hibernate/bulk")
+    public ResponseEntity<HttpStatus> createAllWithHibernate(@RequestBody List<Client> clients) {
+        StringBuilder errorMessage = new StringBuilder();
+        for (int i = 0; i < clients.size(); i++) {
+            int index = i;
+            validator.validate(clients.get(i)).forEach(v -> errorMessage.append("[")
+                                                                        .append(index)
+                                                                        .append("].")
+                                                                        .append(v.getPropertyPath())
+                                                                        .append(" - ")
+                                                                        .append(v.getMessage())
+                                                                        .append("; "));
+        }
+        if (!errorMessage.isEmpty())
+            throw new ClientNotCreatedException(errorMessage.toString());
+        clientsService.saveAllWithHibernate(clients);
+        return ResponseEntity.status(HttpStatus.CREATED).body(HttpStatus.CREATED);
+    }
+
     @GetMapping("/hibernate/{id}")
     public Client getWithHibernate(@PathVariable("id") long id) {
         return clientsService.findOneWithHibernate(id);
     }
 
-    @ExceptionHandler
-    private ResponseEntity<ErrorResponse> handleException(ClientNotFoundException e) {
-        ErrorResponse response = new ErrorResponse(e.getMessage());
-        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-    }
-
-    @ExceptionHandler
-    private ResponseEntity<ErrorResponse> handleException(ClientNotCreatedException e) {
-        ErrorResponse response = new ErrorResponse(e.getMessage());
-        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-    }
-
-    @ExceptionHandler
-    private ResponseEntity<ErrorResponse> handleException(ClientNotUpdatedException e) {
-        ErrorResponse response = new ErrorResponse(e.getMessage());
-        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-    }
-
     @ExceptionHandler
     private ResponseEntity<ErrorResponse> handleException(LazyInitializationException e) {
         ErrorResponse response = new ErrorResponse("LAZY INIT EXCEPTION: " + e.getMessage());
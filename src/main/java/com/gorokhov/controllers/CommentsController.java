@@ -2,10 +2,11 @@ package com.gorokhov.controllers;
 
 import com.gorokhov.models.Comment;
 import com.gorokhov.services.CommentsService;
-import com.gorokhov.util.ErrorResponse;
+import com.gorokhov.util.CursorPage;
 import com.gorokhov.util.exceptions.*;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -20,10 +21,12 @@ import java.util.Set;
 public class CommentsController {
 
     private final CommentsService commentsService;
+    private final int maxLimit;
 
     @Autowired
-    public CommentsController(CommentsService commentsService) {
+    public CommentsController(CommentsService commentsService, @Value("${pagination.max-limit}") int maxLimit) {
         this.commentsService = commentsService;
+        this.maxLimit = maxLimit;
     }
 
     @PostMapping()
@@ -42,29 +45,20 @@ public class CommentsController {
     }
 
     @GetMapping()
-    public Set<Comment> getAll() {
-        return commentsService.findAll();
+    public CursorPage<Comment> getAll(@RequestParam(defaultValue = "0") long after,
+                                      @RequestParam(defaultValue = "${pagination.default-limit}") int limit) {
+        return commentsService.findAll(after, Math.max(1, Math.min(limit, maxLimit)));
     }
 
-//    @GetMapping("/search")
-//    public Set<Comment> getAllByDescriptionContaining(@RequestParam String description) {
-//        return commentsService.findAllByDescriptionContaining(description);
-//    }
+    @GetMapping("/search")
+    public CursorPage<Comment> search(@RequestParam String query,
+                                      @RequestParam(defaultValue = "0") long after,
+                                      @RequestParam(defaultValue = "${pagination.default-limit}") int limit) {
+        return commentsService.search(query, after, Math.max(1, Math.min(limit, maxLimit)));
+    }
 
     @GetMapping("/{id}")
     public Comment get(@PathVariable("id") long id) {
         return commentsService.findOne(id).orElseThrow(CommentNotFoundException::new);
     }
-
-    @ExceptionHandler
-    private ResponseEntity<ErrorResponse> handleException(CommentNotFoundException e) {
-        ErrorResponse response = new ErrorResponse(e.getMessage());
-        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-    }
-
-    @ExceptionHandler
-    private ResponseEntity<ErrorResponse> handleException(CommentNotCreatedException e) {
-        ErrorResponse response = new ErrorResponse(e.getMessage());
-        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-    }
 }
\ No newline at end of file
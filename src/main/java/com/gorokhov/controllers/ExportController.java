@@ -0,0 +1,50 @@
+package com.gorokhov.controllers;
+
+import com.gorokhov.services.ExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/export")
+public class ExportController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final ExportService exportService;
+
+    @Autowired
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    @GetMapping(value = "/orders", produces = NDJSON)
+    public void exportOrders(@RequestParam(required = false)
+                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+                             HttpServletResponse response) throws IOException {
+        exportService.exportOrders(since, writer(response));
+    }
+
+    @GetMapping(value = "/bikes", produces = NDJSON)
+    public void exportBikes(@RequestParam(required = false)
+                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+                            HttpServletResponse response) throws IOException {
+        exportService.exportBikes(since, writer(response));
+    }
+
+    private Writer writer(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        return new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,36 @@
+package com.gorokhov.controllers;
+
+import com.gorokhov.services.FleetImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+@RestController
+@RequestMapping("/fleet")
+public class FleetController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final FleetImportService fleetImportService;
+
+    @Autowired
+    public FleetController(FleetImportService fleetImportService) {
+        this.fleetImportService = fleetImportService;
+    }
+
+    @PostMapping(value = "/import", consumes = NDJSON, produces = NDJSON)
+    public void importFleet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8));
+        Writer writer = new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8);
+        fleetImportService.importFleet(reader, writer);
+    }
+}
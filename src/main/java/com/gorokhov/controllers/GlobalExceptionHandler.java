@@ -0,0 +1,80 @@
+package com.gorokhov.controllers;
+
+import com.gorokhov.models.Client;
+import com.gorokhov.util.ConstraintViolations;
+import com.gorokhov.util.ErrorResponse;
+import com.gorokhov.util.exceptions.ConflictException;
+import com.gorokhov.util.exceptions.InvalidRequestException;
+import com.gorokhov.util.exceptions.NotFoundException;
+import com.gorokhov.util.exceptions.UnavailableException;
+import com.gorokhov.util.exceptions.UnprocessableException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.regex.Pattern;
+
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+
+    // H2 names the index of the constraint, e.g. PUBLIC.CLIENT_EMAIL_INDEX_7
+    private static final Pattern CLIENT_EMAIL = Pattern.compile("\\b" + Client.EMAIL_CONSTRAINT + "(_index_\\d+)?\\b",
+                                                                Pattern.CASE_INSENSITIVE);
+
+    @ExceptionHandler
+    private ResponseEntity<ErrorResponse> handleException(NotFoundException e) {
+        ErrorResponse response = new ErrorResponse(e.getMessage());
+        return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler
+    private ResponseEntity<ErrorResponse> handleException(InvalidRequestException e) {
+        ErrorResponse response = new ErrorResponse(e.getMessage());
+        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler
+    private ResponseEntity<ErrorResponse> handleException(ConflictException e) {
+        ErrorResponse response = new ErrorResponse(e.getMessage());
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler
+    private ResponseEntity<ErrorResponse> handleException(UnprocessableException e) {
+        ErrorResponse response = new ErrorResponse(e.getMessage());
+        return new ResponseEntity<>(response, HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    // The client may retry once the load is gone
+    @ExceptionHandler
+    private ResponseEntity<ErrorResponse> handleException(UnavailableException e) {
+        ErrorResponse response = new ErrorResponse(e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(response);
+    }
+
+    // Two concurrent requests can both pass a check made before the write. The unique email index rejects the second
+    // client, other unique keys and rows still referenced end as a conflict, a reference to a row that is gone as not
+    // found. Any other violation is rethrown and ends as a server error
+    @ExceptionHandler
+    private ResponseEntity<ErrorResponse> handleException(DataIntegrityViolationException e) {
+        if (e.getCause() instanceof ConstraintViolationException violation
+                && violation.getConstraintName() != null
+                && CLIENT_EMAIL.matcher(violation.getConstraintName()).find()) {
+            ErrorResponse response = new ErrorResponse("Клиент с таким email уже существует");
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        }
+        if (ConstraintViolations.isUnique(e) || ConstraintViolations.isReferenced(e)) {
+            ErrorResponse response = new ErrorResponse("Запись конфликтует с уже сохраненными данными");
+            return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+        }
+        if (ConstraintViolations.isMissingReference(e)) {
+            ErrorResponse response = new ErrorResponse("Связанная запись не найдена");
+            return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
+        }
+        throw e;
+    }
+}
@@ -1,34 +1,49 @@
 package com.gorokhov.controllers;
 
+import com.gorokhov.dto.BikeAllocation;
+import com.gorokhov.dto.OrderRequestStatus;
+import com.gorokhov.dto.OrderView;
 import com.gorokhov.models.Client;
 import com.gorokhov.models.Order;
+import com.gorokhov.services.IdempotencyService;
+import com.gorokhov.services.OrderPipeline;
 import com.gorokhov.services.OrdersService;
-import com.gorokhov.util.ErrorResponse;
+import com.gorokhov.util.CursorPage;
 import com.gorokhov.util.exceptions.*;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
-import java.util.Set;
 
 @RestController
 @RequestMapping("/orders")
 public class OrdersController {
 
     private final OrdersService ordersService;
+    private final IdempotencyService idempotencyService;
+    private final OrderPipeline orderPipeline;
+    private final int maxLimit;
 
     @Autowired
-    public OrdersController(OrdersService ordersService) {
+    public OrdersController(OrdersService ordersService, IdempotencyService idempotencyService,
+                            OrderPipeline orderPipeline, @Value("${pagination.max-limit}") int maxLimit) {
         this.ordersService = ordersService;
+        this.idempotencyService = idempotencyService;
+        this.orderPipeline = orderPipeline;
+        this.maxLimit = maxLimit;
     }
 
+    // A retry with the same Idempotency-Key gets the same response, pointing to the order created the first time
     @PostMapping()
-    public ResponseEntity<HttpStatus> create(@RequestBody @Valid Order order, BindingResult bindingResult) {
+    public ResponseEntity<HttpStatus> create(@RequestHeader(value = "Idempotency-Key", required = false) String key,
+                                             @RequestBody @Valid Order order, BindingResult bindingResult) {
         if (bindingResult.hasErrors()) {
             StringBuilder errorMessage = new StringBuilder();
             List<FieldError> errors = bindingResult.getFieldErrors();
@@ -38,17 +53,57 @@ public class OrdersController {
                     .append("; "));
             throw new OrderNotCreatedException(errorMessage.toString());
         }
-        ordersService.save(order);
-        return ResponseEntity.status(HttpStatus.CREATED).body(HttpStatus.CREATED);
+        long id = key == null ? ordersService.save(order).getId() : idempotencyService.createOrder(key, order);
+        return ResponseEntity.created(URI.create("/orders/" + id)).body(HttpStatus.CREATED);
+    }
+
+    // The client asks for a number of bikes of a size instead of naming them, the response points to the order
+    @PostMapping("/allocate")
+    public ResponseEntity<HttpStatus> allocate(@RequestBody @Valid BikeAllocation allocation,
+                                               BindingResult bindingResult) {
+        if (bindingResult.hasErrors()) {
+            StringBuilder errorMessage = new StringBuilder();
+            List<FieldError> errors = bindingResult.getFieldErrors();
+            errors.forEach(e -> errorMessage.append(e.getField())
+                    .append(" - ")
+                    .append(e.getDefaultMessage())
+                    .append("; "));
+            throw new OrderNotCreatedException(errorMessage.toString());
+        }
+        long id = ordersService.allocate(allocation).getId();
+        return ResponseEntity.created(URI.create("/orders/" + id)).body(HttpStatus.CREATED);
+    }
+
+    // Queues the order and answers right away, the order is created with others in a batch. The response points
+    // to the status of the request, which names the order once it is created or the reason it was rejected
+    @PostMapping("/async")
+    public ResponseEntity<HttpStatus> createAsync(@RequestBody @Valid Order order, BindingResult bindingResult) {
+        if (bindingResult.hasErrors()) {
+            StringBuilder errorMessage = new StringBuilder();
+            List<FieldError> errors = bindingResult.getFieldErrors();
+            errors.forEach(e -> errorMessage.append(e.getField())
+                    .append(" - ")
+                    .append(e.getDefaultMessage())
+                    .append("; "));
+            throw new OrderNotCreatedException(errorMessage.toString());
+        }
+        String requestId = orderPipeline.submit(order);
+        return ResponseEntity.accepted().location(URI.create("/orders/requests/" + requestId)).body(HttpStatus.ACCEPTED);
+    }
+
+    @GetMapping("/requests/{id}")
+    public OrderRequestStatus getRequest(@PathVariable("id") String id) {
+        return orderPipeline.findStatus(id).orElseThrow(OrderRequestNotFoundException::new);
     }
 
     @GetMapping()
-    public Set<Order> getAll() {
-        return ordersService.findAll();
+    public CursorPage<OrderView> getAll(@RequestParam(defaultValue = "0") long after,
+                                        @RequestParam(defaultValue = "${pagination.default-limit}") int limit) {
+        return ordersService.findAll(after, Math.max(1, Math.min(limit, maxLimit)));
     }
 
     @GetMapping("/{id}")
-    public Order get(@PathVariable("id") long id) {
+    public OrderView get(@PathVariable("id") long id) {
         return ordersService.findOne(id).orElseThrow(OrderNotFoundException::new);
     }
 
@@ -69,39 +124,17 @@ public class OrdersController {
         return ResponseEntity.status(HttpStatus.ACCEPTED).body(HttpStatus.ACCEPTED);
     }
 
-    @ExceptionHandler
-    private ResponseEntity<ErrorResponse> handleException(OrderNotFoundException e) {
-        ErrorResponse response = new ErrorResponse(e.getMessage());
-        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-    }
-
-    @ExceptionHandler
-    private ResponseEntity<ErrorResponse> handleException(OrderNotCreatedException e) {
-        ErrorResponse response = new ErrorResponse(e.getMessage());
-        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-    }
-
-    @ExceptionHandler
-    private ResponseEntity<ErrorResponse> handleException(OrderNotUpdatedException e) {
-        ErrorResponse response = new ErrorResponse(e.getMessage());
-        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-    }
-
-    @ExceptionHandler
-    private ResponseEntity<ErrorResponse> handleException(BikeNotFoundException e) {
-        ErrorResponse response = new ErrorResponse(e.getMessage());
-        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-    }
-
-    @ExceptionHandler
-    private ResponseEntity<ErrorResponse> handleException(ClientNotFoundException e) {
-        ErrorResponse response = new ErrorResponse(e.getMessage());
-        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    @PostMapping("/{id}/close")
+    public ResponseEntity<HttpStatus> close(@PathVariable("id") long id,
+                                            @RequestParam(value = "storage", required = false) Long storageId) {
+        ordersService.close(id, storageId);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(HttpStatus.ACCEPTED);
     }
 
-    @ExceptionHandler
-    private ResponseEntity<ErrorResponse> handleException(StorageNotFoundException e) {
-        ErrorResponse response = new ErrorResponse(e.getMessage());
-        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    // Already closed and unknown orders are skipped, the response lists the orders closed by this call
+    @PostMapping("/close")
+    public List<Long> closeAll(@RequestBody List<Long> ids,
+                               @RequestParam(value = "storage", required = false) Long storageId) {
+        return ordersService.closeAll(ids, storageId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.gorokhov.controllers;
+
+import com.gorokhov.dto.CacheStatistics;
+import com.gorokhov.services.StatisticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/statistics")
+public class StatisticsController {
+
+    private final StatisticsService statisticsService;
+
+    @Autowired
+    public StatisticsController(StatisticsService statisticsService) {
+        this.statisticsService = statisticsService;
+    }
+
+    @GetMapping("/cache")
+    public List<CacheStatistics> getCacheStatistics() {
+        return statisticsService.findCacheStatistics();
+    }
+}
@@ -1,17 +1,19 @@
 package com.gorokhov.controllers;
 
+import com.gorokhov.dto.NearbyStorage;
 import com.gorokhov.models.Bike;
+import com.gorokhov.dto.StorageView;
 import com.gorokhov.models.Storage;
 import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Size;
 import com.gorokhov.services.StoragesService;
-import com.gorokhov.util.ErrorResponse;
+import com.gorokhov.util.CursorPage;
 import com.gorokhov.util.exceptions.StorageNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 @RestController
@@ -19,15 +21,26 @@ import java.util.Set;
 public class StoragesController {
 
     private final StoragesService storagesService;
+    private final int maxLimit;
 
     @Autowired
-    public StoragesController(StoragesService storagesService) {
+    public StoragesController(StoragesService storagesService, @Value("${pagination.max-limit}") int maxLimit) {
         this.storagesService = storagesService;
+        this.maxLimit = maxLimit;
     }
 
     @GetMapping()
-    public Set<Storage> getAll() {
-        return storagesService.findAll();
+    public CursorPage<StorageView> getAll(@RequestParam(defaultValue = "0") long after,
+                                          @RequestParam(defaultValue = "${pagination.default-limit}") int limit) {
+        return storagesService.findAll(after, Math.max(1, Math.min(limit, maxLimit)));
+    }
+
+    @GetMapping("/nearest")
+    public List<NearbyStorage> getNearest(@RequestParam double latitude,
+                                          @RequestParam double longitude,
+                                          @RequestParam(required = false) Size size,
+                                          @RequestParam(defaultValue = "10") int limit) {
+        return storagesService.findNearest(latitude, longitude, size, Math.max(1, Math.min(limit, maxLimit)));
     }
 
     @GetMapping("/{id}")
@@ -37,20 +50,6 @@ public class StoragesController {
 
     @GetMapping("/{id}/lazy")
     public Set<Bike> getRedBikes(@PathVariable("id") long id) {
-        Storage storage = storagesService.findOne(id).orElseThrow(StorageNotFoundException::new);
-
-        Set<Bike> bikes = storage.getBikes();
-        Set<Bike> result = new HashSet<>();
-        for (Bike bike : bikes) {
-            if (bike.getColor().equals(Color.RED))
-                result.add(bike);
-        }
-        return result;
-    }
-
-    @ExceptionHandler
-    private ResponseEntity<ErrorResponse> handleException(StorageNotFoundException e) {
-        ErrorResponse response = new ErrorResponse(e.getMessage());
-        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        return storagesService.findBikes(id, Color.RED);
     }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.gorokhov.dto;
+
+import com.gorokhov.models.enums.City;
+
+public interface AddressKey {
+
+    City getCity();
+
+    String getStreet();
+
+    int getHouse();
+
+    static String of(City city, String street, int house) {
+        return city + "|" + street + "|" + house;
+    }
+}
@@ -0,0 +1,117 @@
+package com.gorokhov.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+
+// An order for any bikes of a size at a storage, the bikes are picked by the service. Color and label are optional
+public class BikeAllocation {
+
+    @NotNull(message = "Необходимо указать клиента")
+    private Long clientId;
+
+    @NotNull(message = "Необходимо указать хранилище")
+    private Long storageId;
+
+    @Min(value = 1, message = "Необходимо заказать хотя бы 1 велосипед")
+    private int count;
+
+    @NotNull(message = "Необходимо указать размер")
+    private Size size;
+
+    private Color color;
+    private Label label;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+
+    public BikeAllocation() {}
+
+    public BikeAllocation(Long clientId, Long storageId, int count, Size size) {
+        this.clientId = clientId;
+        this.storageId = storageId;
+        this.count = count;
+        this.size = size;
+    }
+
+    public Long getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(Long clientId) {
+        this.clientId = clientId;
+    }
+
+    public Long getStorageId() {
+        return storageId;
+    }
+
+    public void setStorageId(Long storageId) {
+        this.storageId = storageId;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public Size getSize() {
+        return size;
+    }
+
+    public void setSize(Size size) {
+        this.size = size;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    public void setColor(Color color) {
+        this.color = color;
+    }
+
+    public Label getLabel() {
+        return label;
+    }
+
+    public void setLabel(Label label) {
+        this.label = label;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LocalDateTime endTime) {
+        this.endTime = endTime;
+    }
+
+    public boolean hasTimeSlot() {
+        return startTime != null;
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "Начало брони должно быть раньше окончания")
+    public boolean isTimeSlotValid() {
+        if (startTime == null || endTime == null)
+            return startTime == endTime;
+        return startTime.isBefore(endTime);
+    }
+}
@@ -0,0 +1,54 @@
+package com.gorokhov.dto;
+
+import com.gorokhov.models.Bike;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+
+public class BikeAttributes {
+
+    private final long id;
+    private final long storageId;
+    private final Size size;
+    private final Color color;
+    private final Label label;
+    private final boolean available;
+
+    public BikeAttributes(long id, long storageId, Size size, Color color, Label label, boolean available) {
+        this.id = id;
+        this.storageId = storageId;
+        this.size = size;
+        this.color = color;
+        this.label = label;
+        this.available = available;
+    }
+
+    public static BikeAttributes of(Bike bike) {
+        return new BikeAttributes(bike.getId(), bike.getStorage().getId(), bike.getSize(), bike.getColor(),
+                                  bike.getLabel(), bike.isAvailable());
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getStorageId() {
+        return storageId;
+    }
+
+    public Size getSize() {
+        return size;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    public Label getLabel() {
+        return label;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+}
@@ -0,0 +1,48 @@
+package com.gorokhov.dto;
+
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+
+public class BikeView {
+
+    private final long id;
+    private final Color color;
+    private final Size size;
+    private final Label label;
+    private final boolean available;
+    private final long storageId;
+
+    public BikeView(long id, Color color, Size size, Label label, boolean available, long storageId) {
+        this.id = id;
+        this.color = color;
+        this.size = size;
+        this.label = label;
+        this.available = available;
+        this.storageId = storageId;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    public Size getSize() {
+        return size;
+    }
+
+    public Label getLabel() {
+        return label;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public long getStorageId() {
+        return storageId;
+    }
+}
@@ -0,0 +1,34 @@
+package com.gorokhov.dto;
+
+import java.time.LocalDateTime;
+
+public class Booking {
+
+    private final long orderId;
+    private final long bikeId;
+    private final LocalDateTime startTime;
+    private final LocalDateTime endTime;
+
+    public Booking(long orderId, long bikeId, LocalDateTime startTime, LocalDateTime endTime) {
+        this.orderId = orderId;
+        this.bikeId = bikeId;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    public long getOrderId() {
+        return orderId;
+    }
+
+    public long getBikeId() {
+        return bikeId;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+}
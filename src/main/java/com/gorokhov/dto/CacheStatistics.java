@@ -0,0 +1,32 @@
+package com.gorokhov.dto;
+
+public class CacheStatistics {
+
+    private final String region;
+    private final long hitCount;
+    private final long missCount;
+    private final long putCount;
+
+    public CacheStatistics(String region, long hitCount, long missCount, long putCount) {
+        this.region = region;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.putCount = putCount;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getPutCount() {
+        return putCount;
+    }
+}
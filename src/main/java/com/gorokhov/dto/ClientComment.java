@@ -0,0 +1,20 @@
+package com.gorokhov.dto;
+
+public class ClientComment {
+
+    private final long clientId;
+    private final String description;
+
+    public ClientComment(long clientId, String description) {
+        this.clientId = clientId;
+        this.description = description;
+    }
+
+    public long getClientId() {
+        return clientId;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,20 @@
+package com.gorokhov.dto;
+
+public class CommentText {
+
+    private final long id;
+    private final String description;
+
+    public CommentText(long id, String description) {
+        this.id = id;
+        this.description = description;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
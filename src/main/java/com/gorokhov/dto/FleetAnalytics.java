@@ -0,0 +1,45 @@
+package com.gorokhov.dto;
+
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+
+import java.util.Map;
+
+public class FleetAnalytics {
+
+    private final long total;
+    private final long available;
+    private final Map<Label, Long> byLabel;
+    private final Map<Size, Long> bySize;
+    private final Map<Color, Long> byColor;
+
+    public FleetAnalytics(long total, long available, Map<Label, Long> byLabel, Map<Size, Long> bySize,
+                          Map<Color, Long> byColor) {
+        this.total = total;
+        this.available = available;
+        this.byLabel = byLabel;
+        this.bySize = bySize;
+        this.byColor = byColor;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getAvailable() {
+        return available;
+    }
+
+    public Map<Label, Long> getByLabel() {
+        return byLabel;
+    }
+
+    public Map<Size, Long> getBySize() {
+        return bySize;
+    }
+
+    public Map<Color, Long> getByColor() {
+        return byColor;
+    }
+}
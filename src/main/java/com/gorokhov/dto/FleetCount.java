@@ -0,0 +1,55 @@
+package com.gorokhov.dto;
+
+import com.gorokhov.models.enums.City;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+
+public class FleetCount {
+
+    private final long storageId;
+    private final City city;
+    private final Label label;
+    private final Size size;
+    private final Color color;
+    private final boolean available;
+    private final long count;
+
+    public FleetCount(long storageId, City city, Label label, Size size, Color color, boolean available, long count) {
+        this.storageId = storageId;
+        this.city = city;
+        this.label = label;
+        this.size = size;
+        this.color = color;
+        this.available = available;
+        this.count = count;
+    }
+
+    public long getStorageId() {
+        return storageId;
+    }
+
+    public City getCity() {
+        return city;
+    }
+
+    public Label getLabel() {
+        return label;
+    }
+
+    public Size getSize() {
+        return size;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
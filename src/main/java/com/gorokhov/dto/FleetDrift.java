@@ -0,0 +1,96 @@
+package com.gorokhov.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.gorokhov.models.enums.City;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+
+import java.util.Objects;
+
+// A counter that differs from the base tables. The storage is not set for the counters of a whole city
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FleetDrift {
+
+    private final Long storageId;
+    private final City city;
+    private final Label label;
+    private final Size size;
+    private final Color color;
+    private final boolean available;
+    private final long expected;
+    private final long actual;
+
+    public FleetDrift(Long storageId, City city, Label label, Size size, Color color, boolean available,
+                      long expected, long actual) {
+        this.storageId = storageId;
+        this.city = city;
+        this.label = label;
+        this.size = size;
+        this.color = color;
+        this.available = available;
+        this.expected = expected;
+        this.actual = actual;
+    }
+
+    public Long getStorageId() {
+        return storageId;
+    }
+
+    public City getCity() {
+        return city;
+    }
+
+    public Label getLabel() {
+        return label;
+    }
+
+    public Size getSize() {
+        return size;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public long getExpected() {
+        return expected;
+    }
+
+    public long getActual() {
+        return actual;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FleetDrift drift = (FleetDrift) o;
+        return available == drift.available && expected == drift.expected && actual == drift.actual
+                && Objects.equals(storageId, drift.storageId) && city == drift.city && label == drift.label
+                && size == drift.size && color == drift.color;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(storageId, city, label, size, color, available, expected, actual);
+    }
+
+    @Override
+    public String toString() {
+        return "FleetDrift{" +
+                "storageId=" + storageId +
+                ", city=" + city +
+                ", label=" + label +
+                ", size=" + size +
+                ", color=" + color +
+                ", available=" + available +
+                ", expected=" + expected +
+                ", actual=" + actual +
+                '}';
+    }
+}
@@ -0,0 +1,54 @@
+package com.gorokhov.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FleetImportResult {
+
+    public enum Status {
+        CREATED,
+        FAILED
+    }
+
+    private final long line;
+    private final Status status;
+    private final Long storageId;
+    private final Integer bikes;
+    private final String message;
+
+    private FleetImportResult(long line, Status status, Long storageId, Integer bikes, String message) {
+        this.line = line;
+        this.status = status;
+        this.storageId = storageId;
+        this.bikes = bikes;
+        this.message = message;
+    }
+
+    public static FleetImportResult created(long line, long storageId, int bikes) {
+        return new FleetImportResult(line, Status.CREATED, storageId, bikes, null);
+    }
+
+    public static FleetImportResult failed(long line, String message) {
+        return new FleetImportResult(line, Status.FAILED, null, null, message);
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Long getStorageId() {
+        return storageId;
+    }
+
+    public Integer getBikes() {
+        return bikes;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,57 @@
+package com.gorokhov.dto;
+
+import com.gorokhov.models.Bike;
+import com.gorokhov.models.enums.City;
+
+import java.util.List;
+
+public class FleetImportRow {
+
+    private long line;
+    private City city;
+    private String street;
+    private int house;
+    private List<Bike> bikes;
+
+    public FleetImportRow() {}
+
+    public long getLine() {
+        return line;
+    }
+
+    public void setLine(long line) {
+        this.line = line;
+    }
+
+    public City getCity() {
+        return city;
+    }
+
+    public void setCity(City city) {
+        this.city = city;
+    }
+
+    public String getStreet() {
+        return street;
+    }
+
+    public void setStreet(String street) {
+        this.street = street;
+    }
+
+    public int getHouse() {
+        return house;
+    }
+
+    public void setHouse(int house) {
+        this.house = house;
+    }
+
+    public List<Bike> getBikes() {
+        return bikes;
+    }
+
+    public void setBikes(List<Bike> bikes) {
+        this.bikes = bikes;
+    }
+}
@@ -0,0 +1,38 @@
+package com.gorokhov.dto;
+
+public class NearbyStorage {
+
+    private final long id;
+    private final double latitude;
+    private final double longitude;
+    private final double distanceKm;
+    private final int availableBikes;
+
+    public NearbyStorage(long id, double latitude, double longitude, double distanceKm, int availableBikes) {
+        this.id = id;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.distanceKm = distanceKm;
+        this.availableBikes = availableBikes;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+
+    public int getAvailableBikes() {
+        return availableBikes;
+    }
+}
@@ -0,0 +1,45 @@
+package com.gorokhov.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderRequestStatus {
+
+    public enum State { PENDING, CREATED, REJECTED }
+
+    private static final OrderRequestStatus PENDING = new OrderRequestStatus(State.PENDING, null, null);
+
+    private final State state;
+    private final Long orderId;
+    private final String message;
+
+    private OrderRequestStatus(State state, Long orderId, String message) {
+        this.state = state;
+        this.orderId = orderId;
+        this.message = message;
+    }
+
+    public static OrderRequestStatus pending() {
+        return PENDING;
+    }
+
+    public static OrderRequestStatus created(long orderId) {
+        return new OrderRequestStatus(State.CREATED, orderId, null);
+    }
+
+    public static OrderRequestStatus rejected(String message) {
+        return new OrderRequestStatus(State.REJECTED, null, message);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,22 @@
+package com.gorokhov.dto;
+
+import java.time.LocalDateTime;
+
+// One row per order and bike, see OrderView.of
+public interface OrderRow {
+    long getId();
+
+    long getClientId();
+
+    String getClientName();
+
+    long getStorageId();
+
+    LocalDateTime getStartTime();
+
+    LocalDateTime getEndTime();
+
+    LocalDateTime getCloseTime();
+
+    Long getBikeId();
+}
@@ -0,0 +1,79 @@
+package com.gorokhov.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderView {
+
+    private final long id;
+    private final long clientId;
+    private final String clientName;
+    private final long storageId;
+    private final LocalDateTime startTime;
+    private final LocalDateTime endTime;
+    private final LocalDateTime closeTime;
+    private final List<Long> bikeIds = new ArrayList<>();
+
+    public OrderView(long id, long clientId, String clientName, long storageId,
+                     LocalDateTime startTime, LocalDateTime endTime, LocalDateTime closeTime) {
+        this.id = id;
+        this.clientId = clientId;
+        this.clientName = clientName;
+        this.storageId = storageId;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.closeTime = closeTime;
+    }
+
+    // Folds the order x bike rows of one join query, ordered by order id, into one view per order
+    public static List<OrderView> of(List<OrderRow> rows) {
+        List<OrderView> views = new ArrayList<>();
+        OrderView current = null;
+        for (OrderRow row : rows) {
+            if (current == null || current.id != row.getId()) {
+                current = new OrderView(row.getId(), row.getClientId(), row.getClientName(), row.getStorageId(),
+                                        row.getStartTime(), row.getEndTime(), row.getCloseTime());
+                views.add(current);
+            }
+            if (row.getBikeId() != null)
+                current.bikeIds.add(row.getBikeId());
+        }
+        return views;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getClientId() {
+        return clientId;
+    }
+
+    public String getClientName() {
+        return clientName;
+    }
+
+    public long getStorageId() {
+        return storageId;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public LocalDateTime getCloseTime() {
+        return closeTime;
+    }
+
+    public List<Long> getBikeIds() {
+        return bikeIds;
+    }
+}
@@ -0,0 +1,26 @@
+package com.gorokhov.dto;
+
+public class StorageLocation {
+
+    private final long id;
+    private final double latitude;
+    private final double longitude;
+
+    public StorageLocation(long id, double latitude, double longitude) {
+        this.id = id;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+}
@@ -0,0 +1,40 @@
+package com.gorokhov.dto;
+
+import com.gorokhov.models.enums.City;
+
+public class StorageView {
+
+    private final long id;
+    private final long addressId;
+    private final City city;
+    private final String street;
+    private final int house;
+
+    public StorageView(long id, long addressId, City city, String street, int house) {
+        this.id = id;
+        this.addressId = addressId;
+        this.city = city;
+        this.street = street;
+        this.house = house;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getAddressId() {
+        return addressId;
+    }
+
+    public City getCity() {
+        return city;
+    }
+
+    public String getStreet() {
+        return street;
+    }
+
+    public int getHouse() {
+        return house;
+    }
+}
@@ -0,0 +1,174 @@
+package com.gorokhov.index;
+
+import com.gorokhov.dto.BikeAttributes;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import com.gorokhov.repositories.BikesRepository;
+import com.gorokhov.util.AfterCommit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Available bikes per storage, size, color and label. Changed bikes are re-read after their transaction commits and
+// their committed state is applied, never the change itself. Every change is passed on to FleetCounters, changes of
+// the sizes a storage has available bikes of to the listeners
+@Component
+public class BikeAvailabilityIndex {
+
+    private final BikesRepository bikesRepository;
+    private final FleetCounters fleetCounters;
+    private final Map<Long, StorageBikes> storages = new ConcurrentHashMap<>();
+    private final Map<Long, Long> storageByBike = new ConcurrentHashMap<>();
+    // Every read of the bikes takes a ticket before it starts. A bike is applied only from a read with a newer ticket
+    // than the one it was last applied from. Tickets at or below the last rebuild are not kept, it covers every bike
+    private final AtomicLong tickets = new AtomicLong();
+    private final Map<Long, Long> appliedTickets = new HashMap<>();
+    private long rebuiltTicket;
+    private final Lock applyLock = new ReentrantLock();
+    private final List<AvailableSizesListener> listeners = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public BikeAvailabilityIndex(BikesRepository bikesRepository, FleetCounters fleetCounters) {
+        this.bikesRepository = bikesRepository;
+        this.fleetCounters = fleetCounters;
+    }
+
+    // Bikes are applied over the current state, so the counters and the listeners follow only the actual changes.
+    // Indexed bikes the read has not found are removed unless a newer read has applied them
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long ticket = tickets.incrementAndGet();
+        List<BikeAttributes> bikes = bikesRepository.findAllAttributes();
+        applyLock.lock();
+        try {
+            Set<Long> missing = new HashSet<>(storageByBike.keySet());
+            for (BikeAttributes bike : bikes) {
+                missing.remove(bike.getId());
+                apply(bike, ticket);
+            }
+            missing.forEach(id -> remove(id, ticket));
+            rebuiltTicket = ticket;
+            appliedTickets.values().removeIf(t -> t <= ticket);
+        } finally {
+            applyLock.unlock();
+        }
+    }
+
+    public List<Long> findAvailable(long storageId, Size size, Color color, Label label) {
+        StorageBikes bikes = storages.get(storageId);
+        return bikes == null ? List.of() : bikes.findAvailable(size, color, label);
+    }
+
+    public boolean hasAvailable(long storageId, Size size) {
+        StorageBikes bikes = storages.get(storageId);
+        return bikes != null && bikes.hasAvailable(size);
+    }
+
+    public int countAvailable(long storageId, Size size) {
+        StorageBikes bikes = storages.get(storageId);
+        return bikes == null ? 0 : bikes.countAvailable(size);
+    }
+
+    // See StorageBikes.availableSizes
+    int availableSizes(long storageId) {
+        StorageBikes bikes = storages.get(storageId);
+        return bikes == null ? 0 : bikes.availableSizes();
+    }
+
+    void addListener(AvailableSizesListener listener) {
+        listeners.add(listener);
+    }
+
+    // After-commit callbacks of concurrent transactions may run in any order. Each one reads the bikes again outside
+    // the lock, the read with the newest ticket started after the last commit and wins. Bikes that are gone are removed
+    public void refresh(Collection<Long> bikeIds) {
+        Set<Long> ids = Set.copyOf(bikeIds);
+        if (ids.isEmpty())
+            return;
+        AfterCommit.run(() -> {
+            long ticket = tickets.incrementAndGet();
+            List<BikeAttributes> bikes = bikesRepository.findAttributesByIdIn(ids);
+            applyLock.lock();
+            try {
+                Set<Long> missing = new HashSet<>(ids);
+                for (BikeAttributes bike : bikes) {
+                    missing.remove(bike.getId());
+                    apply(bike, ticket);
+                }
+                missing.forEach(id -> remove(id, ticket));
+            } finally {
+                applyLock.unlock();
+            }
+        });
+    }
+
+    // For attributes that are already committed, such as bikes generated by the benchmarks
+    public void putAllAttributes(Collection<BikeAttributes> bikes) {
+        List<BikeAttributes> attributes = List.copyOf(bikes);
+        AfterCommit.run(() -> {
+            long ticket = tickets.incrementAndGet();
+            applyLock.lock();
+            try {
+                attributes.forEach(bike -> apply(bike, ticket));
+            } finally {
+                applyLock.unlock();
+            }
+        });
+    }
+
+    // False if the bike was already applied from a newer read
+    private boolean claim(long bikeId, long ticket) {
+        if (ticket <= appliedTickets.getOrDefault(bikeId, rebuiltTicket))
+            return false;
+        appliedTickets.put(bikeId, ticket);
+        return true;
+    }
+
+    private void apply(BikeAttributes bike, long ticket) {
+        if (!claim(bike.getId(), ticket))
+            return;
+        Long oldStorageId = storageByBike.put(bike.getId(), bike.getStorageId());
+        boolean moved = oldStorageId != null && oldStorageId != bike.getStorageId();
+        int oldSizes = moved ? availableSizes(oldStorageId) : 0;
+        int sizes = availableSizes(bike.getStorageId());
+        if (moved)
+            fleetCounters.replace(oldStorageId, storages.get(oldStorageId).remove(bike.getId()), -1);
+        int oldCell = storages.computeIfAbsent(bike.getStorageId(), id -> new StorageBikes()).put(bike);
+        fleetCounters.replace(bike.getStorageId(), oldCell,
+                              FleetCounters.cell(bike.getLabel(), bike.getSize(), bike.getColor(), bike.isAvailable()));
+        if (moved)
+            sizesChanged(oldStorageId, oldSizes);
+        sizesChanged(bike.getStorageId(), sizes);
+    }
+
+    private void remove(long bikeId, long ticket) {
+        if (!claim(bikeId, ticket))
+            return;
+        Long storageId = storageByBike.remove(bikeId);
+        if (storageId == null)
+            return;
+        int sizes = availableSizes(storageId);
+        fleetCounters.replace(storageId, storages.get(storageId).remove(bikeId), -1);
+        sizesChanged(storageId, sizes);
+    }
+
+    private void sizesChanged(long storageId, int oldSizes) {
+        int sizes = availableSizes(storageId);
+        if (sizes != oldSizes)
+            listeners.forEach(l -> l.availableSizesChanged(storageId, sizes));
+    }
+
+    interface AvailableSizesListener {
+
+        void availableSizesChanged(long storageId, int availableSizes);
+    }
+}
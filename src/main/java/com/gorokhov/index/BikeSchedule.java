@@ -0,0 +1,58 @@
+package com.gorokhov.index;
+
+import java.util.Arrays;
+
+// Booked intervals [start, end) of one bike, sorted by start. Bookings of a bike never overlap, so ends are sorted too
+class BikeSchedule {
+
+    private long[] starts = new long[4];
+    private long[] ends = new long[4];
+    private long[] orderIds = new long[4];
+    private int size;
+
+    synchronized void add(long orderId, long start, long end) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+            orderIds = Arrays.copyOf(orderIds, size * 2);
+        }
+        int i = firstEndingAfter(start);
+        System.arraycopy(starts, i, starts, i + 1, size - i);
+        System.arraycopy(ends, i, ends, i + 1, size - i);
+        System.arraycopy(orderIds, i, orderIds, i + 1, size - i);
+        starts[i] = start;
+        ends[i] = end;
+        orderIds[i] = orderId;
+        size++;
+    }
+
+    synchronized void remove(long orderId) {
+        for (int i = 0; i < size; i++) {
+            if (orderIds[i] != orderId)
+                continue;
+            System.arraycopy(starts, i + 1, starts, i, size - i - 1);
+            System.arraycopy(ends, i + 1, ends, i, size - i - 1);
+            System.arraycopy(orderIds, i + 1, orderIds, i, size - i - 1);
+            size--;
+            return;
+        }
+    }
+
+    synchronized boolean isFree(long from, long to) {
+        int i = firstEndingAfter(from);
+        return i == size || starts[i] >= to;
+    }
+
+    private int firstEndingAfter(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ends[mid] <= time)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+}
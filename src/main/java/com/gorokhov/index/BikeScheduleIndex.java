@@ -0,0 +1,100 @@
+package com.gorokhov.index;
+
+import com.gorokhov.dto.Booking;
+import com.gorokhov.repositories.OrdersRepository;
+import com.gorokhov.util.AfterCommit;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Time slots booked per bike. Only bookings that have not ended yet are loaded, changes are applied after commit
+@Component
+public class BikeScheduleIndex implements SmartInitializingSingleton {
+
+    private final OrdersRepository ordersRepository;
+    private final Map<Long, BikeSchedule> schedules = new ConcurrentHashMap<>();
+    private final Map<Long, List<Long>> bikesByOrder = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BikeScheduleIndex(OrdersRepository ordersRepository) {
+        this.ordersRepository = ordersRepository;
+    }
+
+    // Loaded before the web server and the order pipeline start, so no order commits while the bookings are read
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    public void rebuild() {
+        schedules.clear();
+        bikesByOrder.clear();
+        for (Booking booking : ordersRepository.findBookingsEndingAfter(LocalDateTime.now())) {
+            schedules.computeIfAbsent(booking.getBikeId(), id -> new BikeSchedule())
+                     .add(booking.getOrderId(), epochSecond(booking.getStartTime()), epochSecond(booking.getEndTime()));
+            bikesByOrder.computeIfAbsent(booking.getOrderId(), id -> new ArrayList<>()).add(booking.getBikeId());
+        }
+    }
+
+    public boolean isFree(long bikeId, LocalDateTime from, LocalDateTime to) {
+        BikeSchedule schedule = schedules.get(bikeId);
+        return schedule == null || schedule.isFree(epochSecond(from), epochSecond(to));
+    }
+
+    // Keeps the order of the given ids
+    public List<Long> findFree(List<Long> bikeIds, LocalDateTime from, LocalDateTime to) {
+        long start = epochSecond(from);
+        long end = epochSecond(to);
+        List<Long> free = new ArrayList<>(bikeIds.size());
+        for (Long id : bikeIds) {
+            BikeSchedule schedule = schedules.get(id);
+            if (schedule == null || schedule.isFree(start, end))
+                free.add(id);
+        }
+        return free;
+    }
+
+    // Replaces whatever the order had booked before
+    public void put(long orderId, Collection<Long> bikeIds, LocalDateTime startTime, LocalDateTime endTime) {
+        List<Long> ids = List.copyOf(bikeIds);
+        long start = epochSecond(startTime);
+        long end = epochSecond(endTime);
+        AfterCommit.run(() -> {
+            release(orderId);
+            ids.forEach(id -> schedules.computeIfAbsent(id, key -> new BikeSchedule()).add(orderId, start, end));
+            bikesByOrder.put(orderId, ids);
+        });
+    }
+
+    public void remove(long orderId) {
+        AfterCommit.run(() -> release(orderId));
+    }
+
+    public void removeAll(Collection<Long> orderIds) {
+        List<Long> ids = List.copyOf(orderIds);
+        AfterCommit.run(() -> ids.forEach(this::release));
+    }
+
+    private void release(long orderId) {
+        List<Long> ids = bikesByOrder.remove(orderId);
+        if (ids == null)
+            return;
+        for (Long id : ids) {
+            BikeSchedule schedule = schedules.get(id);
+            if (schedule != null)
+                schedule.remove(orderId);
+        }
+    }
+
+    private static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,123 @@
+package com.gorokhov.index;
+
+import com.gorokhov.dto.ClientName;
+import com.gorokhov.repositories.ClientsRepository;
+import com.gorokhov.util.AfterCommit;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Case-insensitive substring search over client names. Every trigram of a name points to a sorted list of client ids
+@Component
+public class ClientNameIndex implements SmartInitializingSingleton {
+
+    private final ClientsRepository clientsRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, String> names = new HashMap<>();
+    private final Map<Long, PostingList> trigrams = new HashMap<>();
+    private final PostingList all = new PostingList();
+
+    @Autowired
+    public ClientNameIndex(ClientsRepository clientsRepository) {
+        this.clientsRepository = clientsRepository;
+    }
+
+    // Loaded before the web server starts, so no client is saved between reading the names and applying them
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    public void rebuild() {
+        List<ClientName> clients = clientsRepository.findAllNames();
+        lock.writeLock().lock();
+        try {
+            names.clear();
+            trigrams.clear();
+            all.clear();
+            clients.forEach(c -> apply(c.getId(), c.getName()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(long id, String name) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                apply(id, name);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Clients with id greater than after whose name contains the query, ordered by id, at most max rows
+    public List<ClientName> search(String query, long after, int max) {
+        List<ClientName> found = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            PostingList driver = all;
+            List<PostingList> others = new ArrayList<>();
+            for (long trigram : trigramsOf(query)) {
+                PostingList ids = trigrams.get(trigram);
+                if (ids == null)
+                    return found;
+                others.add(ids);
+            }
+            for (PostingList ids : others)
+                if (ids.size() < driver.size())
+                    driver = ids;
+
+            for (int p = driver.positionAfter(after); p < driver.size() && found.size() < max; p++) {
+                long id = driver.get(p);
+                if (containsAll(others, id) && containsIgnoreCase(names.get(id), query))
+                    found.add(new ClientName(id, names.get(id)));
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(long id, String name) {
+        String oldName = names.put(id, name);
+        if (oldName != null)
+            for (long trigram : trigramsOf(oldName))
+                trigrams.get(trigram).remove(id);
+        for (long trigram : trigramsOf(name))
+            trigrams.computeIfAbsent(trigram, t -> new PostingList()).add(id);
+        all.add(id);
+    }
+
+    private static boolean containsAll(List<PostingList> lists, long id) {
+        for (PostingList ids : lists)
+            if (!ids.contains(id))
+                return false;
+        return true;
+    }
+
+    private static boolean containsIgnoreCase(String name, String query) {
+        if (name == null)
+            return false;
+        for (int i = 0; i + query.length() <= name.length(); i++)
+            if (name.regionMatches(true, i, query, 0, query.length()))
+                return true;
+        return false;
+    }
+
+    private static Set<Long> trigramsOf(String text) {
+        Set<Long> result = new HashSet<>();
+        if (text == null)
+            return result;
+        for (int i = 0; i + 3 <= text.length(); i++)
+            result.add((long) Character.toLowerCase(text.charAt(i)) << 32
+                       | (long) Character.toLowerCase(text.charAt(i + 1)) << 16
+                       | Character.toLowerCase(text.charAt(i + 2)));
+        return result;
+    }
+}
@@ -0,0 +1,122 @@
+package com.gorokhov.index;
+
+import com.gorokhov.dto.CommentText;
+import com.gorokhov.repositories.CommentsRepository;
+import com.gorokhov.util.AfterCommit;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Inverted index over comment descriptions: every term points to a sorted list of comment ids
+@Component
+public class CommentTextIndex implements SmartInitializingSingleton {
+
+    private static final String[] RUSSIAN_ENDINGS = {
+            "иями", "ями", "ами", "ого", "его", "ому", "ему", "ыми", "ими", "ая", "яя", "ое", "ее", "ые", "ие",
+            "ой", "ей", "ий", "ый", "ом", "ем", "ам", "ям", "ах", "ях", "ов", "ев", "ью", "ию", "ия",
+            "а", "я", "о", "е", "ы", "и", "у", "ю", "ь", "й"
+    };
+
+    private final CommentsRepository commentsRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> terms = new HashMap<>();
+
+    @Autowired
+    public CommentTextIndex(CommentsRepository commentsRepository) {
+        this.commentsRepository = commentsRepository;
+    }
+
+    // Loaded before the web server starts, so no comment is saved between reading the texts and applying them
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    public void rebuild() {
+        List<CommentText> comments = commentsRepository.findAllTexts();
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            comments.forEach(c -> apply(c.getId(), c.getDescription()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void add(long id, String description) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                apply(id, description);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Ids greater than after of the comments containing every term of the query, ordered by id, at most max ids
+    public List<Long> search(String query, long after, int max) {
+        List<Long> found = new ArrayList<>();
+        Set<String> queryTerms = termsOf(query);
+        if (queryTerms.isEmpty())
+            return found;
+        lock.readLock().lock();
+        try {
+            List<PostingList> lists = new ArrayList<>();
+            for (String term : queryTerms) {
+                PostingList ids = terms.get(term);
+                if (ids == null)
+                    return found;
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(PostingList::size));
+            PostingList driver = lists.get(0);
+            List<PostingList> others = lists.subList(1, lists.size());
+
+            for (int p = driver.positionAfter(after); p < driver.size() && found.size() < max; p++) {
+                long id = driver.get(p);
+                if (others.stream().allMatch(ids -> ids.contains(id)))
+                    found.add(id);
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(long id, String description) {
+        for (String term : termsOf(description))
+            terms.computeIfAbsent(term, t -> new PostingList()).add(id);
+    }
+
+    static Set<String> termsOf(String text) {
+        Set<String> result = new HashSet<>();
+        if (text == null)
+            return result;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0)
+                start = i;
+            else if (!letter && start >= 0) {
+                result.add(stem(text.substring(start, i).toLowerCase(Locale.ROOT).replace('ё', 'е')));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    // Light Russian stemming: drops one inflectional ending, keeping at least three letters of the stem
+    private static String stem(String word) {
+        if (word.isEmpty() || Character.UnicodeBlock.of(word.charAt(0)) != Character.UnicodeBlock.CYRILLIC)
+            return word;
+        for (String ending : RUSSIAN_ENDINGS)
+            if (word.endsWith(ending) && word.length() - ending.length() >= 3)
+                return word.substring(0, word.length() - ending.length());
+        return word;
+    }
+}
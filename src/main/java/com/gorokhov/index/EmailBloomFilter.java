@@ -0,0 +1,82 @@
+package com.gorokhov.index;
+
+import com.gorokhov.repositories.ClientsRepository;
+import com.gorokhov.util.Emails;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Known client emails. A negative answer is definite, a positive one has to be confirmed by the database
+@Component
+public class EmailBloomFilter {
+
+    private final ClientsRepository clientsRepository;
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    @Autowired
+    public EmailBloomFilter(ClientsRepository clientsRepository,
+                            @Value("${client-emails.expected-count}") long expectedCount,
+                            @Value("${client-emails.false-positive-rate}") double falsePositiveRate) {
+        this.clientsRepository = clientsRepository;
+        long size = (long) Math.ceil(-expectedCount * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray((int) ((size + 63) / 64));
+        this.bitCount = bits.length() * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedCount * Math.log(2)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        clientsRepository.findAllEmails().forEach(this::add);
+    }
+
+    // Called before commit: a rolled back email only leaves a false positive behind
+    public void add(String email) {
+        if (email == null)
+            return;
+        long hash = hash(Emails.normalize(email));
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = bits.get(word)) & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    public boolean mightContain(String email) {
+        if (email == null)
+            return false;
+        long hash = hash(Emails.normalize(email));
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    // FNV-1a over the chars followed by the MurmurHash3 finalizer
+    private static long hash(String email) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < email.length(); i++) {
+            h ^= email.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
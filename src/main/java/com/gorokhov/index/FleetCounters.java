@@ -0,0 +1,234 @@
+package com.gorokhov.index;
+
+import com.gorokhov.dto.FleetAnalytics;
+import com.gorokhov.dto.FleetCount;
+import com.gorokhov.dto.FleetDrift;
+import com.gorokhov.dto.StorageView;
+import com.gorokhov.models.enums.City;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import com.gorokhov.repositories.StoragesRepository;
+import com.gorokhov.util.AfterCommit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Bike counts per storage, per city and for the whole fleet, split by label, size, color and availability. Every
+// combination is a cell. BikeAvailabilityIndex passes on each bike change it applies after commit, so the counters
+// follow the bikes without reading them and a count costs the same whatever the fleet size
+@Component
+public class FleetCounters {
+
+    private static final Label[] LABELS = Label.values();
+    private static final Size[] SIZES = Size.values();
+    private static final Color[] COLORS = Color.values();
+    static final int CELLS = LABELS.length * SIZES.length * COLORS.length * 2;
+
+    private final StoragesRepository storagesRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Storages hold only their non-zero cells, most of them have a few bikes
+    private final Map<Long, Map<Integer, Integer>> storages = new HashMap<>();
+    private final Map<Long, City> cityByStorage = new HashMap<>();
+    private final Map<City, int[]> cities = new EnumMap<>(City.class);
+    private final int[] total = new int[CELLS];
+
+    @Autowired
+    public FleetCounters(StoragesRepository storagesRepository) {
+        this.storagesRepository = storagesRepository;
+        for (City city : City.values())
+            cities.put(city, new int[CELLS]);
+    }
+
+    // Only the cities of the storages are loaded, the bikes come from BikeAvailabilityIndex.rebuild
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<StorageView> views = storagesRepository.findViewsByIdGreaterThan(0L, Pageable.unpaged());
+        lock.writeLock().lock();
+        try {
+            cityByStorage.clear();
+            views.forEach(v -> cityByStorage.put(v.getId(), v.getCity()));
+            cities.values().forEach(c -> Arrays.fill(c, 0));
+            storages.forEach((storageId, cells) -> {
+                int[] city = cities.get(cityByStorage.get(storageId));
+                if (city != null)
+                    cells.forEach((cell, count) -> city[cell] += count);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Bikes of a storage count for its city once the city is known, so the order of the two calls does not matter
+    public void putStorage(long storageId, City city) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                City oldCity = cityByStorage.put(storageId, city);
+                Map<Integer, Integer> cells = storages.get(storageId);
+                if (oldCity == city || cells == null)
+                    return;
+                cells.forEach((cell, count) -> {
+                    if (oldCity != null)
+                        cities.get(oldCity)[cell] -= count;
+                    cities.get(city)[cell] += count;
+                });
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Storage and city filters are exclusive, the storage wins. Any other filter left null matches every value
+    public FleetAnalytics count(Long storageId, City city, Label label, Size size, Color color, Boolean available) {
+        long[] byLabel = new long[LABELS.length];
+        long[] bySize = new long[SIZES.length];
+        long[] byColor = new long[COLORS.length];
+        long totalCount = 0;
+        long availableCount = 0;
+        lock.readLock().lock();
+        try {
+            int[] counts = storageId == null ? city == null ? total : cities.get(city) : null;
+            Map<Integer, Integer> storage = storageId == null ? null : storages.getOrDefault(storageId, Map.of());
+            for (int cell = 0; cell < CELLS; cell++) {
+                int count = counts != null ? counts[cell] : storage.getOrDefault(cell, 0);
+                if (count == 0 || !matches(cell, label, size, color, available))
+                    continue;
+                totalCount += count;
+                if (isAvailable(cell))
+                    availableCount += count;
+                byLabel[label(cell).ordinal()] += count;
+                bySize[size(cell).ordinal()] += count;
+                byColor[color(cell).ordinal()] += count;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new FleetAnalytics(totalCount, availableCount, nonZero(LABELS, byLabel), nonZero(SIZES, bySize),
+                                  nonZero(COLORS, byColor));
+    }
+
+    // Compares the counters with counts taken from the base tables, storage cells first, then city cells
+    public List<FleetDrift> findDrift(List<FleetCount> counts) {
+        Map<Long, Map<Integer, Integer>> expectedStorages = new TreeMap<>();
+        Map<City, int[]> expectedCities = new EnumMap<>(City.class);
+        for (FleetCount c : counts) {
+            int cell = cell(c.getLabel(), c.getSize(), c.getColor(), c.isAvailable());
+            expectedStorages.computeIfAbsent(c.getStorageId(), id -> new HashMap<>()).merge(cell, (int) c.getCount(), Integer::sum);
+            expectedCities.computeIfAbsent(c.getCity(), city -> new int[CELLS])[cell] += (int) c.getCount();
+        }
+
+        List<FleetDrift> drift = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Set<Long> storageIds = new TreeSet<>(expectedStorages.keySet());
+            storageIds.addAll(storages.keySet());
+            for (long storageId : storageIds) {
+                Map<Integer, Integer> expected = expectedStorages.getOrDefault(storageId, Map.of());
+                Map<Integer, Integer> actual = storages.getOrDefault(storageId, Map.of());
+                for (int cell = 0; cell < CELLS; cell++) {
+                    int e = expected.getOrDefault(cell, 0);
+                    int a = actual.getOrDefault(cell, 0);
+                    if (e != a)
+                        drift.add(drift(storageId, cityByStorage.get(storageId), cell, e, a));
+                }
+            }
+            for (City city : City.values()) {
+                int[] expected = expectedCities.getOrDefault(city, new int[CELLS]);
+                int[] actual = cities.get(city);
+                for (int cell = 0; cell < CELLS; cell++)
+                    if (expected[cell] != actual[cell])
+                        drift.add(drift(null, city, cell, expected[cell], actual[cell]));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return drift;
+    }
+
+    // Sets a storage cell to the expected count, the city and fleet cells follow it
+    public void correct(FleetDrift drift) {
+        if (drift.getStorageId() == null)
+            return;
+        lock.writeLock().lock();
+        try {
+            add(drift.getStorageId(), cell(drift.getLabel(), drift.getSize(), drift.getColor(), drift.isAvailable()),
+                (int) (drift.getExpected() - drift.getActual()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Moves a bike from one cell of a storage to another, -1 stands for no cell
+    void replace(long storageId, int oldCell, int newCell) {
+        if (oldCell == newCell)
+            return;
+        lock.writeLock().lock();
+        try {
+            if (oldCell >= 0)
+                add(storageId, oldCell, -1);
+            if (newCell >= 0)
+                add(storageId, newCell, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static int cell(Label label, Size size, Color color, boolean available) {
+        return ((label.ordinal() * SIZES.length + size.ordinal()) * COLORS.length + color.ordinal()) * 2
+                + (available ? 1 : 0);
+    }
+
+    private void add(long storageId, int cell, int delta) {
+        Map<Integer, Integer> cells = storages.computeIfAbsent(storageId, id -> new HashMap<>());
+        if (cells.merge(cell, delta, Integer::sum) == 0)
+            cells.remove(cell);
+        if (cells.isEmpty())
+            storages.remove(storageId);
+        City city = cityByStorage.get(storageId);
+        if (city != null)
+            cities.get(city)[cell] += delta;
+        total[cell] += delta;
+    }
+
+    private static boolean matches(int cell, Label label, Size size, Color color, Boolean available) {
+        return (label == null || label(cell) == label)
+                && (size == null || size(cell) == size)
+                && (color == null || color(cell) == color)
+                && (available == null || isAvailable(cell) == available);
+    }
+
+    private static FleetDrift drift(Long storageId, City city, int cell, int expected, int actual) {
+        return new FleetDrift(storageId, city, label(cell), size(cell), color(cell), isAvailable(cell), expected, actual);
+    }
+
+    private static <E extends Enum<E>> Map<E, Long> nonZero(E[] values, long[] counts) {
+        Map<E, Long> result = new LinkedHashMap<>();
+        for (E value : values)
+            if (counts[value.ordinal()] != 0)
+                result.put(value, counts[value.ordinal()]);
+        return result;
+    }
+
+    private static Label label(int cell) {
+        return LABELS[cell / 2 / COLORS.length / SIZES.length];
+    }
+
+    private static Size size(int cell) {
+        return SIZES[cell / 2 / COLORS.length % SIZES.length];
+    }
+
+    private static Color color(int cell) {
+        return COLORS[cell / 2 % COLORS.length];
+    }
+
+    private static boolean isAvailable(int cell) {
+        return (cell & 1) == 1;
+    }
+}
@@ -0,0 +1,59 @@
+package com.gorokhov.index;
+
+import java.util.Arrays;
+
+// Sorted set of ids backed by a growing long array
+class PostingList {
+
+    private long[] ids = new long[4];
+    private int size;
+
+    void add(long id) {
+        if (size > 0 && ids[size - 1] >= id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0)
+                return;
+            insert(-position - 1, id);
+            return;
+        }
+        insert(size, id);
+    }
+
+    void remove(long id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        if (position < 0)
+            return;
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        size--;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    boolean contains(long id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    // Position of the first id greater than the given one
+    int positionAfter(long id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    long get(int position) {
+        return ids[position];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void insert(int position, long id) {
+        if (size == ids.length)
+            ids = Arrays.copyOf(ids, size * 2);
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        ids[position] = id;
+        size++;
+    }
+}
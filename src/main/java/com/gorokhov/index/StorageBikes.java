@@ -0,0 +1,108 @@
+package com.gorokhov.index;
+
+import com.gorokhov.dto.BikeAttributes;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+
+import java.util.*;
+
+// Bikes of one storage: every bike gets a slot, attributes are bitsets over the slots. The FleetCounters cell of each
+// slot is kept too, so changes return the cell the bike leaves, -1 when there is none
+class StorageBikes {
+
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private long[] ids = new long[16];
+    private int[] cells = new int[16];
+    private final BitSet used = new BitSet();
+    private final BitSet available = new BitSet();
+    private final BitSet[] sizes = bitSets(Size.values().length);
+    private final BitSet[] colors = bitSets(Color.values().length);
+    private final BitSet[] labels = bitSets(Label.values().length);
+
+    synchronized int put(BikeAttributes bike) {
+        Integer slot = slots.get(bike.getId());
+        int oldCell = -1;
+        if (slot == null) {
+            slot = used.nextClearBit(0);
+            if (slot == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+                cells = Arrays.copyOf(cells, cells.length * 2);
+            }
+            ids[slot] = bike.getId();
+            used.set(slot);
+            slots.put(bike.getId(), slot);
+        } else {
+            oldCell = cells[slot];
+            clear(slot);
+        }
+        cells[slot] = FleetCounters.cell(bike.getLabel(), bike.getSize(), bike.getColor(), bike.isAvailable());
+        sizes[bike.getSize().ordinal()].set(slot);
+        colors[bike.getColor().ordinal()].set(slot);
+        labels[bike.getLabel().ordinal()].set(slot);
+        available.set(slot, bike.isAvailable());
+        return oldCell;
+    }
+
+    synchronized int remove(long bikeId) {
+        Integer slot = slots.remove(bikeId);
+        if (slot == null)
+            return -1;
+        clear(slot);
+        used.clear(slot);
+        return cells[slot];
+    }
+
+    synchronized List<Long> findAvailable(Size size, Color color, Label label) {
+        BitSet result = (BitSet) available.clone();
+        if (size != null)
+            result.and(sizes[size.ordinal()]);
+        if (color != null)
+            result.and(colors[color.ordinal()]);
+        if (label != null)
+            result.and(labels[label.ordinal()]);
+        List<Long> found = new ArrayList<>(result.cardinality());
+        for (int slot = result.nextSetBit(0); slot >= 0; slot = result.nextSetBit(slot + 1))
+            found.add(ids[slot]);
+        Collections.sort(found);
+        return found;
+    }
+
+    synchronized boolean hasAvailable(Size size) {
+        return size == null ? !available.isEmpty() : available.intersects(sizes[size.ordinal()]);
+    }
+
+    // One bit per size ordinal with available bikes of that size, the bit after them when any bike is available
+    synchronized int availableSizes() {
+        int result = available.isEmpty() ? 0 : 1 << sizes.length;
+        for (int i = 0; i < sizes.length; i++)
+            if (available.intersects(sizes[i]))
+                result |= 1 << i;
+        return result;
+    }
+
+    synchronized int countAvailable(Size size) {
+        if (size == null)
+            return available.cardinality();
+        BitSet result = (BitSet) available.clone();
+        result.and(sizes[size.ordinal()]);
+        return result.cardinality();
+    }
+
+    private void clear(int slot) {
+        available.clear(slot);
+        for (BitSet s : sizes)
+            s.clear(slot);
+        for (BitSet c : colors)
+            c.clear(slot);
+        for (BitSet l : labels)
+            l.clear(slot);
+    }
+
+    private static BitSet[] bitSets(int count) {
+        BitSet[] bitSets = new BitSet[count];
+        for (int i = 0; i < count; i++)
+            bitSets[i] = new BitSet();
+        return bitSets;
+    }
+}
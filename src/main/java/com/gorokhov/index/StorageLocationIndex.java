@@ -0,0 +1,279 @@
+package com.gorokhov.index;
+
+import com.gorokhov.dto.NearbyStorage;
+import com.gorokhov.dto.StorageLocation;
+import com.gorokhov.models.enums.Size;
+import com.gorokhov.repositories.AddressesRepository;
+import com.gorokhov.util.AfterCommit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Storage coordinates bucketed into a grid of CELL_DEGREES cells. The nearest storages are found by scanning rings of
+// cells around the point until no unscanned cell can be closer than the farthest storage found so far. Longitude does
+// not wrap around the antimeridian. Every size has its own grid holding only the storages with available bikes of
+// it, so the scan skips cells where no storage could match. Changes are applied only after their transaction commits
+@Component
+public class StorageLocationIndex {
+
+    static final double CELL_DEGREES = 0.05;
+    private static final Size[] SIZES = Size.values();
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final Comparator<NearbyStorage> BY_DISTANCE = Comparator.comparingDouble(NearbyStorage::getDistanceKm)
+                                                                            .thenComparingLong(NearbyStorage::getId);
+
+    private final AddressesRepository addressesRepository;
+    private final BikeAvailabilityIndex availabilityIndex;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Location> locations = new HashMap<>();
+    // Indexed by size ordinal, the last grid is for any size. Grids follow BikeAvailabilityIndex.availableSizes
+    private final Grid[] grids = new Grid[SIZES.length + 1];
+    // Bounds of the occupied cells, they only grow until the next rebuild
+    private int minRow;
+    private int maxRow;
+    private int minColumn;
+    private int maxColumn;
+
+    @Autowired
+    public StorageLocationIndex(AddressesRepository addressesRepository, BikeAvailabilityIndex availabilityIndex) {
+        this.addressesRepository = addressesRepository;
+        this.availabilityIndex = availabilityIndex;
+        for (int i = 0; i < grids.length; i++)
+            grids[i] = new Grid();
+        clear();
+        availabilityIndex.addListener(this::availableSizesChanged);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<StorageLocation> storages = addressesRepository.findAllLocations();
+        lock.writeLock().lock();
+        try {
+            clear();
+            storages.forEach(s -> apply(s.getId(), s.getLatitude(), s.getLongitude()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // A storage without coordinates is removed from the index
+    public void put(long storageId, Double latitude, Double longitude) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                remove(storageId);
+                if (latitude != null && longitude != null)
+                    apply(storageId, latitude, longitude);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // At most limit storages with available bikes of the size (of any size when null), nearest first
+    public List<NearbyStorage> findNearest(double latitude, double longitude, Size size, int limit) {
+        PriorityQueue<NearbyStorage> nearest = new PriorityQueue<>(limit + 1, BY_DISTANCE.reversed());
+        lock.readLock().lock();
+        try {
+            Grid grid = grids[size == null ? SIZES.length : size.ordinal()];
+            int row = row(latitude);
+            int column = column(longitude);
+            int lastRing = grid.locations.isEmpty() ? -1
+                    : Math.max(Math.max(row - minRow, maxRow - row), Math.max(column - minColumn, maxColumn - column));
+            long scannedCells = 0;
+            for (int ring = 0; ring <= lastRing && limit > 0; ring++) {
+                if (nearest.size() == limit
+                        && distanceOutside(latitude, longitude, row, column, ring) >= nearest.peek().getDistanceKm())
+                    break;
+                // Once the rings hold more cells than are occupied, the points are sparse and a full scan is cheaper
+                long ringCells = ring == 0 ? 1 : 8L * ring;
+                if (scannedCells + ringCells > grid.cells.size()) {
+                    nearest.clear();
+                    for (Location location : grid.locations.values())
+                        offer(nearest, location, latitude, longitude, size, limit);
+                    break;
+                }
+                scanRing(nearest, grid, row, column, ring, latitude, longitude, size, limit);
+                scannedCells += ringCells;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<NearbyStorage> result = new ArrayList<>(nearest);
+        result.sort(BY_DISTANCE);
+        return result;
+    }
+
+    static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double sinLatitude = Math.sin(Math.toRadians(latitude2 - latitude1) / 2);
+        double sinLongitude = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+        double a = sinLatitude * sinLatitude
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * sinLongitude * sinLongitude;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private void scanRing(PriorityQueue<NearbyStorage> nearest, Grid grid, int row, int column, int ring,
+                          double latitude, double longitude, Size size, int limit) {
+        if (ring == 0) {
+            scanCell(nearest, grid, row, column, latitude, longitude, size, limit);
+            return;
+        }
+        for (int c = column - ring; c <= column + ring; c++) {
+            scanCell(nearest, grid, row - ring, c, latitude, longitude, size, limit);
+            scanCell(nearest, grid, row + ring, c, latitude, longitude, size, limit);
+        }
+        for (int r = row - ring + 1; r < row + ring; r++) {
+            scanCell(nearest, grid, r, column - ring, latitude, longitude, size, limit);
+            scanCell(nearest, grid, r, column + ring, latitude, longitude, size, limit);
+        }
+    }
+
+    private void scanCell(PriorityQueue<NearbyStorage> nearest, Grid grid, int row, int column,
+                          double latitude, double longitude, Size size, int limit) {
+        List<Location> cell = grid.cells.get(key(row, column));
+        if (cell != null)
+            for (Location location : cell)
+                offer(nearest, location, latitude, longitude, size, limit);
+    }
+
+    // Bikes are counted only for storages that are closer than the farthest one kept. The grid of the size may lag
+    // behind a concurrent change, so availability is still checked. Until enough storages are kept the cheaper
+    // availability check goes first
+    private void offer(PriorityQueue<NearbyStorage> nearest, Location location,
+                       double latitude, double longitude, Size size, int limit) {
+        boolean full = nearest.size() == limit;
+        if (!full && !availabilityIndex.hasAvailable(location.id, size))
+            return;
+        double distance = distanceKm(latitude, longitude, location.latitude, location.longitude);
+        if (full && (distance >= nearest.peek().getDistanceKm() || !availabilityIndex.hasAvailable(location.id, size)))
+            return;
+        int available = availabilityIndex.countAvailable(location.id, size);
+        nearest.offer(new NearbyStorage(location.id, location.latitude, location.longitude, distance, available));
+        if (nearest.size() > limit)
+            nearest.poll();
+    }
+
+    // Lower bound of the distance to any point outside the rings scanned before the given one
+    private static double distanceOutside(double latitude, double longitude, int row, int column, int ring) {
+        if (ring == 0)
+            return 0;
+        double south = latitude - ((row - ring + 1) * CELL_DEGREES - 90);
+        double north = (row + ring) * CELL_DEGREES - 90 - latitude;
+        double west = longitude - ((column - ring + 1) * CELL_DEGREES - 180);
+        double east = (column + ring) * CELL_DEGREES - 180 - longitude;
+        double byLatitude = EARTH_RADIUS_KM * Math.toRadians(Math.min(south, north));
+        // Points beyond the scanned columns lie within the scanned rows, the meridians are closest at the farthest one
+        double farthestLatitude = Math.min(90, Math.max(Math.abs(latitude - south), Math.abs(latitude + north)));
+        double longitudeGap = Math.toRadians(Math.min(180, Math.min(west, east)));
+        double byLongitude = 2 * EARTH_RADIUS_KM
+                * Math.asin(Math.cos(Math.toRadians(farthestLatitude)) * Math.sin(longitudeGap / 2));
+        return Math.min(byLatitude, byLongitude);
+    }
+
+    private void apply(long storageId, double latitude, double longitude) {
+        int row = row(latitude);
+        int column = column(longitude);
+        Location location = new Location(storageId, latitude, longitude, key(row, column));
+        locations.put(storageId, location);
+        place(location, availabilityIndex.availableSizes(storageId));
+        minRow = Math.min(minRow, row);
+        maxRow = Math.max(maxRow, row);
+        minColumn = Math.min(minColumn, column);
+        maxColumn = Math.max(maxColumn, column);
+    }
+
+    private void remove(long storageId) {
+        Location location = locations.remove(storageId);
+        if (location != null)
+            place(location, 0);
+    }
+
+    // Called by BikeAvailabilityIndex, possibly before the storage is put here. It then gets its sizes when it is put
+    private void availableSizesChanged(long storageId, int availableSizes) {
+        lock.writeLock().lock();
+        try {
+            Location location = locations.get(storageId);
+            if (location != null)
+                place(location, availableSizes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Puts the storage into the grids of the sizes in availableSizes and removes it from the others
+    private void place(Location location, int availableSizes) {
+        for (int i = 0; i < grids.length; i++) {
+            if ((availableSizes & 1 << i) != 0)
+                grids[i].add(location);
+            else
+                grids[i].remove(location);
+        }
+    }
+
+    private void clear() {
+        locations.clear();
+        for (Grid grid : grids)
+            grid.clear();
+        minRow = Integer.MAX_VALUE;
+        maxRow = Integer.MIN_VALUE;
+        minColumn = Integer.MAX_VALUE;
+        maxColumn = Integer.MIN_VALUE;
+    }
+
+    private static int row(double latitude) {
+        return (int) Math.floor((latitude + 90) / CELL_DEGREES);
+    }
+
+    private static int column(double longitude) {
+        return (int) Math.floor((longitude + 180) / CELL_DEGREES);
+    }
+
+    private static long key(int row, int column) {
+        return (long) row << 32 | column & 0xffffffffL;
+    }
+
+    private static class Grid {
+
+        private final Map<Long, Location> locations = new HashMap<>();
+        private final Map<Long, List<Location>> cells = new HashMap<>();
+
+        private void add(Location location) {
+            if (locations.putIfAbsent(location.id, location) == null)
+                cells.computeIfAbsent(location.key, k -> new ArrayList<>()).add(location);
+        }
+
+        private void remove(Location location) {
+            if (!locations.remove(location.id, location))
+                return;
+            List<Location> cell = cells.get(location.key);
+            cell.remove(location);
+            if (cell.isEmpty())
+                cells.remove(location.key);
+        }
+
+        private void clear() {
+            locations.clear();
+            cells.clear();
+        }
+    }
+
+    private static class Location {
+
+        private final long id;
+        private final double latitude;
+        private final double longitude;
+        private final long key;
+
+        private Location(long id, double latitude, double longitude, long key) {
+            this.id = id;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.gorokhov.metrics;
+
+import com.gorokhov.util.exceptions.BikesNotAvailableException;
+import com.gorokhov.util.exceptions.NotEnoughBikesException;
+import com.gorokhov.util.exceptions.NotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+// Counts errors on their way to GlobalExceptionHandler and leaves the handling to it
+@Component
+public class ErrorMetrics implements HandlerExceptionResolver, Ordered {
+
+    private final MeterRegistry registry;
+
+    @Autowired
+    public ErrorMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public ModelAndView resolveException(HttpServletRequest request, HttpServletResponse response,
+                                         Object handler, Exception e) {
+        count(e);
+        return null;
+    }
+
+    // Also called for the rejections of queued orders, which never reach a handler
+    public void count(Exception e) {
+        if (e instanceof BikesNotAvailableException)
+            registry.counter("bikerent.reservation.conflicts").increment();
+        else if (e instanceof NotEnoughBikesException)
+            registry.counter("bikerent.allocation.shortfalls").increment();
+        else if (e instanceof NotFoundException)
+            registry.counter("bikerent.not.found", "exception", e.getClass().getSimpleName()).increment();
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
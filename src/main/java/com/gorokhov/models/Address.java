@@ -3,17 +3,24 @@ package com.gorokhov.models;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.gorokhov.models.enums.City;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
 
 import java.util.Objects;
 
 @Entity
-@Table(name = "Address")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "address")
+@Table(name = "Address", uniqueConstraints = @UniqueConstraint(columnNames = {"street", "house", "city"}))
 public class Address {
 
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "address_seq")
+    @SequenceGenerator(name = "address_seq", sequenceName = "address_seq", allocationSize = 50)
     private long id;
 
     @Enumerated(EnumType.STRING)
@@ -29,6 +36,16 @@ public class Address {
     @NotNull(message = "Необходимо указать номер дома")
     private int house;
 
+    @Column(name = "latitude")
+    @DecimalMin(value = "-90.0", message = "Широта должна быть от -90 до 90")
+    @DecimalMax(value = "90.0", message = "Широта должна быть от -90 до 90")
+    private Double latitude;
+
+    @Column(name = "longitude")
+    @DecimalMin(value = "-180.0", message = "Долгота должна быть от -180 до 180")
+    @DecimalMax(value = "180.0", message = "Долгота должна быть от -180 до 180")
+    private Double longitude;
+
     @OneToOne(mappedBy = "address", cascade = CascadeType.ALL)
     @PrimaryKeyJoinColumn
     @JsonIgnore
@@ -42,6 +59,12 @@ public class Address {
         this.house = house;
     }
 
+    public Address(City city, String street, int house, Double latitude, Double longitude) {
+        this(city, street, house);
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
     public long getId() {
         return id;
     }
@@ -74,6 +97,22 @@ public class Address {
         this.house = house;
     }
 
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
     public Storage getStorage() {
         return storage;
     }
@@ -102,6 +141,8 @@ public class Address {
                 ", city=" + city +
                 ", street='" + street + '\'' +
                 ", house=" + house +
+                ", latitude=" + latitude +
+                ", longitude=" + longitude +
                 '}';
     }
 }
\ No newline at end of file
@@ -1,23 +1,27 @@
 package com.gorokhov.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.gorokhov.models.enums.Color;
 import com.gorokhov.models.enums.Label;
 import com.gorokhov.models.enums.Size;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import org.hibernate.annotations.Cascade;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.LocalDateTime;
 import java.util.Objects;
 import java.util.Set;
 
 @Entity
-@Table(name = "Bike")
+@Table(name = "Bike", indexes = @Index(name = "bike_updated_at", columnList = "updated_at"))
 public class Bike {
 
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bike_seq")
+    @SequenceGenerator(name = "bike_seq", sequenceName = "bike_seq", allocationSize = 50)
     private long id;
 
     @Enumerated(EnumType.STRING)
@@ -52,6 +56,12 @@ public class Bike {
     @JoinColumn(name = "storage_id", referencedColumnName = "id")
     private Storage storage;
 
+    // Bulk updates of the repository set it themselves
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private LocalDateTime updatedAt;
+
     public Bike() {
         available = true;
     }
@@ -120,6 +130,14 @@ public class Bike {
         this.storage = storage;
     }
 
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
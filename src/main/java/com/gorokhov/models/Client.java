@@ -1,6 +1,7 @@
 package com.gorokhov.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.gorokhov.util.Emails;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotNull;
@@ -11,13 +12,16 @@ import java.util.Objects;
 import java.util.Set;
 
 @Entity
-@Table(name = "Client")
+@Table(name = "Client", uniqueConstraints = @UniqueConstraint(name = Client.EMAIL_CONSTRAINT, columnNames = "email"))
 @NamedEntityGraph(name = "client-entity-graph", attributeNodes = @NamedAttributeNode("comments"))
 public class Client {
 
+    public static final String EMAIL_CONSTRAINT = "client_email";
+
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "client_seq")
+    @SequenceGenerator(name = "client_seq", sequenceName = "client_seq", allocationSize = 50)
     private long id;
 
     @Column(name = "email")
@@ -42,7 +46,7 @@ public class Client {
     public Client() {}
 
     public Client(String email, String name) {
-        this.email = email;
+        this.email = Emails.normalize(email);
         this.name = name;
     }
 
@@ -59,7 +63,7 @@ public class Client {
     }
 
     public void setEmail(String email) {
-        this.email = email;
+        this.email = Emails.normalize(email);
     }
 
     public String getName() {
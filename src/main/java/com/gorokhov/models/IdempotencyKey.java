@@ -0,0 +1,96 @@
+package com.gorokhov.models;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// Idempotency-Key of an order creation request. The key is claimed before the order exists, so orderId stays
+// empty until the creating transaction commits. The client and a hash of the request tell a retry from another
+// request that reuses the key
+@Entity
+@Table(name = "idempotency_key", indexes = @Index(name = "idempotency_key_created_at", columnList = "created_at"))
+public class IdempotencyKey {
+
+    @Id
+    @Column(name = "id")
+    private String id;
+
+    @Column(name = "client_id", nullable = false)
+    private long clientId;
+
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public IdempotencyKey() {}
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public long getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(long clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public void setRequestHash(String requestHash) {
+        this.requestHash = requestHash;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        IdempotencyKey that = (IdempotencyKey) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return "IdempotencyKey{" +
+                "id='" + id + '\'' +
+                ", clientId=" + clientId +
+                ", requestHash='" + requestHash + '\'' +
+                ", orderId=" + orderId +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
@@ -1,18 +1,24 @@
 package com.gorokhov.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.LocalDateTime;
 import java.util.Objects;
 import java.util.Set;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = @Index(name = "orders_updated_at", columnList = "updated_at"))
 public class Order {
 
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private long id;
 
     @ManyToOne
@@ -29,6 +35,24 @@ public class Order {
     @JoinColumn(name = "storage_id", referencedColumnName = "id")
     private Storage storage;
 
+    // Both empty for an open-ended order that holds its bikes until they are released
+    @Column(name = "start_time")
+    private LocalDateTime startTime;
+
+    @Column(name = "end_time")
+    private LocalDateTime endTime;
+
+    // Set once the bikes are returned, a closed order no longer holds or books them
+    @Column(name = "close_time")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private LocalDateTime closeTime;
+
+    // Bulk updates of the repository set it themselves
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private LocalDateTime updatedAt;
+
     public Order() {}
 
     public Order(Client client, Set<Bike> bikes, Storage storage) {
@@ -37,6 +61,12 @@ public class Order {
         this.storage = storage;
     }
 
+    public Order(Client client, Set<Bike> bikes, Storage storage, LocalDateTime startTime, LocalDateTime endTime) {
+        this(client, bikes, storage);
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
     public long getId() {
         return id;
     }
@@ -69,6 +99,54 @@ public class Order {
         this.storage = storage;
     }
 
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LocalDateTime endTime) {
+        this.endTime = endTime;
+    }
+
+    public LocalDateTime getCloseTime() {
+        return closeTime;
+    }
+
+    public void setCloseTime(LocalDateTime closeTime) {
+        this.closeTime = closeTime;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public boolean isClosed() {
+        return closeTime != null;
+    }
+
+    public boolean hasTimeSlot() {
+        return startTime != null;
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "Начало брони должно быть раньше окончания")
+    public boolean isTimeSlotValid() {
+        if (startTime == null || endTime == null)
+            return startTime == endTime;
+        return startTime.isBefore(endTime);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -86,9 +164,11 @@ public class Order {
     public String toString() {
         return "Order{" +
                 "id=" + id +
-                ", client=" + client +
-                ", bikes=" + bikes +
-                ", storage=" + storage +
+                ", clientId=" + (client == null ? null : client.getId()) +
+                ", storageId=" + (storage == null ? null : storage.getId()) +
+                ", startTime=" + startTime +
+                ", endTime=" + endTime +
+                ", closeTime=" + closeTime +
                 '}';
     }
 }
\ No newline at end of file
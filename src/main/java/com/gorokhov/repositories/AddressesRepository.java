@@ -1,13 +1,27 @@
 package com.gorokhov.repositories;
 
+import com.gorokhov.dto.AddressKey;
+import com.gorokhov.dto.StorageLocation;
 import com.gorokhov.models.Address;
 import com.gorokhov.models.enums.City;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface AddressesRepository extends JpaRepository<Address, Long> {
+    List<Address> findByIdGreaterThanOrderById(long id, Pageable pageable);
+
     Optional<Address> findByCityAndStreetAndHouse(City city, String street, int house);
+
+    List<AddressKey> findAllByStreetInAndHouseIn(Collection<String> streets, Collection<Integer> houses);
+
+    @Query("select new com.gorokhov.dto.StorageLocation(s.id, a.latitude, a.longitude) from Storage s join s.address a " +
+            "where a.latitude is not null and a.longitude is not null")
+    List<StorageLocation> findAllLocations();
 }
@@ -1,8 +1,80 @@
 package com.gorokhov.repositories;
 
+import com.gorokhov.dto.BikeAttributes;
+import com.gorokhov.dto.FleetCount;
+import com.gorokhov.dto.BikeView;
 import com.gorokhov.models.Bike;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
 @Repository
-public interface BikesRepository extends JpaRepository<Bike, Long> {}
\ No newline at end of file
+public interface BikesRepository extends JpaRepository<Bike, Long> {
+    @Query("select new com.gorokhov.dto.BikeView(b.id, b.color, b.size, b.label, b.available, b.storage.id) " +
+            "from Bike b where b.id > :after order by b.id")
+    List<BikeView> findViewsByIdGreaterThan(@Param("after") long after, Pageable pageable);
+
+    @Query("select b.id from Bike b where b.id in :ids")
+    Set<Long> findExistingIds(@Param("ids") Set<Long> ids);
+
+    @Query("select new com.gorokhov.dto.BikeAttributes(b.id, b.storage.id, b.size, b.color, b.label, b.available) " +
+            "from Bike b")
+    List<BikeAttributes> findAllAttributes();
+
+    @Query("select new com.gorokhov.dto.BikeAttributes(b.id, b.storage.id, b.size, b.color, b.label, b.available) " +
+            "from Bike b where b.id in :ids")
+    List<BikeAttributes> findAttributesByIdIn(@Param("ids") Set<Long> ids);
+
+    @Query("select new com.gorokhov.dto.FleetCount(s.id, a.city, b.label, b.size, b.color, b.available, count(b)) " +
+            "from Bike b join b.storage s join s.address a group by s.id, a.city, b.label, b.size, b.color, b.available")
+    List<FleetCount> countFleet();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Bike b where b.id in :ids order by b.id")
+    List<Bike> findAllForUpdate(@Param("ids") Set<Long> ids);
+
+    // Locks those of the given bikes that still match and are free, skipping rows locked by other transactions rather
+    // than waiting for them. A bike has to be available and no open order may book it for an overlapping time.
+    // Without a time slot the bike is held from now on, so any booking that ends after now overlaps. H2 locks every row
+    // that matches before it applies a limit, so the ids are the bound
+    @Query(value = "select b.id from bike b where b.id in :ids and b.storage_id = :storageId and b.size = :size " +
+            "and b.available = true and (cast(:color as varchar) is null or b.color = :color) " +
+            "and (cast(:label as varchar) is null or b.label = :label) " +
+            "and not exists (select 1 from bike_orders bo join orders o on o.id = bo.order_id " +
+            "where bo.id = b.id and o.close_time is null and o.end_time > coalesce(:startTime, localtimestamp) " +
+            "and (cast(:endTime as timestamp) is null or o.start_time < :endTime)) " +
+            "for update skip locked", nativeQuery = true)
+    List<Long> lockFreeIds(@Param("ids") Set<Long> ids, @Param("storageId") long storageId,
+                           @Param("size") String size, @Param("color") String color, @Param("label") String label,
+                           @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
+
+    @Modifying
+    @Query("update Bike b set b.available = false, b.updatedAt = local datetime where b.id in :ids and b.available = true")
+    int reserveAll(@Param("ids") Set<Long> ids);
+
+    // Same as reserveAll, but returns the ids it reserved. H2 reads them back from the updated rows, so a short
+    // reservation tells which bikes were taken without another query. A bike booked by an open order other than
+    // orderId for a time slot that ends after now is taken as well, an open-ended order would overlap it
+    @Query(value = "select id from final table (update bike set available = false, updated_at = localtimestamp " +
+            "where id in :ids and available = true and not exists (select 1 from bike_orders bo " +
+            "join orders o on o.id = bo.order_id where bo.id = bike.id and o.id <> :orderId " +
+            "and o.close_time is null and o.end_time > localtimestamp))", nativeQuery = true)
+    List<Long> reserveFree(@Param("ids") Set<Long> ids, @Param("orderId") long orderId);
+
+    @Modifying
+    @Query("update Bike b set b.available = true, b.updatedAt = local datetime where b.id in :ids")
+    int releaseAll(@Param("ids") Set<Long> ids);
+
+    @Modifying
+    @Query("update Bike b set b.storage.id = :storageId, b.updatedAt = local datetime where b.id in :ids")
+    int moveAll(@Param("ids") Set<Long> ids, @Param("storageId") long storageId);
+}
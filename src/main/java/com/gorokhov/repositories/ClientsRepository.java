@@ -1,17 +1,33 @@
 package com.gorokhov.repositories;
 
+import com.gorokhov.dto.ClientName;
 import com.gorokhov.models.Client;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
 @Repository
 public interface ClientsRepository extends JpaRepository<Client, Long> {
+    List<Client> findByIdGreaterThanOrderById(long id, Pageable pageable);
+
     Optional<Client> findByEmail(String email);
 
+    @Query("select c.email from Client c")
+    List<String> findAllEmails();
+
+    @Query("select new com.gorokhov.dto.ClientName(c.id, c.name) from Client c order by c.id")
+    List<ClientName> findAllNames();
+
+    @Query("select c.id from Client c where c.id in :ids")
+    Set<Long> findExistingIds(@Param("ids") Set<Long> ids);
+
 //    @EntityGraph(attributePaths = "comments")
     @EntityGraph(value = "client-entity-graph")
     Set<Client> findAllByNameContaining(String name);
@@ -1,12 +1,28 @@
 package com.gorokhov.repositories;
 
+import com.gorokhov.dto.ClientComment;
+import com.gorokhov.dto.CommentText;
 import com.gorokhov.models.Comment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.Set;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface CommentsRepository extends JpaRepository<Comment, Long> {
-//    Set<Comment> findAllByDescriptionContaining(String description);
+    List<Comment> findByIdGreaterThanOrderById(long id, Pageable pageable);
+
+    @Query("select new com.gorokhov.dto.ClientComment(c.client.id, c.description) from Comment c " +
+            "where c.client.id in :clientIds order by c.id")
+    List<ClientComment> findAllByClientIds(@Param("clientIds") Collection<Long> clientIds);
+
+    @Query("select new com.gorokhov.dto.CommentText(c.id, c.description) from Comment c")
+    List<CommentText> findAllTexts();
+
+    @Query("select c from Comment c join fetch c.client where c.id in :ids order by c.id")
+    List<Comment> findAllWithClientByIdIn(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
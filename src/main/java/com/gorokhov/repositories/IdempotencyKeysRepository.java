@@ -0,0 +1,33 @@
+package com.gorokhov.repositories;
+
+import com.gorokhov.models.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyKeysRepository extends JpaRepository<IdempotencyKey, String> {
+    // A plain insert, unlike save, fails right away on a key that is already taken
+    @Modifying
+    @Query(value = "insert into idempotency_key (id, client_id, request_hash, created_at) " +
+            "values (:id, :clientId, :requestHash, :createdAt)", nativeQuery = true)
+    int claim(@Param("id") String id, @Param("clientId") long clientId, @Param("requestHash") String requestHash,
+              @Param("createdAt") LocalDateTime createdAt);
+
+    @Modifying
+    @Query("update IdempotencyKey k set k.orderId = :orderId where k.id = :id")
+    int setOrderId(@Param("id") String id, @Param("orderId") long orderId);
+
+    // Only keys whose order has been created
+    @Query("select k from IdempotencyKey k where k.id = :id and k.orderId is not null")
+    Optional<IdempotencyKey> findCompleted(@Param("id") String id);
+
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.createdAt < :time")
+    int deleteCreatedBefore(@Param("time") LocalDateTime time);
+}
@@ -1,9 +1,95 @@
 package com.gorokhov.repositories;
 
+import com.gorokhov.dto.Booking;
+import com.gorokhov.dto.OrderRow;
 import com.gorokhov.models.Order;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
 
 @Repository
-public interface OrdersRepository extends JpaRepository<Order, Long> {}
\ No newline at end of file
+public interface OrdersRepository extends JpaRepository<Order, Long> {
+    @Query(value = "select o.id as id, o.client_id as clientId, c.name as clientName, o.storage_id as storageId, " +
+            "o.start_time as startTime, o.end_time as endTime, o.close_time as closeTime, bo.id as bikeId from orders o join client c on c.id = o.client_id " +
+            "left join bike_orders bo on bo.order_id = o.id where o.id = :id order by bo.id", nativeQuery = true)
+    List<OrderRow> findRowsById(@Param("id") long id);
+
+    // The page is cut in the derived table so that the bike rows do not eat into the limit
+    @Query(value = "select o.id as id, o.client_id as clientId, c.name as clientName, o.storage_id as storageId, " +
+            "o.start_time as startTime, o.end_time as endTime, o.close_time as closeTime, bo.id as bikeId from (select id, client_id, storage_id, start_time, end_time, close_time from orders where id > :after order by id " +
+            "limit :limit) o join client c on c.id = o.client_id left join bike_orders bo on bo.order_id = o.id " +
+            "order by o.id, bo.id", nativeQuery = true)
+    List<OrderRow> findRowsByIdGreaterThan(@Param("after") long after, @Param("limit") int limit);
+
+    // Declared query spaces keep native writes from evicting the whole second-level cache
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "bike_orders"))
+    @Query(value = "insert into bike_orders (id, order_id) select b.id, :orderId from bike b where b.id in :bikeIds",
+            nativeQuery = true)
+    int addBikes(@Param("orderId") long orderId, @Param("bikeIds") Set<Long> bikeIds);
+
+    // For batches that flushed their orders once up front, so the insert of every order does not flush again
+    @Modifying
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "bike_orders"),
+                 @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT")})
+    @Query(value = "insert into bike_orders (id, order_id) select b.id, :orderId from bike b where b.id in :bikeIds",
+            nativeQuery = true)
+    int addBikesWithoutFlush(@Param("orderId") long orderId, @Param("bikeIds") Set<Long> bikeIds);
+
+    @Query("select o.storage.id from Order o where o.id = :id")
+    Optional<Long> findStorageId(@Param("id") long id);
+
+    @Query(value = "select id from bike_orders where order_id = :orderId", nativeQuery = true)
+    Set<Long> findBikeIds(@Param("orderId") long orderId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "bike_orders"))
+    @Query(value = "delete from bike_orders where order_id = :orderId and id in :bikeIds", nativeQuery = true)
+    int removeBikes(@Param("orderId") long orderId, @Param("bikeIds") Set<Long> bikeIds);
+
+    @Query("select new com.gorokhov.dto.Booking(o.id, b.id, o.startTime, o.endTime) from Order o join o.bikes b " +
+            "where o.endTime > :now and o.closeTime is null")
+    List<Booking> findBookingsEndingAfter(@Param("now") LocalDateTime now);
+
+    @Query("select new com.gorokhov.dto.Booking(o.id, b.id, o.startTime, o.endTime) from Order o join o.bikes b " +
+            "where b.id in :bikeIds and o.endTime > :now and o.closeTime is null")
+    List<Booking> findBookingsEndingAfter(@Param("bikeIds") Set<Long> bikeIds, @Param("now") LocalDateTime now);
+
+    @Query(value = "select distinct bo.id from bike_orders bo join orders o on o.id = bo.order_id " +
+            "where bo.id in :bikeIds and o.id <> :orderId and o.close_time is null " +
+            "and o.start_time < :endTime and o.end_time > :startTime",
+            nativeQuery = true)
+    Set<Long> findBookedBikeIds(@Param("bikeIds") Set<Long> bikeIds, @Param("orderId") long orderId,
+                                @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
+
+    @Query("select new com.gorokhov.dto.Booking(o.id, b.id, o.startTime, o.endTime) from Order o join o.bikes b " +
+            "where b.id in :bikeIds and o.closeTime is null and o.startTime < :endTime and o.endTime > :startTime")
+    List<Booking> findBookingsOverlapping(@Param("bikeIds") Set<Long> bikeIds,
+                                          @Param("startTime") LocalDateTime startTime,
+                                          @Param("endTime") LocalDateTime endTime);
+
+    // Locks in id order so that overlapping bulk closes cannot deadlock
+    @Query(value = "select id from orders where id in :ids and close_time is null order by id for update",
+            nativeQuery = true)
+    List<Long> findOpenIdsForUpdate(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("update Order o set o.closeTime = :closeTime, o.updatedAt = :closeTime where o.id in :ids")
+    int closeAll(@Param("ids") Collection<Long> ids, @Param("closeTime") LocalDateTime closeTime);
+
+    @Query("select new com.gorokhov.dto.Booking(o.id, b.id, o.startTime, o.endTime) from Order o join o.bikes b " +
+            "where o.id in :ids")
+    List<Booking> findBookingsByOrderIds(@Param("ids") Collection<Long> ids);
+}
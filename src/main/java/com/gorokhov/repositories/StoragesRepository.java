@@ -1,13 +1,30 @@
 package com.gorokhov.repositories;
 
+import com.gorokhov.dto.StorageView;
 import com.gorokhov.models.Address;
 import com.gorokhov.models.Storage;
+import com.gorokhov.models.enums.City;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface StoragesRepository extends JpaRepository<Storage, Long> {
+    @Query("select new com.gorokhov.dto.StorageView(s.id, a.id, a.city, a.street, a.house) " +
+            "from Storage s join s.address a where s.id > :after order by s.id")
+    List<StorageView> findViewsByIdGreaterThan(@Param("after") long after, Pageable pageable);
+
     Optional<Storage> findByAddress(Address address);
+
+    @Query("select s.id from Storage s where s.address.city = :city order by s.id")
+    List<Long> findIdsByCity(@Param("city") City city);
+
+    @Query("select s.id from Storage s where s.id in :ids")
+    Set<Long> findExistingIds(@Param("ids") Set<Long> ids);
 }
\ No newline at end of file
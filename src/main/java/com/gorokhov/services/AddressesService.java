@@ -1,27 +1,37 @@
 package com.gorokhov.services;
 
+import com.gorokhov.index.FleetCounters;
+import com.gorokhov.index.StorageLocationIndex;
 import com.gorokhov.models.Address;
 import com.gorokhov.models.Storage;
 import com.gorokhov.models.enums.City;
 import com.gorokhov.repositories.AddressesRepository;
+import com.gorokhov.util.CursorPage;
 import com.gorokhov.util.exceptions.AddressNotFoundException;
 import com.gorokhov.util.exceptions.AddressNotUpdatedException;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 @Service
+@Timed(value = "bikerent.service", histogram = true)
 public class AddressesService {
 
     private final AddressesRepository addressesRepository;
+    private final StorageLocationIndex locationIndex;
+    private final FleetCounters fleetCounters;
 
     @Autowired
-    public AddressesService(AddressesRepository addressesRepository) {
+    public AddressesService(AddressesRepository addressesRepository, StorageLocationIndex locationIndex,
+                            FleetCounters fleetCounters) {
         this.addressesRepository = addressesRepository;
+        this.locationIndex = locationIndex;
+        this.fleetCounters = fleetCounters;
     }
 
     @Transactional(readOnly = true)
@@ -35,8 +45,9 @@ public class AddressesService {
     }
 
     @Transactional(readOnly = true)
-    public Set<Address> findAll() {
-        return new HashSet<>(addressesRepository.findAll());
+    public CursorPage<Address> findAll(long after, int limit) {
+        List<Address> addresses = addressesRepository.findByIdGreaterThanOrderById(after, PageRequest.ofSize(limit + 1));
+        return CursorPage.of(addresses, limit, Address::getId);
     }
 
     @Transactional
@@ -44,6 +55,8 @@ public class AddressesService {
         address = addressesRepository.save(address);
         Storage storage = new Storage(address);
         address.setStorage(storage);
+        locationIndex.put(address.getId(), address.getLatitude(), address.getLongitude());
+        fleetCounters.putStorage(address.getId(), address.getCity());
         return address;
     }
 
@@ -53,12 +66,18 @@ public class AddressesService {
         String newStreet = address.getStreet();
         int newHouse = address.getHouse();
 
-        if (addressesRepository.findByCityAndStreetAndHouse(newCity, newStreet, newHouse).isPresent())
+        // Keeping the address but moving its coordinates is not a duplicate
+        if (addressesRepository.findByCityAndStreetAndHouse(newCity, newStreet, newHouse)
+                               .filter(a -> a.getId() != id).isPresent())
             throw new AddressNotUpdatedException("Адрес с такими данными уже существует");
         Address updatedAddress = addressesRepository.findById(id).orElseThrow(AddressNotFoundException::new);
         updatedAddress.setCity(newCity);
         updatedAddress.setStreet(newStreet);
         updatedAddress.setHouse(newHouse);
+        updatedAddress.setLatitude(address.getLatitude());
+        updatedAddress.setLongitude(address.getLongitude());
+        locationIndex.put(id, address.getLatitude(), address.getLongitude());
+        fleetCounters.putStorage(id, newCity);
         return updatedAddress;
     }
 }
\ No newline at end of file
@@ -1,29 +1,49 @@
 package com.gorokhov.services;
 
+import com.gorokhov.dto.BikeView;
+import com.gorokhov.index.BikeAvailabilityIndex;
+import com.gorokhov.index.BikeScheduleIndex;
 import com.gorokhov.models.Bike;
 import com.gorokhov.models.Storage;
+import com.gorokhov.models.enums.City;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
 import com.gorokhov.repositories.BikesRepository;
 import com.gorokhov.repositories.StoragesRepository;
+import com.gorokhov.util.CursorPage;
 import com.gorokhov.util.exceptions.BikeNotFoundException;
+import com.gorokhov.util.exceptions.InvalidTimeSlotException;
 import com.gorokhov.util.exceptions.StorageNotFoundException;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.HashSet;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 
 @Service
+@Timed(value = "bikerent.service", histogram = true)
 public class BikesService {
 
     private final BikesRepository bikesRepository;
     private final StoragesRepository storagesRepository;
+    private final BikeAvailabilityIndex availabilityIndex;
+    private final BikeScheduleIndex scheduleIndex;
 
     @Autowired
-    public BikesService(BikesRepository bikesRepository, StoragesRepository storagesRepository) {
+    public BikesService(BikesRepository bikesRepository, StoragesRepository storagesRepository,
+                        BikeAvailabilityIndex availabilityIndex, BikeScheduleIndex scheduleIndex) {
         this.bikesRepository = bikesRepository;
         this.storagesRepository = storagesRepository;
+        this.availabilityIndex = availabilityIndex;
+        this.scheduleIndex = scheduleIndex;
     }
 
     @Transactional(readOnly = true)
@@ -32,13 +52,40 @@ public class BikesService {
     }
 
     @Transactional(readOnly = true)
-    public Set<Bike> findAll() {
-        return new HashSet<>(bikesRepository.findAll());
+    public CursorPage<BikeView> findAll(long after, int limit) {
+        List<BikeView> bikes = bikesRepository.findViewsByIdGreaterThan(after, PageRequest.ofSize(limit + 1));
+        return CursorPage.of(bikes, limit, BikeView::getId);
+    }
+
+    public List<Long> findAvailable(long storageId, Size size, Color color, Label label) {
+        return availabilityIndex.findAvailable(storageId, size, color, label);
+    }
+
+    // Bikes not held by an open-ended order and without a booking overlapping [from, to)
+    public List<Long> findFree(long storageId, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to))
+            throw new InvalidTimeSlotException();
+        return scheduleIndex.findFree(availabilityIndex.findAvailable(storageId, null, null, null), from, to);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<Long, List<Long>> findFree(City city, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to))
+            throw new InvalidTimeSlotException();
+        Map<Long, List<Long>> free = new TreeMap<>();
+        for (Long storageId : storagesRepository.findIdsByCity(city)) {
+            List<Long> bikeIds = findFree(storageId, from, to);
+            if (!bikeIds.isEmpty())
+                free.put(storageId, bikeIds);
+        }
+        return free;
     }
 
     @Transactional
     public Bike save(Bike bike) {
-        return bikesRepository.save(bike);
+        bike = bikesRepository.save(bike);
+        availabilityIndex.refresh(List.of(bike.getId()));
+        return bike;
     }
 
     @Transactional
@@ -54,6 +101,7 @@ public class BikesService {
         updatedBike.setSize(bike.getSize());
         updatedBike.setLabel(bike.getLabel());
         updatedBike.setStorage(newStorage);
+        availabilityIndex.refresh(List.of(id));
 
         return updatedBike;
     }
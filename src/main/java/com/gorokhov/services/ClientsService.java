@@ -1,33 +1,49 @@
 package com.gorokhov.services;
 
-import com.gorokhov.models.*;
+import com.gorokhov.dto.ClientComment;
+import com.gorokhov.dto.ClientName;
+import com.gorokhov.index.ClientNameIndex;
+import com.gorokhov.index.EmailBloomFilter;
+import com.gorokhov.models.Client;
 import com.gorokhov.repositories.ClientsRepository;
+import com.gorokhov.repositories.CommentsRepository;
+import com.gorokhov.util.CursorPage;
+import com.gorokhov.util.Emails;
 import com.gorokhov.util.exceptions.ClientNotFoundException;
 import com.gorokhov.util.exceptions.ClientNotUpdatedException;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import org.hibernate.Session;
-import org.hibernate.SessionFactory;
-import org.hibernate.boot.Metadata;
-import org.hibernate.boot.MetadataSources;
-import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
-import org.hibernate.cfg.Configuration;
-import org.hibernate.query.Query;
-import org.hibernate.service.ServiceRegistry;
+import org.hibernate.StatelessSession;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 
 @Service
+@Timed(value = "bikerent.service", histogram = true)
 public class ClientsService {
 
     private final ClientsRepository clientsRepository;
+    private final CommentsRepository commentsRepository;
+    private final EntityManager entityManager;
+    private final EmailBloomFilter emailFilter;
+    private final ClientNameIndex nameIndex;
 
     @Autowired
-    public ClientsService(ClientsRepository clientsRepository) {
+    public ClientsService(ClientsRepository clientsRepository, CommentsRepository commentsRepository,
+                          EntityManager entityManager, EmailBloomFilter emailFilter, ClientNameIndex nameIndex) {
         this.clientsRepository = clientsRepository;
+        this.commentsRepository = commentsRepository;
+        this.entityManager = entityManager;
+        this.emailFilter = emailFilter;
+        this.nameIndex = nameIndex;
     }
 
     @Transactional(readOnly = true)
@@ -37,82 +53,90 @@ public class ClientsService {
 
     @Transactional(readOnly = true)
     public Optional<Client> findOne(String email) {
-        return clientsRepository.findByEmail(email);
+        if (!emailFilter.mightContain(email))
+            return Optional.empty();
+        return clientsRepository.findByEmail(Emails.normalize(email));
     }
 
     @Transactional(readOnly = true)
-    public Set<Client> findAll() {
-        return new HashSet<>(clientsRepository.findAll());
+    public CursorPage<Client> findAll(long after, int limit) {
+        List<Client> clients = clientsRepository.findByIdGreaterThanOrderById(after, PageRequest.ofSize(limit + 1));
+        return CursorPage.of(clients, limit, Client::getId);
     }
 
-    @Transactional
-    public Set<Client> findAllByNameContaining(String name) {
-        return clientsRepository.findAllByNameContaining(name);
+    // Comments of the found clients are loaded with one extra query, and only when asked for
+    @Transactional(readOnly = true)
+    public CursorPage<ClientName> findAllByNameContaining(String name, long after, int limit, boolean withComments) {
+        CursorPage<ClientName> page = CursorPage.of(nameIndex.search(name, after, limit + 1), limit, ClientName::getId);
+        if (withComments && !page.getContent().isEmpty()) {
+            Map<Long, ClientName> clients = new HashMap<>();
+            for (ClientName client : page.getContent()) {
+                client.setComments(new ArrayList<>());
+                clients.put(client.getId(), client);
+            }
+            for (ClientComment comment : commentsRepository.findAllByClientIds(clients.keySet()))
+                clients.get(comment.getClientId()).getComments().add(comment.getDescription());
+        }
+        return page;
     }
 
     @Transactional
     public Client save(Client client) {
-        return clientsRepository.save(client);
+        emailFilter.add(client.getEmail());
+        client = clientsRepository.save(client);
+        nameIndex.put(client.getId(), client.getName());
+        return client;
     }
 
     @Transactional
     public Client update(long id, Client client) {
         String newEmail = client.getEmail();
         String newName = client.getName();
-        Optional<Client> clientOpt = clientsRepository.findByEmail(newEmail);
+        Optional<Client> clientOpt = emailFilter.mightContain(newEmail)
+                                     ? clientsRepository.findByEmail(Emails.normalize(newEmail))
+                                     : Optional.empty();
 
         if (clientOpt.isPresent() && clientOpt.get().getId() != id)
             throw new ClientNotUpdatedException("Клиент с таким email уже существует");
         Client updatedClient = clientsRepository.findById(id).orElseThrow(ClientNotFoundException::new);
         updatedClient.setEmail(newEmail);
         updatedClient.setName(newName);
+        emailFilter.add(newEmail);
+        nameIndex.put(id, newName);
         return updatedClient;
     }
 
     @Transactional
     public Client saveWithHibernate(Client client) {
-        try (Session session = getHibernateSession()) {
-            session.beginTransaction();
-            session.persist(client);
-            session.getTransaction().commit();
-        }
+        emailFilter.add(client.getEmail());
+        getHibernateSession().persist(client);
+        nameIndex.put(client.getId(), client.getName());
         return client;
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public Client findOneWithHibernate(long id) {
-        Client client;
-        try (Session session = getHibernateSession()) {
-            session.beginTransaction();
-            client = session.get(Client.class, id);
-            session.getTransaction().commit();
-        }
-        return client;
+        return getHibernateSession().get(Client.class, id);
+    }
+
+    @Transactional
+    public List<Client> saveAllWithHibernate(List<Client> clients) {
+        clients.forEach(c -> emailFilter.add(c.getEmail()));
+        Session session = getHibernateSession();
+        session.doWork(connection -> {
+            try (StatelessSession statelessSession = session.getSessionFactory()
+                                                            .withStatelessOptions()
+                                                            .connection(connection)
+                                                            .openStatelessSession()) {
+                clients.forEach(statelessSession::insert);
+            }
+        });
+        clients.forEach(c -> nameIndex.put(c.getId(), c.getName()));
+        return clients;
     }
 
+    // Session of the current Spring transaction, backed by the application's SessionFactory
     private Session getHibernateSession() {
-        ServiceRegistry registry;
-        Session session;
-        try {
-            Configuration configuration = new Configuration();
-            configuration.configure("hibernate.config.xml");
-
-            registry = new StandardServiceRegistryBuilder().applySettings(configuration.getProperties()).build();
-            MetadataSources metadataSources = new MetadataSources(registry);
-            metadataSources.addAnnotatedClasses(
-                    Address.class,
-                    Storage.class,
-                    Client.class,
-                    Comment.class,
-                    Bike.class,
-                    Order.class);
-            Metadata metadata = metadataSources.buildMetadata();
-
-            SessionFactory sessionFactory = metadata.getSessionFactoryBuilder().build();
-            session = sessionFactory.getCurrentSession();
-        } catch (Throwable e) {
-            throw new ExceptionInInitializerError(e);
-        }
-        return session;
+        return entityManager.unwrap(Session.class);
     }
-}
\ No newline at end of file
+}
@@ -1,28 +1,35 @@
 package com.gorokhov.services;
 
+import com.gorokhov.index.CommentTextIndex;
 import com.gorokhov.models.Client;
 import com.gorokhov.models.Comment;
 import com.gorokhov.repositories.ClientsRepository;
 import com.gorokhov.repositories.CommentsRepository;
+import com.gorokhov.util.CursorPage;
 import com.gorokhov.util.exceptions.ClientNotFoundException;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 @Service
+@Timed(value = "bikerent.service", histogram = true)
 public class CommentsService {
 
     private final CommentsRepository commentsRepository;
     private final ClientsRepository clientsRepository;
+    private final CommentTextIndex textIndex;
 
     @Autowired
-    public CommentsService(CommentsRepository commentsRepository, ClientsRepository clientsRepository) {
+    public CommentsService(CommentsRepository commentsRepository, ClientsRepository clientsRepository,
+                           CommentTextIndex textIndex) {
         this.commentsRepository = commentsRepository;
         this.clientsRepository = clientsRepository;
+        this.textIndex = textIndex;
     }
 
     @Transactional(readOnly = true)
@@ -31,14 +38,17 @@ public class CommentsService {
     }
 
     @Transactional(readOnly = true)
-    public Set<Comment> findAll() {
-        return new HashSet<>(commentsRepository.findAll());
+    public CursorPage<Comment> findAll(long after, int limit) {
+        List<Comment> comments = commentsRepository.findByIdGreaterThanOrderById(after, PageRequest.ofSize(limit + 1));
+        return CursorPage.of(comments, limit, Comment::getId);
     }
 
-//    @Transactional(readOnly = true)
-//    public Set<Comment> findAllByDescriptionContaining(String description) {
-//        return commentsRepository.findAllByDescriptionContaining(description);
-//    }
+    @Transactional(readOnly = true)
+    public CursorPage<Comment> search(String query, long after, int limit) {
+        List<Long> ids = textIndex.search(query, after, limit + 1);
+        List<Comment> comments = ids.isEmpty() ? List.of() : commentsRepository.findAllWithClientByIdIn(ids);
+        return CursorPage.of(comments, limit, Comment::getId);
+    }
 
     @Transactional
     public Comment save(Comment comment) {
@@ -46,6 +56,7 @@ public class CommentsService {
                                         .orElseThrow(ClientNotFoundException::new);
         comment = commentsRepository.save(comment);
         client.getComments().add(comment);
+        textIndex.add(comment.getId(), comment.getDescription());
         return comment;
     }
 }
\ No newline at end of file
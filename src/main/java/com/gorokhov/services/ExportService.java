@@ -0,0 +1,99 @@
+package com.gorokhov.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gorokhov.dto.BikeView;
+import com.gorokhov.dto.OrderView;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+
+// Writes whole tables as NDJSON straight from a forward-only cursor, one row in memory at a time
+@Service
+@Timed(value = "bikerent.service", histogram = true)
+public class ExportService {
+
+    private static final String ORDERS = "select o.id, o.client_id, c.name, o.storage_id, o.start_time, o.end_time, " +
+            "o.close_time, bo.id as bike_id from orders o join client c on c.id = o.client_id " +
+            "left join bike_orders bo on bo.order_id = o.id";
+    private static final String BIKES = "select id, color, size, label, available, storage_id from bike";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public ExportService(DataSource dataSource, ObjectMapper objectMapper,
+                         @Value("${export.fetch-size}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.objectMapper = objectMapper;
+    }
+
+    // Rows come ordered by order id, so the bike rows of an order are folded as soon as the next order starts
+    @Transactional(readOnly = true)
+    public void exportOrders(LocalDateTime since, Writer writer) throws IOException {
+        OrderView[] current = new OrderView[1];
+        query(ORDERS + (since == null ? "" : " where o.updated_at >= ?") + " order by o.id, bo.id", since, rs -> {
+            long id = rs.getLong("id");
+            if (current[0] == null || current[0].getId() != id) {
+                write(writer, current[0]);
+                current[0] = new OrderView(id, rs.getLong("client_id"), rs.getString("name"),
+                                           rs.getLong("storage_id"),
+                                           rs.getObject("start_time", LocalDateTime.class),
+                                           rs.getObject("end_time", LocalDateTime.class),
+                                           rs.getObject("close_time", LocalDateTime.class));
+            }
+            long bikeId = rs.getLong("bike_id");
+            if (!rs.wasNull())
+                current[0].getBikeIds().add(bikeId);
+        });
+        write(writer, current[0]);
+        writer.flush();
+    }
+
+    @Transactional(readOnly = true)
+    public void exportBikes(LocalDateTime since, Writer writer) throws IOException {
+        query(BIKES + (since == null ? "" : " where updated_at >= ?") + " order by id", since, rs ->
+                write(writer, new BikeView(rs.getLong("id"),
+                                           Color.valueOf(rs.getString("color")),
+                                           Size.valueOf(rs.getString("size")),
+                                           Label.valueOf(rs.getString("label")),
+                                           rs.getBoolean("available"),
+                                           rs.getLong("storage_id"))));
+        writer.flush();
+    }
+
+    private void query(String sql, LocalDateTime since, RowCallbackHandler handler) throws IOException {
+        try {
+            if (since == null)
+                jdbcTemplate.query(sql, handler);
+            else
+                jdbcTemplate.query(sql, handler, since);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void write(Writer writer, Object row) {
+        if (row == null)
+            return;
+        try {
+            writer.write(objectMapper.writeValueAsString(row));
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
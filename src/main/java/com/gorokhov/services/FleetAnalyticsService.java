@@ -0,0 +1,75 @@
+package com.gorokhov.services;
+
+import com.gorokhov.dto.FleetAnalytics;
+import com.gorokhov.dto.FleetDrift;
+import com.gorokhov.index.FleetCounters;
+import com.gorokhov.models.enums.City;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import com.gorokhov.repositories.BikesRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+@Timed(value = "bikerent.service", histogram = true)
+public class FleetAnalyticsService {
+
+    private static final Logger log = LoggerFactory.getLogger(FleetAnalyticsService.class);
+
+    private final FleetCounters fleetCounters;
+    private final BikesRepository bikesRepository;
+    private final AtomicLong drifted = new AtomicLong();
+    // Not a monitor, the recount is a database round trip and would pin a virtual thread
+    private final Lock reconcileLock = new ReentrantLock();
+    private Set<FleetDrift> lastDrift = Set.of();
+
+    @Autowired
+    public FleetAnalyticsService(FleetCounters fleetCounters, BikesRepository bikesRepository, MeterRegistry registry) {
+        this.fleetCounters = fleetCounters;
+        this.bikesRepository = bikesRepository;
+        registry.gauge("bikerent.fleet.drift", drifted);
+    }
+
+    public FleetAnalytics findCounts(Long storageId, City city, Label label, Size size, Color color, Boolean available) {
+        return fleetCounters.count(storageId, city, label, size, color, available);
+    }
+
+    // Recounts the bikes from the base tables and reports the counters that differ. A commit whose counters are not
+    // applied yet looks like drift for a moment, so a storage counter is corrected only when the same drift is found
+    // by two runs in a row
+    @Transactional(readOnly = true)
+    @Scheduled(fixedDelayString = "${fleet-analytics.reconcile-interval}",
+               initialDelayString = "${fleet-analytics.reconcile-interval}")
+    public List<FleetDrift> reconcile() {
+        reconcileLock.lock();
+        try {
+            List<FleetDrift> drift = fleetCounters.findDrift(bikesRepository.countFleet());
+            drifted.set(drift.stream().mapToLong(d -> Math.abs(d.getExpected() - d.getActual())).sum());
+            if (!drift.isEmpty())
+                log.warn("Fleet counters drifted in {} cells, first {}", drift.size(), drift.get(0));
+            for (FleetDrift d : drift)
+                if (lastDrift.contains(d)) {
+                    log.warn("Correcting persistent fleet counter drift {}", d);
+                    fleetCounters.correct(d);
+                }
+            lastDrift = new HashSet<>(drift);
+            return drift;
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.gorokhov.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gorokhov.dto.AddressKey;
+import com.gorokhov.dto.FleetImportResult;
+import com.gorokhov.dto.FleetImportRow;
+import com.gorokhov.index.BikeAvailabilityIndex;
+import com.gorokhov.index.FleetCounters;
+import com.gorokhov.models.Address;
+import com.gorokhov.models.Bike;
+import com.gorokhov.models.Storage;
+import com.gorokhov.repositories.AddressesRepository;
+import com.gorokhov.repositories.BikesRepository;
+import com.gorokhov.util.ConstraintViolations;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Service
+@Timed(value = "bikerent.service", histogram = true)
+public class FleetImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(FleetImportService.class);
+
+    private final AddressesRepository addressesRepository;
+    private final BikesRepository bikesRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final BikeAvailabilityIndex availabilityIndex;
+    private final FleetCounters fleetCounters;
+    private final int chunkSize;
+
+    @Autowired
+    public FleetImportService(AddressesRepository addressesRepository, BikesRepository bikesRepository,
+                              TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                              Validator validator, BikeAvailabilityIndex availabilityIndex,
+                              FleetCounters fleetCounters, @Value("${fleet-import.chunk-size}") int chunkSize) {
+        this.addressesRepository = addressesRepository;
+        this.bikesRepository = bikesRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.availabilityIndex = availabilityIndex;
+        this.fleetCounters = fleetCounters;
+        this.chunkSize = chunkSize;
+    }
+
+    // Reads NDJSON rows and writes one NDJSON result per row, committing every chunkSize rows
+    public void importFleet(BufferedReader reader, Writer writer) throws IOException {
+        List<FleetImportRow> chunk = new ArrayList<>(chunkSize);
+        long line = 0;
+        String json;
+        while ((json = reader.readLine()) != null) {
+            line++;
+            if (json.isBlank())
+                continue;
+            try {
+                FleetImportRow row = objectMapper.readValue(json, FleetImportRow.class);
+                row.setLine(line);
+                chunk.add(row);
+            } catch (JsonProcessingException e) {
+                write(writer, List.of(FleetImportResult.failed(line, "Некорректная строка: " + e.getOriginalMessage())));
+                continue;
+            }
+            if (chunk.size() == chunkSize) {
+                write(writer, importChunk(chunk));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty())
+            write(writer, importChunk(chunk));
+    }
+
+    // A chunk that fails to commit is retried row by row, so one bad row does not fail the rest of the chunk
+    private List<FleetImportResult> importChunk(List<FleetImportRow> rows) {
+        try {
+            return transactionTemplate.execute(status -> saveChunk(rows));
+        } catch (DataAccessException | TransactionException e) {
+            if (rows.size() == 1)
+                return List.of(FleetImportResult.failed(rows.get(0).getLine(), saveError(rows.get(0), e)));
+        }
+        List<FleetImportResult> results = new ArrayList<>(rows.size());
+        for (FleetImportRow row : rows)
+            results.addAll(importChunk(List.of(row)));
+        return results;
+    }
+
+    // The database message names tables and constraints, the caller gets it only as a domain message. The address is
+    // the only unique key a row inserts, another import may have created it since the check
+    private static String saveError(FleetImportRow row, Exception e) {
+        if (ConstraintViolations.isUnique(e))
+            return "Такой адрес уже существует";
+        log.warn("Fleet import failed to save line {}", row.getLine(), e);
+        return "Ошибка сохранения";
+    }
+
+    private List<FleetImportResult> saveChunk(List<FleetImportRow> rows) {
+        Set<String> streets = rows.stream()
+                                    .map(FleetImportRow::getStreet)
+                                    .filter(Objects::nonNull)
+                                    .collect(Collectors.toSet());
+        Set<Integer> houses = rows.stream()
+                                    .map(FleetImportRow::getHouse)
+                                    .collect(Collectors.toSet());
+        Set<String> existing = addressesRepository.findAllByStreetInAndHouseIn(streets, houses).stream()
+                                    .map(a -> AddressKey.of(a.getCity(), a.getStreet(), a.getHouse()))
+                                    .collect(Collectors.toCollection(HashSet::new));
+
+        List<FleetImportResult> results = new ArrayList<>(rows.size());
+        for (FleetImportRow row : rows) {
+            Address address = new Address(row.getCity(), row.getStreet(), row.getHouse());
+            Storage storage = new Storage(address);
+            address.setStorage(storage);
+            List<Bike> bikes = row.getBikes() == null ? List.of() : row.getBikes();
+            // The import only creates bikes, an id from the row would merge over an existing bike. The ids are also
+            // reset when a failed chunk is retried, its rolled back inserts had already taken them
+            bikes.forEach(b -> {
+                b.setId(0);
+                b.setStorage(storage);
+            });
+
+            String errorMessage = validate(address, bikes);
+            if (errorMessage.isEmpty() && !existing.add(AddressKey.of(row.getCity(), row.getStreet(), row.getHouse())))
+                errorMessage = "Такой адрес уже существует";
+            if (!errorMessage.isEmpty()) {
+                results.add(FleetImportResult.failed(row.getLine(), errorMessage));
+                continue;
+            }
+
+            addressesRepository.save(address);
+            fleetCounters.putStorage(address.getId(), address.getCity());
+            bikesRepository.saveAll(bikes);
+            availabilityIndex.refresh(bikes.stream().map(Bike::getId).toList());
+            results.add(FleetImportResult.created(row.getLine(), address.getId(), bikes.size()));
+        }
+        return results;
+    }
+
+    private String validate(Address address, List<Bike> bikes) {
+        StringBuilder errorMessage = new StringBuilder();
+        validator.validate(address).forEach(v -> errorMessage.append(v.getPropertyPath())
+                                                            .append(" - ")
+                                                            .append(v.getMessage())
+                                                            .append("; "));
+        for (int i = 0; i < bikes.size(); i++) {
+            int index = i;
+            validator.validate(bikes.get(i)).forEach(v -> errorMessage.append("bikes[")
+                                                                    .append(index)
+                                                                    .append("].")
+                                                                    .append(v.getPropertyPath())
+                                                                    .append(" - ")
+                                                                    .append(v.getMessage())
+                                                                    .append("; "));
+        }
+        return errorMessage.toString();
+    }
+
+    private void write(Writer writer, List<FleetImportResult> results) throws IOException {
+        for (FleetImportResult result : results) {
+            writer.write(objectMapper.writeValueAsString(result));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+}
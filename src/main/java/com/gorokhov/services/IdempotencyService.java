@@ -0,0 +1,123 @@
+package com.gorokhov.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gorokhov.models.Bike;
+import com.gorokhov.models.IdempotencyKey;
+import com.gorokhov.models.Order;
+import com.gorokhov.repositories.IdempotencyKeysRepository;
+import com.gorokhov.util.StorageLocks;
+import com.gorokhov.util.exceptions.IdempotencyKeyInUseException;
+import com.gorokhov.util.exceptions.IdempotencyKeyMismatchException;
+import com.gorokhov.util.exceptions.InvalidIdempotencyKeyException;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+
+// Retried order creations with the same Idempotency-Key get the order of the first request. Recent keys are
+// answered from a bounded in-memory cache, older ones and those from before a restart from the idempotency_key table
+@Service
+@Timed(value = "bikerent.service", histogram = true)
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeysRepository idempotencyKeysRepository;
+    private final OrdersService ordersService;
+    private final TransactionTemplate transactionTemplate;
+    private final StorageLocks storageLocks;
+    private final Duration ttl;
+    private final Cache<String, IdempotencyKey> keys;
+
+    @Autowired
+    public IdempotencyService(IdempotencyKeysRepository idempotencyKeysRepository, OrdersService ordersService,
+                              TransactionTemplate transactionTemplate, StorageLocks storageLocks,
+                              @Value("${idempotency.cache-size}") long cacheSize,
+                              @Value("${idempotency.ttl}") Duration ttl) {
+        this.idempotencyKeysRepository = idempotencyKeysRepository;
+        this.ordersService = ordersService;
+        this.transactionTemplate = transactionTemplate;
+        this.storageLocks = storageLocks;
+        this.ttl = ttl;
+        this.keys = Caffeine.newBuilder()
+                                .maximumSize(cacheSize)
+                                .expireAfterWrite(ttl)
+                                .build();
+    }
+
+    // The key is claimed in the same transaction that creates the order, so a failed creation releases it again. A key
+    // reused by another client or for another request is rejected instead of answered with the first order
+    public long createOrder(String key, Order order) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH)
+            throw new InvalidIdempotencyKeyException();
+        long clientId = order.getClient().getId();
+        String requestHash = requestHash(order);
+        IdempotencyKey stored = keys.getIfPresent(key);
+        if (stored == null)
+            stored = idempotencyKeysRepository.findCompleted(key).orElse(null);
+        if (stored == null) {
+            try {
+                // The stripe is taken before the transaction, as OrdersService.save does on its own
+                long orderId = storageLocks.callLocked(List.of(order.getStorage().getId()), () -> transactionTemplate.execute(status -> {
+                    claim(key, clientId, requestHash);
+                    long id = ordersService.save(order).getId();
+                    idempotencyKeysRepository.setOrderId(key, id);
+                    return id;
+                }));
+                stored = new IdempotencyKey();
+                stored.setId(key);
+                stored.setClientId(clientId);
+                stored.setRequestHash(requestHash);
+                stored.setOrderId(orderId);
+            } catch (IdempotencyKeyInUseException e) {
+                // Another request with this key got there first, its order is there once it has committed
+                stored = idempotencyKeysRepository.findCompleted(key).orElseThrow(() -> e);
+            }
+        }
+        if (stored.getClientId() != clientId || !stored.getRequestHash().equals(requestHash))
+            throw new IdempotencyKeyMismatchException();
+        keys.put(key, stored);
+        return stored.getOrderId();
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval}", initialDelayString = "${idempotency.purge-interval}")
+    public int purgeExpired() {
+        return idempotencyKeysRepository.deleteCreatedBefore(LocalDateTime.now().minus(ttl));
+    }
+
+    private void claim(String key, long clientId, String requestHash) {
+        try {
+            idempotencyKeysRepository.claim(key, clientId, requestHash, LocalDateTime.now());
+        } catch (DataIntegrityViolationException e) {
+            throw new IdempotencyKeyInUseException();
+        }
+    }
+
+    // SHA-256 of what the order is created from apart from the client. Bike ids are sorted, their order in the request
+    // does not matter
+    static String requestHash(Order order) {
+        String request = order.getStorage().getId() + "|" +
+                order.getBikes().stream().map(Bike::getId).sorted().toList() + "|" +
+                order.getStartTime() + "|" + order.getEndTime();
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(request.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
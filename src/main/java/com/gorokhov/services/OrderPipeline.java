@@ -0,0 +1,184 @@
+package com.gorokhov.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gorokhov.dto.OrderRequestStatus;
+import com.gorokhov.metrics.ErrorMetrics;
+import com.gorokhov.models.Order;
+import com.gorokhov.util.exceptions.DomainException;
+import com.gorokhov.util.exceptions.OrderNotCreatedException;
+import com.gorokhov.util.exceptions.OrderQueueFullException;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Accept-then-process order creation. Orders are queued into a bounded ring buffer and created by a single worker
+// in micro-batches of one transaction each, so the commit cost is shared by the batch. A batch is closed once it is
+// full or its first order has waited for the linger time. Clients poll the status of their request
+@Service
+@Timed(value = "bikerent.service", histogram = true)
+public class OrderPipeline implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderPipeline.class);
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final OrdersService ordersService;
+    private final ErrorMetrics errorMetrics;
+    private final BlockingQueue<Request> queue;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final Cache<String, OrderRequestStatus> statuses;
+    private volatile boolean running;
+    private Thread worker;
+
+    @Autowired
+    public OrderPipeline(OrdersService ordersService, ErrorMetrics errorMetrics,
+                         @Value("${orders.pipeline.capacity}") int capacity,
+                         @Value("${orders.pipeline.batch-size}") int batchSize,
+                         @Value("${orders.pipeline.linger}") Duration linger,
+                         @Value("${orders.pipeline.status-cache-size}") long statusCacheSize,
+                         @Value("${orders.pipeline.status-ttl}") Duration statusTtl) {
+        this.ordersService = ordersService;
+        this.errorMetrics = errorMetrics;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerNanos = linger.toNanos();
+        this.statuses = Caffeine.newBuilder()
+                                .maximumSize(statusCacheSize)
+                                .expireAfterWrite(statusTtl)
+                                .build();
+    }
+
+    // Returns the id of the request to poll the status with
+    public String submit(Order order) {
+        if (!running)
+            throw new OrderQueueFullException();
+        String requestId = UUID.randomUUID().toString();
+        statuses.put(requestId, OrderRequestStatus.pending());
+        if (!queue.offer(new Request(requestId, order))) {
+            statuses.invalidate(requestId);
+            throw new OrderQueueFullException();
+        }
+        return requestId;
+    }
+
+    public Optional<OrderRequestStatus> findStatus(String requestId) {
+        return Optional.ofNullable(statuses.getIfPresent(requestId));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        worker = new Thread(this::drain, "order-pipeline");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // Stops taking orders and waits until the worker has created the queued ones
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Starts before and stops after the web server, so no request can be queued once the queue is drained
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void drain() {
+        List<Request> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Request first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0)
+                        continue;
+                    Request next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                }
+                process(batch);
+            } catch (InterruptedException e) {
+                // Only stop() ends the worker, the queued orders are still created
+                Thread.interrupted();
+                if (!batch.isEmpty())
+                    process(batch);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(List<Request> batch) {
+        List<Order> orders = batch.stream().map(r -> r.order).toList();
+        List<DomainException> rejections;
+        try {
+            rejections = ordersService.saveAll(orders);
+        } catch (RuntimeException e) {
+            // Falls back to a transaction per order, so an unexpected failure only rejects the order that caused it
+            log.warn("Order batch of {} failed, creating the orders one by one", orders.size(), e);
+            orders.forEach(o -> o.setId(0L));
+            rejections = orders.stream().map(this::saveOne).toList();
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            DomainException rejection = rejections.get(i);
+            if (rejection != null)
+                errorMetrics.count(rejection);
+            statuses.put(batch.get(i).id, rejection == null
+                    ? OrderRequestStatus.created(orders.get(i).getId())
+                    : OrderRequestStatus.rejected(rejection.getMessage()));
+        }
+    }
+
+    private DomainException saveOne(Order order) {
+        try {
+            ordersService.save(order);
+            return null;
+        } catch (DomainException e) {
+            return e;
+        } catch (RuntimeException e) {
+            log.error("Order {} could not be created", order, e);
+            return new OrderNotCreatedException("Заказ не удалось создать");
+        }
+    }
+
+    private static class Request {
+
+        private final String id;
+        private final Order order;
+
+        private Request(String id, Order order) {
+            this.id = id;
+            this.order = order;
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package com.gorokhov.services;
 
+import com.gorokhov.dto.BikeAllocation;
+import com.gorokhov.dto.Booking;
+import com.gorokhov.dto.OrderView;
+import com.gorokhov.index.BikeAvailabilityIndex;
+import com.gorokhov.index.BikeScheduleIndex;
 import com.gorokhov.models.Bike;
 import com.gorokhov.models.Client;
 import com.gorokhov.models.Order;
@@ -8,94 +13,379 @@ import com.gorokhov.repositories.BikesRepository;
 import com.gorokhov.repositories.ClientsRepository;
 import com.gorokhov.repositories.OrdersRepository;
 import com.gorokhov.repositories.StoragesRepository;
+import com.gorokhov.util.CursorPage;
+import com.gorokhov.util.StorageLocks;
 import com.gorokhov.util.exceptions.BikeNotFoundException;
+import com.gorokhov.util.exceptions.BikesNotAvailableException;
 import com.gorokhov.util.exceptions.ClientNotFoundException;
+import com.gorokhov.util.exceptions.DomainException;
+import com.gorokhov.util.exceptions.NotEnoughBikesException;
+import com.gorokhov.util.exceptions.OrderClosedException;
 import com.gorokhov.util.exceptions.OrderNotFoundException;
 import com.gorokhov.util.exceptions.StorageNotFoundException;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
 
 @Service
+@Timed(value = "bikerent.service", histogram = true)
 public class OrdersService {
 
     private final OrdersRepository ordersRepository;
     private final BikesRepository bikesRepository;
     private final ClientsRepository clientsRepository;
     private final StoragesRepository storagesRepository;
+    private final BikeAvailabilityIndex availabilityIndex;
+    private final BikeScheduleIndex scheduleIndex;
+    private final StorageLocks storageLocks;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
-    public OrdersService(OrdersRepository ordersRepository, BikesRepository bikesRepository, ClientsRepository clientsRepository, StoragesRepository storagesRepository) {
+    public OrdersService(OrdersRepository ordersRepository, BikesRepository bikesRepository, ClientsRepository clientsRepository, StoragesRepository storagesRepository, BikeAvailabilityIndex availabilityIndex, BikeScheduleIndex scheduleIndex, StorageLocks storageLocks, TransactionTemplate transactionTemplate) {
         this.ordersRepository = ordersRepository;
         this.bikesRepository = bikesRepository;
         this.clientsRepository = clientsRepository;
         this.storagesRepository = storagesRepository;
+        this.availabilityIndex = availabilityIndex;
+        this.scheduleIndex = scheduleIndex;
+        this.storageLocks = storageLocks;
+        this.transactionTemplate = transactionTemplate;
     }
 
     @Transactional(readOnly = true)
-    public Optional<Order> findOne(long id) {
-        return ordersRepository.findById(id);
+    public Optional<OrderView> findOne(long id) {
+        return OrderView.of(ordersRepository.findRowsById(id)).stream().findFirst();
     }
 
     @Transactional(readOnly = true)
-    public Set<Order> findAll() {
-        return new HashSet<>(ordersRepository.findAll());
+    public CursorPage<OrderView> findAll(long after, int limit) {
+        List<OrderView> orders = OrderView.of(ordersRepository.findRowsByIdGreaterThan(after, limit + 1));
+        return CursorPage.of(orders, limit, OrderView::getId);
     }
 
-    @Transactional
+    // Creating and updating orders take the storage stripes before their transaction opens, see StorageLocks.callLocked
     public Order save(Order order) {
-        Set<Bike> bikes = order.getBikes();
+        return storageLocks.callLocked(List.of(order.getStorage().getId()),
+                                       () -> transactionTemplate.execute(status -> create(order)));
+    }
+
+    // Creates a batch of orders in one transaction. The batch is checked up front against one lock of all its
+    // storages and bikes, so an order that cannot be created is rejected without rolling back the others. Returns
+    // the rejection of each order by position, null for the created ones
+    public List<DomainException> saveAll(List<Order> orders) {
+        if (orders.isEmpty())
+            return new ArrayList<>();
+        Set<Long> storageIds = orders.stream().map(o -> o.getStorage().getId()).collect(Collectors.toSet());
+        return storageLocks.callLocked(storageIds, () -> transactionTemplate.execute(status -> createAll(orders)));
+    }
+
+    private Order create(Order order) {
+        if (!clientsRepository.existsById(order.getClient().getId()))
+            throw new ClientNotFoundException();
+        if (!storagesRepository.existsById(order.getStorage().getId()))
+            throw new StorageNotFoundException();
+        Set<Long> bikeIds = order.getBikes().stream().map(Bike::getId).collect(Collectors.toSet());
+        if (order.hasTimeSlot())
+            reserveTimeSlot(0L, bikeIds, order.getStartTime(), order.getEndTime());
+        else if (!bikeIds.isEmpty())
+            reserveOpenEnded(0L, bikeIds);
         order = ordersRepository.save(order);
-        for (Bike b : bikes) {
-            Optional<Bike> bikeOpt = bikesRepository.findById(b.getId());
-            if (bikeOpt.isPresent()) {
-                Bike bike = bikeOpt.get();
-                bike.getOrders().add(order);
-                bike.setAvailable(false);
-            } else
-                throw new BikeNotFoundException();
+        if (!bikeIds.isEmpty()) {
+            ordersRepository.addBikes(order.getId(), bikeIds);
+            if (order.hasTimeSlot())
+                scheduleIndex.put(order.getId(), bikeIds, order.getStartTime(), order.getEndTime());
+            else
+                availabilityIndex.refresh(bikeIds);
         }
         return order;
     }
 
+    private List<DomainException> createAll(List<Order> orders) {
+        List<DomainException> rejections = new ArrayList<>(Collections.nCopies(orders.size(), null));
+        Set<Long> storageIds = orders.stream().map(o -> o.getStorage().getId()).collect(Collectors.toSet());
+        Set<Long> clientIds = orders.stream().map(o -> o.getClient().getId()).collect(Collectors.toSet());
+        Set<Long> existingClientIds = clientsRepository.findExistingIds(clientIds);
+        Set<Long> existingStorageIds = storagesRepository.findExistingIds(storageIds);
+
+        Set<Long> allBikeIds = new HashSet<>();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime from = LocalDateTime.MAX;
+        LocalDateTime to = LocalDateTime.MIN;
+        boolean openEnded = false;
+        for (Order order : orders) {
+            order.getBikes().forEach(b -> allBikeIds.add(b.getId()));
+            if (order.hasTimeSlot()) {
+                from = order.getStartTime().isBefore(from) ? order.getStartTime() : from;
+                to = order.getEndTime().isAfter(to) ? order.getEndTime() : to;
+            } else
+                openEnded = true;
+        }
+        Map<Long, Bike> bikes = new HashMap<>();
+        Map<Long, List<Booking>> bookings = new HashMap<>();
+        if (!allBikeIds.isEmpty()) {
+            bikesRepository.findAllForUpdate(allBikeIds).forEach(b -> bikes.put(b.getId(), b));
+            // A booking can come twice from the two queries, the checks below only look for any overlapping one
+            List<Booking> found = new ArrayList<>();
+            if (from.isBefore(to))
+                found.addAll(ordersRepository.findBookingsOverlapping(allBikeIds, from, to));
+            if (openEnded)
+                found.addAll(ordersRepository.findBookingsEndingAfter(allBikeIds, now));
+            for (Booking booking : found)
+                bookings.computeIfAbsent(booking.getBikeId(), id -> new ArrayList<>()).add(booking);
+        }
+
+        // Orders accepted earlier in the batch take their bikes and slots from the later ones
+        Set<Long> reserved = new HashSet<>();
+        List<Order> accepted = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            Set<Long> bikeIds = order.getBikes().stream().map(Bike::getId).collect(Collectors.toSet());
+            DomainException rejection = null;
+            if (!existingClientIds.contains(order.getClient().getId()))
+                rejection = new ClientNotFoundException();
+            else if (!existingStorageIds.contains(order.getStorage().getId()))
+                rejection = new StorageNotFoundException();
+            else if (!bikes.keySet().containsAll(bikeIds))
+                rejection = new BikeNotFoundException();
+            else {
+                Set<Long> taken = new TreeSet<>();
+                for (long bikeId : bikeIds) {
+                    if (!bikes.get(bikeId).isAvailable() || reserved.contains(bikeId))
+                        taken.add(bikeId);
+                    else if (order.hasTimeSlot() && bookings.getOrDefault(bikeId, List.of()).stream().anyMatch(
+                            b -> b.getStartTime().isBefore(order.getEndTime()) &&
+                                 b.getEndTime().isAfter(order.getStartTime())))
+                        taken.add(bikeId);
+                    // An open-ended order holds the bike from now on, so it overlaps every booking still to end
+                    else if (!order.hasTimeSlot() && bookings.getOrDefault(bikeId, List.of()).stream().anyMatch(
+                            b -> b.getEndTime().isAfter(now)))
+                        taken.add(bikeId);
+                }
+                if (!taken.isEmpty())
+                    rejection = new BikesNotAvailableException(taken);
+            }
+            if (rejection != null) {
+                rejections.set(i, rejection);
+                continue;
+            }
+            accepted.add(order);
+            for (long bikeId : bikeIds) {
+                if (order.hasTimeSlot())
+                    bookings.computeIfAbsent(bikeId, id -> new ArrayList<>())
+                            .add(new Booking(0L, bikeId, order.getStartTime(), order.getEndTime()));
+                else
+                    reserved.add(bikeId);
+            }
+        }
+
+        if (!reserved.isEmpty()) {
+            bikesRepository.reserveAll(reserved);
+            availabilityIndex.refresh(reserved);
+        }
+        for (Order order : ordersRepository.saveAllAndFlush(accepted)) {
+            Set<Long> bikeIds = order.getBikes().stream().map(Bike::getId).collect(Collectors.toSet());
+            if (bikeIds.isEmpty())
+                continue;
+            ordersRepository.addBikesWithoutFlush(order.getId(), bikeIds);
+            if (order.hasTimeSlot())
+                scheduleIndex.put(order.getId(), bikeIds, order.getStartTime(), order.getEndTime());
+        }
+        return rejections;
+    }
+
+    // Picks the bikes for the client instead of taking them from the order. Candidates come from the indexes and are
+    // claimed with SKIP LOCKED, so concurrent allocations at one storage end up with different bikes instead of
+    // queueing on the same rows. That is also why no storage lock is taken here
     @Transactional
+    public Order allocate(BikeAllocation allocation) {
+        if (!clientsRepository.existsById(allocation.getClientId()))
+            throw new ClientNotFoundException();
+        if (!storagesRepository.existsById(allocation.getStorageId()))
+            throw new StorageNotFoundException();
+        List<Long> candidates = availabilityIndex.findAvailable(allocation.getStorageId(), allocation.getSize(),
+                                                                allocation.getColor(), allocation.getLabel());
+        if (allocation.hasTimeSlot())
+            candidates = scheduleIndex.findFree(candidates, allocation.getStartTime(), allocation.getEndTime());
+        // Concurrent allocations see the same candidates, a random order keeps them from trying the same bikes first
+        candidates = new ArrayList<>(candidates);
+        Collections.shuffle(candidates, ThreadLocalRandom.current());
+
+        int count = allocation.getCount();
+        Set<Long> bikeIds = new HashSet<>();
+        for (int from = 0; bikeIds.size() < count && from < candidates.size(); ) {
+            int to = Math.min(from + count - bikeIds.size(), candidates.size());
+            bikeIds.addAll(bikesRepository.lockFreeIds(new HashSet<>(candidates.subList(from, to)),
+                                                       allocation.getStorageId(), allocation.getSize().name(),
+                                                       allocation.getColor() == null ? null : allocation.getColor().name(),
+                                                       allocation.getLabel() == null ? null : allocation.getLabel().name(),
+                                                       allocation.getStartTime(), allocation.getEndTime()));
+            from = to;
+        }
+        if (bikeIds.size() < count)
+            throw new NotEnoughBikesException(count, bikeIds.size());
+
+        if (!allocation.hasTimeSlot()) {
+            bikesRepository.reserveAll(bikeIds);
+            availabilityIndex.refresh(bikeIds);
+        }
+        Order order = ordersRepository.save(new Order(
+                clientsRepository.getReferenceById(allocation.getClientId()),
+                new HashSet<>(bikesRepository.findAllById(bikeIds)),
+                storagesRepository.getReferenceById(allocation.getStorageId()),
+                allocation.getStartTime(), allocation.getEndTime()));
+        ordersRepository.addBikes(order.getId(), bikeIds);
+        if (allocation.hasTimeSlot())
+            scheduleIndex.put(order.getId(), bikeIds, allocation.getStartTime(), allocation.getEndTime());
+        return order;
+    }
+
+    // Rewrites only the changed bike_orders rows and leaves the inverse collections uninitialized. An open-ended order
+    // holds its bikes, so the bikes it gains are reserved and the ones it drops are released. An order that switches
+    // to a time slot gives back all of its bikes before booking the new ones, one that switches from a time slot
+    // reserves all of its new bikes
     public Order update(long id, Order order) {
+        long newStorageId = order.getStorage().getId();
+        while (true) {
+            // A missing order is reported from inside the transaction, after the client and storage checks
+            Long oldStorageId = ordersRepository.findStorageId(id).orElse(null);
+            List<Long> storageIds = oldStorageId == null ? List.of(newStorageId) : List.of(oldStorageId, newStorageId);
+            Order updated = storageLocks.callLocked(storageIds, () -> transactionTemplate.execute(
+                    status -> modify(id, order, oldStorageId)));
+            if (updated != null)
+                return updated;
+        }
+    }
+
+    // Returns null when the order moved to another storage after its stripe was chosen, the caller locks again
+    private Order modify(long id, Order order, Long oldStorageId) {
         Client newClient = clientsRepository.findById(order.getClient().getId())
                                             .orElseThrow(ClientNotFoundException::new);
         Storage newStorage = storagesRepository.findById(order.getStorage().getId())
                                             .orElseThrow(StorageNotFoundException::new);
-        Set<Bike> newBikes = new HashSet<>();
-        Set<Bike> tempBikes = order.getBikes();
-        for (Bike b : tempBikes) {
-            Bike newBike = bikesRepository.findById(b.getId()).orElseThrow(BikeNotFoundException::new);
-            newBikes.add(newBike);
-        }
-
         Order updatedOrder = ordersRepository.findById(id).orElseThrow(OrderNotFoundException::new);
-        Client oldClient = updatedOrder.getClient();
-        Storage oldStorage = updatedOrder.getStorage();
-        Set<Bike> oldBikes = updatedOrder.getBikes();
-
-        oldClient.getOrders().remove(updatedOrder);
-        oldStorage.getOrders().remove(updatedOrder);
-        for (Bike b : oldBikes) {
-            Bike oldBike = bikesRepository.findById(b.getId()).orElseThrow(BikeNotFoundException::new);
-            oldBike.getOrders().remove(updatedOrder);
+        if (updatedOrder.isClosed())
+            throw new OrderClosedException();
+        if (!Objects.equals(updatedOrder.getStorage().getId(), oldStorageId))
+            return null;
+
+        Set<Long> newBikeIds = order.getBikes().stream().map(Bike::getId).collect(Collectors.toSet());
+        Set<Long> oldBikeIds = ordersRepository.findBikeIds(id);
+        Set<Long> removed = new HashSet<>(oldBikeIds);
+        removed.removeAll(newBikeIds);
+        Set<Long> added = new HashSet<>(newBikeIds);
+        added.removeAll(oldBikeIds);
+        if (order.hasTimeSlot()) {
+            if (!updatedOrder.hasTimeSlot() && !oldBikeIds.isEmpty())
+                bikesRepository.releaseAll(oldBikeIds);
+            reserveTimeSlot(id, newBikeIds, order.getStartTime(), order.getEndTime());
+            if (!updatedOrder.hasTimeSlot())
+                availabilityIndex.refresh(oldBikeIds);
+        } else {
+            Set<Long> reserving = updatedOrder.hasTimeSlot() ? newBikeIds : added;
+            Set<Long> releasing = updatedOrder.hasTimeSlot() ? Set.of() : removed;
+            if (!reserving.isEmpty())
+                reserveOpenEnded(id, reserving);
+            if (!releasing.isEmpty())
+                bikesRepository.releaseAll(releasing);
+            Set<Long> changed = new HashSet<>(reserving);
+            changed.addAll(releasing);
+            availabilityIndex.refresh(changed);
         }
+        if (!removed.isEmpty())
+            ordersRepository.removeBikes(id, removed);
+        if (!added.isEmpty())
+            ordersRepository.addBikes(id, added);
 
         updatedOrder.setClient(newClient);
-        newClient.getOrders().add(updatedOrder);
         updatedOrder.setStorage(newStorage);
-        newStorage.getOrders().add(updatedOrder);
-        updatedOrder.setBikes(newBikes);
-        for (Bike b : newBikes) {
-            b.getOrders().add(updatedOrder);
-        }
+        updatedOrder.setStartTime(order.getStartTime());
+        updatedOrder.setEndTime(order.getEndTime());
+        // Bike changes only touch bike_orders, so the order row is marked as updated explicitly
+        updatedOrder.setUpdatedAt(LocalDateTime.now());
+        if (order.hasTimeSlot())
+            scheduleIndex.put(id, newBikeIds, order.getStartTime(), order.getEndTime());
+        else
+            scheduleIndex.remove(id);
 
         return updatedOrder;
     }
+
+    @Transactional
+    public void close(long id, Long storageId) {
+        if (closeAll(List.of(id), storageId).isEmpty())
+            throw ordersRepository.existsById(id) ? new OrderClosedException() : new OrderNotFoundException();
+    }
+
+    // Closes the still open orders among ids and returns them. The statement count does not depend on how many
+    // orders or bikes are returned: bikes of open-ended orders are released and, with a drop-off storage, all
+    // returned bikes are moved there in set-based updates
+    @Transactional
+    public List<Long> closeAll(Collection<Long> ids, Long storageId) {
+        if (storageId != null && !storagesRepository.existsById(storageId))
+            throw new StorageNotFoundException();
+        List<Long> orderIds = ids.isEmpty() ? List.of() : ordersRepository.findOpenIdsForUpdate(ids);
+        if (orderIds.isEmpty())
+            return orderIds;
+        ordersRepository.closeAll(orderIds, LocalDateTime.now());
+
+        Set<Long> bikeIds = new HashSet<>();
+        Set<Long> releasedIds = new HashSet<>();
+        for (Booking booking : ordersRepository.findBookingsByOrderIds(orderIds)) {
+            bikeIds.add(booking.getBikeId());
+            if (booking.getStartTime() == null)
+                releasedIds.add(booking.getBikeId());
+        }
+        if (!releasedIds.isEmpty())
+            bikesRepository.releaseAll(releasedIds);
+        if (storageId != null && !bikeIds.isEmpty()) {
+            bikesRepository.moveAll(bikeIds, storageId);
+            availabilityIndex.refresh(bikeIds);
+        } else
+            availabilityIndex.refresh(releasedIds);
+        scheduleIndex.removeAll(orderIds);
+        return orderIds;
+    }
+
+    // The bike row locks serialize bookings of the same bike, so the overlap check cannot race another booking
+    private void reserveTimeSlot(long orderId, Set<Long> bikeIds, LocalDateTime startTime, LocalDateTime endTime) {
+        if (bikeIds.isEmpty())
+            return;
+        List<Bike> bikes = bikesRepository.findAllForUpdate(bikeIds);
+        if (bikes.size() != bikeIds.size())
+            throw new BikeNotFoundException();
+        Set<Long> taken = new TreeSet<>(ordersRepository.findBookedBikeIds(bikeIds, orderId, startTime, endTime));
+        bikes.stream().filter(b -> !b.isAvailable()).forEach(b -> taken.add(b.getId()));
+        if (!taken.isEmpty())
+            throw new BikesNotAvailableException(taken);
+    }
+
+    // Everything runs in the caller's transaction, the bikes that were not reserved are either missing or taken. The
+    // time slots of orderId itself do not count
+    private void reserveOpenEnded(long orderId, Set<Long> bikeIds) {
+        List<Long> reserved = bikesRepository.reserveFree(bikeIds, orderId);
+        if (reserved.size() == bikeIds.size())
+            return;
+        if (bikesRepository.findExistingIds(bikeIds).size() != bikeIds.size())
+            throw new BikeNotFoundException();
+        Set<Long> taken = new TreeSet<>(bikeIds);
+        reserved.forEach(taken::remove);
+        throw new BikesNotAvailableException(taken);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.gorokhov.services;
+
+import com.gorokhov.dto.CacheStatistics;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+
+@Service
+@Timed(value = "bikerent.service", histogram = true)
+public class StatisticsService {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public StatisticsService(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public List<CacheStatistics> findCacheStatistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                     .sorted()
+                     .map(region -> {
+                         CacheRegionStatistics s = statistics.getDomainDataRegionStatistics(region);
+                         return new CacheStatistics(region, s.getHitCount(), s.getMissCount(), s.getPutCount());
+                     })
+                     .toList();
+    }
+}
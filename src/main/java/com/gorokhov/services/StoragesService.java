@@ -1,24 +1,39 @@
 package com.gorokhov.services;
 
+import com.gorokhov.dto.NearbyStorage;
+import com.gorokhov.dto.StorageView;
+import com.gorokhov.index.StorageLocationIndex;
 import com.gorokhov.models.Address;
+import com.gorokhov.models.Bike;
 import com.gorokhov.models.Storage;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Size;
 import com.gorokhov.repositories.StoragesRepository;
+import com.gorokhov.util.CursorPage;
+import com.gorokhov.util.exceptions.InvalidLocationException;
+import com.gorokhov.util.exceptions.StorageNotFoundException;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
 @Service
+@Timed(value = "bikerent.service", histogram = true)
 public class StoragesService {
 
     private final StoragesRepository storagesRepository;
+    private final StorageLocationIndex locationIndex;
 
     @Autowired
-    public StoragesService(StoragesRepository storagesRepository) {
+    public StoragesService(StoragesRepository storagesRepository, StorageLocationIndex locationIndex) {
         this.storagesRepository = storagesRepository;
+        this.locationIndex = locationIndex;
     }
 
     @Transactional(readOnly = true)
@@ -32,7 +47,27 @@ public class StoragesService {
     }
 
     @Transactional(readOnly = true)
-    public Set<Storage> findAll() {
-        return new HashSet<>(storagesRepository.findAll());
+    public CursorPage<StorageView> findAll(long after, int limit) {
+        List<StorageView> storages = storagesRepository.findViewsByIdGreaterThan(after, PageRequest.ofSize(limit + 1));
+        return CursorPage.of(storages, limit, StorageView::getId);
     }
-}
\ No newline at end of file
+
+    // Walks the lazy storage.bikes inside the transaction now that the session is not kept open for the view
+    @Transactional(readOnly = true)
+    public Set<Bike> findBikes(long id, Color color) {
+        Storage storage = storagesRepository.findById(id).orElseThrow(StorageNotFoundException::new);
+        Set<Bike> result = new HashSet<>();
+        for (Bike bike : storage.getBikes()) {
+            if (bike.getColor().equals(color))
+                result.add(bike);
+        }
+        return result;
+    }
+
+    // Answered from the in-memory indexes only, without a database round trip
+    public List<NearbyStorage> findNearest(double latitude, double longitude, Size size, int limit) {
+        if (!(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180))
+            throw new InvalidLocationException();
+        return locationIndex.findNearest(latitude, longitude, size, limit);
+    }
+}
@@ -0,0 +1,35 @@
+package com.gorokhov.util;
+
+import java.sql.SQLException;
+
+public class ConstraintViolations {
+
+    private static final String UNIQUE = "23505";
+    // H2 tells a row referencing a missing one (23506) from a deleted row that is still referenced (23503)
+    private static final String REFERENCED = "23503";
+    private static final String MISSING_REFERENCE = "23506";
+
+    private ConstraintViolations() {}
+
+    // True if the database rejected a row whose unique key already exists
+    public static boolean isUnique(Throwable e) {
+        return UNIQUE.equals(sqlState(e));
+    }
+
+    // True if the database rejected deleting or changing a row other rows still reference
+    public static boolean isReferenced(Throwable e) {
+        return REFERENCED.equals(sqlState(e));
+    }
+
+    // True if the database rejected a row referencing a missing one
+    public static boolean isMissingReference(Throwable e) {
+        return MISSING_REFERENCE.equals(sqlState(e));
+    }
+
+    private static String sqlState(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause())
+            if (cause instanceof SQLException sql)
+                return sql.getSQLState();
+        return null;
+    }
+}
@@ -0,0 +1,31 @@
+package com.gorokhov.util;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+public class CursorPage<T> {
+
+    private final List<T> content;
+    private final Long nextCursor;
+
+    public CursorPage(List<T> content, Long nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    // Expects rows ordered by id and fetched with limit + 1 to detect the next page
+    public static <T> CursorPage<T> of(List<T> rows, int limit, ToLongFunction<T> idGetter) {
+        if (rows.size() <= limit)
+            return new CursorPage<>(rows, null);
+        List<T> content = rows.subList(0, limit);
+        return new CursorPage<>(content, idGetter.applyAsLong(content.get(limit - 1)));
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,13 @@
+package com.gorokhov.util;
+
+import java.util.Locale;
+
+public class Emails {
+
+    private Emails() {}
+
+    // Emails are stored and looked up in lower case, so the unique index is case-insensitive
+    public static String normalize(String email) {
+        return email == null ? null : email.toLowerCase(Locale.ROOT);
+    }
+}
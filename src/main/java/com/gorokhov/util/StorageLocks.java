@@ -0,0 +1,76 @@
+package com.gorokhov.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Striped locks keyed by storage id, so that orders at different storages do not wait for each other. Stripes are
+// taken in index order, which keeps callers locking overlapping storage sets from deadlocking
+@Component
+public class StorageLocks {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public StorageLocks(@Value("${orders.lock-stripes}") int stripes) {
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++)
+            this.stripes[i] = new ReentrantLock();
+        this.mask = size - 1;
+    }
+
+    // Held until the current transaction completes, so the next order at the storage sees the committed state.
+    // A transaction must lock all its storages in one call, a second call could take stripes out of order
+    public void lockUntilCompletion(Collection<Long> storageIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            throw new IllegalStateException("Storage locks are held until the transaction completes");
+        int[] locked = sortedStripes(storageIds);
+        for (int i : locked)
+            stripes[i].lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                for (int i = locked.length - 1; i >= 0; i--)
+                    stripes[locked[i]].unlock();
+            }
+        });
+    }
+
+    // Runs the action under the stripes of the storages. Outside a transaction the stripes are taken before the
+    // action opens its own, so a waiting caller holds no connection, and released once it has committed. Inside a
+    // transaction they are held until it completes
+    public <T> T callLocked(Collection<Long> storageIds, Supplier<T> action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            lockUntilCompletion(storageIds);
+            return action.get();
+        }
+        int[] locked = sortedStripes(storageIds);
+        for (int i : locked)
+            stripes[i].lock();
+        try {
+            return action.get();
+        } finally {
+            for (int i = locked.length - 1; i >= 0; i--)
+                stripes[locked[i]].unlock();
+        }
+    }
+
+    int stripe(long storageId) {
+        long hash = storageId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private int[] sortedStripes(Collection<Long> storageIds) {
+        return storageIds.stream().mapToInt(this::stripe).distinct().sorted().toArray();
+    }
+
+    int size() {
+        return stripes.length;
+    }
+}
@@ -1,6 +1,6 @@
 package com.gorokhov.util.exceptions;
 
-public class AddressNotCreatedException extends RuntimeException {
+public class AddressNotCreatedException extends InvalidRequestException {
     public AddressNotCreatedException(String message) {
         super(message);
     }
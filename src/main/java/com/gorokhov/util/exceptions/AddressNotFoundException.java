@@ -1,6 +1,6 @@
 package com.gorokhov.util.exceptions;
 
-public class AddressNotFoundException extends RuntimeException {
+public class AddressNotFoundException extends NotFoundException {
     public AddressNotFoundException() {
         super("Адрес не был найден");
     }
@@ -1,6 +1,6 @@
 package com.gorokhov.util.exceptions;
 
-public class AddressNotUpdatedException extends RuntimeException {
+public class AddressNotUpdatedException extends InvalidRequestException {
     public AddressNotUpdatedException(String message) {
         super(message);
     }
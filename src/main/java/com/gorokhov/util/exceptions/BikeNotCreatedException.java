@@ -1,6 +1,6 @@
 package com.gorokhov.util.exceptions;
 
-public class BikeNotCreatedException extends RuntimeException {
+public class BikeNotCreatedException extends InvalidRequestException {
     public BikeNotCreatedException(String message) {
         super(message);
     }
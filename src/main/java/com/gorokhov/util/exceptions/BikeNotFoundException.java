@@ -1,6 +1,6 @@
 package com.gorokhov.util.exceptions;
 
-public class BikeNotFoundException extends RuntimeException {
+public class BikeNotFoundException extends NotFoundException {
     public BikeNotFoundException() {
         super("Велосипед не был найден");
     }
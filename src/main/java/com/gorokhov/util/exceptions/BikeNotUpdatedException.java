@@ -1,6 +1,6 @@
 package com.gorokhov.util.exceptions;
 
-public class BikeNotUpdatedException extends RuntimeException {
+public class BikeNotUpdatedException extends InvalidRequestException {
     public BikeNotUpdatedException(String message) {
         super(message);
     }
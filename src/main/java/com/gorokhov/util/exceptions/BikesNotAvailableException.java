@@ -0,0 +1,17 @@
+package com.gorokhov.util.exceptions;
+
+import java.util.Set;
+
+public class BikesNotAvailableException extends ConflictException {
+
+    private final Set<Long> ids;
+
+    public BikesNotAvailableException(Set<Long> ids) {
+        super("Велосипеды уже заняты: " + ids);
+        this.ids = ids;
+    }
+
+    public Set<Long> getIds() {
+        return ids;
+    }
+}
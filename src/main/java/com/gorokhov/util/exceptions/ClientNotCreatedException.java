@@ -1,6 +1,6 @@
 package com.gorokhov.util.exceptions;
 
-public class ClientNotCreatedException extends RuntimeException {
+public class ClientNotCreatedException extends InvalidRequestException {
     public ClientNotCreatedException(String message) {
         super(message);
     }
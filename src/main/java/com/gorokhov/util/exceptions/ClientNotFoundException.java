@@ -1,6 +1,6 @@
 package com.gorokhov.util.exceptions;
 
-public class ClientNotFoundException extends RuntimeException {
+public class ClientNotFoundException extends NotFoundException {
     public ClientNotFoundException() {
         super("Клиент не был найден");
     }
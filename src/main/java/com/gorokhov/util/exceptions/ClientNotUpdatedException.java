@@ -1,6 +1,6 @@
 package com.gorokhov.util.exceptions;
 
-public class ClientNotUpdatedException extends RuntimeException {
+public class ClientNotUpdatedException extends InvalidRequestException {
     public ClientNotUpdatedException(String message) {
         super(message);
     }
@@ -1,6 +1,6 @@
 package com.gorokhov.util.exceptions;
 
-public class CommentNotCreatedException extends RuntimeException {
+public class CommentNotCreatedException extends InvalidRequestException {
     public CommentNotCreatedException(String message) {
         super(message);
     }
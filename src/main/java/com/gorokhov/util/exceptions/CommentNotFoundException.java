@@ -1,6 +1,6 @@
 package com.gorokhov.util.exceptions;
 
-public class CommentNotFoundException extends RuntimeException {
+public class CommentNotFoundException extends NotFoundException {
     public CommentNotFoundException() {
         super("Комментарий не был найден");
     }
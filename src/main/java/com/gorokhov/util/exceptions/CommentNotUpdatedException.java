@@ -1,6 +1,6 @@
 package com.gorokhov.util.exceptions;
 
-public class CommentNotUpdatedException extends RuntimeException {
+public class CommentNotUpdatedException extends InvalidRequestException {
     public CommentNotUpdatedException(String message) {
         super(message);
     }
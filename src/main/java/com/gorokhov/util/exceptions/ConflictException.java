@@ -0,0 +1,7 @@
+package com.gorokhov.util.exceptions;
+
+public abstract class ConflictException extends DomainException {
+    protected ConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.gorokhov.util.exceptions;
+
+// Used for ordinary control flow (unknown id, invalid payload), so the stack trace is never captured
+public abstract class DomainException extends RuntimeException {
+    protected DomainException(String message) {
+        super(message, null, false, false);
+    }
+}
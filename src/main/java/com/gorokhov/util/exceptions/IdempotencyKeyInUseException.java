@@ -0,0 +1,7 @@
+package com.gorokhov.util.exceptions;
+
+public class IdempotencyKeyInUseException extends ConflictException {
+    public IdempotencyKeyInUseException() {
+        super("Запрос с таким ключом идемпотентности ещё выполняется");
+    }
+}
@@ -0,0 +1,7 @@
+package com.gorokhov.util.exceptions;
+
+public class IdempotencyKeyMismatchException extends UnprocessableException {
+    public IdempotencyKeyMismatchException() {
+        super("Ключ идемпотентности уже использован для другого запроса");
+    }
+}
@@ -0,0 +1,7 @@
+package com.gorokhov.util.exceptions;
+
+public class InvalidIdempotencyKeyException extends InvalidRequestException {
+    public InvalidIdempotencyKeyException() {
+        super("Ключ идемпотентности должен содержать от 1 до 255 символов");
+    }
+}
@@ -0,0 +1,7 @@
+package com.gorokhov.util.exceptions;
+
+public class InvalidLocationException extends InvalidRequestException {
+    public InvalidLocationException() {
+        super("Широта должна быть от -90 до 90, долгота от -180 до 180");
+    }
+}
@@ -0,0 +1,7 @@
+package com.gorokhov.util.exceptions;
+
+public abstract class InvalidRequestException extends DomainException {
+    protected InvalidRequestException(String message) {
+        super(message);
+    }
+}
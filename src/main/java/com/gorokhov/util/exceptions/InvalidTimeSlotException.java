@@ -0,0 +1,7 @@
+package com.gorokhov.util.exceptions;
+
+public class InvalidTimeSlotException extends InvalidRequestException {
+    public InvalidTimeSlotException() {
+        super("Начало брони должно быть раньше окончания");
+    }
+}
@@ -0,0 +1,7 @@
+package com.gorokhov.util.exceptions;
+
+public class NotEnoughBikesException extends ConflictException {
+    public NotEnoughBikesException(int requested, int found) {
+        super("Недостаточно свободных велосипедов: запрошено " + requested + ", найдено " + found);
+    }
+}
@@ -0,0 +1,7 @@
+package com.gorokhov.util.exceptions;
+
+public abstract class NotFoundException extends DomainException {
+    protected NotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.gorokhov.util.exceptions;
+
+public class OrderClosedException extends ConflictException {
+    public OrderClosedException() {
+        super("Заказ уже закрыт");
+    }
+}
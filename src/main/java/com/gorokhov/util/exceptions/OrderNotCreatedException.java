@@ -1,6 +1,6 @@
 package com.gorokhov.util.exceptions;
 
-public class OrderNotCreatedException extends RuntimeException {
+public class OrderNotCreatedException extends InvalidRequestException {
     public OrderNotCreatedException(String message) {
         super(message);
     }
@@ -1,6 +1,6 @@
 package com.gorokhov.util.exceptions;
 
-public class OrderNotFoundException extends RuntimeException {
+public class OrderNotFoundException extends NotFoundException {
     public OrderNotFoundException() {
         super("Заказ не был найден");
     }
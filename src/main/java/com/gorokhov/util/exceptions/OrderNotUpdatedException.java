@@ -1,6 +1,6 @@
 package com.gorokhov.util.exceptions;
 
-public class OrderNotUpdatedException extends RuntimeException {
+public class OrderNotUpdatedException extends InvalidRequestException {
     public OrderNotUpdatedException(String message) {
         super(message);
     }
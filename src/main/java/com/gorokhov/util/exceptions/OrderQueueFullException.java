@@ -0,0 +1,7 @@
+package com.gorokhov.util.exceptions;
+
+public class OrderQueueFullException extends UnavailableException {
+    public OrderQueueFullException() {
+        super("Очередь заказов переполнена, повторите запрос позже");
+    }
+}
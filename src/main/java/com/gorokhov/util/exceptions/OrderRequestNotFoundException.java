@@ -0,0 +1,7 @@
+package com.gorokhov.util.exceptions;
+
+public class OrderRequestNotFoundException extends NotFoundException {
+    public OrderRequestNotFoundException() {
+        super("Заявка на заказ не была найдена");
+    }
+}
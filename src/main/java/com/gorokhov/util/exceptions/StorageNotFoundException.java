@@ -1,6 +1,6 @@
 package com.gorokhov.util.exceptions;
 
-public class StorageNotFoundException extends RuntimeException {
+public class StorageNotFoundException extends NotFoundException {
     public StorageNotFoundException() {
         super("Хранилище не было найдено");
     }
@@ -0,0 +1,7 @@
+package com.gorokhov.util.exceptions;
+
+public abstract class UnavailableException extends DomainException {
+    protected UnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.gorokhov.util.exceptions;
+
+public abstract class UnprocessableException extends DomainException {
+    protected UnprocessableException(String message) {
+        super(message);
+    }
+}
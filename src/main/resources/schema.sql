@@ -1,8 +1,17 @@
+create sequence address_seq start with 1 increment by 50;
+create sequence client_seq start with 1 increment by 50;
+create sequence bike_seq start with 1 increment by 50;
+create sequence orders_seq start with 1 increment by 50;
+create sequence comment_seq start with 1 increment by 50;
+
 create table address(
-    id identity primary key,
+    id bigint primary key,
     city varchar not null,
     street varchar not null,
-    house int not null
+    house int not null,
+    latitude double precision,
+    longitude double precision,
+    unique (street, house, city)
 );
 
 create table storage(
@@ -10,26 +19,46 @@ create table storage(
 );
 
 create table client(
-    id identity primary key,
+    id bigint primary key,
     email varchar not null,
-    name varchar(30) not null
+    name varchar(30) not null,
+    constraint client_email unique (email)
 );
 
 create table bike(
-    id identity primary key,
+    id bigint primary key,
     color varchar not null,
     size varchar not null,
     label varchar not null,
     available boolean,
-    storage_id bigint not null references storage(id)
+    storage_id bigint not null references storage(id),
+    updated_at timestamp
 );
 
+create index bike_updated_at on bike(updated_at);
+
 create table orders(
-    id identity primary key,
+    id bigint primary key,
     client_id bigint not null references client(id),
-    storage_id bigint not null references storage(id)
+    storage_id bigint not null references storage(id),
+    start_time timestamp,
+    end_time timestamp,
+    close_time timestamp,
+    updated_at timestamp
+);
+
+create index orders_updated_at on orders(updated_at);
+
+create table idempotency_key(
+    id varchar(255) primary key,
+    client_id bigint not null,
+    request_hash varchar(64) not null,
+    order_id bigint,
+    created_at timestamp not null
 );
 
+create index idempotency_key_created_at on idempotency_key(created_at);
+
 create table bike_orders(
     id bigint references bike(id),
     order_id bigint references orders(id),
@@ -37,7 +66,7 @@ create table bike_orders(
 );
 
 create table comment(
-    id identity primary key,
+    id bigint primary key,
     client_id bigint references client(id),
     description varchar not null
 );
\ No newline at end of file
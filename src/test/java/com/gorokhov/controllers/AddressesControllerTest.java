@@ -16,6 +16,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import com.gorokhov.models.Address;
 import com.gorokhov.models.enums.City;
 import com.gorokhov.services.AddressesService;
+import com.gorokhov.util.CursorPage;
 import com.gorokhov.util.JsonUtil;
 import com.gorokhov.util.exceptions.AddressNotCreatedException;
 import com.gorokhov.util.exceptions.AddressNotFoundException;
@@ -132,24 +133,24 @@ public class AddressesControllerTest {
         Set<Address> addresses = new LinkedHashSet<>();
         Collections.addAll(addresses, address1, address2);
 
-        given(addressesService.findAll()).willReturn(addresses);
+        given(addressesService.findAll(0L, 50)).willReturn(new CursorPage<>(new ArrayList<>(addresses), null));
 
         try {
             mockMvc.perform(get("/addresses")
                     .contentType(MediaType.APPLICATION_JSON))
-                    .andExpect(jsonPath("$", hasSize(2)))
-                    .andExpect(jsonPath("$[0].id", is(address1.getId()), long.class))
-                    .andExpect(jsonPath("$[0].city", is(address1.getCity().name()), String.class))
-                    .andExpect(jsonPath("$[0].street", is(address1.getStreet()), String.class))
-                    .andExpect(jsonPath("$[0].house", is(address1.getHouse()), int.class))
-                    .andExpect(jsonPath("$[1].id", is(address2.getId()), long.class))
-                    .andExpect(jsonPath("$[1].city", is(address2.getCity().name()), String.class))
-                    .andExpect(jsonPath("$[1].street", is(address2.getStreet()), String.class))
-                    .andExpect(jsonPath("$[1].house", is(address2.getHouse()), int.class));
+                    .andExpect(jsonPath("$.content", hasSize(2)))
+                    .andExpect(jsonPath("$.content[0].id", is(address1.getId()), long.class))
+                    .andExpect(jsonPath("$.content[0].city", is(address1.getCity().name()), String.class))
+                    .andExpect(jsonPath("$.content[0].street", is(address1.getStreet()), String.class))
+                    .andExpect(jsonPath("$.content[0].house", is(address1.getHouse()), int.class))
+                    .andExpect(jsonPath("$.content[1].id", is(address2.getId()), long.class))
+                    .andExpect(jsonPath("$.content[1].city", is(address2.getCity().name()), String.class))
+                    .andExpect(jsonPath("$.content[1].street", is(address2.getStreet()), String.class))
+                    .andExpect(jsonPath("$.content[1].house", is(address2.getHouse()), int.class));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
-        verify(addressesService, times(1)).findAll();
+        verify(addressesService, times(1)).findAll(0L, 50);
         reset(addressesService);
     }
 
@@ -168,7 +169,7 @@ public class AddressesControllerTest {
                     .andExpect(result ->
                             assertEquals(errorMessage,
                                     Objects.requireNonNull(result.getResolvedException()).getMessage()))
-                    .andExpect(status().isBadRequest());
+                    .andExpect(status().isNotFound());
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
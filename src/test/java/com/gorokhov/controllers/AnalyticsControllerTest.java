@@ -0,0 +1,54 @@
+package com.gorokhov.controllers;
+
+import com.gorokhov.dto.FleetAnalytics;
+import com.gorokhov.models.enums.City;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import com.gorokhov.services.FleetAnalyticsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.internal.verification.VerificationModeFactory.times;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(AnalyticsController.class)
+public class AnalyticsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private FleetAnalyticsService fleetAnalyticsService;
+
+    @Test
+    public void givenCityAndSize_whenGetFleet_thenReturnCounts() {
+        FleetAnalytics analytics = new FleetAnalytics(3, 2, Map.of(Label.STELS, 3L), Map.of(Size.M, 3L),
+                                                      Map.of(Color.RED, 2L, Color.BLACK, 1L));
+        given(fleetAnalyticsService.findCounts(null, City.MOSCOW, null, Size.M, null, null)).willReturn(analytics);
+
+        try {
+            mockMvc.perform(get("/analytics/fleet?city=MOSCOW&size=M"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.total", is(3)))
+                    .andExpect(jsonPath("$.available", is(2)))
+                    .andExpect(jsonPath("$.byLabel.STELS", is(3)))
+                    .andExpect(jsonPath("$.byColor.BLACK", is(1)));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        verify(fleetAnalyticsService, times(1)).findCounts(null, City.MOSCOW, null, Size.M, null, null);
+        reset(fleetAnalyticsService);
+    }
+}
@@ -1,5 +1,6 @@
 package com.gorokhov.controllers;
 
+import com.gorokhov.dto.BikeView;
 import com.gorokhov.models.Address;
 import com.gorokhov.models.Bike;
 import com.gorokhov.models.Storage;
@@ -8,6 +9,7 @@ import com.gorokhov.models.enums.Color;
 import com.gorokhov.models.enums.Label;
 import com.gorokhov.models.enums.Size;
 import com.gorokhov.services.BikesService;
+import com.gorokhov.util.CursorPage;
 import com.gorokhov.util.JsonUtil;
 import com.gorokhov.util.exceptions.BikeNotCreatedException;
 import com.gorokhov.util.exceptions.BikeNotFoundException;
@@ -20,6 +22,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDateTime;
 import java.util.*;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -154,62 +157,111 @@ public class BikesControllerTest {
 
     @Test
     public void givenClients_whenGetClients_thenReturnJsonArray() {
-        long addressId = 4L;
-        City city = City.KRASNODAR;
-        String street = "Letnaya";
-        int house = 24;
-        Address address = new Address(city, street, house);
-        address.setId(addressId);
-        Storage storage = new Storage(address);
-        storage.setId(addressId);
+        long storageId = 4L;
 
         long bikeId1 = 4L;
         Color color1 = Color.GREY;
         Size size1 = Size.XS;
         Label label1 = Label.TREK_BICYCLE;
-        Bike bike1 = new Bike(color1, size1, label1, storage);
-        bike1.setId(bikeId1);
+        BikeView bike1 = new BikeView(bikeId1, color1, size1, label1, true, storageId);
 
         long bikeId2 = 5L;
         Color color2 = Color.WHITE;
         Size size2 = Size.M;
         Label label2 = Label.MONGOOSE;
-        Bike bike2 = new Bike(color2, size2, label2, storage);
-        bike2.setId(bikeId2);
+        BikeView bike2 = new BikeView(bikeId2, color2, size2, label2, true, storageId);
 
-        Set<Bike> bikes = new LinkedHashSet<>();
-        Collections.addAll(bikes, bike1, bike2);
+        given(bikesService.findAll(0L, 50)).willReturn(new CursorPage<>(List.of(bike1, bike2), null));
 
-        given(bikesService.findAll()).willReturn(bikes);
+        try {
+            mockMvc.perform(get("/bikes")
+                    .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$.content", hasSize(2)))
+                    .andExpect(jsonPath("$.content[0].id", is(bike1.getId()), long.class))
+                    .andExpect(jsonPath("$.content[0].color", is(bike1.getColor().name()), String.class))
+                    .andExpect(jsonPath("$.content[0].size", is(bike1.getSize().name()), String.class))
+                    .andExpect(jsonPath("$.content[0].label", is(bike1.getLabel().name()), String.class))
+                    .andExpect(jsonPath("$.content[0].available", is(bike1.isAvailable()), boolean.class))
+                    .andExpect(jsonPath("$.content[0].storageId", is(storageId), long.class))
+                    .andExpect(jsonPath("$.content[1].id", is(bike2.getId()), long.class))
+                    .andExpect(jsonPath("$.content[1].color", is(bike2.getColor().name()), String.class))
+                    .andExpect(jsonPath("$.content[1].size", is(bike2.getSize().name()), String.class))
+                    .andExpect(jsonPath("$.content[1].label", is(bike2.getLabel().name()), String.class))
+                    .andExpect(jsonPath("$.content[1].available", is(bike2.isAvailable()), boolean.class))
+                    .andExpect(jsonPath("$.content[1].storageId", is(storageId), long.class));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        verify(bikesService, times(1)).findAll(0L, 50);
+        reset(bikesService);
+    }
+
+    @Test
+    public void givenCursorAndTooLargeLimit_whenGetBikes_thenReturnPageWithMaxLimit() {
+        long storageId = 20L;
+
+        long bikeId = 21L;
+        BikeView bike = new BikeView(bikeId, Color.RED, Size.S, Label.SCOTT, true, storageId);
+
+        given(bikesService.findAll(20L, 500)).willReturn(new CursorPage<>(List.of(bike), bikeId));
 
         try {
             mockMvc.perform(get("/bikes")
+                    .param("after", "20")
+                    .param("limit", "100000")
                     .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$.content", hasSize(1)))
+                    .andExpect(jsonPath("$.content[0].id", is(bike.getId()), long.class))
+                    .andExpect(jsonPath("$.nextCursor", is(bikeId), long.class));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        verify(bikesService, times(1)).findAll(20L, 500);
+        reset(bikesService);
+    }
+
+    @Test
+    public void givenAvailableBikes_whenGetAvailableBikes_thenReturnIds() {
+        long storageId = 3L;
+        given(bikesService.findAvailable(storageId, Size.M, null, Label.STELS)).willReturn(List.of(4L, 9L));
+
+        try {
+            mockMvc.perform(get("/bikes/available")
+                    .param("storage", "3")
+                    .param("size", "M")
+                    .param("label", "STELS")
+                    .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
                     .andExpect(jsonPath("$", hasSize(2)))
-                    .andExpect(jsonPath("$[0].id", is(bike1.getId()), long.class))
-                    .andExpect(jsonPath("$[0].color", is(bike1.getColor().name()), String.class))
-                    .andExpect(jsonPath("$[0].size", is(bike1.getSize().name()), String.class))
-                    .andExpect(jsonPath("$[0].label", is(bike1.getLabel().name()), String.class))
-                    .andExpect(jsonPath("$[0].available", is(bike1.isAvailable()), boolean.class))
-                    .andExpect(jsonPath("$[0].storage.id", is(storage.getId()), long.class))
-                    .andExpect(jsonPath("$[0].storage.address.id", is(address.getId()), long.class))
-                    .andExpect(jsonPath("$[0].storage.address.city", is(address.getCity().name()), String.class))
-                    .andExpect(jsonPath("$[0].storage.address.street", is(address.getStreet()), String.class))
-                    .andExpect(jsonPath("$[0].storage.address.house", is(address.getHouse()), int.class))
-                    .andExpect(jsonPath("$[1].id", is(bike2.getId()), long.class))
-                    .andExpect(jsonPath("$[1].color", is(bike2.getColor().name()), String.class))
-                    .andExpect(jsonPath("$[1].size", is(bike2.getSize().name()), String.class))
-                    .andExpect(jsonPath("$[1].label", is(bike2.getLabel().name()), String.class))
-                    .andExpect(jsonPath("$[1].available", is(bike2.isAvailable()), boolean.class))
-                    .andExpect(jsonPath("$[1].storage.id", is(storage.getId()), long.class))
-                    .andExpect(jsonPath("$[1].storage.address.id", is(address.getId()), long.class))
-                    .andExpect(jsonPath("$[1].storage.address.city", is(address.getCity().name()), String.class))
-                    .andExpect(jsonPath("$[1].storage.address.street", is(address.getStreet()), String.class))
-                    .andExpect(jsonPath("$[1].storage.address.house", is(address.getHouse()), int.class));
+                    .andExpect(jsonPath("$[0]", is(4L), long.class))
+                    .andExpect(jsonPath("$[1]", is(9L), long.class));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        verify(bikesService, times(1)).findAvailable(storageId, Size.M, null, Label.STELS);
+        reset(bikesService);
+    }
+
+    @Test
+    public void givenTimeSlot_whenGetFreeBikes_thenReturnIds() {
+        long storageId = 3L;
+        LocalDateTime from = LocalDateTime.of(2030, 5, 1, 10, 0);
+        LocalDateTime to = LocalDateTime.of(2030, 5, 1, 12, 0);
+        given(bikesService.findFree(storageId, from, to)).willReturn(List.of(5L));
+
+        try {
+            mockMvc.perform(get("/bikes/free")
+                    .param("storage", "3")
+                    .param("from", "2030-05-01T10:00:00")
+                    .param("to", "2030-05-01T12:00:00")
+                    .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$", hasSize(1)))
+                    .andExpect(jsonPath("$[0]", is(5L), long.class));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
-        verify(bikesService, times(1)).findAll();
+        verify(bikesService, times(1)).findFree(storageId, from, to);
         reset(bikesService);
     }
 
@@ -228,7 +280,7 @@ public class BikesControllerTest {
                     .andExpect(result ->
                             assertEquals(errorMessage,
                                     Objects.requireNonNull(result.getResolvedException()).getMessage()))
-                    .andExpect(status().isBadRequest());
+                    .andExpect(status().isNotFound());
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
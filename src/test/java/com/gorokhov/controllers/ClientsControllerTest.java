@@ -1,29 +1,36 @@
 package com.gorokhov.controllers;
 
 import com.gorokhov.models.Address;
+import com.gorokhov.dto.ClientName;
 import com.gorokhov.models.Client;
 import com.gorokhov.models.Comment;
 import com.gorokhov.models.enums.City;
 import com.gorokhov.services.AddressesService;
 import com.gorokhov.services.ClientsService;
+import com.gorokhov.util.CursorPage;
 import com.gorokhov.util.JsonUtil;
 import com.gorokhov.util.exceptions.*;
+import jakarta.servlet.ServletException;
 import org.hibernate.LazyInitializationException;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.Test;
 import org.mockito.BDDMockito;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.SQLException;
 import java.util.*;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.when;
@@ -96,6 +103,79 @@ public class ClientsControllerTest {
         reset(clientsService);
     }
 
+    @Test
+    public void givenTakenEmail_whenPostClient_thenReturnBadRequest() {
+        Client client = new Client("taken@email.com", "Taken");
+        SQLException cause = new SQLException("Unique index or primary key violation", "23505");
+
+        given(clientsService.save(Mockito.any())).willThrow(new DataIntegrityViolationException("duplicate",
+                new ConstraintViolationException("duplicate", cause, "PUBLIC.CLIENT_EMAIL_INDEX_7 ON PUBLIC.CLIENT(EMAIL)")));
+
+        try {
+            mockMvc.perform(post("/clients")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(JsonUtil.toJson(client)))
+                    .andExpect(jsonPath("$.message", is("Клиент с таким email уже существует")))
+                    .andExpect(status().isBadRequest());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        reset(clientsService);
+    }
+
+    @Test
+    public void givenOtherUniqueKeyTaken_whenPostClient_thenReturnConflict() {
+        Client client = new Client("other@email.com", "Other");
+        SQLException cause = new SQLException("Unique index or primary key violation", "23505");
+
+        given(clientsService.save(Mockito.any())).willThrow(new DataIntegrityViolationException("duplicate",
+                new ConstraintViolationException("duplicate", cause, "PUBLIC.PRIMARY_KEY_7 ON PUBLIC.CLIENT(ID)")));
+
+        try {
+            mockMvc.perform(post("/clients")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(JsonUtil.toJson(client)))
+                    .andExpect(status().isConflict());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        reset(clientsService);
+    }
+
+    @Test
+    public void givenMissingReference_whenPostClient_thenReturnNotFound() {
+        Client client = new Client("other@email.com", "Other");
+        SQLException cause = new SQLException("Referential integrity constraint violation", "23506");
+
+        given(clientsService.save(Mockito.any())).willThrow(new DataIntegrityViolationException("violation",
+                new ConstraintViolationException("violation", cause, "PUBLIC.FK_COMMENT_CLIENT")));
+
+        try {
+            mockMvc.perform(post("/clients")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(JsonUtil.toJson(client)))
+                    .andExpect(jsonPath("$.message", is("Связанная запись не найдена")))
+                    .andExpect(status().isNotFound());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        reset(clientsService);
+    }
+
+    @Test
+    public void givenCheckConstraintViolation_whenPostClient_thenNotReportTakenEmail() {
+        Client client = new Client("other@email.com", "Other");
+        SQLException cause = new SQLException("Check constraint violation", "23513");
+
+        given(clientsService.save(Mockito.any())).willThrow(new DataIntegrityViolationException("violation",
+                new ConstraintViolationException("violation", cause, "PUBLIC.CONSTRAINT_8")));
+
+        assertThrows(ServletException.class, () -> mockMvc.perform(post("/clients")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonUtil.toJson(client))));
+        reset(clientsService);
+    }
+
     @Test
     public void givenClient_whenGetClient_thenReturnJson() {
         long id = 3L;
@@ -136,22 +216,22 @@ public class ClientsControllerTest {
         Set<Client> clients = new LinkedHashSet<>();
         Collections.addAll(clients, client1, client2);
 
-        given(clientsService.findAll()).willReturn(clients);
+        given(clientsService.findAll(0L, 50)).willReturn(new CursorPage<>(new ArrayList<>(clients), null));
 
         try {
             mockMvc.perform(get("/clients")
                     .contentType(MediaType.APPLICATION_JSON))
-                    .andExpect(jsonPath("$", hasSize(2)))
-                    .andExpect(jsonPath("$[0].id", is(client1.getId()), long.class))
-                    .andExpect(jsonPath("$[0].email", is(client1.getEmail()), String.class))
-                    .andExpect(jsonPath("$[0].name", is(client1.getName()), String.class))
-                    .andExpect(jsonPath("$[1].id", is(client2.getId()), long.class))
-                    .andExpect(jsonPath("$[1].email", is(client2.getEmail()), String.class))
-                    .andExpect(jsonPath("$[1].name", is(client2.getName()), String.class));
+                    .andExpect(jsonPath("$.content", hasSize(2)))
+                    .andExpect(jsonPath("$.content[0].id", is(client1.getId()), long.class))
+                    .andExpect(jsonPath("$.content[0].email", is(client1.getEmail()), String.class))
+                    .andExpect(jsonPath("$.content[0].name", is(client1.getName()), String.class))
+                    .andExpect(jsonPath("$.content[1].id", is(client2.getId()), long.class))
+                    .andExpect(jsonPath("$.content[1].email", is(client2.getEmail()), String.class))
+                    .andExpect(jsonPath("$.content[1].name", is(client2.getName()), String.class));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
-        verify(clientsService, times(1)).findAll();
+        verify(clientsService, times(1)).findAll(0L, 50);
         reset(clientsService);
     }
 
@@ -170,7 +250,7 @@ public class ClientsControllerTest {
                     .andExpect(result ->
                             assertEquals(errorMessage,
                                     Objects.requireNonNull(result.getResolvedException()).getMessage()))
-                    .andExpect(status().isBadRequest());
+                    .andExpect(status().isNotFound());
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -178,39 +258,27 @@ public class ClientsControllerTest {
     }
 
     @Test
-    public void givenClients_whenGetClientsByNameContaining_thenReturnJsonArray() {
-        long id1 = 7L;
-        String email1 = "jake@email.com";
-        String name1 = "Jake";
-        Client client1 = new Client(email1, name1);
-        client1.setId(id1);
-
-        long id2 = 8L;
-        String email2 = "flake@email.com";
-        String name2 = "Flake";
-        Client client2 = new Client(email2, name2);
-        client2.setId(id2);
-
-        Set<Client> clients = new LinkedHashSet<>();
-        Collections.addAll(clients, client1, client2);
+    public void givenClients_whenGetClientsByNameContaining_thenReturnJsonPage() {
+        ClientName client1 = new ClientName(7L, "Jake");
+        ClientName client2 = new ClientName(8L, "Flake");
         String searchName = "ake";
 
-        given(clientsService.findAllByNameContaining(searchName)).willReturn(clients);
+        given(clientsService.findAllByNameContaining(searchName, 0L, 50, false))
+                .willReturn(new CursorPage<>(List.of(client1, client2), null));
 
         try {
             mockMvc.perform(get("/clients/search?name=ake")
                     .contentType(MediaType.APPLICATION_JSON))
-                    .andExpect(jsonPath("$", hasSize(2)))
-                    .andExpect(jsonPath("$[0].id", is(client1.getId()), long.class))
-                    .andExpect(jsonPath("$[0].email", is(client1.getEmail()), String.class))
-                    .andExpect(jsonPath("$[0].name", is(client1.getName()), String.class))
-                    .andExpect(jsonPath("$[1].id", is(client2.getId()), long.class))
-                    .andExpect(jsonPath("$[1].email", is(client2.getEmail()), String.class))
-                    .andExpect(jsonPath("$[1].name", is(client2.getName()), String.class));
+                    .andExpect(jsonPath("$.content", hasSize(2)))
+                    .andExpect(jsonPath("$.content[0].id", is(client1.getId()), long.class))
+                    .andExpect(jsonPath("$.content[0].name", is(client1.getName()), String.class))
+                    .andExpect(jsonPath("$.content[0].comments").doesNotExist())
+                    .andExpect(jsonPath("$.content[1].id", is(client2.getId()), long.class))
+                    .andExpect(jsonPath("$.content[1].name", is(client2.getName()), String.class));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
-        verify(clientsService, times(1)).findAllByNameContaining(searchName);
+        verify(clientsService, times(1)).findAllByNameContaining(searchName, 0L, 50, false);
         reset(clientsService);
     }
 
@@ -389,6 +457,44 @@ public class ClientsControllerTest {
         reset(clientsService);
     }
 
+    @Test
+    public void givenClients_whenPostClientsWithHibernate_thenReturnStatusCreated() {
+        Client client1 = new Client("bulk1@email.com", "Bulk");
+        Client client2 = new Client("bulk2@email.com", "Bulky");
+
+        given(clientsService.saveAllWithHibernate(Mockito.any())).willReturn(List.of(client1, client2));
+
+        try {
+            mockMvc.perform(post("/clients/hibernate/bulk")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(JsonUtil.toJson(List.of(client1, client2))))
+                    .andExpect(status().isCreated());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        verify(clientsService, times(1)).saveAllWithHibernate(Mockito.any());
+        reset(clientsService);
+    }
+
+    @Test
+    public void givenIncorrectClients_whenPostClientsWithHibernate_thenReturnBadRequest() {
+        Client client1 = new Client("bulk1@email.com", "Bulk");
+        Client client2 = new Client("bulk2.email.com", "Bulky");
+
+        try {
+            mockMvc.perform(post("/clients/hibernate/bulk")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(JsonUtil.toJson(List.of(client1, client2))))
+                    .andExpect(jsonPath("$.message",
+                            is("[1].email - Email должен быть корректным; "), String.class))
+                    .andExpect(status().isBadRequest());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        verify(clientsService, times(0)).saveAllWithHibernate(Mockito.any());
+        reset(clientsService);
+    }
+
     @Test
     public void givenClient_whenGetClientWithHibernate_thenReturnJson() {
         long id = 16L;
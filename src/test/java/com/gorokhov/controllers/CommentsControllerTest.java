@@ -3,6 +3,7 @@ package com.gorokhov.controllers;
 import com.gorokhov.models.Client;
 import com.gorokhov.models.Comment;
 import com.gorokhov.services.CommentsService;
+import com.gorokhov.util.CursorPage;
 import com.gorokhov.util.JsonUtil;
 import com.gorokhov.util.exceptions.CommentNotCreatedException;
 import com.gorokhov.util.exceptions.CommentNotFoundException;
@@ -145,26 +146,52 @@ public class CommentsControllerTest {
         Set<Comment> comments = new LinkedHashSet<>();
         Collections.addAll(comments, comment1, comment2);
 
-        given(commentsService.findAll()).willReturn(comments);
+        given(commentsService.findAll(0L, 50)).willReturn(new CursorPage<>(new ArrayList<>(comments), null));
 
         try {
             mockMvc.perform(get("/comments")
                     .contentType(MediaType.APPLICATION_JSON))
-                    .andExpect(jsonPath("$", hasSize(2)))
-                    .andExpect(jsonPath("$[0].id", is(comment1.getId()), long.class))
-                    .andExpect(jsonPath("$[0].description", is(comment1.getDescription()), String.class))
-                    .andExpect(jsonPath("$[0].client.id", is(client.getId()), long.class))
-                    .andExpect(jsonPath("$[0].client.email", is(client.getEmail()), String.class))
-                    .andExpect(jsonPath("$[0].client.name", is(client.getName()), String.class))
-                    .andExpect(jsonPath("$[1].id", is(comment2.getId()), long.class))
-                    .andExpect(jsonPath("$[1].description", is(comment2.getDescription()), String.class))
-                    .andExpect(jsonPath("$[1].client.id", is(client.getId()), long.class))
-                    .andExpect(jsonPath("$[1].client.email", is(client.getEmail()), String.class))
-                    .andExpect(jsonPath("$[1].client.name", is(client.getName()), String.class));
+                    .andExpect(jsonPath("$.content", hasSize(2)))
+                    .andExpect(jsonPath("$.content[0].id", is(comment1.getId()), long.class))
+                    .andExpect(jsonPath("$.content[0].description", is(comment1.getDescription()), String.class))
+                    .andExpect(jsonPath("$.content[0].client.id", is(client.getId()), long.class))
+                    .andExpect(jsonPath("$.content[0].client.email", is(client.getEmail()), String.class))
+                    .andExpect(jsonPath("$.content[0].client.name", is(client.getName()), String.class))
+                    .andExpect(jsonPath("$.content[1].id", is(comment2.getId()), long.class))
+                    .andExpect(jsonPath("$.content[1].description", is(comment2.getDescription()), String.class))
+                    .andExpect(jsonPath("$.content[1].client.id", is(client.getId()), long.class))
+                    .andExpect(jsonPath("$.content[1].client.email", is(client.getEmail()), String.class))
+                    .andExpect(jsonPath("$.content[1].client.name", is(client.getName()), String.class));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
-        verify(commentsService, times(1)).findAll();
+        verify(commentsService, times(1)).findAll(0L, 50);
+        reset(commentsService);
+    }
+
+    @Test
+    public void givenComments_whenSearchComments_thenReturnJsonPage() {
+        Client client = new Client("jerry@email.com", "Jerry");
+        client.setId(6L);
+
+        Comment comment = new Comment(client, "Велосипед отличный");
+        comment.setId(6L);
+
+        given(commentsService.search("велосипед отличный", 0L, 50))
+                .willReturn(new CursorPage<>(List.of(comment), null));
+
+        try {
+            mockMvc.perform(get("/comments/search")
+                    .param("query", "велосипед отличный")
+                    .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(1)))
+                    .andExpect(jsonPath("$.content[0].id", is(comment.getId()), long.class))
+                    .andExpect(jsonPath("$.content[0].description", is(comment.getDescription()), String.class));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        verify(commentsService, times(1)).search("велосипед отличный", 0L, 50);
         reset(commentsService);
     }
 
@@ -183,7 +210,7 @@ public class CommentsControllerTest {
                     .andExpect(result ->
                             assertEquals(errorMessage,
                                     Objects.requireNonNull(result.getResolvedException()).getMessage()))
-                    .andExpect(status().isBadRequest());
+                    .andExpect(status().isNotFound());
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,68 @@
+package com.gorokhov.controllers;
+
+import com.gorokhov.services.ExportService;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.Writer;
+import java.time.LocalDateTime;
+
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.internal.verification.VerificationModeFactory.times;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(ExportController.class)
+public class ExportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ExportService exportService;
+
+    @Test
+    public void givenSince_whenGetOrdersExport_thenStreamNdjson() throws Exception {
+        LocalDateTime since = LocalDateTime.of(2030, 5, 1, 10, 0);
+        String rows = "{\"id\":1,\"bikeIds\":[]}\n{\"id\":2,\"bikeIds\":[3]}\n";
+
+        willAnswer(invocation -> {
+            Writer writer = invocation.getArgument(1);
+            writer.write(rows);
+            writer.flush();
+            return null;
+        }).given(exportService).exportOrders(Mockito.eq(since), Mockito.any());
+
+        try {
+            mockMvc.perform(get("/export/orders")
+                    .param("since", "2030-05-01T10:00:00"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                    .andExpect(content().string(rows));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        verify(exportService, times(1)).exportOrders(Mockito.eq(since), Mockito.any());
+        reset(exportService);
+    }
+
+    @Test
+    public void givenNoSince_whenGetBikesExport_thenExportWholeTable() throws Exception {
+        try {
+            mockMvc.perform(get("/export/bikes"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        verify(exportService, times(1)).exportBikes(Mockito.isNull(), Mockito.any());
+        reset(exportService);
+    }
+}
@@ -0,0 +1,58 @@
+package com.gorokhov.controllers;
+
+import com.gorokhov.services.FleetImportService;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.BufferedReader;
+import java.io.Writer;
+
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.internal.verification.VerificationModeFactory.times;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(FleetController.class)
+public class FleetControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private FleetImportService fleetImportService;
+
+    @Test
+    public void givenNdjson_whenPostImport_thenStreamResults() throws Exception {
+        String row = "{\"city\":\"MOSCOW\",\"street\":\"Lenina\",\"house\":1}";
+        String result = "{\"line\":1,\"status\":\"CREATED\",\"storageId\":1,\"bikes\":0}\n";
+
+        willAnswer(invocation -> {
+            BufferedReader reader = invocation.getArgument(0);
+            Writer writer = invocation.getArgument(1);
+            if (row.equals(reader.readLine()))
+                writer.write(result);
+            writer.flush();
+            return null;
+        }).given(fleetImportService).importFleet(Mockito.any(), Mockito.any());
+
+        try {
+            mockMvc.perform(post("/fleet/import")
+                    .contentType("application/x-ndjson")
+                    .content(row))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                    .andExpect(content().string(result));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        verify(fleetImportService, times(1)).importFleet(Mockito.any(), Mockito.any());
+        reset(fleetImportService);
+    }
+}
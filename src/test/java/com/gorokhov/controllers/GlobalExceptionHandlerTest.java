@@ -0,0 +1,70 @@
+package com.gorokhov.controllers;
+
+import com.gorokhov.models.Address;
+import com.gorokhov.models.Bike;
+import com.gorokhov.models.Storage;
+import com.gorokhov.models.enums.City;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import com.gorokhov.repositories.BikesRepository;
+import com.gorokhov.repositories.StoragesRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Runs the requests against the application's own schema, so the violations come from the real constraints
+@SpringBootTest
+@AutoConfigureMockMvc
+public class GlobalExceptionHandlerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StoragesRepository storagesRepository;
+
+    @Autowired
+    private BikesRepository bikesRepository;
+
+    @Test
+    public void givenEmailTakenInOtherCase_whenPostClient_thenReturnBadRequest() {
+        try {
+            mockMvc.perform(post("/clients")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"email\":\"dupe@email.com\",\"name\":\"Dupe\"}"))
+                    .andExpect(status().isCreated());
+            mockMvc.perform(post("/clients")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"email\":\"DUPE@Email.com\",\"name\":\"Dupe\"}"))
+                    .andExpect(jsonPath("$.message", is("Клиент с таким email уже существует")))
+                    .andExpect(status().isBadRequest());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void givenUnknownClient_whenPostOrder_thenReturnNotFound() {
+        Storage storage = storagesRepository.save(new Storage(new Address(City.MOSCOW, "Petrovka", 38)));
+        Bike bike = bikesRepository.save(new Bike(Color.RED, Size.M, Label.STELS, storage));
+
+        try {
+            mockMvc.perform(post("/orders")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"client\":{\"id\":999999},\"storage\":{\"id\":" + storage.getId() + "}," +
+                             "\"bikes\":[{\"id\":" + bike.getId() + "}]}"))
+                    .andExpect(status().isNotFound());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -1,12 +1,18 @@
 package com.gorokhov.controllers;
 
+import com.gorokhov.dto.BikeAllocation;
+import com.gorokhov.dto.OrderRequestStatus;
+import com.gorokhov.dto.OrderView;
 import com.gorokhov.models.*;
 import com.gorokhov.models.enums.City;
 import com.gorokhov.models.enums.Color;
 import com.gorokhov.models.enums.Label;
 import com.gorokhov.models.enums.Size;
 import com.gorokhov.services.BikesService;
+import com.gorokhov.services.IdempotencyService;
+import com.gorokhov.services.OrderPipeline;
 import com.gorokhov.services.OrdersService;
+import com.gorokhov.util.CursorPage;
 import com.gorokhov.util.JsonUtil;
 import com.gorokhov.util.exceptions.*;
 import org.junit.jupiter.api.Test;
@@ -29,6 +35,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.internal.verification.VerificationModeFactory.times;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -41,6 +48,12 @@ public class OrdersControllerTest {
     @MockBean
     private OrdersService ordersService;
 
+    @MockBean
+    private IdempotencyService idempotencyService;
+
+    @MockBean
+    private OrderPipeline orderPipeline;
+
     @Test
     public void givenOrder_whenPostOrder_thenReturnStatusCreated() {
         long clientId = 1L;
@@ -83,6 +96,169 @@ public class OrdersControllerTest {
         reset(ordersService);
     }
 
+    @Test
+    public void givenIdempotencyKey_whenPostOrder_thenReturnLocationOfOrder() {
+        Client client = new Client("kim@email.com", "Kim");
+        client.setId(24L);
+        Address address = new Address(City.MOSCOW, "Arbat", 24);
+        Storage storage = new Storage(address);
+        storage.setId(24L);
+        Bike bike = new Bike(Color.RED, Size.L, Label.STELS, storage);
+        bike.setId(24L);
+        Order order = new Order(client, Collections.singleton(bike), storage);
+        String key = "3b7e1f42";
+
+        given(idempotencyService.createOrder(Mockito.eq(key), Mockito.any())).willReturn(24L);
+
+        try {
+            mockMvc.perform(post("/orders")
+                    .header("Idempotency-Key", key)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(JsonUtil.toJson(order)))
+                    .andExpect(status().isCreated())
+                    .andExpect(header().string("Location", "/orders/24"));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        verify(idempotencyService, times(1)).createOrder(Mockito.eq(key), Mockito.any());
+        verify(ordersService, Mockito.never()).save(Mockito.any());
+        reset(idempotencyService);
+    }
+
+    @Test
+    public void givenIdempotencyKeyOfOtherRequest_whenPostOrder_thenReturnUnprocessableEntity() {
+        Client client = new Client("kim@email.com", "Kim");
+        client.setId(25L);
+        Storage storage = new Storage(new Address(City.MOSCOW, "Arbat", 25));
+        storage.setId(25L);
+        Order order = new Order(client, Collections.emptySet(), storage);
+        String key = "3b7e1f43";
+
+        given(idempotencyService.createOrder(Mockito.eq(key), Mockito.any()))
+                .willThrow(new IdempotencyKeyMismatchException());
+
+        try {
+            mockMvc.perform(post("/orders")
+                    .header("Idempotency-Key", key)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(JsonUtil.toJson(order)))
+                    .andExpect(status().isUnprocessableEntity());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        reset(idempotencyService);
+    }
+
+    @Test
+    public void givenAllocation_whenPostAllocate_thenReturnLocationOfOrder() {
+        BikeAllocation allocation = new BikeAllocation(28L, 28L, 2, Size.M);
+        Order order = new Order();
+        order.setId(28L);
+
+        given(ordersService.allocate(Mockito.any())).willReturn(order);
+
+        try {
+            mockMvc.perform(post("/orders/allocate")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(JsonUtil.toJson(allocation)))
+                    .andExpect(status().isCreated())
+                    .andExpect(header().string("Location", "/orders/28"));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        verify(ordersService, times(1)).allocate(Mockito.any());
+        reset(ordersService);
+    }
+
+    @Test
+    public void givenAllocationWithoutSize_whenPostAllocate_thenThrowOrderNotCreatedException() {
+        BikeAllocation allocation = new BikeAllocation(29L, 29L, 0, null);
+
+        try {
+            mockMvc.perform(post("/orders/allocate")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(JsonUtil.toJson(allocation)))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(result ->
+                            assertTrue(result.getResolvedException() instanceof OrderNotCreatedException));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        verify(ordersService, times(0)).allocate(Mockito.any());
+    }
+
+    @Test
+    public void givenOrder_whenPostAsyncOrder_thenReturnAcceptedWithStatusLocation() {
+        Client client = new Client("ada@email.com", "Ada");
+        client.setId(25L);
+        Storage storage = new Storage(new Address(City.MOSCOW, "Arbat", 25));
+        storage.setId(25L);
+        Bike bike = new Bike(Color.RED, Size.L, Label.STELS, storage);
+        bike.setId(25L);
+        Order order = new Order(client, Collections.singleton(bike), storage);
+        String requestId = "5d0c9a3e";
+
+        given(orderPipeline.submit(Mockito.any())).willReturn(requestId);
+
+        try {
+            mockMvc.perform(post("/orders/async")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(JsonUtil.toJson(order)))
+                    .andExpect(status().isAccepted())
+                    .andExpect(header().string("Location", "/orders/requests/" + requestId));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        verify(orderPipeline, times(1)).submit(Mockito.any());
+        verify(ordersService, times(0)).save(Mockito.any());
+        reset(orderPipeline);
+    }
+
+    @Test
+    public void givenFullQueue_whenPostAsyncOrder_thenReturnServiceUnavailable() {
+        Client client = new Client("ada@email.com", "Ada");
+        client.setId(26L);
+        Storage storage = new Storage(new Address(City.MOSCOW, "Arbat", 26));
+        storage.setId(26L);
+        Order order = new Order(client, Collections.emptySet(), storage);
+
+        given(orderPipeline.submit(Mockito.any())).willThrow(new OrderQueueFullException());
+
+        try {
+            mockMvc.perform(post("/orders/async")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(JsonUtil.toJson(order)))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().exists("Retry-After"));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        reset(orderPipeline);
+    }
+
+    @Test
+    public void givenCreatedRequest_whenGetRequest_thenReturnOrderId() {
+        String requestId = "8f41b2c7";
+
+        given(orderPipeline.findStatus(requestId)).willReturn(Optional.of(OrderRequestStatus.created(27L)));
+        given(orderPipeline.findStatus("unknown")).willReturn(Optional.empty());
+
+        try {
+            mockMvc.perform(get("/orders/requests/" + requestId))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.state", is("CREATED")))
+                    .andExpect(jsonPath("$.orderId", is(27)));
+            mockMvc.perform(get("/orders/requests/unknown"))
+                    .andExpect(status().isNotFound())
+                    .andExpect(result ->
+                            assertTrue(result.getResolvedException() instanceof OrderRequestNotFoundException));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        verify(orderPipeline, times(1)).findStatus(requestId);
+        reset(orderPipeline);
+    }
+
     @Test
     public void givenOrder_whenPostOrder_thenThrowOrderNotCreatedException() {
         Client client = null;
@@ -126,57 +302,71 @@ public class OrdersControllerTest {
     }
 
     @Test
-    public void givenOrder_whenGetOrder_thenReturnJson() {
-        long clientId = 3L;
-        String email = "jerry@email.com";
-        String name = "Jerry";
+    public void givenOrder_whenPostOrderWithTakenBike_thenThrowBikesNotAvailableException() {
+        long clientId = 16L;
+        String email = "lisa@email.com";
+        String name = "Lisa";
         Client client = new Client(email, name);
         client.setId(clientId);
 
-        long addressId = 3L;
-        City city = City.KRASNODAR;
-        String street = "Severnaya";
-        int house = 82;
+        long addressId = 16L;
+        City city = City.MOSCOW;
+        String street = "Arbat";
+        int house = 12;
         Address address = new Address(city, street, house);
         address.setId(addressId);
         Storage storage = new Storage(address);
         storage.setId(addressId);
 
-        long bikeId = 3L;
-        Color color = Color.BLUE;
-        Size size = Size.XXL;
-        Label label = Label.CANNONDALE;
+        long bikeId = 16L;
+        Color color = Color.WHITE;
+        Size size = Size.M;
+        Label label = Label.SCOTT;
         Bike bike = new Bike(color, size, label, storage);
         bike.setId(bikeId);
 
-        long orderId = 3L;
         Order order = new Order(client, Collections.singleton(bike), storage);
-        order.setId(orderId);
+
+        String errorMessage = "Велосипеды уже заняты: [16]";
+
+        given(ordersService.save(Mockito.any()))
+                .willThrow(new BikesNotAvailableException(Collections.singleton(bikeId)));
+
+        try {
+            mockMvc.perform(post("/orders")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(JsonUtil.toJson(order)))
+                    .andExpect(result ->
+                            assertTrue(result.getResolvedException() instanceof BikesNotAvailableException))
+                    .andExpect(jsonPath("$.message", is(errorMessage), String.class))
+                    .andExpect(status().isConflict());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        reset(ordersService);
+    }
+
+    @Test
+    public void givenOrder_whenGetOrder_thenReturnJson() {
+        long orderId = 3L;
+        long clientId = 3L;
+        String name = "Jerry";
+        long storageId = 3L;
+        long bikeId = 3L;
+        OrderView order = new OrderView(orderId, clientId, name, storageId, null, null, null);
+        order.getBikeIds().add(bikeId);
 
         given(ordersService.findOne(orderId)).willReturn(Optional.of(order));
 
         try {
             mockMvc.perform(get("/orders/3")
                     .contentType(MediaType.APPLICATION_JSON))
-                    .andExpect(jsonPath("$.id", is(order.getId()), long.class))
-                    .andExpect(jsonPath("$.client.id", is(client.getId()), long.class))
-                    .andExpect(jsonPath("$.client.email", is(client.getEmail()), String.class))
-                    .andExpect(jsonPath("$.client.name", is(client.getName()), String.class))
-                    .andExpect(jsonPath("$.bikes[0].id", is(bike.getId()), long.class))
-                    .andExpect(jsonPath("$.bikes[0].color", is(bike.getColor().name()), String.class))
-                    .andExpect(jsonPath("$.bikes[0].size", is(bike.getSize().name()), String.class))
-                    .andExpect(jsonPath("$.bikes[0].label", is(bike.getLabel().name()), String.class))
-                    .andExpect(jsonPath("$.bikes[0].available", is(bike.isAvailable()), boolean.class))
-                    .andExpect(jsonPath("$.bikes[0].storage.id", is(storage.getId()), long.class))
-                    .andExpect(jsonPath("$.bikes[0].storage.address.id", is(storage.getAddress().getId()), long.class))
-                    .andExpect(jsonPath("$.bikes[0].storage.address.city", is(storage.getAddress().getCity().name()), String.class))
-                    .andExpect(jsonPath("$.bikes[0].storage.address.street", is(storage.getAddress().getStreet()), String.class))
-                    .andExpect(jsonPath("$.bikes[0].storage.address.house", is(storage.getAddress().getHouse()), int.class))
-                    .andExpect(jsonPath("$.storage.id", is(storage.getId()), long.class))
-                    .andExpect(jsonPath("$.storage.address.id", is(storage.getAddress().getId()), long.class))
-                    .andExpect(jsonPath("$.storage.address.city", is(storage.getAddress().getCity().name()), String.class))
-                    .andExpect(jsonPath("$.storage.address.street", is(storage.getAddress().getStreet()), String.class))
-                    .andExpect(jsonPath("$.storage.address.house", is(storage.getAddress().getHouse()), int.class));
+                    .andExpect(jsonPath("$.id", is(orderId), long.class))
+                    .andExpect(jsonPath("$.clientId", is(clientId), long.class))
+                    .andExpect(jsonPath("$.clientName", is(name), String.class))
+                    .andExpect(jsonPath("$.storageId", is(storageId), long.class))
+                    .andExpect(jsonPath("$.bikeIds", hasSize(1)))
+                    .andExpect(jsonPath("$.bikeIds[0]", is(bikeId), long.class));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -187,93 +377,39 @@ public class OrdersControllerTest {
     @Test
     public void givenOrders_whenGetOrders_thenReturnJsonArray() {
         long clientId = 4L;
-        String email = "marry@email.com";
         String name = "Marry";
-        Client client = new Client(email, name);
-        client.setId(clientId);
-
-        long addressId = 4L;
-        City city = City.EKATERINBURG;
-        String street = "Centralnaya";
-        int house = 42;
-        Address address = new Address(city, street, house);
-        address.setId(addressId);
-        Storage storage = new Storage(address);
-        storage.setId(addressId);
-
-        long bikeId1 = 4L;
-        Color color1 = Color.WHITE;
-        Size size1 = Size.S;
-        Label label1 = Label.SALSA;
-        Bike bike1 = new Bike(color1, size1, label1, storage);
-        bike1.setId(bikeId1);
-
-        long bikeId2 = 5L;
-        Color color2 = Color.YELLOW;
-        Size size2 = Size.L;
-        Label label2 = Label.MONGOOSE;
-        Bike bike2 = new Bike(color2, size2, label2, storage);
-        bike2.setId(bikeId2);
+        long storageId = 4L;
 
         long orderId1 = 4L;
-        Order order1 = new Order(client, Collections.singleton(bike1), storage);
-        order1.setId(orderId1);
+        long bikeId1 = 4L;
+        OrderView order1 = new OrderView(orderId1, clientId, name, storageId, null, null, null);
+        order1.getBikeIds().add(bikeId1);
 
         long orderId2 = 5L;
-        Order order2 = new Order(client, Collections.singleton(bike2), storage);
-        order2.setId(orderId2);
-
-        Set<Order> orders = new LinkedHashSet<>();
-        Collections.addAll(orders, order1, order2);
+        long bikeId2 = 5L;
+        OrderView order2 = new OrderView(orderId2, clientId, name, storageId, null, null, null);
+        order2.getBikeIds().add(bikeId2);
 
-        given(ordersService.findAll()).willReturn(orders);
+        given(ordersService.findAll(0L, 50)).willReturn(new CursorPage<>(List.of(order1, order2), null));
 
         try {
             mockMvc.perform(get("/orders")
                     .contentType(MediaType.APPLICATION_JSON))
-                    .andExpect(jsonPath("$", hasSize(2)))
-                    .andExpect(jsonPath("$[0].id", is(order1.getId()), long.class))
-                    .andExpect(jsonPath("$[0].client.id", is(client.getId()), long.class))
-                    .andExpect(jsonPath("$[0].client.email", is(client.getEmail()), String.class))
-                    .andExpect(jsonPath("$[0].client.name", is(client.getName()), String.class))
-                    .andExpect(jsonPath("$[0].bikes[0].id", is(bike1.getId()), long.class))
-                    .andExpect(jsonPath("$[0].bikes[0].color", is(bike1.getColor().name()), String.class))
-                    .andExpect(jsonPath("$[0].bikes[0].size", is(bike1.getSize().name()), String.class))
-                    .andExpect(jsonPath("$[0].bikes[0].label", is(bike1.getLabel().name()), String.class))
-                    .andExpect(jsonPath("$[0].bikes[0].available", is(bike1.isAvailable()), boolean.class))
-                    .andExpect(jsonPath("$[0].bikes[0].storage.id", is(storage.getId()), long.class))
-                    .andExpect(jsonPath("$[0].bikes[0].storage.address.id", is(storage.getAddress().getId()), long.class))
-                    .andExpect(jsonPath("$[0].bikes[0].storage.address.city", is(storage.getAddress().getCity().name()), String.class))
-                    .andExpect(jsonPath("$[0].bikes[0].storage.address.street", is(storage.getAddress().getStreet()), String.class))
-                    .andExpect(jsonPath("$[0].bikes[0].storage.address.house", is(storage.getAddress().getHouse()), int.class))
-                    .andExpect(jsonPath("$[0].storage.id", is(storage.getId()), long.class))
-                    .andExpect(jsonPath("$[0].storage.address.id", is(storage.getAddress().getId()), long.class))
-                    .andExpect(jsonPath("$[0].storage.address.city", is(storage.getAddress().getCity().name()), String.class))
-                    .andExpect(jsonPath("$[0].storage.address.street", is(storage.getAddress().getStreet()), String.class))
-                    .andExpect(jsonPath("$[0].storage.address.house", is(storage.getAddress().getHouse()), int.class))
-                    .andExpect(jsonPath("$[1].id", is(order2.getId()), long.class))
-                    .andExpect(jsonPath("$[1].client.id", is(client.getId()), long.class))
-                    .andExpect(jsonPath("$[1].client.email", is(client.getEmail()), String.class))
-                    .andExpect(jsonPath("$[1].client.name", is(client.getName()), String.class))
-                    .andExpect(jsonPath("$[1].bikes[0].id", is(bike2.getId()), long.class))
-                    .andExpect(jsonPath("$[1].bikes[0].color", is(bike2.getColor().name()), String.class))
-                    .andExpect(jsonPath("$[1].bikes[0].size", is(bike2.getSize().name()), String.class))
-                    .andExpect(jsonPath("$[1].bikes[0].label", is(bike2.getLabel().name()), String.class))
-                    .andExpect(jsonPath("$[1].bikes[0].available", is(bike2.isAvailable()), boolean.class))
-                    .andExpect(jsonPath("$[1].bikes[0].storage.id", is(storage.getId()), long.class))
-                    .andExpect(jsonPath("$[1].bikes[0].storage.address.id", is(storage.getAddress().getId()), long.class))
-                    .andExpect(jsonPath("$[1].bikes[0].storage.address.city", is(storage.getAddress().getCity().name()), String.class))
-                    .andExpect(jsonPath("$[1].bikes[0].storage.address.street", is(storage.getAddress().getStreet()), String.class))
-                    .andExpect(jsonPath("$[1].bikes[0].storage.address.house", is(storage.getAddress().getHouse()), int.class))
-                    .andExpect(jsonPath("$[1].storage.id", is(storage.getId()), long.class))
-                    .andExpect(jsonPath("$[1].storage.address.id", is(storage.getAddress().getId()), long.class))
-                    .andExpect(jsonPath("$[1].storage.address.city", is(storage.getAddress().getCity().name()), String.class))
-                    .andExpect(jsonPath("$[1].storage.address.street", is(storage.getAddress().getStreet()), String.class))
-                    .andExpect(jsonPath("$[1].storage.address.house", is(storage.getAddress().getHouse()), int.class));
+                    .andExpect(jsonPath("$.content", hasSize(2)))
+                    .andExpect(jsonPath("$.content[0].id", is(orderId1), long.class))
+                    .andExpect(jsonPath("$.content[0].clientId", is(clientId), long.class))
+                    .andExpect(jsonPath("$.content[0].clientName", is(name), String.class))
+                    .andExpect(jsonPath("$.content[0].storageId", is(storageId), long.class))
+                    .andExpect(jsonPath("$.content[0].bikeIds[0]", is(bikeId1), long.class))
+                    .andExpect(jsonPath("$.content[1].id", is(orderId2), long.class))
+                    .andExpect(jsonPath("$.content[1].clientId", is(clientId), long.class))
+                    .andExpect(jsonPath("$.content[1].clientName", is(name), String.class))
+                    .andExpect(jsonPath("$.content[1].storageId", is(storageId), long.class))
+                    .andExpect(jsonPath("$.content[1].bikeIds[0]", is(bikeId2), long.class));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
-        verify(ordersService, times(1)).findAll();
+        verify(ordersService, times(1)).findAll(0L, 50);
         reset(ordersService);
     }
 
@@ -292,7 +428,7 @@ public class OrdersControllerTest {
                     .andExpect(result ->
                             assertEquals(errorMessage,
                                     Objects.requireNonNull(result.getResolvedException()).getMessage()))
-                    .andExpect(status().isBadRequest());
+                    .andExpect(status().isNotFound());
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -421,7 +557,7 @@ public class OrdersControllerTest {
                     .andExpect(result ->
                             assertEquals(errorMessage,
                                     Objects.requireNonNull(result.getResolvedException()).getMessage()))
-                    .andExpect(status().isBadRequest());
+                    .andExpect(status().isNotFound());
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -470,7 +606,7 @@ public class OrdersControllerTest {
                     .andExpect(result ->
                             assertEquals(errorMessage,
                                     Objects.requireNonNull(result.getResolvedException()).getMessage()))
-                    .andExpect(status().isBadRequest());
+                    .andExpect(status().isNotFound());
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -519,10 +655,56 @@ public class OrdersControllerTest {
                     .andExpect(result ->
                             assertEquals(errorMessage,
                                     Objects.requireNonNull(result.getResolvedException()).getMessage()))
-                    .andExpect(status().isBadRequest());
+                    .andExpect(status().isNotFound());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        reset(ordersService);
+    }
+
+    @Test
+    public void givenClosedOrder_whenPostCloseOrder_thenThrowOrderClosedException() {
+        long id = 20L;
+        String errorMessage = "Заказ уже закрыт";
+
+        Mockito.doThrow(new OrderClosedException()).when(ordersService).close(id, null);
+
+        try {
+            mockMvc.perform(post("/orders/20/close")
+                    .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(result ->
+                            assertTrue(result.getResolvedException() instanceof OrderClosedException))
+                    .andExpect(result ->
+                            assertEquals(errorMessage,
+                                    Objects.requireNonNull(result.getResolvedException()).getMessage()))
+                    .andExpect(status().isConflict());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        verify(ordersService, times(1)).close(id, null);
+        reset(ordersService);
+    }
+
+    @Test
+    public void givenOrderIds_whenPostCloseOrders_thenReturnClosedIds() {
+        long storageId = 7L;
+        List<Long> ids = List.of(21L, 22L, 23L);
+
+        given(ordersService.closeAll(ids, storageId)).willReturn(List.of(21L, 23L));
+
+        try {
+            mockMvc.perform(post("/orders/close")
+                    .param("storage", "7")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(JsonUtil.toJson(ids)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$", hasSize(2)))
+                    .andExpect(jsonPath("$[0]", is(21L), long.class))
+                    .andExpect(jsonPath("$[1]", is(23L), long.class));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
+        verify(ordersService, times(1)).closeAll(ids, storageId);
         reset(ordersService);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,50 @@
+package com.gorokhov.controllers;
+
+import com.gorokhov.dto.CacheStatistics;
+import com.gorokhov.services.StatisticsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.internal.verification.VerificationModeFactory.times;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(StatisticsController.class)
+public class StatisticsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private StatisticsService statisticsService;
+
+    @Test
+    public void givenCacheStatistics_whenGetCacheStatistics_thenReturnJsonArray() {
+        CacheStatistics storage = new CacheStatistics("com.gorokhov.models.Storage", 10, 2, 2);
+        given(statisticsService.findCacheStatistics()).willReturn(List.of(storage));
+
+        try {
+            mockMvc.perform(get("/statistics/cache"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$", hasSize(1)))
+                    .andExpect(jsonPath("$[0].region", is(storage.getRegion())))
+                    .andExpect(jsonPath("$[0].hitCount", is(10)))
+                    .andExpect(jsonPath("$[0].missCount", is(2)));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        verify(statisticsService, times(1)).findCacheStatistics();
+        reset(statisticsService);
+    }
+}
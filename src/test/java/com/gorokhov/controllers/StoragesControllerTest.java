@@ -1,5 +1,7 @@
 package com.gorokhov.controllers;
 
+import com.gorokhov.dto.NearbyStorage;
+import com.gorokhov.dto.StorageView;
 import com.gorokhov.models.Address;
 import com.gorokhov.models.Bike;
 import com.gorokhov.models.Storage;
@@ -8,6 +10,8 @@ import com.gorokhov.models.enums.Color;
 import com.gorokhov.models.enums.Label;
 import com.gorokhov.models.enums.Size;
 import com.gorokhov.services.StoragesService;
+import com.gorokhov.util.CursorPage;
+import com.gorokhov.util.exceptions.InvalidLocationException;
 import com.gorokhov.util.exceptions.StorageNotFoundException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -73,43 +77,34 @@ public class StoragesControllerTest {
         City city1 = City.KRASNODAR;
         String street1 = "Novaya";
         int house1 = 29;
-        Address address1 = new Address(city1, street1, house1);
-        address1.setId(id1);
-        Storage storage1 = new Storage(address1);
-        storage1.setId(id1);
+        StorageView storage1 = new StorageView(id1, id1, city1, street1, house1);
 
         long id2 = 3L;
         City city2 = City.SAINT_PETERSBURG;
         String street2 = "Nevskii";
         int house2 = 52;
-        Address address2 = new Address(city2, street2, house2);
-        address2.setId(id2);
-        Storage storage2 = new Storage(address2);
-        storage2.setId(id2);
+        StorageView storage2 = new StorageView(id2, id2, city2, street2, house2);
 
-        Set<Storage> storages = new LinkedHashSet<>();
-        Collections.addAll(storages, storage1, storage2);
-
-        given(storagesService.findAll()).willReturn(storages);
+        given(storagesService.findAll(0L, 50)).willReturn(new CursorPage<>(List.of(storage1, storage2), null));
 
         try {
             mockMvc.perform(get("/storages")
                     .contentType(MediaType.APPLICATION_JSON))
-                    .andExpect(jsonPath("$", hasSize(2)))
-                    .andExpect(jsonPath("$[0].id", is(storage1.getId()), long.class))
-                    .andExpect(jsonPath("$[0].address.id", is(storage1.getAddress().getId()), long.class))
-                    .andExpect(jsonPath("$[0].address.city", is(storage1.getAddress().getCity().name()), String.class))
-                    .andExpect(jsonPath("$[0].address.street", is(storage1.getAddress().getStreet()), String.class))
-                    .andExpect(jsonPath("$[0].address.house", is(storage1.getAddress().getHouse()), int.class))
-                    .andExpect(jsonPath("$[1].id", is(storage2.getId()), long.class))
-                    .andExpect(jsonPath("$[1].address.id", is(storage2.getAddress().getId()), long.class))
-                    .andExpect(jsonPath("$[1].address.city", is(storage2.getAddress().getCity().name()), String.class))
-                    .andExpect(jsonPath("$[1].address.street", is(storage2.getAddress().getStreet()), String.class))
-                    .andExpect(jsonPath("$[1].address.house", is(storage2.getAddress().getHouse()), int.class));
+                    .andExpect(jsonPath("$.content", hasSize(2)))
+                    .andExpect(jsonPath("$.content[0].id", is(storage1.getId()), long.class))
+                    .andExpect(jsonPath("$.content[0].addressId", is(storage1.getAddressId()), long.class))
+                    .andExpect(jsonPath("$.content[0].city", is(storage1.getCity().name()), String.class))
+                    .andExpect(jsonPath("$.content[0].street", is(storage1.getStreet()), String.class))
+                    .andExpect(jsonPath("$.content[0].house", is(storage1.getHouse()), int.class))
+                    .andExpect(jsonPath("$.content[1].id", is(storage2.getId()), long.class))
+                    .andExpect(jsonPath("$.content[1].addressId", is(storage2.getAddressId()), long.class))
+                    .andExpect(jsonPath("$.content[1].city", is(storage2.getCity().name()), String.class))
+                    .andExpect(jsonPath("$.content[1].street", is(storage2.getStreet()), String.class))
+                    .andExpect(jsonPath("$.content[1].house", is(storage2.getHouse()), int.class));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
-        verify(storagesService, times(1)).findAll();
+        verify(storagesService, times(1)).findAll(0L, 50);
         reset(storagesService);
     }
 
@@ -128,7 +123,7 @@ public class StoragesControllerTest {
                     .andExpect(result ->
                             assertEquals(errorMessage,
                                     Objects.requireNonNull(result.getResolvedException()).getMessage()))
-                    .andExpect(status().isBadRequest());
+                    .andExpect(status().isNotFound());
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -153,18 +148,7 @@ public class StoragesControllerTest {
         Bike redBike = new Bike(color1, size1, label1, storage);
         redBike.setId(bikeId1);
 
-        long bikeId2 = 12L;
-        Color color2 = Color.GREEN;
-        Size size2 = Size.XS;
-        Label label2 = Label.FORWARD;
-        Bike greenBike = new Bike(color2, size2, label2, storage);
-        greenBike.setId(bikeId2);
-
-        Set<Bike> bikes = new LinkedHashSet<>();
-        Collections.addAll(bikes, redBike, greenBike);
-        storage.setBikes(bikes);
-
-        given(storagesService.findOne(id)).willReturn(Optional.of(storage));
+        given(storagesService.findBikes(id, Color.RED)).willReturn(Set.of(redBike));
 
         try {
             mockMvc.perform(get("/storages/5/lazy")
@@ -183,7 +167,43 @@ public class StoragesControllerTest {
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
-        verify(storagesService, times(1)).findOne(id);
+        verify(storagesService, times(1)).findBikes(id, Color.RED);
+        reset(storagesService);
+    }
+
+    @Test
+    public void givenLocation_whenGetNearestStorages_thenReturnJsonArray() {
+        List<NearbyStorage> nearest = List.of(new NearbyStorage(6L, 55.75, 37.61, 0.4, 3),
+                                              new NearbyStorage(7L, 55.76, 37.63, 1.2, 1));
+
+        given(storagesService.findNearest(55.751, 37.617, Size.M, 2)).willReturn(nearest);
+
+        try {
+            mockMvc.perform(get("/storages/nearest?latitude=55.751&longitude=37.617&size=M&limit=2"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$", hasSize(2)))
+                    .andExpect(jsonPath("$[0].id", is(6)))
+                    .andExpect(jsonPath("$[0].availableBikes", is(3)))
+                    .andExpect(jsonPath("$[1].distanceKm", is(1.2)));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        verify(storagesService, times(1)).findNearest(55.751, 37.617, Size.M, 2);
+        reset(storagesService);
+    }
+
+    @Test
+    public void givenInvalidLocation_whenGetNearestStorages_thenReturnBadRequest() {
+        given(storagesService.findNearest(100, 37.617, null, 10)).willThrow(new InvalidLocationException());
+
+        try {
+            mockMvc.perform(get("/storages/nearest?latitude=100&longitude=37.617"))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(result ->
+                            assertTrue(result.getResolvedException() instanceof InvalidLocationException));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
         reset(storagesService);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,136 @@
+package com.gorokhov.index;
+
+import com.gorokhov.dto.BikeAttributes;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import com.gorokhov.repositories.BikesRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class BikeAvailabilityIndexTest {
+
+    @Mock
+    private BikesRepository bikesRepository;
+
+    @Mock
+    private FleetCounters fleetCounters;
+
+    @InjectMocks
+    private BikeAvailabilityIndex availabilityIndex;
+
+    @Test
+    public void givenBikes_whenRebuild_thenFindAvailableByAttributes() {
+        given(bikesRepository.findAllAttributes()).willReturn(List.of(
+                new BikeAttributes(1L, 10L, Size.M, Color.RED, Label.STELS, true),
+                new BikeAttributes(2L, 10L, Size.M, Color.BLACK, Label.STELS, true),
+                new BikeAttributes(3L, 10L, Size.M, Color.RED, Label.STELS, false),
+                new BikeAttributes(4L, 20L, Size.M, Color.RED, Label.STELS, true)));
+
+        availabilityIndex.rebuild();
+
+        assertEquals(List.of(1L, 2L), availabilityIndex.findAvailable(10L, Size.M, null, null));
+        assertEquals(List.of(1L), availabilityIndex.findAvailable(10L, null, Color.RED, Label.STELS));
+        assertEquals(List.of(), availabilityIndex.findAvailable(10L, Size.XL, null, null));
+        assertEquals(List.of(), availabilityIndex.findAvailable(30L, null, null, null));
+    }
+
+    @Test
+    public void givenBikeMovedToAnotherStorage_whenRefresh_thenFindOnlyInNewStorage() {
+        given(bikesRepository.findAttributesByIdIn(Set.of(1L))).willReturn(
+                List.of(new BikeAttributes(1L, 10L, Size.M, Color.RED, Label.STELS, true)),
+                List.of(new BikeAttributes(1L, 20L, Size.M, Color.BLUE, Label.STELS, true)));
+
+        availabilityIndex.refresh(Set.of(1L));
+        availabilityIndex.refresh(Set.of(1L));
+
+        assertEquals(List.of(), availabilityIndex.findAvailable(10L, null, null, null));
+        assertEquals(List.of(1L), availabilityIndex.findAvailable(20L, null, Color.BLUE, null));
+        assertEquals(List.of(), availabilityIndex.findAvailable(20L, null, Color.RED, null));
+    }
+
+    @Test
+    public void givenOpenTransaction_whenRefresh_thenReadCommittedStateAfterCommit() {
+        given(bikesRepository.findAttributesByIdIn(Set.of(1L))).willReturn(
+                List.of(new BikeAttributes(1L, 10L, Size.M, Color.RED, Label.STELS, true)),
+                List.of(new BikeAttributes(1L, 10L, Size.M, Color.RED, Label.STELS, false)));
+        availabilityIndex.refresh(Set.of(1L));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            availabilityIndex.refresh(Set.of(1L));
+            assertEquals(List.of(1L), availabilityIndex.findAvailable(10L, null, null, null));
+            verify(bikesRepository, times(1)).findAttributesByIdIn(Set.of(1L));
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            assertEquals(List.of(), availabilityIndex.findAvailable(10L, null, null, null));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void givenDeletedBike_whenRefresh_thenRemoveBike() {
+        given(bikesRepository.findAttributesByIdIn(Set.of(1L, 2L))).willReturn(List.of(
+                new BikeAttributes(1L, 10L, Size.M, Color.RED, Label.STELS, true),
+                new BikeAttributes(2L, 10L, Size.M, Color.RED, Label.STELS, true)));
+        given(bikesRepository.findAttributesByIdIn(Set.of(2L))).willReturn(List.of());
+
+        availabilityIndex.refresh(Set.of(1L, 2L));
+        availabilityIndex.refresh(Set.of(2L));
+
+        assertEquals(List.of(1L), availabilityIndex.findAvailable(10L, null, null, null));
+        verify(fleetCounters, times(1)).replace(10L, FleetCounters.cell(Label.STELS, Size.M, Color.RED, true), -1);
+    }
+
+    @Test
+    public void givenOlderReadFinishingLast_whenRefresh_thenKeepNewerState() throws Exception {
+        CountDownLatch olderReading = new CountDownLatch(1);
+        CountDownLatch newerApplied = new CountDownLatch(1);
+        given(bikesRepository.findAttributesByIdIn(Set.of(1L))).willAnswer(invocation -> {
+            olderReading.countDown();
+            newerApplied.await(5, TimeUnit.SECONDS);
+            return List.of(new BikeAttributes(1L, 10L, Size.M, Color.RED, Label.STELS, true));
+        }).willReturn(List.of(new BikeAttributes(1L, 10L, Size.M, Color.RED, Label.STELS, false)));
+
+        CompletableFuture<Void> older = CompletableFuture.runAsync(() -> availabilityIndex.refresh(Set.of(1L)));
+        olderReading.await(5, TimeUnit.SECONDS);
+        availabilityIndex.refresh(Set.of(1L));
+        newerApplied.countDown();
+        older.get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(), availabilityIndex.findAvailable(10L, null, null, null));
+        verify(fleetCounters, times(0)).replace(10L, -1, FleetCounters.cell(Label.STELS, Size.M, Color.RED, true));
+    }
+
+    @Test
+    public void givenBikeRefreshedDuringRebuild_whenRebuild_thenKeepRefreshedBike() {
+        given(bikesRepository.findAllAttributes()).willAnswer(invocation -> {
+            availabilityIndex.refresh(Set.of(2L));
+            return List.of(new BikeAttributes(1L, 10L, Size.M, Color.RED, Label.STELS, true));
+        });
+        given(bikesRepository.findAttributesByIdIn(Set.of(2L))).willReturn(
+                List.of(new BikeAttributes(2L, 10L, Size.M, Color.RED, Label.STELS, true)));
+
+        availabilityIndex.rebuild();
+
+        assertEquals(List.of(1L, 2L), availabilityIndex.findAvailable(10L, null, null, null));
+    }
+}
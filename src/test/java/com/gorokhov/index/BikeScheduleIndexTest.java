@@ -0,0 +1,80 @@
+package com.gorokhov.index;
+
+import com.gorokhov.dto.Booking;
+import com.gorokhov.repositories.OrdersRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+public class BikeScheduleIndexTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2030, 5, 1, 0, 0);
+
+    @Mock
+    private OrdersRepository ordersRepository;
+
+    @InjectMocks
+    private BikeScheduleIndex scheduleIndex;
+
+    @Test
+    public void givenBookings_whenRebuild_thenFindOnlyBikesFreeForSlot() {
+        given(ordersRepository.findBookingsEndingAfter(any())).willReturn(List.of(
+                new Booking(1L, 10L, at(10), at(12)),
+                new Booking(2L, 10L, at(14), at(16)),
+                new Booking(2L, 20L, at(14), at(16))));
+
+        scheduleIndex.rebuild();
+
+        assertEquals(List.of(10L, 20L, 30L), scheduleIndex.findFree(List.of(10L, 20L, 30L), at(12), at(14)));
+        assertEquals(List.of(20L, 30L), scheduleIndex.findFree(List.of(10L, 20L, 30L), at(11), at(13)));
+        assertEquals(List.of(30L), scheduleIndex.findFree(List.of(10L, 20L, 30L), at(11), at(15)));
+        assertTrue(scheduleIndex.isFree(10L, at(8), at(10)));
+        assertFalse(scheduleIndex.isFree(10L, at(15), at(17)));
+    }
+
+    @Test
+    public void givenBookedOrder_whenPutAgain_thenReplaceOldSlot() {
+        scheduleIndex.put(1L, Set.of(10L, 20L), at(10), at(12));
+        scheduleIndex.put(1L, Set.of(20L), at(14), at(16));
+
+        assertTrue(scheduleIndex.isFree(10L, at(10), at(12)));
+        assertTrue(scheduleIndex.isFree(20L, at(10), at(12)));
+        assertFalse(scheduleIndex.isFree(20L, at(13), at(15)));
+
+        scheduleIndex.remove(1L);
+        assertTrue(scheduleIndex.isFree(20L, at(13), at(15)));
+    }
+
+    @Test
+    public void givenOpenTransaction_whenPut_thenApplyOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            scheduleIndex.put(1L, Set.of(10L), at(10), at(12));
+            assertTrue(scheduleIndex.isFree(10L, at(10), at(12)));
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            assertFalse(scheduleIndex.isFree(10L, at(10), at(12)));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static LocalDateTime at(int hour) {
+        return DAY.plusHours(hour);
+    }
+}
@@ -0,0 +1,67 @@
+package com.gorokhov.index;
+
+import com.gorokhov.dto.ClientName;
+import com.gorokhov.repositories.ClientsRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+public class ClientNameIndexTest {
+
+    @Mock
+    private ClientsRepository clientsRepository;
+
+    @InjectMocks
+    private ClientNameIndex nameIndex;
+
+    @Test
+    public void givenClients_whenSearch_thenReturnIdsOfMatchingNamesIgnoringCase() {
+        given(clientsRepository.findAllNames()).willReturn(List.of(new ClientName(1L, "Jake"),
+                                                                   new ClientName(2L, "Flake"),
+                                                                   new ClientName(3L, "Kate"),
+                                                                   new ClientName(4L, "AKEMI")));
+        nameIndex.rebuild();
+
+        assertEquals(List.of(1L, 2L, 4L), ids(nameIndex.search("ake", 0L, 10)));
+        assertEquals(List.of(2L), ids(nameIndex.search("flak", 0L, 10)));
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(nameIndex.search("k", 0L, 10)));
+        assertEquals(List.of(), ids(nameIndex.search("zzz", 0L, 10)));
+    }
+
+    @Test
+    public void givenTrigramsInWrongOrder_whenSearch_thenReturnOnlySubstringMatches() {
+        nameIndex.put(1L, "abcXbcd");
+        nameIndex.put(2L, "abcd");
+
+        assertEquals(List.of(2L), ids(nameIndex.search("abcd", 0L, 10)));
+    }
+
+    @Test
+    public void givenCursorAndLimit_whenSearch_thenReturnNextIdsInOrder() {
+        for (long id = 1; id <= 5; id++)
+            nameIndex.put(id, "Anna" + id);
+
+        assertEquals(List.of(3L, 4L), ids(nameIndex.search("anna", 2L, 2)));
+    }
+
+    @Test
+    public void givenRenamedClient_whenSearch_thenFindOnlyByNewName() {
+        nameIndex.put(1L, "Homer");
+        nameIndex.put(1L, "Bart");
+
+        assertEquals(List.of(), ids(nameIndex.search("hom", 0L, 10)));
+        assertEquals(List.of(1L), ids(nameIndex.search("bar", 0L, 10)));
+    }
+
+    private List<Long> ids(List<ClientName> clients) {
+        return clients.stream().map(ClientName::getId).toList();
+    }
+}
@@ -0,0 +1,60 @@
+package com.gorokhov.index;
+
+import com.gorokhov.dto.CommentText;
+import com.gorokhov.repositories.CommentsRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+public class CommentTextIndexTest {
+
+    @Mock
+    private CommentsRepository commentsRepository;
+
+    @InjectMocks
+    private CommentTextIndex textIndex;
+
+    @Test
+    public void givenComments_whenSearchSeveralTerms_thenReturnOnlyCommentsWithAllTerms() {
+        given(commentsRepository.findAllTexts()).willReturn(List.of(new CommentText(1L, "Fast bike, slow service"),
+                                                                    new CommentText(2L, "Fast delivery"),
+                                                                    new CommentText(3L, "The bike was FAST!")));
+        textIndex.rebuild();
+
+        assertEquals(List.of(1L, 3L), textIndex.search("fast bike", 0L, 10));
+        assertEquals(List.of(1L, 2L, 3L), textIndex.search("Fast", 0L, 10));
+        assertEquals(List.of(), textIndex.search("fast train", 0L, 10));
+        assertEquals(List.of(), textIndex.search("  ", 0L, 10));
+    }
+
+    @Test
+    public void givenCursorAndLimit_whenSearch_thenReturnNextIdsInOrder() {
+        for (long id = 1; id <= 5; id++)
+            textIndex.add(id, "good bike " + id);
+
+        assertEquals(List.of(3L, 4L), textIndex.search("good bike", 2L, 2));
+    }
+
+    @Test
+    public void givenRussianWordForms_whenSearch_thenMatchCommonStem() {
+        textIndex.add(1L, "Отличные велосипеды!");
+        textIndex.add(2L, "Нет велосипеда нужного размера");
+
+        assertEquals(List.of(1L, 2L), textIndex.search("велосипед", 0L, 10));
+        assertEquals(List.of(1L), textIndex.search("отличный велосипед", 0L, 10));
+    }
+
+    @Test
+    public void givenText_whenTermsOf_thenSplitAndLowerCase() {
+        assertEquals(Set.of("ready", "2", "go"), CommentTextIndex.termsOf("Ready, 2... GO!"));
+    }
+}
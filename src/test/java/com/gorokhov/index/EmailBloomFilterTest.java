@@ -0,0 +1,48 @@
+package com.gorokhov.index;
+
+import com.gorokhov.repositories.ClientsRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+public class EmailBloomFilterTest {
+
+    @Mock
+    private ClientsRepository clientsRepository;
+
+    @Test
+    public void givenStoredEmails_whenRebuild_thenContainThemIgnoringCase() {
+        EmailBloomFilter emailFilter = new EmailBloomFilter(clientsRepository, 1000, 0.01);
+        given(clientsRepository.findAllEmails()).willReturn(List.of("tom@email.com", "jerry@email.com"));
+
+        emailFilter.rebuild();
+
+        assertTrue(emailFilter.mightContain("tom@email.com"));
+        assertTrue(emailFilter.mightContain("Jerry@Email.com"));
+        assertFalse(emailFilter.mightContain(null));
+    }
+
+    @Test
+    public void givenManyEmails_whenMightContainUnknown_thenFalsePositivesStayNearRate() {
+        EmailBloomFilter emailFilter = new EmailBloomFilter(clientsRepository, 10000, 0.01);
+        for (int i = 0; i < 10000; i++)
+            emailFilter.add("client" + i + "@email.com");
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(emailFilter.mightContain("client" + i + "@email.com"));
+            if (emailFilter.mightContain("stranger" + i + "@email.com"))
+                falsePositives++;
+        }
+
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+}
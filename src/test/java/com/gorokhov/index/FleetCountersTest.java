@@ -0,0 +1,119 @@
+package com.gorokhov.index;
+
+import com.gorokhov.dto.BikeAttributes;
+import com.gorokhov.dto.FleetAnalytics;
+import com.gorokhov.dto.FleetCount;
+import com.gorokhov.dto.FleetDrift;
+import com.gorokhov.dto.StorageView;
+import com.gorokhov.models.enums.City;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import com.gorokhov.repositories.BikesRepository;
+import com.gorokhov.repositories.StoragesRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+public class FleetCountersTest {
+
+    @Mock
+    private StoragesRepository storagesRepository;
+
+    @Mock
+    private BikesRepository bikesRepository;
+
+    private FleetCounters counters;
+
+    @Test
+    public void givenBikes_whenCount_thenCountPerStorageCityAndFleet() {
+        rebuild(List.of(
+                new BikeAttributes(1L, 10L, Size.M, Color.RED, Label.STELS, true),
+                new BikeAttributes(2L, 10L, Size.M, Color.BLACK, Label.STELS, false),
+                new BikeAttributes(3L, 20L, Size.L, Color.RED, Label.SCOTT, true),
+                new BikeAttributes(4L, 30L, Size.M, Color.RED, Label.STELS, true)));
+
+        FleetAnalytics fleet = counters.count(null, null, null, null, null, null);
+        assertEquals(4, fleet.getTotal());
+        assertEquals(3, fleet.getAvailable());
+        assertEquals(Map.of(Label.STELS, 3L, Label.SCOTT, 1L), fleet.getByLabel());
+
+        FleetAnalytics moscow = counters.count(null, City.MOSCOW, null, Size.M, null, null);
+        assertEquals(2, moscow.getTotal());
+        assertEquals(Map.of(Color.RED, 1L, Color.BLACK, 1L), moscow.getByColor());
+
+        assertEquals(1, counters.count(10L, City.KRASNODAR, null, null, null, true).getTotal());
+        assertEquals(0, counters.count(40L, null, null, null, null, null).getTotal());
+    }
+
+    @Test
+    public void givenBikeChanges_whenApplied_thenCountersFollow() {
+        BikeAvailabilityIndex availabilityIndex = rebuild(List.of(
+                new BikeAttributes(1L, 10L, Size.M, Color.RED, Label.STELS, true),
+                new BikeAttributes(2L, 20L, Size.M, Color.RED, Label.STELS, true)));
+
+        given(bikesRepository.findAttributesByIdIn(Set.of(1L, 2L))).willReturn(List.of(
+                new BikeAttributes(1L, 10L, Size.M, Color.RED, Label.STELS, false),
+                new BikeAttributes(2L, 20L, Size.M, Color.RED, Label.STELS, false)));
+        given(bikesRepository.findAttributesByIdIn(Set.of(1L))).willReturn(List.of(
+                new BikeAttributes(1L, 30L, Size.M, Color.BLUE, Label.STELS, true)));
+        availabilityIndex.refresh(Set.of(1L, 2L));
+        availabilityIndex.refresh(Set.of(1L));
+
+        assertEquals(0, counters.count(10L, null, null, null, null, null).getTotal());
+        assertEquals(Map.of(Color.BLUE, 1L), counters.count(null, City.KRASNODAR, null, null, null, true).getByColor());
+        assertEquals(1, counters.count(null, City.MOSCOW, null, null, null, false).getTotal());
+
+        counters.putStorage(20L, City.NOVOSIBIRSK);
+
+        assertEquals(0, counters.count(null, City.MOSCOW, null, null, null, null).getTotal());
+        assertEquals(1, counters.count(null, City.NOVOSIBIRSK, null, null, null, false).getTotal());
+        assertEquals(2, counters.count(null, null, null, null, null, null).getTotal());
+    }
+
+    @Test
+    public void givenCountsFromTables_whenFindDrift_thenReportAndCorrectStorageCells() {
+        rebuild(List.of(
+                new BikeAttributes(1L, 10L, Size.M, Color.RED, Label.STELS, true),
+                new BikeAttributes(2L, 10L, Size.M, Color.RED, Label.STELS, true)));
+        List<FleetCount> counts = List.of(
+                new FleetCount(10L, City.MOSCOW, Label.STELS, Size.M, Color.RED, true, 1),
+                new FleetCount(10L, City.MOSCOW, Label.STELS, Size.M, Color.RED, false, 1));
+
+        List<FleetDrift> drift = counters.findDrift(counts);
+
+        assertEquals(List.of(
+                new FleetDrift(10L, City.MOSCOW, Label.STELS, Size.M, Color.RED, false, 1, 0),
+                new FleetDrift(10L, City.MOSCOW, Label.STELS, Size.M, Color.RED, true, 1, 2),
+                new FleetDrift(null, City.MOSCOW, Label.STELS, Size.M, Color.RED, false, 1, 0),
+                new FleetDrift(null, City.MOSCOW, Label.STELS, Size.M, Color.RED, true, 1, 2)), drift);
+
+        drift.forEach(counters::correct);
+
+        assertEquals(List.of(), counters.findDrift(counts));
+        assertEquals(1, counters.count(null, null, null, null, null, true).getTotal());
+    }
+
+    private BikeAvailabilityIndex rebuild(List<BikeAttributes> bikes) {
+        counters = new FleetCounters(storagesRepository);
+        BikeAvailabilityIndex availabilityIndex = new BikeAvailabilityIndex(bikesRepository, counters);
+        given(bikesRepository.findAllAttributes()).willReturn(bikes);
+        given(storagesRepository.findViewsByIdGreaterThan(0L, Pageable.unpaged())).willReturn(List.of(
+                new StorageView(10L, 10L, City.MOSCOW, "Tverskaya", 1),
+                new StorageView(20L, 20L, City.MOSCOW, "Arbat", 2),
+                new StorageView(30L, 30L, City.KRASNODAR, "Krasnaya", 3)));
+        availabilityIndex.rebuild();
+        counters.rebuild();
+        return availabilityIndex;
+    }
+}
@@ -0,0 +1,132 @@
+package com.gorokhov.index;
+
+import com.gorokhov.dto.BikeAttributes;
+import com.gorokhov.dto.NearbyStorage;
+import com.gorokhov.dto.StorageLocation;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import com.gorokhov.repositories.AddressesRepository;
+import com.gorokhov.repositories.BikesRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+public class StorageLocationIndexTest {
+
+    @Mock
+    private AddressesRepository addressesRepository;
+
+    @Mock
+    private BikesRepository bikesRepository;
+
+    @Mock
+    private FleetCounters fleetCounters;
+
+    @Test
+    public void givenRandomStorages_whenFindNearest_thenMatchFullScan() {
+        Random random = new Random(24);
+        List<StorageLocation> storages = new ArrayList<>();
+        List<BikeAttributes> bikes = new ArrayList<>();
+        for (long id = 1; id <= 3000; id++) {
+            // Dense around Moscow with a sparse tail over the whole country
+            double latitude = id % 10 == 0 ? 43 + random.nextDouble() * 25 : 55.5 + random.nextDouble() * 0.5;
+            double longitude = id % 10 == 0 ? 30 + random.nextDouble() * 100 : 37.3 + random.nextDouble() * 0.6;
+            storages.add(new StorageLocation(id, latitude, longitude));
+            if (id % 3 != 0)
+                bikes.add(new BikeAttributes(id, id, id % 2 == 0 ? Size.M : Size.XL, Color.RED, Label.STELS, true));
+        }
+        given(addressesRepository.findAllLocations()).willReturn(storages);
+        given(bikesRepository.findAllAttributes()).willReturn(bikes);
+        StorageLocationIndex locationIndex = index();
+
+        for (int i = 0; i < 200; i++) {
+            double latitude = 40 + random.nextDouble() * 30;
+            double longitude = i % 2 == 0 ? 37 + random.nextDouble() : 30 + random.nextDouble() * 100;
+            Size size = i % 3 == 0 ? null : Size.XL;
+            int limit = 1 + i % 10;
+
+            List<Long> expected = storages.stream()
+                    .filter(s -> s.getId() % 3 != 0 && (size == null || s.getId() % 2 == 1))
+                    .sorted(Comparator.comparingDouble((StorageLocation s) -> StorageLocationIndex.distanceKm(
+                            latitude, longitude, s.getLatitude(), s.getLongitude())).thenComparingLong(StorageLocation::getId))
+                    .limit(limit)
+                    .map(StorageLocation::getId)
+                    .toList();
+
+            assertEquals(expected, ids(locationIndex.findNearest(latitude, longitude, size, limit)));
+        }
+    }
+
+    @Test
+    public void givenMovedAndRemovedStorages_whenFindNearest_thenUseCurrentCoordinates() {
+        given(addressesRepository.findAllLocations()).willReturn(List.of(
+                new StorageLocation(1L, 55.75, 37.61),
+                new StorageLocation(2L, 55.76, 37.62),
+                new StorageLocation(3L, 59.93, 30.33)));
+        given(bikesRepository.findAllAttributes()).willReturn(List.of(
+                new BikeAttributes(10L, 1L, Size.M, Color.RED, Label.STELS, true),
+                new BikeAttributes(20L, 2L, Size.M, Color.RED, Label.STELS, true),
+                new BikeAttributes(21L, 2L, Size.M, Color.BLACK, Label.STELS, true),
+                new BikeAttributes(30L, 3L, Size.M, Color.RED, Label.STELS, true)));
+        StorageLocationIndex locationIndex = index();
+
+        List<NearbyStorage> found = locationIndex.findNearest(55.751, 37.611, Size.M, 2);
+        assertEquals(List.of(1L, 2L), ids(found));
+        assertEquals(2, found.get(1).getAvailableBikes());
+
+        locationIndex.put(1L, 59.94, 30.31);
+        locationIndex.put(2L, null, null);
+
+        assertEquals(List.of(3L, 1L), ids(locationIndex.findNearest(55.751, 37.611, Size.M, 5)));
+        assertEquals(List.of(), ids(locationIndex.findNearest(55.751, 37.611, Size.XL, 5)));
+    }
+
+    @Test
+    public void givenStorageGainingAndLosingSize_whenFindNearest_thenFollowAvailability() {
+        given(addressesRepository.findAllLocations()).willReturn(List.of(
+                new StorageLocation(1L, 55.75, 37.61),
+                new StorageLocation(2L, 55.76, 37.62)));
+        given(bikesRepository.findAllAttributes()).willReturn(List.of(
+                new BikeAttributes(10L, 1L, Size.M, Color.RED, Label.STELS, true)));
+        BikeAvailabilityIndex availabilityIndex = new BikeAvailabilityIndex(bikesRepository, fleetCounters);
+        availabilityIndex.rebuild();
+        StorageLocationIndex locationIndex = new StorageLocationIndex(addressesRepository, availabilityIndex);
+        locationIndex.rebuild();
+
+        assertEquals(List.of(), ids(locationIndex.findNearest(55.751, 37.611, Size.XL, 5)));
+
+        availabilityIndex.putAllAttributes(List.of(new BikeAttributes(20L, 2L, Size.XL, Color.RED, Label.STELS, true),
+                                                   new BikeAttributes(10L, 1L, Size.M, Color.RED, Label.STELS, false)));
+
+        assertEquals(List.of(2L), ids(locationIndex.findNearest(55.751, 37.611, Size.XL, 5)));
+        assertEquals(List.of(), ids(locationIndex.findNearest(55.751, 37.611, Size.M, 5)));
+        assertEquals(List.of(2L), ids(locationIndex.findNearest(55.751, 37.611, null, 5)));
+
+        availabilityIndex.putAllAttributes(List.of(new BikeAttributes(20L, 1L, Size.XL, Color.RED, Label.STELS, true)));
+
+        assertEquals(List.of(1L), ids(locationIndex.findNearest(55.751, 37.611, Size.XL, 5)));
+    }
+
+    private StorageLocationIndex index() {
+        BikeAvailabilityIndex availabilityIndex = new BikeAvailabilityIndex(bikesRepository, fleetCounters);
+        availabilityIndex.rebuild();
+        StorageLocationIndex locationIndex = new StorageLocationIndex(addressesRepository, availabilityIndex);
+        locationIndex.rebuild();
+        return locationIndex;
+    }
+
+    private static List<Long> ids(List<NearbyStorage> storages) {
+        return storages.stream().map(NearbyStorage::getId).toList();
+    }
+}
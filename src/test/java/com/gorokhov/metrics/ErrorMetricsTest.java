@@ -0,0 +1,49 @@
+package com.gorokhov.metrics;
+
+import com.gorokhov.util.exceptions.BikeNotFoundException;
+import com.gorokhov.util.exceptions.BikesNotAvailableException;
+import com.gorokhov.util.exceptions.NotEnoughBikesException;
+import com.gorokhov.util.exceptions.OrderNotCreatedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ErrorMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ErrorMetrics errorMetrics = new ErrorMetrics(registry);
+
+    @Test
+    public void givenBikesNotAvailable_whenResolve_thenCountConflict() {
+        assertNull(errorMetrics.resolveException(null, null, null, new BikesNotAvailableException(Set.of(1L))));
+
+        assertEquals(1.0, registry.get("bikerent.reservation.conflicts").counter().count());
+    }
+
+    @Test
+    public void givenNotEnoughBikes_whenResolve_thenCountShortfall() {
+        assertNull(errorMetrics.resolveException(null, null, null, new NotEnoughBikesException(3, 1)));
+
+        assertEquals(1.0, registry.get("bikerent.allocation.shortfalls").counter().count());
+    }
+
+    @Test
+    public void givenNotFound_whenResolve_thenCountByException() {
+        errorMetrics.resolveException(null, null, null, new BikeNotFoundException());
+        errorMetrics.resolveException(null, null, null, new BikeNotFoundException());
+
+        assertEquals(2.0, registry.get("bikerent.not.found")
+                                  .tag("exception", "BikeNotFoundException")
+                                  .counter().count());
+    }
+
+    @Test
+    public void givenOtherError_whenResolve_thenCountNothing() {
+        errorMetrics.resolveException(null, null, null, new OrderNotCreatedException("client - Необходимо указать клиента; "));
+
+        assertTrue(registry.getMeters().isEmpty());
+    }
+}
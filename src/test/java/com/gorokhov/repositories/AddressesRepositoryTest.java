@@ -1,6 +1,9 @@
 package com.gorokhov.repositories;
 
+import com.gorokhov.dto.AddressKey;
+import com.gorokhov.dto.StorageLocation;
 import com.gorokhov.models.Address;
+import com.gorokhov.models.Storage;
 import com.gorokhov.models.enums.City;
 import com.gorokhov.util.exceptions.AddressNotFoundException;
 import org.junit.jupiter.api.Assertions;
@@ -9,6 +12,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 @DataJpaTest
@@ -89,4 +93,35 @@ public class AddressesRepositoryTest {
 
         Assertions.assertTrue(foundAddresses.size() > 0);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void givenNewAddresses_whenFindAllByStreetInAndHouseIn_thenReturnMatchingKeys() {
+        Address address1 = addressesRepository.save(new Address(City.MOSCOW, "Sadovaya", 1));
+        Address address2 = addressesRepository.save(new Address(City.MOSCOW, "Sadovaya", 2));
+        addressesRepository.save(new Address(City.MOSCOW, "Sretenka", 1));
+
+        List<AddressKey> found = addressesRepository.findAllByStreetInAndHouseIn(Set.of("Sadovaya"), Set.of(1, 2));
+
+        Set<String> keys = new HashSet<>();
+        found.forEach(a -> keys.add(AddressKey.of(a.getCity(), a.getStreet(), a.getHouse())));
+        Assertions.assertEquals(Set.of(AddressKey.of(address1.getCity(), address1.getStreet(), address1.getHouse()),
+                                       AddressKey.of(address2.getCity(), address2.getStreet(), address2.getHouse())), keys);
+    }
+
+    @Test
+    public void givenStoragesWithAndWithoutCoordinates_whenFindAllLocations_thenReturnOnlyLocated() {
+        Address located = new Address(City.MOSCOW, "Pokrovka", 12, 55.759, 37.646);
+        located.setStorage(new Storage(located));
+        Address unlocated = new Address(City.MOSCOW, "Pokrovka", 14);
+        unlocated.setStorage(new Storage(unlocated));
+        long locatedId = addressesRepository.save(located).getId();
+        long unlocatedId = addressesRepository.save(unlocated).getId();
+
+        List<StorageLocation> found = addressesRepository.findAllLocations();
+
+        StorageLocation location = found.stream().filter(l -> l.getId() == locatedId).findFirst().orElseThrow();
+        Assertions.assertEquals(55.759, location.getLatitude());
+        Assertions.assertEquals(37.646, location.getLongitude());
+        Assertions.assertTrue(found.stream().noneMatch(l -> l.getId() == unlocatedId));
+    }
+}
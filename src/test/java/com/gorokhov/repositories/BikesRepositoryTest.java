@@ -1,7 +1,11 @@
 package com.gorokhov.repositories;
 
+import com.gorokhov.dto.BikeView;
+import com.gorokhov.dto.FleetCount;
 import com.gorokhov.models.Address;
 import com.gorokhov.models.Bike;
+import com.gorokhov.models.Client;
+import com.gorokhov.models.Order;
 import com.gorokhov.models.Storage;
 import com.gorokhov.models.enums.City;
 import com.gorokhov.models.enums.Color;
@@ -12,8 +16,11 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
 
+import java.time.LocalDateTime;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 @DataJpaTest
@@ -22,12 +29,17 @@ public class BikesRepositoryTest {
     private final BikesRepository bikesRepository;
     private final AddressesRepository addressesRepository;
     private final StoragesRepository storagesRepository;
+    private final ClientsRepository clientsRepository;
+    private final OrdersRepository ordersRepository;
 
     @Autowired
-    public BikesRepositoryTest(BikesRepository bikesRepository, AddressesRepository addressesRepository, StoragesRepository storagesRepository) {
+    public BikesRepositoryTest(BikesRepository bikesRepository, AddressesRepository addressesRepository, StoragesRepository storagesRepository,
+                               ClientsRepository clientsRepository, OrdersRepository ordersRepository) {
         this.bikesRepository = bikesRepository;
         this.addressesRepository = addressesRepository;
         this.storagesRepository = storagesRepository;
+        this.clientsRepository = clientsRepository;
+        this.ordersRepository = ordersRepository;
     }
 
     @Test
@@ -78,4 +90,137 @@ public class BikesRepositoryTest {
 
         Assertions.assertTrue(found.size() > 0);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void givenTakenBike_whenReserveAll_thenReserveOnlyAvailableBikes() {
+        City city = City.EKATERINBURG;
+        String street = "Malysheva";
+        int house = 51;
+        Address address = new Address(city, street, house);
+        Address savedAddress = addressesRepository.save(address);
+
+        Storage savedStorage = storagesRepository.save(new Storage(savedAddress));
+
+        Bike free = bikesRepository.save(new Bike(Color.RED, Size.M, Label.SALSA, savedStorage));
+        Bike taken = new Bike(Color.BLACK, Size.L, Label.FUJI, savedStorage);
+        taken.setAvailable(false);
+        taken = bikesRepository.save(taken);
+
+        int reserved = bikesRepository.reserveAll(Set.of(free.getId(), taken.getId()));
+
+        Assertions.assertEquals(1, reserved);
+        Assertions.assertEquals(0, bikesRepository.reserveAll(Set.of(free.getId())));
+    }
+
+    @Test
+    public void givenTakenBike_whenReserveFree_thenReturnReservedIds() {
+        Address savedAddress = addressesRepository.save(new Address(City.EKATERINBURG, "Lenina", 24));
+        Storage savedStorage = storagesRepository.save(new Storage(savedAddress));
+
+        Bike free = bikesRepository.save(new Bike(Color.RED, Size.M, Label.SALSA, savedStorage));
+        Bike taken = new Bike(Color.BLACK, Size.L, Label.FUJI, savedStorage);
+        taken.setAvailable(false);
+        taken = bikesRepository.save(taken);
+
+        List<Long> reserved = bikesRepository.reserveFree(Set.of(free.getId(), taken.getId()), 0L);
+
+        Assertions.assertEquals(List.of(free.getId()), reserved);
+        Assertions.assertEquals(List.of(), bikesRepository.reserveFree(Set.of(free.getId()), 0L));
+    }
+
+    @Test
+    public void givenBikeBookedLater_whenReserveFree_thenReserveOnlyForItsOwnOrder() {
+        Storage storage = storagesRepository.save(new Storage(addressesRepository.save(
+                new Address(City.EKATERINBURG, "Lenina", 26))));
+        Bike booked = bikesRepository.save(new Bike(Color.RED, Size.M, Label.SALSA, storage));
+        Client client = clientsRepository.save(new Client("later@email.com", "Later"));
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        Order order = ordersRepository.save(new Order(client, new HashSet<>(), storage, start, start.plusHours(2)));
+        ordersRepository.addBikes(order.getId(), Set.of(booked.getId()));
+
+        Assertions.assertEquals(List.of(), bikesRepository.reserveFree(Set.of(booked.getId()), 0L));
+        Assertions.assertEquals(List.of(booked.getId()), bikesRepository.reserveFree(Set.of(booked.getId()), order.getId()));
+    }
+
+    @Test
+    public void givenNewBikes_whenFindViewsByIdGreaterThan_thenReturnOrderedPage() {
+        City city = City.NOVOSIBIRSK;
+        String street = "Krasnyi";
+        int house = 12;
+        Address savedAddress = addressesRepository.save(new Address(city, street, house));
+
+        Storage savedStorage = storagesRepository.save(new Storage(savedAddress));
+
+        Bike bike1 = bikesRepository.save(new Bike(Color.RED, Size.M, Label.SALSA, savedStorage));
+        Bike bike2 = bikesRepository.save(new Bike(Color.GREY, Size.S, Label.SCOTT, savedStorage));
+        Bike bike3 = bikesRepository.save(new Bike(Color.BLUE, Size.L, Label.STELS, savedStorage));
+
+        List<BikeView> found = bikesRepository.findViewsByIdGreaterThan(bike1.getId(), PageRequest.ofSize(2));
+
+        Assertions.assertEquals(List.of(bike2.getId(), bike3.getId()), found.stream().map(BikeView::getId).toList());
+        Assertions.assertEquals(savedStorage.getId(), found.get(0).getStorageId());
+    }
+
+    @Test
+    public void givenBikeIds_whenFindExistingIds_thenReturnOnlyExisting() {
+        Address savedAddress = addressesRepository.save(new Address(City.KRASNODAR, "Severnaya", 12));
+        Storage savedStorage = storagesRepository.save(new Storage(savedAddress));
+
+        Bike bike = bikesRepository.save(new Bike(Color.BLUE, Size.S, Label.GIANT_BICYCLE, savedStorage));
+
+        Set<Long> found = bikesRepository.findExistingIds(Set.of(bike.getId(), bike.getId() + 1000));
+
+        Assertions.assertEquals(Set.of(bike.getId()), found);
+    }
+
+    @Test
+    public void givenCandidates_whenLockFreeIds_thenReturnOnlyMatchingFreeBikes() {
+        Address savedAddress = addressesRepository.save(new Address(City.MOSCOW, "Sretenka", 12));
+        Storage storage = storagesRepository.save(new Storage(savedAddress));
+        Storage otherStorage = storagesRepository.save(
+                new Storage(addressesRepository.save(new Address(City.MOSCOW, "Sretenka", 14))));
+
+        Bike free = bikesRepository.save(new Bike(Color.RED, Size.M, Label.STELS, storage));
+        Bike otherColor = bikesRepository.save(new Bike(Color.BLACK, Size.M, Label.STELS, storage));
+        Bike otherSize = bikesRepository.save(new Bike(Color.RED, Size.L, Label.STELS, storage));
+        Bike elsewhere = bikesRepository.save(new Bike(Color.RED, Size.M, Label.STELS, otherStorage));
+        Bike taken = new Bike(Color.RED, Size.M, Label.STELS, storage);
+        taken.setAvailable(false);
+        taken = bikesRepository.save(taken);
+        Bike booked = bikesRepository.save(new Bike(Color.RED, Size.M, Label.STELS, storage));
+
+        LocalDateTime day = LocalDateTime.of(2030, 7, 1, 0, 0);
+        Client client = clientsRepository.save(new Client("lock@email.com", "Lock"));
+        Order order = ordersRepository.save(new Order(client, new HashSet<>(), storage,
+                                                      day.plusHours(10), day.plusHours(12)));
+        ordersRepository.addBikes(order.getId(), Set.of(booked.getId()));
+        Set<Long> ids = Set.of(free.getId(), otherColor.getId(), otherSize.getId(), elsewhere.getId(),
+                               taken.getId(), booked.getId());
+
+        Assertions.assertEquals(Set.of(free.getId()), new HashSet<>(bikesRepository.lockFreeIds(
+                ids, storage.getId(), "M", "RED", null, null, null)));
+        Assertions.assertEquals(Set.of(free.getId(), otherColor.getId()), new HashSet<>(bikesRepository.lockFreeIds(
+                ids, storage.getId(), "M", null, null, day.plusHours(11), day.plusHours(13))));
+        Assertions.assertEquals(Set.of(free.getId(), otherColor.getId(), booked.getId()),
+                new HashSet<>(bikesRepository.lockFreeIds(ids, storage.getId(), "M", null, "STELS",
+                                                          day.plusHours(12), day.plusHours(13))));
+    }
+
+    @Test
+    public void givenBikes_whenCountFleet_thenGroupByStorageAndAttributes() {
+        Storage storage = storagesRepository.save(new Storage(addressesRepository.save(new Address(City.EKATERINBURG, "Lenina", 40))));
+        bikesRepository.save(new Bike(Color.RED, Size.M, Label.STELS, storage));
+        bikesRepository.save(new Bike(Color.RED, Size.M, Label.STELS, storage));
+        Bike taken = new Bike(Color.RED, Size.M, Label.STELS, storage);
+        taken.setAvailable(false);
+        bikesRepository.save(taken);
+
+        List<FleetCount> counts = bikesRepository.countFleet().stream()
+                                                 .filter(c -> c.getStorageId() == storage.getId())
+                                                 .toList();
+
+        Assertions.assertEquals(2, counts.size());
+        Assertions.assertTrue(counts.stream().allMatch(c -> c.getCity() == City.EKATERINBURG));
+        Assertions.assertEquals(2, counts.stream().filter(FleetCount::isAvailable).findFirst().orElseThrow().getCount());
+    }
+}
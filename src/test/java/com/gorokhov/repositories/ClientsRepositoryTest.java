@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import java.util.Collections;
 import java.util.HashSet;
@@ -60,6 +61,14 @@ public class ClientsRepositoryTest {
         Assertions.assertEquals(name, found.getName());
     }
 
+    @Test
+    public void givenClientWithSameEmailInOtherCase_whenSave_thenViolateUniqueIndex() {
+        clientsRepository.saveAndFlush(new Client("dupe@email.com", "Dupe"));
+
+        Assertions.assertThrows(DataIntegrityViolationException.class,
+                () -> clientsRepository.saveAndFlush(new Client("Dupe@Email.com", "Dupe")));
+    }
+
     @Test
     public void givenNewClients_whenFindByNameContaining_thenReturnCorrectClients() {
         String baddyEmail = "baddy@email.com";
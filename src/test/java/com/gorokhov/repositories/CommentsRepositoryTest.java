@@ -1,5 +1,6 @@
 package com.gorokhov.repositories;
 
+import com.gorokhov.dto.ClientComment;
 import com.gorokhov.models.Client;
 import com.gorokhov.models.Comment;
 import com.gorokhov.util.exceptions.CommentNotFoundException;
@@ -10,6 +11,7 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 @DataJpaTest
@@ -41,6 +43,20 @@ public class CommentsRepositoryTest {
         Assertions.assertEquals(expectedId, found.getId());
     }
 
+    @Test
+    public void givenComments_whenFindAllByClientIds_thenReturnOnlyTheirDescriptions() {
+        Client client1 = clientsRepository.save(new Client("lena@email.com", "Lena"));
+        Client client2 = clientsRepository.save(new Client("oleg@email.com", "Oleg"));
+        commentsRepository.save(new Comment(client1, "Fast bikes"));
+        commentsRepository.save(new Comment(client2, "Slow service"));
+
+        List<ClientComment> found = commentsRepository.findAllByClientIds(Set.of(client1.getId()));
+
+        Assertions.assertEquals(1, found.size());
+        Assertions.assertEquals(client1.getId(), found.get(0).getClientId());
+        Assertions.assertEquals("Fast bikes", found.get(0).getDescription());
+    }
+
 //    @Test
 //    public void givenNewComment_whenFindAllByDescriptionContaining_thenReturnCorrectComments() {
 //        String email = "bob@email.com";
@@ -0,0 +1,53 @@
+package com.gorokhov.repositories;
+
+import com.gorokhov.models.IdempotencyKey;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@DataJpaTest
+public class IdempotencyKeysRepositoryTest {
+
+    private final IdempotencyKeysRepository idempotencyKeysRepository;
+
+    @Autowired
+    public IdempotencyKeysRepositoryTest(IdempotencyKeysRepository idempotencyKeysRepository) {
+        this.idempotencyKeysRepository = idempotencyKeysRepository;
+    }
+
+    @Test
+    public void givenClaimedKey_whenClaimAgain_thenThrowDataIntegrityViolationException() {
+        LocalDateTime now = LocalDateTime.now();
+        idempotencyKeysRepository.claim("a1", 1L, "h", now);
+
+        Assertions.assertThrows(DataIntegrityViolationException.class, () -> idempotencyKeysRepository.claim("a1", 1L, "h", now));
+    }
+
+    @Test
+    public void givenClaimedKey_whenSetOrderId_thenFindCompletedKey() {
+        idempotencyKeysRepository.claim("b2", 3L, "5e1f", LocalDateTime.now());
+        Assertions.assertEquals(Optional.empty(), idempotencyKeysRepository.findCompleted("b2"));
+
+        idempotencyKeysRepository.setOrderId("b2", 7L);
+
+        IdempotencyKey completed = idempotencyKeysRepository.findCompleted("b2").orElseThrow();
+        Assertions.assertEquals(7L, completed.getOrderId());
+        Assertions.assertEquals(3L, completed.getClientId());
+        Assertions.assertEquals("5e1f", completed.getRequestHash());
+    }
+
+    @Test
+    public void givenOldAndNewKeys_whenDeleteCreatedBefore_thenDeleteOnlyOldKeys() {
+        LocalDateTime now = LocalDateTime.now();
+        idempotencyKeysRepository.claim("c3", 1L, "h", now.minusDays(2));
+        idempotencyKeysRepository.claim("d4", 1L, "h", now);
+
+        Assertions.assertEquals(1, idempotencyKeysRepository.deleteCreatedBefore(now.minusDays(1)));
+        Assertions.assertTrue(idempotencyKeysRepository.existsById("d4"));
+    }
+}
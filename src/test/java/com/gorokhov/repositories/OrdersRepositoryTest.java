@@ -1,5 +1,7 @@
 package com.gorokhov.repositories;
 
+import com.gorokhov.dto.Booking;
+import com.gorokhov.dto.OrderRow;
 import com.gorokhov.models.*;
 import com.gorokhov.models.enums.City;
 import com.gorokhov.models.enums.Color;
@@ -12,8 +14,11 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 @DataJpaTest
@@ -103,4 +108,137 @@ public class OrdersRepositoryTest {
 
         Assertions.assertTrue(found.size() > 0);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void givenNewOrder_whenAddBikes_thenInsertBikeOrdersRows() {
+        String email = "kate@email.com";
+        String name = "Kate";
+        Client client = clientsRepository.save(new Client(email, name));
+
+        City city = City.KRASNODAR;
+        String street = "Krasnaya";
+        int house = 44;
+        Address savedAddress = addressesRepository.save(new Address(city, street, house));
+
+        Storage storage = storagesRepository.save(new Storage(savedAddress));
+
+        Bike bike1 = bikesRepository.save(new Bike(Color.GREEN, Size.S, Label.FORWARD, storage));
+        Bike bike2 = bikesRepository.save(new Bike(Color.ORANGE, Size.XL, Label.CANNONDALE, storage));
+
+        Order order = ordersRepository.save(new Order(client, new HashSet<>(), storage));
+
+        int added = ordersRepository.addBikes(order.getId(), Set.of(bike1.getId(), bike2.getId()));
+
+        Assertions.assertEquals(2, added);
+    }
+
+    @Test
+    public void givenOrderWithBikes_whenRemoveBikes_thenDeleteOnlyThoseRows() {
+        Client client = clientsRepository.save(new Client("ned@email.com", "Ned"));
+        Address savedAddress = addressesRepository.save(new Address(City.MOSCOW, "Lubyanka", 9));
+        Storage storage = storagesRepository.save(new Storage(savedAddress));
+
+        Bike bike1 = bikesRepository.save(new Bike(Color.GREEN, Size.S, Label.FORWARD, storage));
+        Bike bike2 = bikesRepository.save(new Bike(Color.ORANGE, Size.XL, Label.CANNONDALE, storage));
+
+        Order order = ordersRepository.save(new Order(client, new HashSet<>(), storage));
+        ordersRepository.addBikes(order.getId(), Set.of(bike1.getId(), bike2.getId()));
+
+        int removed = ordersRepository.removeBikes(order.getId(), Set.of(bike1.getId()));
+
+        Assertions.assertEquals(1, removed);
+        Assertions.assertEquals(Set.of(bike2.getId()), ordersRepository.findBikeIds(order.getId()));
+    }
+
+    @Test
+    public void givenOrdersWithBikes_whenFindRowsByIdGreaterThan_thenReturnOneRowPerBikeOfPagedOrders() {
+        Client client = clientsRepository.save(new Client("olga@email.com", "Olga"));
+        Address savedAddress = addressesRepository.save(new Address(City.MOSCOW, "Petrovka", 38));
+        Storage storage = storagesRepository.save(new Storage(savedAddress));
+
+        Bike bike1 = bikesRepository.save(new Bike(Color.GREEN, Size.S, Label.FORWARD, storage));
+        Bike bike2 = bikesRepository.save(new Bike(Color.ORANGE, Size.XL, Label.CANNONDALE, storage));
+
+        Order order1 = ordersRepository.save(new Order(client, new HashSet<>(), storage));
+        Order order2 = ordersRepository.save(new Order(client, new HashSet<>(), storage));
+        Order order3 = ordersRepository.save(new Order(client, new HashSet<>(), storage));
+        ordersRepository.addBikes(order1.getId(), Set.of(bike1.getId(), bike2.getId()));
+
+        List<OrderRow> rows = ordersRepository.findRowsByIdGreaterThan(order1.getId() - 1, 2);
+
+        Assertions.assertEquals(List.of(order1.getId(), order1.getId(), order2.getId()),
+                                rows.stream().map(OrderRow::getId).toList());
+        Assertions.assertEquals(Arrays.asList(bike1.getId(), bike2.getId(), null),
+                                rows.stream().map(OrderRow::getBikeId).toList());
+        Assertions.assertEquals("Olga", rows.get(0).getClientName());
+        Assertions.assertEquals(storage.getId(), rows.get(2).getStorageId());
+        Assertions.assertTrue(ordersRepository.findRowsById(order3.getId()).stream()
+                                              .allMatch(r -> r.getBikeId() == null));
+    }
+
+    @Test
+    public void givenBookedSlot_whenFindBookedBikeIds_thenReturnOnlyOverlappingBikes() {
+        Client client = clientsRepository.save(new Client("vera@email.com", "Vera"));
+        Address savedAddress = addressesRepository.save(new Address(City.MOSCOW, "Ostozhenka", 5));
+        Storage storage = storagesRepository.save(new Storage(savedAddress));
+
+        Bike bike1 = bikesRepository.save(new Bike(Color.GREEN, Size.S, Label.FORWARD, storage));
+        Bike bike2 = bikesRepository.save(new Bike(Color.ORANGE, Size.XL, Label.CANNONDALE, storage));
+
+        LocalDateTime day = LocalDateTime.of(2030, 5, 1, 0, 0);
+        Order order = ordersRepository.save(new Order(client, new HashSet<>(), storage,
+                                                      day.plusHours(10), day.plusHours(12)));
+        ordersRepository.addBikes(order.getId(), Set.of(bike1.getId()));
+        Set<Long> bikeIds = Set.of(bike1.getId(), bike2.getId());
+
+        Assertions.assertEquals(Set.of(bike1.getId()),
+                ordersRepository.findBookedBikeIds(bikeIds, 0L, day.plusHours(11), day.plusHours(13)));
+        Assertions.assertEquals(Set.of(),
+                ordersRepository.findBookedBikeIds(bikeIds, 0L, day.plusHours(12), day.plusHours(13)));
+        Assertions.assertEquals(Set.of(),
+                ordersRepository.findBookedBikeIds(bikeIds, order.getId(), day.plusHours(11), day.plusHours(13)));
+        Assertions.assertEquals(day.plusHours(10), ordersRepository.findRowsById(order.getId()).get(0).getStartTime());
+    }
+
+    @Test
+    public void givenBookedSlots_whenFindBookingsOverlapping_thenReturnOpenOverlappingBookings() {
+        Client client = clientsRepository.save(new Client("nina@email.com", "Nina"));
+        Address savedAddress = addressesRepository.save(new Address(City.MOSCOW, "Prechistenka", 4));
+        Storage storage = storagesRepository.save(new Storage(savedAddress));
+
+        Bike bike = bikesRepository.save(new Bike(Color.GREEN, Size.S, Label.FORWARD, storage));
+
+        LocalDateTime day = LocalDateTime.of(2030, 6, 1, 0, 0);
+        Order morning = ordersRepository.save(new Order(client, new HashSet<>(), storage,
+                                                        day.plusHours(8), day.plusHours(10)));
+        Order evening = ordersRepository.save(new Order(client, new HashSet<>(), storage,
+                                                        day.plusHours(18), day.plusHours(20)));
+        Order closed = ordersRepository.save(new Order(client, new HashSet<>(), storage,
+                                                       day.plusHours(9), day.plusHours(11)));
+        ordersRepository.saveAllAndFlush(List.of(morning, evening, closed));
+        ordersRepository.addBikesWithoutFlush(morning.getId(), Set.of(bike.getId()));
+        ordersRepository.addBikesWithoutFlush(evening.getId(), Set.of(bike.getId()));
+        ordersRepository.addBikesWithoutFlush(closed.getId(), Set.of(bike.getId()));
+        ordersRepository.closeAll(List.of(closed.getId()), LocalDateTime.now());
+
+        List<Booking> bookings = ordersRepository.findBookingsOverlapping(Set.of(bike.getId()),
+                                                                          day.plusHours(9), day.plusHours(18));
+
+        Assertions.assertEquals(List.of(morning.getId()), bookings.stream().map(Booking::getOrderId).toList());
+        Assertions.assertEquals(day.plusHours(10), bookings.get(0).getEndTime());
+    }
+
+    @Test
+    public void givenClosedOrder_whenFindOpenIdsForUpdate_thenSkipIt() {
+        Client client = clientsRepository.save(new Client("yana@email.com", "Yana"));
+        Address savedAddress = addressesRepository.save(new Address(City.MOSCOW, "Pokrovka", 3));
+        Storage storage = storagesRepository.save(new Storage(savedAddress));
+
+        Order order1 = ordersRepository.save(new Order(client, new HashSet<>(), storage));
+        Order order2 = ordersRepository.save(new Order(client, new HashSet<>(), storage));
+        List<Long> ids = List.of(order1.getId(), order2.getId());
+
+        Assertions.assertEquals(1, ordersRepository.closeAll(List.of(order1.getId()), LocalDateTime.now()));
+        Assertions.assertEquals(List.of(order2.getId()), ordersRepository.findOpenIdsForUpdate(ids));
+    }
+}
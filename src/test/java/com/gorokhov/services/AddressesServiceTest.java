@@ -1,8 +1,11 @@
 package com.gorokhov.services;
 
+import com.gorokhov.index.FleetCounters;
+import com.gorokhov.index.StorageLocationIndex;
 import com.gorokhov.models.Address;
 import com.gorokhov.models.enums.City;
 import com.gorokhov.repositories.AddressesRepository;
+import com.gorokhov.util.CursorPage;
 import com.gorokhov.util.exceptions.AddressNotFoundException;
 import com.gorokhov.util.exceptions.AddressNotUpdatedException;
 import org.junit.jupiter.api.Test;
@@ -10,6 +13,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -25,6 +29,12 @@ public class AddressesServiceTest {
     @Mock
     private AddressesRepository addressesRepository;
 
+    @Mock
+    private StorageLocationIndex locationIndex;
+
+    @Mock
+    private FleetCounters fleetCounters;
+
     @InjectMocks
     private AddressesService addressesService;
 
@@ -44,6 +54,7 @@ public class AddressesServiceTest {
         assertNotNull(saved);
         assertEquals(address, saved);
         verify(addressesRepository, times(1)).save(address);
+        verify(locationIndex, times(1)).put(id, null, null);
         reset(addressesRepository);
     }
 
@@ -99,13 +110,14 @@ public class AddressesServiceTest {
         Address address2 = new Address(city2, street2, house2);
         address2.setId(id2);
 
-        given(addressesRepository.findAll()).willReturn(List.of(address1, address2));
+        given(addressesRepository.findByIdGreaterThanOrderById(0L, PageRequest.ofSize(11))).willReturn(List.of(address1, address2));
 
-        Set<Address> found = addressesService.findAll();
+        CursorPage<Address> found = addressesService.findAll(0L, 10);
 
         assertNotNull(found);
-        assertEquals(2, found.size());
-        verify(addressesRepository, times(1)).findAll();
+        assertEquals(2, found.getContent().size());
+        assertNull(found.getNextCursor());
+        verify(addressesRepository, times(1)).findByIdGreaterThanOrderById(0L, PageRequest.ofSize(11));
         reset(addressesRepository);
     }
 
@@ -143,13 +155,49 @@ public class AddressesServiceTest {
         String street = "Krasnaya";
         int house = 1;
         Address address = new Address(city, street, house);
-        address.setId(id);
+        Address existing = new Address(city, street, house);
+        existing.setId(17L);
 
         given(addressesRepository.findByCityAndStreetAndHouse(city, street, house))
-                .willReturn(Optional.of(address));
+                .willReturn(Optional.of(existing));
 
         assertThrows(AddressNotUpdatedException.class, () -> addressesService.update(id, address));
         verify(addressesRepository, times(1)).findByCityAndStreetAndHouse(city, street, house);
+        verify(addressesRepository, never()).findById(id);
         reset(addressesRepository);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void givenSameAddressWithNewCoordinates_whenUpdateAddress_thenUpdateIt() {
+        long id = 9L;
+        Address address = new Address(City.MOSCOW, "Tverskaya", 11, 55.76, 37.61);
+        address.setId(id);
+        Address newAddress = new Address(City.MOSCOW, "Tverskaya", 11, 55.762, 37.607);
+
+        given(addressesRepository.findByCityAndStreetAndHouse(City.MOSCOW, "Tverskaya", 11))
+                .willReturn(Optional.of(address));
+        given(addressesRepository.findById(id)).willReturn(Optional.of(address));
+
+        Address updated = addressesService.update(id, newAddress);
+
+        assertEquals(55.762, updated.getLatitude());
+        verify(locationIndex, times(1)).put(id, 55.762, 37.607);
+    }
+
+    @Test
+    public void givenAddressWithCoordinates_whenUpdateAddress_thenMoveStorageInLocationIndex() {
+        long id = 8L;
+        Address address = new Address(City.MOSCOW, "Tverskaya", 7, 55.76, 37.61);
+        address.setId(id);
+        Address newAddress = new Address(City.MOSCOW, "Tverskaya", 9, 55.761, 37.608);
+
+        given(addressesRepository.findById(id)).willReturn(Optional.of(address));
+
+        Address updated = addressesService.update(id, newAddress);
+
+        assertEquals(55.761, updated.getLatitude());
+        assertEquals(37.608, updated.getLongitude());
+        verify(locationIndex, times(1)).put(id, 55.761, 37.608);
+        verify(fleetCounters, times(1)).putStorage(id, City.MOSCOW);
+    }
+}
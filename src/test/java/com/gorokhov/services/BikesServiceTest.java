@@ -1,5 +1,8 @@
 package com.gorokhov.services;
 
+import com.gorokhov.dto.BikeView;
+import com.gorokhov.index.BikeAvailabilityIndex;
+import com.gorokhov.index.BikeScheduleIndex;
 import com.gorokhov.models.Address;
 import com.gorokhov.models.Bike;
 import com.gorokhov.models.Client;
@@ -11,16 +14,20 @@ import com.gorokhov.models.enums.Size;
 import com.gorokhov.repositories.BikesRepository;
 import com.gorokhov.repositories.ClientsRepository;
 import com.gorokhov.repositories.StoragesRepository;
+import com.gorokhov.util.CursorPage;
 import com.gorokhov.util.exceptions.BikeNotFoundException;
 import com.gorokhov.util.exceptions.ClientNotFoundException;
 import com.gorokhov.util.exceptions.ClientNotUpdatedException;
+import com.gorokhov.util.exceptions.InvalidTimeSlotException;
 import com.gorokhov.util.exceptions.StorageNotFoundException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 
+import java.time.LocalDateTime;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -36,6 +43,12 @@ public class BikesServiceTest {
     @Mock
     private StoragesRepository storagesRepository;
 
+    @Mock
+    private BikeAvailabilityIndex availabilityIndex;
+
+    @Mock
+    private BikeScheduleIndex scheduleIndex;
+
     @InjectMocks
     private BikesService bikesService;
 
@@ -64,6 +77,7 @@ public class BikesServiceTest {
         assertNotNull(saved);
         assertEquals(bike, saved);
         verify(bikesRepository, times(1)).save(bike);
+        verify(availabilityIndex, times(1)).refresh(List.of(bikeId));
         reset(bikesRepository);
     }
 
@@ -96,36 +110,48 @@ public class BikesServiceTest {
 
     @Test
     public void givenCBikes_whenGetAllBikes_thenReturnBikesList() {
-        long addressId = 3L;
-        City city = City.KRASNODAR;
-        String street = "Letnaya";
-        int house = 24;
-        Address address = new Address(city, street, house);
-        address.setId(addressId);
-        Storage storage = new Storage(address);
-        storage.setId(addressId);
+        long storageId = 3L;
 
         long bikeId1 = 3L;
         Color color1 = Color.GREY;
         Size size1 = Size.XS;
         Label label1 = Label.TREK_BICYCLE;
-        Bike bike1 = new Bike(color1, size1, label1, storage);
-        bike1.setId(bikeId1);
+        BikeView bike1 = new BikeView(bikeId1, color1, size1, label1, true, storageId);
 
         long bikeId2 = 4L;
         Color color2 = Color.WHITE;
         Size size2 = Size.M;
         Label label2 = Label.MONGOOSE;
-        Bike bike2 = new Bike(color2, size2, label2, storage);
-        bike2.setId(bikeId2);
+        BikeView bike2 = new BikeView(bikeId2, color2, size2, label2, true, storageId);
 
-        given(bikesRepository.findAll()).willReturn(List.of(bike1, bike2));
+        given(bikesRepository.findViewsByIdGreaterThan(0L, PageRequest.ofSize(11))).willReturn(List.of(bike1, bike2));
 
-        Set<Bike> found = bikesService.findAll();
+        CursorPage<BikeView> found = bikesService.findAll(0L, 10);
 
         assertNotNull(found);
-        assertEquals(2, found.size());
-        verify(bikesRepository, times(1)).findAll();
+        assertEquals(2, found.getContent().size());
+        assertNull(found.getNextCursor());
+        verify(bikesRepository, times(1)).findViewsByIdGreaterThan(0L, PageRequest.ofSize(11));
+        reset(bikesRepository);
+    }
+
+    @Test
+    public void givenMoreBikesThanLimit_whenGetAllBikes_thenReturnNextCursor() {
+        long storageId = 20L;
+
+        long bikeId1 = 21L;
+        BikeView bike1 = new BikeView(bikeId1, Color.RED, Size.S, Label.SCOTT, true, storageId);
+
+        long bikeId2 = 22L;
+        BikeView bike2 = new BikeView(bikeId2, Color.BLUE, Size.L, Label.FUJI, true, storageId);
+
+        given(bikesRepository.findViewsByIdGreaterThan(20L, PageRequest.ofSize(2))).willReturn(List.of(bike1, bike2));
+
+        CursorPage<BikeView> found = bikesService.findAll(20L, 1);
+
+        assertEquals(List.of(bike1), found.getContent());
+        assertEquals(bikeId1, found.getNextCursor());
+        verify(bikesRepository, times(1)).findViewsByIdGreaterThan(20L, PageRequest.ofSize(2));
         reset(bikesRepository);
     }
 
@@ -165,6 +191,7 @@ public class BikesServiceTest {
         assertEquals(newSize, updated.getSize());
         verify(bikesRepository, times(1)).findById(bikeId);
         verify(storagesRepository, times(1)).findById(addressId);
+        verify(availabilityIndex, times(1)).refresh(List.of(bikeId));
         reset(bikesRepository);
         reset(storagesRepository);
     }
@@ -221,4 +248,29 @@ public class BikesServiceTest {
         reset(bikesRepository);
         reset(storagesRepository);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void givenCity_whenFindFree_thenGroupFreeBikesByStorage() {
+        LocalDateTime from = LocalDateTime.of(2030, 5, 1, 10, 0);
+        LocalDateTime to = LocalDateTime.of(2030, 5, 1, 12, 0);
+
+        given(storagesRepository.findIdsByCity(City.KRASNODAR)).willReturn(List.of(8L, 9L));
+        given(availabilityIndex.findAvailable(8L, null, null, null)).willReturn(List.of(80L, 81L));
+        given(availabilityIndex.findAvailable(9L, null, null, null)).willReturn(List.of(90L));
+        given(scheduleIndex.findFree(List.of(80L, 81L), from, to)).willReturn(List.of(81L));
+        given(scheduleIndex.findFree(List.of(90L), from, to)).willReturn(List.of());
+
+        Map<Long, List<Long>> free = bikesService.findFree(City.KRASNODAR, from, to);
+
+        assertEquals(Map.of(8L, List.of(81L)), free);
+    }
+
+    @Test
+    public void givenEndBeforeStart_whenFindFree_thenThrowInvalidTimeSlotException() {
+        LocalDateTime from = LocalDateTime.of(2030, 5, 1, 12, 0);
+        LocalDateTime to = LocalDateTime.of(2030, 5, 1, 10, 0);
+
+        assertThrows(InvalidTimeSlotException.class, () -> bikesService.findFree(8L, from, to));
+        verify(scheduleIndex, never()).findFree(anyList(), any(), any());
+    }
+}
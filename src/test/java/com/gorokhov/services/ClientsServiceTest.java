@@ -1,19 +1,28 @@
 package com.gorokhov.services;
 
+import com.gorokhov.dto.ClientComment;
+import com.gorokhov.dto.ClientName;
+import com.gorokhov.index.ClientNameIndex;
+import com.gorokhov.index.EmailBloomFilter;
 import com.gorokhov.models.Address;
 import com.gorokhov.models.Client;
 import com.gorokhov.models.Storage;
 import com.gorokhov.models.enums.City;
 import com.gorokhov.repositories.ClientsRepository;
+import com.gorokhov.repositories.CommentsRepository;
 import com.gorokhov.repositories.StoragesRepository;
+import com.gorokhov.util.CursorPage;
 import com.gorokhov.util.exceptions.ClientNotFoundException;
 import com.gorokhov.util.exceptions.ClientNotUpdatedException;
 import com.gorokhov.util.exceptions.StorageNotFoundException;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -29,6 +38,18 @@ public class ClientsServiceTest {
     @Mock
     private ClientsRepository clientsRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private CommentsRepository commentsRepository;
+
+    @Mock
+    private EmailBloomFilter emailFilter;
+
+    @Mock
+    private ClientNameIndex nameIndex;
+
     @InjectMocks
     private ClientsService clientsService;
 
@@ -47,6 +68,8 @@ public class ClientsServiceTest {
         assertNotNull(saved);
         assertEquals(client, saved);
         verify(clientsRepository, times(1)).save(client);
+        verify(emailFilter, times(1)).add(email);
+        verify(nameIndex, times(1)).put(id, name);
         reset(clientsRepository);
     }
 
@@ -75,6 +98,7 @@ public class ClientsServiceTest {
         Client client = new Client(email, name);
         client.setId(id);
 
+        given(emailFilter.mightContain(email)).willReturn(true);
         given(clientsRepository.findByEmail(email)).willReturn(Optional.of(client));
 
         Client found = clientsService.findOne(email).orElseThrow(ClientNotFoundException::new);
@@ -84,6 +108,33 @@ public class ClientsServiceTest {
         reset(clientsRepository);
     }
 
+    @Test
+    public void givenUnknownEmail_whenGetByEmail_thenReturnEmptyWithoutQuery() {
+        String email = "nobody@email.com";
+
+        given(emailFilter.mightContain(email)).willReturn(false);
+
+        Optional<Client> found = clientsService.findOne(email);
+
+        assertTrue(found.isEmpty());
+        verify(clientsRepository, never()).findByEmail(anyString());
+    }
+
+    @Test
+    public void givenMixedCaseEmail_whenGetByEmail_thenLookUpLowerCase() {
+        String email = "Mike@Email.com";
+        Client client = new Client(email, "Mike");
+
+        given(emailFilter.mightContain(email)).willReturn(true);
+        given(clientsRepository.findByEmail("mike@email.com")).willReturn(Optional.of(client));
+
+        Client found = clientsService.findOne(email).orElseThrow(ClientNotFoundException::new);
+
+        assertEquals("mike@email.com", found.getEmail());
+        verify(clientsRepository, times(1)).findByEmail("mike@email.com");
+        reset(clientsRepository);
+    }
+
     @Test
     public void givenClients_whenGetAllClients_thenReturnClientsList() {
         long id1 = 4L;
@@ -98,40 +149,46 @@ public class ClientsServiceTest {
         Client client2 = new Client(email2, name2);
         client2.setId(id2);
 
-        given(clientsRepository.findAll()).willReturn(List.of(client1, client2));
+        given(clientsRepository.findByIdGreaterThanOrderById(0L, PageRequest.ofSize(11))).willReturn(List.of(client1, client2));
 
-        Set<Client> found = clientsService.findAll();
+        CursorPage<Client> found = clientsService.findAll(0L, 10);
 
         assertNotNull(found);
-        assertEquals(2, found.size());
-        verify(clientsRepository, times(1)).findAll();
+        assertEquals(2, found.getContent().size());
+        assertNull(found.getNextCursor());
+        verify(clientsRepository, times(1)).findByIdGreaterThanOrderById(0L, PageRequest.ofSize(11));
         reset(clientsRepository);
     }
 
     @Test
-    public void givenClients_whenGetAllClientsByNameContaining_thenReturnClientsList() {
-        long id1 = 7L;
-        String email1 = "jake@email.com";
-        String name1 = "Jake";
-        Client client1 = new Client(email1, name1);
-        client1.setId(id1);
+    public void givenClients_whenGetAllClientsByNameContaining_thenReturnPageWithoutComments() {
+        String searchName = "ake";
 
-        long id2 = 8L;
-        String email2 = "flake@email.com";
-        String name2 = "Flake";
-        Client client2 = new Client(email2, name2);
-        client2.setId(id2);
+        given(nameIndex.search(searchName, 0L, 2)).willReturn(List.of(new ClientName(7L, "Jake"),
+                                                                      new ClientName(8L, "Flake")));
+
+        CursorPage<ClientName> found = clientsService.findAllByNameContaining(searchName, 0L, 1, false);
+
+        assertEquals(1, found.getContent().size());
+        assertEquals(7L, found.getNextCursor());
+        assertNull(found.getContent().get(0).getComments());
+        verify(commentsRepository, never()).findAllByClientIds(anyCollection());
+    }
 
+    @Test
+    public void givenClients_whenGetAllClientsByNameContainingWithComments_thenLoadCommentsInOneQuery() {
         String searchName = "ake";
 
-        given(clientsRepository.findAllByNameContaining(searchName)).willReturn(Set.of(client1, client2));
+        given(nameIndex.search(searchName, 0L, 11)).willReturn(List.of(new ClientName(7L, "Jake"),
+                                                                       new ClientName(8L, "Flake")));
+        given(commentsRepository.findAllByClientIds(Set.of(7L, 8L)))
+                .willReturn(List.of(new ClientComment(7L, "Good"), new ClientComment(7L, "Fast")));
 
-        Set<Client> found = clientsService.findAllByNameContaining(searchName);
+        CursorPage<ClientName> found = clientsService.findAllByNameContaining(searchName, 0L, 10, true);
 
-        assertNotNull(found);
-        assertEquals(2, found.size());
-        verify(clientsRepository, times(1)).findAllByNameContaining(searchName);
-        reset(clientsRepository);
+        assertEquals(List.of("Good", "Fast"), found.getContent().get(0).getComments());
+        assertEquals(List.of(), found.getContent().get(1).getComments());
+        verify(commentsRepository, times(1)).findAllByClientIds(Set.of(7L, 8L));
     }
 
     @Test
@@ -145,7 +202,7 @@ public class ClientsServiceTest {
         String newEmail = "muggy@email.com";
         String newName = "Muggy";
 
-        given(clientsRepository.findByEmail(newEmail)).willReturn(Optional.empty());
+        given(emailFilter.mightContain(newEmail)).willReturn(false);
         given(clientsRepository.findById(id)).willReturn(Optional.of(client));
 
         client.setEmail(newEmail);
@@ -154,8 +211,9 @@ public class ClientsServiceTest {
 
         assertEquals(newEmail, updated.getEmail());
         assertEquals(newName, updated.getName());
-        verify(clientsRepository, times(1)).findByEmail(newEmail);
+        verify(clientsRepository, never()).findByEmail(newEmail);
         verify(clientsRepository, times(1)).findById(id);
+        verify(emailFilter, times(1)).add(newEmail);
         reset(clientsRepository);
     }
 
@@ -174,10 +232,46 @@ public class ClientsServiceTest {
         Client existingClient = new Client(newEmail, name2);
         existingClient.setId(id2);
 
+        given(emailFilter.mightContain(newEmail)).willReturn(true);
         given(clientsRepository.findByEmail(newEmail)).willReturn(Optional.of(existingClient));
 
         assertThrows(ClientNotUpdatedException.class, () -> clientsService.update(id, client));
         verify(clientsRepository, times(1)).findByEmail(newEmail);
         reset(clientsRepository);
     }
+
+    @Test
+    public void givenClient_whenSaveClientWithHibernate_thenPersistInCurrentSession() {
+        String email = "hiber@email.com";
+        String name = "Hiber";
+        Client client = new Client(email, name);
+
+        Session session = mock(Session.class);
+        given(entityManager.unwrap(Session.class)).willReturn(session);
+
+        Client saved = clientsService.saveWithHibernate(client);
+
+        assertEquals(client, saved);
+        verify(session, times(1)).persist(client);
+        reset(entityManager);
+    }
+
+    @Test
+    public void givenClient_whenGetByIdWithHibernate_thenReturnClient() {
+        long id = 16L;
+        String email = "hib@email.com";
+        String name = "Hib";
+        Client client = new Client(email, name);
+        client.setId(id);
+
+        Session session = mock(Session.class);
+        given(entityManager.unwrap(Session.class)).willReturn(session);
+        given(session.get(Client.class, id)).willReturn(client);
+
+        Client found = clientsService.findOneWithHibernate(id);
+
+        assertEquals(client, found);
+        verify(session, times(1)).get(Client.class, id);
+        reset(entityManager);
+    }
 }
\ No newline at end of file
@@ -1,9 +1,11 @@
 package com.gorokhov.services;
 
+import com.gorokhov.index.CommentTextIndex;
 import com.gorokhov.models.Client;
 import com.gorokhov.models.Comment;
 import com.gorokhov.repositories.ClientsRepository;
 import com.gorokhov.repositories.CommentsRepository;
+import com.gorokhov.util.CursorPage;
 import com.gorokhov.util.exceptions.ClientNotFoundException;
 import com.gorokhov.util.exceptions.ClientNotUpdatedException;
 import com.gorokhov.util.exceptions.CommentNotFoundException;
@@ -12,6 +14,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 
 import java.util.*;
 
@@ -28,6 +31,9 @@ public class CommentsServiceTest {
     @Mock
     private ClientsRepository clientsRepository;
 
+    @Mock
+    private CommentTextIndex textIndex;
+
     @InjectMocks
     private CommentsService commentsService;
 
@@ -58,6 +64,7 @@ public class CommentsServiceTest {
         assertEquals(comment, saved);
         verify(clientsRepository, times(1)).findById(clientId);
         verify(commentsRepository, times(1)).save(comment);
+        verify(textIndex, times(1)).add(commentId, description);
         reset(commentsRepository);
     }
 
@@ -125,13 +132,43 @@ public class CommentsServiceTest {
         Set<Comment> comments = new HashSet<>();
         Collections.addAll(comments, comment1, comment2);
 
-        given(commentsRepository.findAll()).willReturn(List.of(comment1, comment2));
+        given(commentsRepository.findByIdGreaterThanOrderById(0L, PageRequest.ofSize(11))).willReturn(List.of(comment1, comment2));
 
-        Set<Comment> found = commentsService.findAll();
+        CursorPage<Comment> found = commentsService.findAll(0L, 10);
 
         assertNotNull(found);
-        assertEquals(2, found.size());
-        verify(commentsRepository, times(1)).findAll();
+        assertEquals(2, found.getContent().size());
+        assertNull(found.getNextCursor());
+        verify(commentsRepository, times(1)).findByIdGreaterThanOrderById(0L, PageRequest.ofSize(11));
         reset(commentsRepository);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void givenMatchingComments_whenSearch_thenLoadOnlyFoundIds() {
+        Client client = new Client("tom@email.com", "Tom");
+        client.setId(1L);
+        Comment comment1 = new Comment(client, "Fast bike");
+        comment1.setId(3L);
+        Comment comment2 = new Comment(client, "Fast and light bike");
+        comment2.setId(7L);
+
+        given(textIndex.search("fast bike", 0L, 2)).willReturn(List.of(3L, 7L));
+        given(commentsRepository.findAllWithClientByIdIn(List.of(3L, 7L))).willReturn(List.of(comment1, comment2));
+
+        CursorPage<Comment> found = commentsService.search("fast bike", 0L, 1);
+
+        assertEquals(List.of(comment1), found.getContent());
+        assertEquals(3L, found.getNextCursor());
+        verify(commentsRepository, times(1)).findAllWithClientByIdIn(List.of(3L, 7L));
+    }
+
+    @Test
+    public void givenNoMatches_whenSearch_thenSkipQuery() {
+        given(textIndex.search("nothing", 0L, 11)).willReturn(List.of());
+
+        CursorPage<Comment> found = commentsService.search("nothing", 0L, 10);
+
+        assertTrue(found.getContent().isEmpty());
+        verify(commentsRepository, never()).findAllWithClientByIdIn(anyCollection());
+    }
+}
@@ -0,0 +1,88 @@
+package com.gorokhov.services;
+
+import com.gorokhov.models.*;
+import com.gorokhov.models.enums.City;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import com.gorokhov.repositories.BikesRepository;
+import com.gorokhov.repositories.ClientsRepository;
+import com.gorokhov.repositories.OrdersRepository;
+import com.gorokhov.repositories.StoragesRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = "export.fetch-size=2")
+@Import({ExportService.class, JacksonAutoConfiguration.class})
+public class ExportServiceTest {
+
+    private final ExportService exportService;
+    private final OrdersRepository ordersRepository;
+    private final BikesRepository bikesRepository;
+    private final StoragesRepository storagesRepository;
+    private final ClientsRepository clientsRepository;
+
+    @Autowired
+    public ExportServiceTest(ExportService exportService, OrdersRepository ordersRepository,
+                             BikesRepository bikesRepository, StoragesRepository storagesRepository,
+                             ClientsRepository clientsRepository) {
+        this.exportService = exportService;
+        this.ordersRepository = ordersRepository;
+        this.bikesRepository = bikesRepository;
+        this.storagesRepository = storagesRepository;
+        this.clientsRepository = clientsRepository;
+    }
+
+    @Test
+    public void givenOrdersWithBikes_whenExportOrders_thenWriteOneLinePerOrder() throws IOException {
+        Client client = clientsRepository.save(new Client("nina@email.com", "Nina"));
+        Storage storage = storagesRepository.save(new Storage(new Address(City.MOSCOW, "Arbat", 21)));
+        Bike bike1 = bikesRepository.save(new Bike(Color.GREEN, Size.S, Label.FORWARD, storage));
+        Bike bike2 = bikesRepository.save(new Bike(Color.ORANGE, Size.XL, Label.CANNONDALE, storage));
+        Order order1 = ordersRepository.save(new Order(client, new HashSet<>(), storage));
+        Order order2 = ordersRepository.save(new Order(client, new HashSet<>(), storage));
+        ordersRepository.addBikes(order1.getId(), Set.of(bike1.getId(), bike2.getId()));
+
+        StringWriter writer = new StringWriter();
+        exportService.exportOrders(null, writer);
+
+        String expected = "{\"id\":" + order1.getId() + ",\"clientId\":" + client.getId() +
+                ",\"clientName\":\"Nina\",\"storageId\":" + storage.getId() +
+                ",\"bikeIds\":[" + bike1.getId() + "," + bike2.getId() + "]}\n" +
+                "{\"id\":" + order2.getId() + ",\"clientId\":" + client.getId() +
+                ",\"clientName\":\"Nina\",\"storageId\":" + storage.getId() + ",\"bikeIds\":[]}\n";
+        assertEquals(expected, writer.toString());
+    }
+
+    @Test
+    public void givenSince_whenExportBikes_thenWriteOnlyBikesUpdatedSinceThen() throws IOException {
+        Storage storage = storagesRepository.save(new Storage(new Address(City.MOSCOW, "Arbat", 23)));
+        Bike bike1 = new Bike(Color.GREEN, Size.S, Label.FORWARD, storage);
+        Bike bike2 = new Bike(Color.ORANGE, Size.XL, Label.CANNONDALE, storage);
+        bikesRepository.saveAllAndFlush(List.of(bike1, bike2));
+        bikesRepository.reserveAll(Set.of(bike2.getId()));
+
+        StringWriter all = new StringWriter();
+        exportService.exportBikes(LocalDateTime.now().minusDays(1), all);
+        StringWriter none = new StringWriter();
+        exportService.exportBikes(LocalDateTime.now().plusDays(1), none);
+
+        assertEquals(2, all.toString().lines().count());
+        assertEquals("", none.toString());
+        assertEquals("{\"id\":" + bike2.getId() + ",\"color\":\"ORANGE\",\"size\":\"XL\",\"label\":\"CANNONDALE\"," +
+                     "\"available\":false,\"storageId\":" + storage.getId() + "}",
+                     all.toString().lines().toList().get(1));
+    }
+}
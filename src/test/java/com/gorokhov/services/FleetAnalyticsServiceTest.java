@@ -0,0 +1,71 @@
+package com.gorokhov.services;
+
+import com.gorokhov.dto.FleetCount;
+import com.gorokhov.dto.FleetDrift;
+import com.gorokhov.index.FleetCounters;
+import com.gorokhov.models.enums.City;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import com.gorokhov.repositories.BikesRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FleetAnalyticsServiceTest {
+
+    @Mock
+    private FleetCounters fleetCounters;
+
+    @Mock
+    private BikesRepository bikesRepository;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private FleetAnalyticsService fleetAnalyticsService;
+
+    @BeforeEach
+    public void setUp() {
+        fleetAnalyticsService = new FleetAnalyticsService(fleetCounters, bikesRepository, registry);
+    }
+
+    @Test
+    public void givenSameDriftTwice_whenReconcile_thenReportAndCorrectOnSecondRun() {
+        List<FleetCount> counts = List.of(new FleetCount(1L, City.MOSCOW, Label.STELS, Size.M, Color.RED, true, 3));
+        FleetDrift drift = new FleetDrift(1L, City.MOSCOW, Label.STELS, Size.M, Color.RED, true, 3, 1);
+
+        given(bikesRepository.countFleet()).willReturn(counts);
+        given(fleetCounters.findDrift(counts)).willReturn(List.of(drift));
+
+        assertEquals(List.of(drift), fleetAnalyticsService.reconcile());
+        assertEquals(2.0, registry.get("bikerent.fleet.drift").gauge().value());
+        verify(fleetCounters, never()).correct(any());
+
+        fleetAnalyticsService.reconcile();
+        verify(fleetCounters, times(1)).correct(drift);
+    }
+
+    @Test
+    public void givenTransientDrift_whenReconcile_thenDoNotCorrect() {
+        FleetDrift drift = new FleetDrift(2L, City.KRASNODAR, Label.SCOTT, Size.L, Color.BLUE, false, 0, 1);
+
+        given(bikesRepository.countFleet()).willReturn(List.of());
+        given(fleetCounters.findDrift(List.of())).willReturn(List.of(drift), List.of());
+
+        fleetAnalyticsService.reconcile();
+        fleetAnalyticsService.reconcile();
+
+        assertEquals(0.0, registry.get("bikerent.fleet.drift").gauge().value());
+        verify(fleetCounters, never()).correct(any());
+    }
+}
@@ -0,0 +1,162 @@
+package com.gorokhov.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gorokhov.dto.AddressKey;
+import com.gorokhov.index.BikeAvailabilityIndex;
+import com.gorokhov.index.FleetCounters;
+import com.gorokhov.models.Address;
+import com.gorokhov.models.enums.City;
+import com.gorokhov.repositories.AddressesRepository;
+import com.gorokhov.repositories.BikesRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FleetImportServiceTest {
+
+    @Mock
+    private AddressesRepository addressesRepository;
+
+    @Mock
+    private BikesRepository bikesRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private BikeAvailabilityIndex availabilityIndex;
+
+    @Mock
+    private FleetCounters fleetCounters;
+
+    private FleetImportService fleetImportService;
+
+    @BeforeEach
+    public void setUp() {
+        fleetImportService = new FleetImportService(addressesRepository, bikesRepository, transactionTemplate,
+                new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator(), availabilityIndex,
+                fleetCounters, 2);
+        given(transactionTemplate.execute(Mockito.any())).willAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    public void givenRows_whenImportFleet_thenReturnResultPerRow() throws Exception {
+        String rows = """
+                {"city":"MOSCOW","street":"Lenina","house":1,"bikes":[{"color":"RED","size":"M","label":"FUJI"}]}
+                {"city":"MOSCOW","street":"Lenina","house":2,"bikes":[{"color":"RED","size":"M"}]}
+                not a json
+                {"city":"MOSCOW","street":"Lenina","house":3}
+                """;
+
+        given(addressesRepository.save(Mockito.any())).willAnswer(invocation -> {
+            Address address = invocation.getArgument(0);
+            address.setId(address.getHouse() * 10L);
+            return address;
+        });
+
+        StringWriter writer = new StringWriter();
+        fleetImportService.importFleet(new BufferedReader(new StringReader(rows)), writer);
+
+        String[] results = writer.toString().split("\n");
+        assertEquals(4, results.length);
+        assertEquals("{\"line\":1,\"status\":\"CREATED\",\"storageId\":10,\"bikes\":1}", results[0]);
+        assertEquals("{\"line\":2,\"status\":\"FAILED\",\"message\":\"bikes[0].label - Необходимо указать марку; \"}",
+                results[1]);
+        assertTrue(results[2].startsWith("{\"line\":3,\"status\":\"FAILED\""));
+        assertEquals("{\"line\":4,\"status\":\"CREATED\",\"storageId\":30,\"bikes\":0}", results[3]);
+        verify(transactionTemplate, times(2)).execute(Mockito.any());
+        verify(addressesRepository, times(2)).save(Mockito.any());
+        verify(bikesRepository, times(2)).saveAll(Mockito.any());
+        reset(addressesRepository);
+        reset(bikesRepository);
+    }
+
+    @Test
+    public void givenExistingAddress_whenImportFleet_thenReturnFailedRow() throws Exception {
+        String rows = """
+                {"city":"KRASNODAR","street":"Krasnaya","house":5}
+                """;
+
+        AddressKey existing = mock(AddressKey.class);
+        given(existing.getCity()).willReturn(City.KRASNODAR);
+        given(existing.getStreet()).willReturn("Krasnaya");
+        given(existing.getHouse()).willReturn(5);
+        given(addressesRepository.findAllByStreetInAndHouseIn(Mockito.any(), Mockito.any()))
+                .willReturn(List.of(existing));
+
+        StringWriter writer = new StringWriter();
+        fleetImportService.importFleet(new BufferedReader(new StringReader(rows)), writer);
+
+        assertEquals("{\"line\":1,\"status\":\"FAILED\",\"message\":\"Такой адрес уже существует\"}\n",
+                writer.toString());
+        verify(addressesRepository, never()).save(Mockito.any());
+        reset(addressesRepository);
+    }
+
+    @Test
+    public void givenFailingRow_whenImportFleet_thenRetryChunkRowByRow() throws Exception {
+        String rows = """
+                {"city":"MOSCOW","street":"Arbat","house":1,"bikes":[{"id":42,"color":"RED","size":"M","label":"FUJI"}]}
+                {"city":"MOSCOW","street":"Arbat","house":2}
+                """;
+
+        given(addressesRepository.save(Mockito.any())).willAnswer(invocation -> {
+            Address address = invocation.getArgument(0);
+            if (address.getHouse() == 2)
+                throw new DataIntegrityViolationException("check constraint");
+            address.setId(address.getHouse() * 10L);
+            return address;
+        });
+
+        StringWriter writer = new StringWriter();
+        fleetImportService.importFleet(new BufferedReader(new StringReader(rows)), writer);
+
+        String[] results = writer.toString().split("\n");
+        assertEquals(2, results.length);
+        assertEquals("{\"line\":1,\"status\":\"CREATED\",\"storageId\":10,\"bikes\":1}", results[0]);
+        assertEquals("{\"line\":2,\"status\":\"FAILED\",\"message\":\"Ошибка сохранения\"}", results[1]);
+        verify(transactionTemplate, times(3)).execute(Mockito.any());
+        verify(bikesRepository, times(2)).saveAll(argThat(bikes -> {
+            bikes.forEach(b -> assertEquals(0, b.getId()));
+            return true;
+        }));
+        reset(addressesRepository);
+        reset(bikesRepository);
+    }
+
+    @Test
+    public void givenAddressCreatedByConcurrentImport_whenImportFleet_thenReportExistingAddress() throws Exception {
+        String rows = """
+                {"city":"MOSCOW","street":"Arbat","house":3}
+                """;
+        given(addressesRepository.save(Mockito.any())).willThrow(new DataIntegrityViolationException(
+                "could not execute statement",
+                new SQLIntegrityConstraintViolationException("Unique index or primary key violation", "23505")));
+
+        StringWriter writer = new StringWriter();
+        fleetImportService.importFleet(new BufferedReader(new StringReader(rows)), writer);
+
+        assertEquals("{\"line\":1,\"status\":\"FAILED\",\"message\":\"Такой адрес уже существует\"}\n",
+                writer.toString());
+        reset(addressesRepository);
+    }
+}
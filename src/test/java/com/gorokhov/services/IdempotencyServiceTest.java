@@ -0,0 +1,162 @@
+package com.gorokhov.services;
+
+import com.gorokhov.models.*;
+import com.gorokhov.models.enums.City;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import com.gorokhov.repositories.IdempotencyKeysRepository;
+import com.gorokhov.util.StorageLocks;
+import com.gorokhov.util.exceptions.IdempotencyKeyInUseException;
+import com.gorokhov.util.exceptions.IdempotencyKeyMismatchException;
+import com.gorokhov.util.exceptions.InvalidIdempotencyKeyException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyKeysRepository idempotencyKeysRepository;
+
+    @Mock
+    private OrdersService ordersService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    public void setUp() {
+        idempotencyService = new IdempotencyService(idempotencyKeysRepository, ordersService, transactionTemplate,
+                                                    new StorageLocks(16), 100, Duration.ofHours(24));
+    }
+
+    @Test
+    public void givenNewKey_whenCreateOrderTwice_thenSaveOnceAndAnswerRetryFromCache() {
+        String key = "8f0c6a1e";
+        Order order = order();
+        order.setId(1L);
+
+        given(idempotencyKeysRepository.findCompleted(key)).willReturn(Optional.empty());
+        given(transactionTemplate.execute(any())).willAnswer(invocation ->
+                invocation.<TransactionCallback<Long>>getArgument(0).doInTransaction(null));
+        given(ordersService.save(order)).willReturn(order);
+
+        assertEquals(1L, idempotencyService.createOrder(key, order));
+        assertEquals(1L, idempotencyService.createOrder(key, order));
+        verify(idempotencyKeysRepository, times(1)).claim(eq(key), eq(1L), eq(IdempotencyService.requestHash(order)),
+                                                          any(LocalDateTime.class));
+        verify(idempotencyKeysRepository, times(1)).setOrderId(key, 1L);
+        verify(ordersService, times(1)).save(order);
+    }
+
+    @Test
+    public void givenStoredKey_whenCreateOrder_thenReturnStoredOrderWithoutSaving() {
+        String key = "5d2b9e77";
+
+        given(idempotencyKeysRepository.findCompleted(key)).willReturn(Optional.of(stored(key, order(), 2L)));
+
+        assertEquals(2L, idempotencyService.createOrder(key, order()));
+        verify(transactionTemplate, never()).execute(any());
+    }
+
+    @Test
+    public void givenKeyClaimedConcurrently_whenCreateOrder_thenReturnOrderOfFirstRequest() {
+        String key = "c41f07aa";
+
+        given(idempotencyKeysRepository.findCompleted(key))
+                .willReturn(Optional.empty(), Optional.of(stored(key, order(), 3L)));
+        given(transactionTemplate.execute(any())).willAnswer(invocation ->
+                invocation.<TransactionCallback<Long>>getArgument(0).doInTransaction(null));
+        given(idempotencyKeysRepository.claim(eq(key), anyLong(), anyString(), any(LocalDateTime.class)))
+                .willThrow(new DataIntegrityViolationException("duplicate key"));
+
+        assertEquals(3L, idempotencyService.createOrder(key, order()));
+        verify(ordersService, never()).save(any());
+    }
+
+    @Test
+    public void givenKeyOfUnfinishedRequest_whenCreateOrder_thenThrowIdempotencyKeyInUseException() {
+        String key = "e9a3d210";
+
+        given(idempotencyKeysRepository.findCompleted(key)).willReturn(Optional.empty());
+        given(transactionTemplate.execute(any())).willAnswer(invocation ->
+                invocation.<TransactionCallback<Long>>getArgument(0).doInTransaction(null));
+        given(idempotencyKeysRepository.claim(eq(key), anyLong(), anyString(), any(LocalDateTime.class)))
+                .willThrow(new DataIntegrityViolationException("duplicate key"));
+
+        assertThrows(IdempotencyKeyInUseException.class, () -> idempotencyService.createOrder(key, order()));
+    }
+
+    @Test
+    public void givenBlankKey_whenCreateOrder_thenThrowInvalidIdempotencyKeyException() {
+        assertThrows(InvalidIdempotencyKeyException.class, () -> idempotencyService.createOrder(" ", order()));
+        verify(idempotencyKeysRepository, never()).findCompleted(anyString());
+    }
+
+    @Test
+    public void givenKeyUsedForOtherRequest_whenCreateOrder_thenThrowIdempotencyKeyMismatchException() {
+        String key = "7a1c93d0";
+        Order otherStorage = order();
+        otherStorage.getStorage().setId(2L);
+        Order otherClient = order();
+        otherClient.getClient().setId(2L);
+
+        given(idempotencyKeysRepository.findCompleted(key)).willReturn(Optional.of(stored(key, order(), 4L)));
+
+        assertThrows(IdempotencyKeyMismatchException.class, () -> idempotencyService.createOrder(key, otherStorage));
+        assertThrows(IdempotencyKeyMismatchException.class, () -> idempotencyService.createOrder(key, otherClient));
+        verify(transactionTemplate, never()).execute(any());
+    }
+
+    @Test
+    public void givenSameBikesInOtherOrder_whenRequestHash_thenSameHash() {
+        Bike bike1 = new Bike(Color.RED, Size.M, Label.STELS, null);
+        bike1.setId(1L);
+        Bike bike2 = new Bike(Color.RED, Size.M, Label.STELS, null);
+        bike2.setId(2L);
+        Order order1 = order();
+        order1.setBikes(new LinkedHashSet<>(List.of(bike1, bike2)));
+        Order order2 = order();
+        order2.setBikes(new LinkedHashSet<>(List.of(bike2, bike1)));
+
+        assertEquals(IdempotencyService.requestHash(order1), IdempotencyService.requestHash(order2));
+        assertNotEquals(IdempotencyService.requestHash(order1), IdempotencyService.requestHash(order()));
+    }
+
+    private static Order order() {
+        Client client = new Client("ida@email.com", "Ida");
+        client.setId(1L);
+        Storage storage = new Storage(new Address(City.MOSCOW, "Arbat", 1));
+        storage.setId(1L);
+        return new Order(client, new HashSet<>(), storage);
+    }
+
+    private static IdempotencyKey stored(String key, Order order, long orderId) {
+        IdempotencyKey stored = new IdempotencyKey();
+        stored.setId(key);
+        stored.setClientId(order.getClient().getId());
+        stored.setRequestHash(IdempotencyService.requestHash(order));
+        stored.setOrderId(orderId);
+        return stored;
+    }
+}
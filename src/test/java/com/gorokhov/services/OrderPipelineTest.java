@@ -0,0 +1,161 @@
+package com.gorokhov.services;
+
+import com.gorokhov.dto.OrderRequestStatus;
+import com.gorokhov.metrics.ErrorMetrics;
+import com.gorokhov.models.Address;
+import com.gorokhov.models.Bike;
+import com.gorokhov.models.Client;
+import com.gorokhov.models.Order;
+import com.gorokhov.models.Storage;
+import com.gorokhov.models.enums.City;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import com.gorokhov.util.exceptions.BikesNotAvailableException;
+import com.gorokhov.util.exceptions.ClientNotFoundException;
+import com.gorokhov.util.exceptions.DomainException;
+import com.gorokhov.util.exceptions.OrderQueueFullException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OrderPipelineTest {
+
+    @Mock
+    private OrdersService ordersService;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void givenQueuedOrders_whenStop_thenCreateThemInOneBatch() {
+        OrderPipeline pipeline = pipeline(10, 10, Duration.ofMillis(500));
+        List<Order> orders = List.of(order(1L), order(2L), order(3L));
+
+        given(ordersService.saveAll(anyList())).willAnswer(invocation -> created(invocation.getArgument(0)));
+
+        pipeline.start();
+        List<String> requestIds = orders.stream().map(pipeline::submit).toList();
+        assertEquals(OrderRequestStatus.State.PENDING, pipeline.findStatus(requestIds.get(0)).orElseThrow().getState());
+        pipeline.stop();
+
+        for (int i = 0; i < orders.size(); i++) {
+            OrderRequestStatus status = pipeline.findStatus(requestIds.get(i)).orElseThrow();
+            assertEquals(OrderRequestStatus.State.CREATED, status.getState());
+            assertEquals(100L + i, status.getOrderId());
+        }
+        verify(ordersService, times(1)).saveAll(orders);
+        verify(ordersService, never()).save(any());
+    }
+
+    @Test
+    public void givenRejectedOrder_whenProcessed_thenReportReason() {
+        OrderPipeline pipeline = pipeline(10, 10, Duration.ofMillis(500));
+        Order order1 = order(4L);
+        Order order2 = order(5L);
+
+        given(ordersService.saveAll(List.of(order1, order2)))
+                .willReturn(Arrays.asList(null, new BikesNotAvailableException(Set.of(5L))));
+
+        pipeline.start();
+        String requestId1 = pipeline.submit(order1);
+        String requestId2 = pipeline.submit(order2);
+        pipeline.stop();
+
+        assertEquals(OrderRequestStatus.State.CREATED, pipeline.findStatus(requestId1).orElseThrow().getState());
+        OrderRequestStatus rejected = pipeline.findStatus(requestId2).orElseThrow();
+        assertEquals(OrderRequestStatus.State.REJECTED, rejected.getState());
+        assertEquals(new BikesNotAvailableException(Set.of(5L)).getMessage(), rejected.getMessage());
+        assertNull(rejected.getOrderId());
+        assertEquals(1.0, registry.get("bikerent.reservation.conflicts").counter().count());
+    }
+
+    @Test
+    public void givenFailedBatch_whenProcessed_thenCreateOrdersOneByOne() {
+        OrderPipeline pipeline = pipeline(10, 10, Duration.ofMillis(500));
+        Order order1 = order(6L);
+        Order order2 = order(7L);
+
+        given(ordersService.saveAll(List.of(order1, order2))).willThrow(new IllegalStateException("Batch failed"));
+        given(ordersService.save(same(order1))).willAnswer(invocation -> {
+            order1.setId(106L);
+            return order1;
+        });
+        given(ordersService.save(same(order2))).willThrow(new ClientNotFoundException());
+
+        pipeline.start();
+        String requestId1 = pipeline.submit(order1);
+        String requestId2 = pipeline.submit(order2);
+        pipeline.stop();
+
+        assertEquals(106L, pipeline.findStatus(requestId1).orElseThrow().getOrderId());
+        assertEquals(new ClientNotFoundException().getMessage(),
+                     pipeline.findStatus(requestId2).orElseThrow().getMessage());
+    }
+
+    @Test
+    public void givenFullQueue_whenSubmit_thenThrowOrderQueueFullException() throws InterruptedException {
+        OrderPipeline pipeline = pipeline(1, 1, Duration.ZERO);
+        CountDownLatch processing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        given(ordersService.saveAll(anyList())).willAnswer(invocation -> {
+            processing.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return created(invocation.getArgument(0));
+        });
+
+        assertThrows(OrderQueueFullException.class, () -> pipeline.submit(order(8L)));
+        pipeline.start();
+        String requestId1 = pipeline.submit(order(8L));
+        assertTrue(processing.await(5, TimeUnit.SECONDS));
+        String requestId2 = pipeline.submit(order(9L));
+        assertThrows(OrderQueueFullException.class, () -> pipeline.submit(order(10L)));
+        release.countDown();
+        pipeline.stop();
+
+        assertEquals(OrderRequestStatus.State.CREATED, pipeline.findStatus(requestId1).orElseThrow().getState());
+        assertEquals(OrderRequestStatus.State.CREATED, pipeline.findStatus(requestId2).orElseThrow().getState());
+        verify(ordersService, times(2)).saveAll(anyList());
+    }
+
+    private OrderPipeline pipeline(int capacity, int batchSize, Duration linger) {
+        return new OrderPipeline(ordersService, new ErrorMetrics(registry), capacity, batchSize, linger, 1000,
+                                 Duration.ofMinutes(1));
+    }
+
+    private static Order order(long bikeId) {
+        Client client = new Client("pipeline@email.com", "Pipeline");
+        client.setId(1L);
+        Storage storage = new Storage(new Address(City.MOSCOW, "Arbat", 1));
+        storage.setId(1L);
+        Bike bike = new Bike(Color.RED, Size.M, Label.STELS, storage);
+        bike.setId(bikeId);
+        return new Order(client, new HashSet<>(Set.of(bike)), storage);
+    }
+
+    private static List<DomainException> created(List<Order> orders) {
+        List<DomainException> rejections = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            orders.get(i).setId(100L + i);
+            rejections.add(null);
+        }
+        return rejections;
+    }
+}
@@ -1,5 +1,11 @@
 package com.gorokhov.services;
 
+import com.gorokhov.dto.BikeAllocation;
+import com.gorokhov.dto.Booking;
+import com.gorokhov.dto.OrderRow;
+import com.gorokhov.dto.OrderView;
+import com.gorokhov.index.BikeAvailabilityIndex;
+import com.gorokhov.index.BikeScheduleIndex;
 import com.gorokhov.models.*;
 import com.gorokhov.models.enums.City;
 import com.gorokhov.models.enums.Color;
@@ -9,16 +15,27 @@ import com.gorokhov.repositories.BikesRepository;
 import com.gorokhov.repositories.ClientsRepository;
 import com.gorokhov.repositories.OrdersRepository;
 import com.gorokhov.repositories.StoragesRepository;
+import com.gorokhov.util.CursorPage;
+import com.gorokhov.util.StorageLocks;
 import com.gorokhov.util.exceptions.BikeNotFoundException;
+import com.gorokhov.util.exceptions.BikesNotAvailableException;
 import com.gorokhov.util.exceptions.ClientNotFoundException;
+import com.gorokhov.util.exceptions.DomainException;
+import com.gorokhov.util.exceptions.NotEnoughBikesException;
+import com.gorokhov.util.exceptions.OrderClosedException;
 import com.gorokhov.util.exceptions.OrderNotFoundException;
 import com.gorokhov.util.exceptions.StorageNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -40,9 +57,27 @@ public class OrdersServiceTest {
     @Mock
     private StoragesRepository storagesRepository;
 
+    @Mock
+    private BikeAvailabilityIndex availabilityIndex;
+
+    @Mock
+    private BikeScheduleIndex scheduleIndex;
+
+    @Spy
+    private StorageLocks storageLocks = new StorageLocks(16);
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     @InjectMocks
     private OrdersService ordersService;
 
+    @BeforeEach
+    public void setUp() {
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
     @Test
     public void givenOrder_whenSaveOrder_thenReturnOrder() {
         long clientId = 1L;
@@ -74,21 +109,43 @@ public class OrdersServiceTest {
         Order order = new Order(client, bikes, storage);
         order.setId(orderId);
 
-        given(ordersRepository.save(order)).willReturn(order);
-        given(bikesRepository.findById(bikeId)).willReturn(Optional.of(bike));
+        Set<Long> bikeIds = Set.of(bikeId);
 
-        bike.setOrders(new HashSet<>());
+        given(clientsRepository.existsById(clientId)).willReturn(true);
+        given(storagesRepository.existsById(addressId)).willReturn(true);
+        given(bikesRepository.reserveFree(bikeIds, 0L)).willReturn(List.of(bikeId));
+        given(ordersRepository.save(order)).willReturn(order);
 
         Order saved = ordersService.save(order);
 
         assertNotNull(saved);
         assertEquals(order, saved);
+        verify(bikesRepository, times(1)).reserveFree(bikeIds, 0L);
         verify(ordersRepository, times(1)).save(order);
-        verify(bikesRepository, times(1)).findById(bikeId);
+        verify(ordersRepository, times(1)).addBikes(orderId, bikeIds);
+        verify(availabilityIndex, times(1)).refresh(bikeIds);
+        verify(storageLocks, times(1)).callLocked(eq(List.of(addressId)), any());
         reset(ordersRepository);
         reset(bikesRepository);
     }
 
+    @Test
+    public void givenUnknownClient_whenSaveOrder_thenThrowClientNotFoundException() {
+        Client client = new Client("nobody@email.com", "Nobody");
+        client.setId(3L);
+        Storage storage = new Storage(new Address(City.MOSCOW, "Arbat", 3));
+        storage.setId(3L);
+        Bike bike = new Bike(Color.RED, Size.M, Label.STELS, storage);
+        bike.setId(3L);
+        Order order = new Order(client, new HashSet<>(Set.of(bike)), storage);
+
+        given(clientsRepository.existsById(3L)).willReturn(false);
+
+        assertThrows(ClientNotFoundException.class, () -> ordersService.save(order));
+        verify(bikesRepository, never()).reserveFree(anySet(), anyLong());
+        verify(ordersRepository, never()).save(order);
+    }
+
     @Test
     public void givenOrder_whenSaveOrder_thenThrowBikeNotFoundException() {
         long clientId = 2L;
@@ -120,109 +177,385 @@ public class OrdersServiceTest {
         Order order = new Order(client, bikes, storage);
         order.setId(orderId);
 
-        given(ordersRepository.save(order)).willReturn(order);
-        given(bikesRepository.findById(bikeId)).willReturn(Optional.empty());
+        Set<Long> bikeIds = Set.of(bikeId);
+
+        given(clientsRepository.existsById(clientId)).willReturn(true);
+        given(storagesRepository.existsById(addressId)).willReturn(true);
+        given(bikesRepository.reserveFree(bikeIds, 0L)).willReturn(List.of());
+        given(bikesRepository.findExistingIds(bikeIds)).willReturn(Set.of());
 
         assertThrows(BikeNotFoundException.class, () -> ordersService.save(order));
-        verify(ordersRepository, times(1)).save(order);
-        verify(bikesRepository, times(1)).findById(bikeId);
+        verify(bikesRepository, times(1)).reserveFree(bikeIds, 0L);
+        verify(ordersRepository, never()).save(order);
         reset(ordersRepository);
         reset(bikesRepository);
     }
 
     @Test
-    public void givenOrder_whenGetById_thenReturnOrder() {
-        long clientId = 3L;
-        String email = "jerry@email.com";
-        String name = "Jerry";
+    public void givenOrderWithTakenBike_whenSaveOrder_thenThrowBikesNotAvailableException() {
+        long clientId = 16L;
+        String email = "lisa@email.com";
+        String name = "Lisa";
         Client client = new Client(email, name);
         client.setId(clientId);
 
-        long addressId = 3L;
-        City city = City.KRASNODAR;
-        String street = "Letnii";
-        int house = 193;
+        long addressId = 16L;
+        City city = City.MOSCOW;
+        String street = "Arbat";
+        int house = 12;
         Address address = new Address(city, street, house);
         address.setId(addressId);
         Storage storage = new Storage(address);
         storage.setId(addressId);
 
-        long bikeId = 3L;
-        Color color = Color.RED;
-        Size size = Size.M;
-        Label label = Label.SALSA;
-        Bike bike = new Bike(color, size, label, storage);
-        bike.setId(bikeId);
+        long bikeId1 = 16L;
+        Bike bike1 = new Bike(Color.WHITE, Size.M, Label.SCOTT, storage);
+        bike1.setId(bikeId1);
+
+        long bikeId2 = 17L;
+        Bike bike2 = new Bike(Color.BLACK, Size.L, Label.FUJI, storage);
+        bike2.setId(bikeId2);
+        bike2.setAvailable(false);
 
         Set<Bike> bikes = new HashSet<>();
-        Collections.addAll(bikes, bike);
+        Collections.addAll(bikes, bike1, bike2);
 
-        long orderId = 3L;
         Order order = new Order(client, bikes, storage);
-        order.setId(orderId);
 
-        given(ordersRepository.findById(orderId)).willReturn(Optional.of(order));
+        Set<Long> bikeIds = Set.of(bikeId1, bikeId2);
 
-        Order found = ordersService.findOne(orderId).orElseThrow(OrderNotFoundException::new);
+        given(clientsRepository.existsById(clientId)).willReturn(true);
+        given(storagesRepository.existsById(addressId)).willReturn(true);
+        given(bikesRepository.reserveFree(bikeIds, 0L)).willReturn(List.of(bikeId1));
+        given(bikesRepository.findExistingIds(bikeIds)).willReturn(bikeIds);
 
-        assertNotNull(found);
-        assertEquals(order, found);
-        verify(ordersRepository, times(1)).findById(orderId);
+        BikesNotAvailableException e =
+                assertThrows(BikesNotAvailableException.class, () -> ordersService.save(order));
+        assertEquals(Set.of(bikeId2), e.getIds());
+        verify(bikesRepository, times(1)).reserveFree(bikeIds, 0L);
+        verify(ordersRepository, never()).save(order);
         reset(ordersRepository);
+        reset(bikesRepository);
     }
 
     @Test
-    public void givenOrders_whenGetAllOrders_thenReturnOrdersList() {
-        long clientId = 4L;
-        String email = "marry@email.com";
-        String name = "Marry";
-        Client client = new Client(email, name);
-        client.setId(clientId);
+    public void givenTimeSlotOrder_whenSaveOrder_thenBookSlotWithoutTakingBike() {
+        Client client = new Client("slot@email.com", "Slot");
+        client.setId(18L);
+        Storage storage = new Storage(new Address(City.MOSCOW, "Tverskaya", 7));
+        storage.setId(18L);
+
+        long bikeId = 18L;
+        Bike bike = new Bike(Color.RED, Size.M, Label.STELS, storage);
+        bike.setId(bikeId);
 
-        long addressId = 4L;
-        City city = City.NOVOSIBIRSK;
-        String street = "Severnii";
-        int house = 243;
-        Address address = new Address(city, street, house);
-        address.setId(addressId);
-        Storage storage = new Storage(address);
-        storage.setId(addressId);
+        LocalDateTime startTime = LocalDateTime.of(2030, 5, 1, 10, 0);
+        LocalDateTime endTime = LocalDateTime.of(2030, 5, 1, 12, 0);
+        Order order = new Order(client, new HashSet<>(Set.of(bike)), storage, startTime, endTime);
+        order.setId(18L);
 
-        long bikeId1 = 4L;
-        Color color1 = Color.BLUE;
-        Size size1 = Size.M;
-        Label label1 = Label.FUJI;
-        Bike bike1 = new Bike(color1, size1, label1, storage);
-        bike1.setId(bikeId1);
+        Set<Long> bikeIds = Set.of(bikeId);
+
+        given(clientsRepository.existsById(18L)).willReturn(true);
+        given(storagesRepository.existsById(18L)).willReturn(true);
+        given(bikesRepository.findAllForUpdate(bikeIds)).willReturn(List.of(bike));
+        given(ordersRepository.findBookedBikeIds(bikeIds, 0L, startTime, endTime)).willReturn(Set.of());
+        given(ordersRepository.save(order)).willReturn(order);
 
-        Set<Bike> bikes1 = new HashSet<>();
-        Collections.addAll(bikes1, bike1);
+        Order saved = ordersService.save(order);
 
-        long orderId1 = 4L;
-        Order order1 = new Order(client, bikes1, storage);
-        order1.setId(orderId1);
+        assertEquals(order, saved);
+        verify(bikesRepository, never()).reserveAll(anySet());
+        verify(ordersRepository, times(1)).addBikes(18L, bikeIds);
+        verify(scheduleIndex, times(1)).put(18L, bikeIds, startTime, endTime);
+        verify(availabilityIndex, never()).refresh(anyCollection());
+    }
 
-        long bikeId2 = 5L;
-        Color color2 = Color.BLACK;
-        Size size2 = Size.S;
-        Label label2 = Label.TREK_BICYCLE;
-        Bike bike2 = new Bike(color2, size2, label2, storage);
+    @Test
+    public void givenOverlappingTimeSlot_whenSaveOrder_thenThrowBikesNotAvailableException() {
+        Client client = new Client("late@email.com", "Late");
+        client.setId(19L);
+        Storage storage = new Storage(new Address(City.MOSCOW, "Tverskaya", 9));
+        storage.setId(19L);
+
+        long bikeId1 = 19L;
+        Bike bike1 = new Bike(Color.RED, Size.M, Label.STELS, storage);
+        bike1.setId(bikeId1);
+
+        long bikeId2 = 20L;
+        Bike bike2 = new Bike(Color.BLACK, Size.L, Label.FUJI, storage);
         bike2.setId(bikeId2);
 
-        Set<Bike> bikes2 = new HashSet<>();
-        Collections.addAll(bikes2, bike2);
+        LocalDateTime startTime = LocalDateTime.of(2030, 5, 1, 10, 0);
+        LocalDateTime endTime = LocalDateTime.of(2030, 5, 1, 12, 0);
+        Order order = new Order(client, new HashSet<>(Set.of(bike1, bike2)), storage, startTime, endTime);
+
+        Set<Long> bikeIds = Set.of(bikeId1, bikeId2);
+
+        given(clientsRepository.existsById(19L)).willReturn(true);
+        given(storagesRepository.existsById(19L)).willReturn(true);
+        given(bikesRepository.findAllForUpdate(bikeIds)).willReturn(List.of(bike1, bike2));
+        given(ordersRepository.findBookedBikeIds(bikeIds, 0L, startTime, endTime)).willReturn(Set.of(bikeId2));
+
+        BikesNotAvailableException e =
+                assertThrows(BikesNotAvailableException.class, () -> ordersService.save(order));
+        assertEquals(Set.of(bikeId2), e.getIds());
+        verify(ordersRepository, never()).save(order);
+        verify(scheduleIndex, never()).put(anyLong(), anySet(), any(), any());
+    }
+
+    @Test
+    public void givenBatch_whenSaveAll_thenCreateValidOrdersAndRejectOthers() {
+        Client client = new Client("batch@email.com", "Batch");
+        client.setId(40L);
+        Client unknownClient = new Client("ghost@email.com", "Ghost");
+        unknownClient.setId(41L);
+        Storage storage = new Storage(new Address(City.MOSCOW, "Arbat", 40));
+        storage.setId(40L);
+
+        Bike bike1 = new Bike(Color.RED, Size.M, Label.STELS, storage);
+        bike1.setId(400L);
+        Bike bike2 = new Bike(Color.BLACK, Size.L, Label.FUJI, storage);
+        bike2.setId(401L);
+        bike2.setAvailable(false);
+
+        Order created = new Order(client, new HashSet<>(Set.of(bike1)), storage);
+        created.setId(40L);
+        Order sameBike = new Order(client, new HashSet<>(Set.of(bike1)), storage);
+        sameBike.setId(41L);
+        Order noClient = new Order(unknownClient, new HashSet<>(Set.of(bike1)), storage);
+        noClient.setId(42L);
+        Order takenBike = new Order(client, new HashSet<>(Set.of(bike2)), storage);
+        takenBike.setId(43L);
+
+        given(clientsRepository.findExistingIds(Set.of(40L, 41L))).willReturn(Set.of(40L));
+        given(storagesRepository.findExistingIds(Set.of(40L))).willReturn(Set.of(40L));
+        given(bikesRepository.findAllForUpdate(Set.of(400L, 401L))).willReturn(List.of(bike1, bike2));
+        given(ordersRepository.saveAllAndFlush(List.of(created))).willReturn(List.of(created));
+
+        List<DomainException> rejections = ordersService.saveAll(List.of(created, sameBike, noClient, takenBike));
+
+        assertNull(rejections.get(0));
+        assertEquals(Set.of(400L), ((BikesNotAvailableException) rejections.get(1)).getIds());
+        assertInstanceOf(ClientNotFoundException.class, rejections.get(2));
+        assertEquals(Set.of(401L), ((BikesNotAvailableException) rejections.get(3)).getIds());
+        verify(storageLocks, times(1)).callLocked(eq(Set.of(40L)), any());
+        verify(bikesRepository, times(1)).reserveAll(Set.of(400L));
+        verify(ordersRepository, times(1)).addBikesWithoutFlush(40L, Set.of(400L));
+        verify(availabilityIndex, times(1)).refresh(Set.of(400L));
+    }
+
+    @Test
+    public void givenOverlappingTimeSlotsInBatch_whenSaveAll_thenBookFirstAndRejectOverlaps() {
+        Client client = new Client("slots@email.com", "Slots");
+        client.setId(44L);
+        Storage storage = new Storage(new Address(City.MOSCOW, "Arbat", 44));
+        storage.setId(44L);
+
+        Bike bike1 = new Bike(Color.RED, Size.M, Label.STELS, storage);
+        bike1.setId(440L);
+        Bike bike2 = new Bike(Color.BLACK, Size.L, Label.FUJI, storage);
+        bike2.setId(441L);
+
+        LocalDateTime day = LocalDateTime.of(2030, 5, 1, 0, 0);
+        Order first = new Order(client, new HashSet<>(Set.of(bike1)), storage, day.plusHours(10), day.plusHours(12));
+        first.setId(44L);
+        Order overlapping = new Order(client, new HashSet<>(Set.of(bike1)), storage,
+                                      day.plusHours(11), day.plusHours(13));
+        overlapping.setId(45L);
+        Order booked = new Order(client, new HashSet<>(Set.of(bike2)), storage, day.plusHours(12), day.plusHours(14));
+        booked.setId(46L);
+        Order adjacent = new Order(client, new HashSet<>(Set.of(bike1)), storage, day.plusHours(12), day.plusHours(14));
+        adjacent.setId(47L);
+
+        given(clientsRepository.findExistingIds(Set.of(44L))).willReturn(Set.of(44L));
+        given(storagesRepository.findExistingIds(Set.of(44L))).willReturn(Set.of(44L));
+        given(bikesRepository.findAllForUpdate(Set.of(440L, 441L))).willReturn(List.of(bike1, bike2));
+        given(ordersRepository.findBookingsOverlapping(Set.of(440L, 441L), day.plusHours(10), day.plusHours(14)))
+                .willReturn(List.of(new Booking(99L, 441L, day.plusHours(13), day.plusHours(15))));
+        given(ordersRepository.saveAllAndFlush(List.of(first, adjacent))).willReturn(List.of(first, adjacent));
+
+        List<DomainException> rejections = ordersService.saveAll(List.of(first, overlapping, booked, adjacent));
+
+        assertNull(rejections.get(0));
+        assertInstanceOf(BikesNotAvailableException.class, rejections.get(1));
+        assertInstanceOf(BikesNotAvailableException.class, rejections.get(2));
+        assertNull(rejections.get(3));
+        verify(bikesRepository, never()).reserveAll(anySet());
+        verify(scheduleIndex, times(1)).put(44L, Set.of(440L), day.plusHours(10), day.plusHours(12));
+        verify(scheduleIndex, times(1)).put(47L, Set.of(440L), day.plusHours(12), day.plusHours(14));
+    }
 
-        long orderId2 = 5L;
-        Order order2 = new Order(client, bikes2, storage);
-        order2.setId(orderId2);
+    @Test
+    public void givenFutureBookings_whenSaveAllOpenEnded_thenRejectBookedBikes() {
+        Client client = new Client("future@email.com", "Future");
+        client.setId(48L);
+        Storage storage = new Storage(new Address(City.MOSCOW, "Arbat", 48));
+        storage.setId(48L);
+
+        Bike bike1 = new Bike(Color.RED, Size.M, Label.STELS, storage);
+        bike1.setId(480L);
+        Bike bike2 = new Bike(Color.BLACK, Size.L, Label.FUJI, storage);
+        bike2.setId(481L);
+        Bike bike3 = new Bike(Color.GREEN, Size.S, Label.SCOTT, storage);
+        bike3.setId(482L);
+
+        LocalDateTime day = LocalDateTime.of(2030, 5, 2, 0, 0);
+        Order slot = new Order(client, new HashSet<>(Set.of(bike2)), storage, day.plusHours(10), day.plusHours(12));
+        slot.setId(48L);
+        Order bookedInBase = new Order(client, new HashSet<>(Set.of(bike1)), storage);
+        bookedInBase.setId(49L);
+        Order bookedInBatch = new Order(client, new HashSet<>(Set.of(bike2)), storage);
+        bookedInBatch.setId(50L);
+        Order free = new Order(client, new HashSet<>(Set.of(bike3)), storage);
+        free.setId(51L);
+
+        given(clientsRepository.findExistingIds(Set.of(48L))).willReturn(Set.of(48L));
+        given(storagesRepository.findExistingIds(Set.of(48L))).willReturn(Set.of(48L));
+        given(bikesRepository.findAllForUpdate(Set.of(480L, 481L, 482L))).willReturn(List.of(bike1, bike2, bike3));
+        given(ordersRepository.findBookingsEndingAfter(eq(Set.of(480L, 481L, 482L)), any()))
+                .willReturn(List.of(new Booking(99L, 480L, day.plusHours(8), day.plusHours(9))));
+        given(ordersRepository.saveAllAndFlush(List.of(slot, free))).willReturn(List.of(slot, free));
+
+        List<DomainException> rejections = ordersService.saveAll(List.of(slot, bookedInBase, bookedInBatch, free));
+
+        assertNull(rejections.get(0));
+        assertEquals(Set.of(480L), ((BikesNotAvailableException) rejections.get(1)).getIds());
+        assertEquals(Set.of(481L), ((BikesNotAvailableException) rejections.get(2)).getIds());
+        assertNull(rejections.get(3));
+        verify(bikesRepository, times(1)).reserveAll(Set.of(482L));
+    }
+
+    @Test
+    public void givenAllocation_whenAllocate_thenLockMissingBikesUntilEnough() {
+        BikeAllocation allocation = new BikeAllocation(50L, 50L, 2, Size.M);
+        allocation.setColor(Color.RED);
+        List<Long> candidates = List.of(500L, 501L, 502L);
+        Set<Long> free = Set.of(501L, 502L);
+
+        given(clientsRepository.existsById(50L)).willReturn(true);
+        given(storagesRepository.existsById(50L)).willReturn(true);
+        given(availabilityIndex.findAvailable(50L, Size.M, Color.RED, null)).willReturn(candidates);
+        given(bikesRepository.lockFreeIds(anySet(), eq(50L), eq("M"), eq("RED"), isNull(), isNull(), isNull()))
+                .willAnswer(invocation -> {
+                    Set<Long> ids = new HashSet<>(invocation.getArgument(0));
+                    ids.retainAll(free);
+                    return List.copyOf(ids);
+                });
+        given(ordersRepository.save(any(Order.class))).willAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            order.setId(50L);
+            return order;
+        });
+
+        Order order = ordersService.allocate(allocation);
+
+        assertEquals(50L, order.getId());
+        verify(bikesRepository, atMost(2)).lockFreeIds(anySet(), anyLong(), any(), any(), any(), any(), any());
+        verify(bikesRepository, times(1)).reserveAll(free);
+        verify(ordersRepository, times(1)).addBikes(50L, free);
+        verify(availabilityIndex, times(1)).refresh(free);
+        verify(storageLocks, never()).callLocked(anyCollection(), any());
+    }
+
+    @Test
+    public void givenTooFewFreeBikes_whenAllocate_thenThrowNotEnoughBikesException() {
+        BikeAllocation allocation = new BikeAllocation(51L, 51L, 3, Size.L);
+
+        given(clientsRepository.existsById(51L)).willReturn(true);
+        given(storagesRepository.existsById(51L)).willReturn(true);
+        given(availabilityIndex.findAvailable(51L, Size.L, null, null)).willReturn(List.of(510L, 511L));
+        given(bikesRepository.lockFreeIds(Set.of(510L, 511L), 51L, "L", null, null, null, null))
+                .willReturn(List.of(510L));
+
+        assertThrows(NotEnoughBikesException.class, () -> ordersService.allocate(allocation));
+        verify(bikesRepository, never()).reserveAll(anySet());
+        verify(ordersRepository, never()).save(any());
+    }
+
+    @Test
+    public void givenTimeSlotAllocation_whenAllocate_thenBookFreeBikesWithoutTakingThem() {
+        LocalDateTime startTime = LocalDateTime.of(2030, 5, 1, 10, 0);
+        LocalDateTime endTime = LocalDateTime.of(2030, 5, 1, 12, 0);
+        BikeAllocation allocation = new BikeAllocation(52L, 52L, 1, Size.S);
+        allocation.setStartTime(startTime);
+        allocation.setEndTime(endTime);
+
+        given(clientsRepository.existsById(52L)).willReturn(true);
+        given(storagesRepository.existsById(52L)).willReturn(true);
+        given(availabilityIndex.findAvailable(52L, Size.S, null, null)).willReturn(List.of(520L, 521L));
+        given(scheduleIndex.findFree(List.of(520L, 521L), startTime, endTime)).willReturn(List.of(521L));
+        given(bikesRepository.lockFreeIds(Set.of(521L), 52L, "S", null, null, startTime, endTime))
+                .willReturn(List.of(521L));
+        given(ordersRepository.save(any(Order.class))).willAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            order.setId(52L);
+            return order;
+        });
+
+        ordersService.allocate(allocation);
+
+        verify(bikesRepository, never()).reserveAll(anySet());
+        verify(ordersRepository, times(1)).addBikes(52L, Set.of(521L));
+        verify(scheduleIndex, times(1)).put(52L, Set.of(521L), startTime, endTime);
+    }
+
+    @Test
+    public void givenUnknownStorage_whenAllocate_thenThrowStorageNotFoundException() {
+        given(clientsRepository.existsById(53L)).willReturn(true);
+        given(storagesRepository.existsById(53L)).willReturn(false);
+
+        assertThrows(StorageNotFoundException.class,
+                     () -> ordersService.allocate(new BikeAllocation(53L, 53L, 1, Size.M)));
+        verify(availabilityIndex, never()).findAvailable(anyLong(), any(), any(), any());
+    }
+
+    @Test
+    public void givenOrder_whenGetById_thenReturnOrderView() {
+        long orderId = 3L;
+        long clientId = 3L;
+        String name = "Ann";
+        long storageId = 3L;
+
+        given(ordersRepository.findRowsById(orderId)).willReturn(List.of(row(orderId, clientId, name, storageId, 3L),
+                                                                         row(orderId, clientId, name, storageId, 4L)));
+
+        OrderView found = ordersService.findOne(orderId).orElseThrow(OrderNotFoundException::new);
+
+        assertEquals(orderId, found.getId());
+        assertEquals(clientId, found.getClientId());
+        assertEquals(name, found.getClientName());
+        assertEquals(storageId, found.getStorageId());
+        assertEquals(List.of(3L, 4L), found.getBikeIds());
+        verify(ordersRepository, times(1)).findRowsById(orderId);
+        reset(ordersRepository);
+    }
+
+    @Test
+    public void givenNoRows_whenGetById_thenReturnEmpty() {
+        given(ordersRepository.findRowsById(30L)).willReturn(List.of());
+
+        assertTrue(ordersService.findOne(30L).isEmpty());
+    }
+
+    @Test
+    public void givenOrders_whenGetAllOrders_thenReturnOrderViewsList() {
+        long clientId = 4L;
+        String name = "Marry";
+        long storageId = 4L;
 
-        given(ordersRepository.findAll()).willReturn(List.of(order1, order2));
+        given(ordersRepository.findRowsByIdGreaterThan(0L, 11)).willReturn(List.of(row(4L, clientId, name, storageId, 4L),
+                                                                                   row(5L, clientId, name, storageId, 5L),
+                                                                                   row(5L, clientId, name, storageId, 6L),
+                                                                                   row(6L, clientId, name, storageId, null)));
 
-        Set<Order> found = ordersService.findAll();
+        CursorPage<OrderView> found = ordersService.findAll(0L, 10);
 
-        assertNotNull(found);
-        assertEquals(2, found.size());
-        verify(ordersRepository, times(1)).findAll();
+        assertEquals(3, found.getContent().size());
+        assertEquals(List.of(5L, 6L), found.getContent().get(1).getBikeIds());
+        assertEquals(List.of(), found.getContent().get(2).getBikeIds());
+        assertNull(found.getNextCursor());
+        verify(ordersRepository, times(1)).findRowsByIdGreaterThan(0L, 11);
         reset(ordersRepository);
     }
 
@@ -270,10 +603,14 @@ public class OrdersServiceTest {
         Client client2 = new Client(email2, name2);
         client2.setId(clientId2);
 
+        long oldBikeId = 16L;
+
         given(clientsRepository.findById(clientId2)).willReturn(Optional.of(client2));
         given(storagesRepository.findById(addressId)).willReturn(Optional.of(storage));
-        given(bikesRepository.findById(bikeId)).willReturn(Optional.of(bike));
         given(ordersRepository.findById(orderId)).willReturn(Optional.of(order));
+        given(ordersRepository.findStorageId(orderId)).willReturn(Optional.of(addressId));
+        given(ordersRepository.findBikeIds(orderId)).willReturn(Set.of(oldBikeId));
+        given(bikesRepository.reserveFree(Set.of(bikeId), orderId)).willReturn(List.of(bikeId));
 
         order.setClient(client2);
         client2.setOrders(orders);
@@ -283,8 +620,13 @@ public class OrdersServiceTest {
         assertEquals(client2, updated.getClient());
         verify(clientsRepository, times(1)).findById(clientId2);
         verify(storagesRepository, times(1)).findById(addressId);
-        verify(bikesRepository, times(2)).findById(bikeId);
+        verify(bikesRepository, times(1)).reserveFree(Set.of(bikeId), orderId);
+        verify(bikesRepository, times(1)).releaseAll(Set.of(oldBikeId));
+        verify(bikesRepository, never()).findById(anyLong());
+        verify(availabilityIndex, times(1)).refresh(Set.of(bikeId, oldBikeId));
         verify(ordersRepository, times(1)).findById(orderId);
+        verify(ordersRepository, times(1)).removeBikes(orderId, Set.of(oldBikeId));
+        verify(ordersRepository, times(1)).addBikes(orderId, Set.of(bikeId));
         reset(clientsRepository);
         reset(storagesRepository);
         reset(bikesRepository);
@@ -408,19 +750,55 @@ public class OrdersServiceTest {
         Set<Bike> bikes2 = new HashSet<>();
         Collections.addAll(bikes2, bike2);
 
+        Order order = new Order(client1, Set.of(), storage);
+        order.setId(orderId);
         Order order2 = new Order(client1, bikes2, storage);
 
         given(clientsRepository.findById(clientId1)).willReturn(Optional.of(client1));
         given(storagesRepository.findById(addressId)).willReturn(Optional.of(storage));
-        given(bikesRepository.findById(bikeId2)).willThrow(BikeNotFoundException.class);
+        given(ordersRepository.findById(orderId)).willReturn(Optional.of(order));
+        given(ordersRepository.findStorageId(orderId)).willReturn(Optional.of(addressId));
+        given(ordersRepository.findBikeIds(orderId)).willReturn(Set.of());
+        given(bikesRepository.reserveFree(Set.of(bikeId2), orderId)).willReturn(List.of());
+        given(bikesRepository.findExistingIds(Set.of(bikeId2))).willReturn(Set.of());
 
         assertThrows(BikeNotFoundException.class, () -> ordersService.update(orderId, order2));
         verify(clientsRepository, times(1)).findById(clientId1);
         verify(storagesRepository, times(1)).findById(addressId);
-        verify(bikesRepository, times(1)).findById(bikeId2);
+        verify(bikesRepository, times(1)).findExistingIds(Set.of(bikeId2));
+        verify(ordersRepository, never()).addBikes(anyLong(), any());
         reset(clientsRepository);
         reset(storagesRepository);
         reset(bikesRepository);
+        reset(ordersRepository);
+    }
+
+    @Test
+    public void givenOrderMovedBeforeLock_whenUpdateOrder_thenLockItsNewStorage() {
+        Client client = new Client("moved@email.com", "Moved");
+        client.setId(16L);
+        Storage storage1 = new Storage(new Address(City.MOSCOW, "Arbat", 16));
+        storage1.setId(16L);
+        Storage storage2 = new Storage(new Address(City.MOSCOW, "Arbat", 17));
+        storage2.setId(17L);
+
+        long orderId = 16L;
+        Order stored = new Order(client, new HashSet<>(), storage2);
+        stored.setId(orderId);
+        Order order = new Order(client, new HashSet<>(), storage1);
+
+        given(clientsRepository.findById(16L)).willReturn(Optional.of(client));
+        given(storagesRepository.findById(16L)).willReturn(Optional.of(storage1));
+        given(ordersRepository.findStorageId(orderId)).willReturn(Optional.of(16L), Optional.of(17L));
+        given(ordersRepository.findById(orderId)).willReturn(Optional.of(stored));
+        given(ordersRepository.findBikeIds(orderId)).willReturn(Set.of());
+
+        Order updated = ordersService.update(orderId, order);
+
+        assertEquals(storage1, updated.getStorage());
+        verify(storageLocks, times(1)).callLocked(eq(List.of(16L, 16L)), any());
+        verify(storageLocks, times(1)).callLocked(eq(List.of(17L, 16L)), any());
+        verify(ordersRepository, times(2)).findById(orderId);
     }
 
     @Test
@@ -458,17 +836,85 @@ public class OrdersServiceTest {
 
         given(clientsRepository.findById(clientId1)).willReturn(Optional.of(client1));
         given(storagesRepository.findById(addressId)).willReturn(Optional.of(storage));
-        given(bikesRepository.findById(bikeId)).willReturn(Optional.of(bike));
         given(ordersRepository.findById(orderId2)).willThrow(OrderNotFoundException.class);
 
         assertThrows(OrderNotFoundException.class, () -> ordersService.update(orderId2, order));
         verify(clientsRepository, times(1)).findById(clientId1);
         verify(storagesRepository, times(1)).findById(addressId);
-        verify(bikesRepository, times(1)).findById(bikeId);
+        verify(bikesRepository, never()).reserveFree(any(), anyLong());
         verify(ordersRepository, times(1)).findById(orderId2);
         reset(clientsRepository);
         reset(storagesRepository);
         reset(bikesRepository);
         reset(ordersRepository);
     }
+
+    @Test
+    public void givenOpenOrders_whenCloseAll_thenReleaseBikesOfOpenEndedOrdersOnly() {
+        List<Long> ids = List.of(30L, 31L, 32L);
+        LocalDateTime startTime = LocalDateTime.of(2030, 5, 1, 10, 0);
+
+        given(ordersRepository.findOpenIdsForUpdate(ids)).willReturn(List.of(30L, 31L));
+        given(ordersRepository.findBookingsByOrderIds(List.of(30L, 31L))).willReturn(List.of(
+                new Booking(30L, 300L, null, null),
+                new Booking(30L, 301L, null, null),
+                new Booking(31L, 310L, startTime, startTime.plusHours(2))));
+
+        List<Long> closed = ordersService.closeAll(ids, null);
+
+        assertEquals(List.of(30L, 31L), closed);
+        verify(ordersRepository, times(1)).closeAll(eq(List.of(30L, 31L)), any(LocalDateTime.class));
+        verify(bikesRepository, times(1)).releaseAll(Set.of(300L, 301L));
+        verify(bikesRepository, never()).moveAll(anySet(), anyLong());
+        verify(availabilityIndex, times(1)).refresh(Set.of(300L, 301L));
+        verify(scheduleIndex, times(1)).removeAll(List.of(30L, 31L));
+    }
+
+    @Test
+    public void givenDropOffStorage_whenCloseAll_thenMoveAllReturnedBikes() {
+        long storageId = 33L;
+        List<Long> ids = List.of(33L);
+
+        given(storagesRepository.existsById(storageId)).willReturn(true);
+        given(ordersRepository.findOpenIdsForUpdate(ids)).willReturn(ids);
+        given(ordersRepository.findBookingsByOrderIds(ids)).willReturn(List.of(new Booking(33L, 330L, null, null)));
+
+        ordersService.closeAll(ids, storageId);
+
+        verify(bikesRepository, times(1)).releaseAll(Set.of(330L));
+        verify(bikesRepository, times(1)).moveAll(Set.of(330L), storageId);
+        verify(availabilityIndex, times(1)).refresh(Set.of(330L));
+    }
+
+    @Test
+    public void givenClosedOrder_whenClose_thenThrowOrderClosedException() {
+        long id = 34L;
+
+        given(ordersRepository.findOpenIdsForUpdate(List.of(id))).willReturn(List.of());
+        given(ordersRepository.existsById(id)).willReturn(true);
+
+        assertThrows(OrderClosedException.class, () -> ordersService.close(id, null));
+        verify(ordersRepository, never()).closeAll(anyCollection(), any());
+    }
+
+    @Test
+    public void givenUnknownStorage_whenCloseAll_thenThrowStorageNotFoundException() {
+        given(storagesRepository.existsById(35L)).willReturn(false);
+
+        assertThrows(StorageNotFoundException.class, () -> ordersService.closeAll(List.of(35L), 35L));
+        verify(ordersRepository, never()).findOpenIdsForUpdate(anyCollection());
+    }
+
+    private static OrderRow row(long id, long clientId, String clientName, long storageId, Long bikeId) {
+        return new OrderRow() {
+            public long getId() { return id; }
+            public long getClientId() { return clientId; }
+            public String getClientName() { return clientName; }
+            public long getStorageId() { return storageId; }
+            public LocalDateTime getStartTime() { return null; }
+            public LocalDateTime getEndTime() { return null; }
+            public LocalDateTime getCloseTime() { return null; }
+            public Long getBikeId() { return bikeId; }
+        };
+    }
 }
\ No newline at end of file
@@ -0,0 +1,133 @@
+package com.gorokhov.services;
+
+import com.gorokhov.index.BikeAvailabilityIndex;
+import com.gorokhov.index.BikeScheduleIndex;
+import com.gorokhov.index.FleetCounters;
+import com.gorokhov.models.*;
+import com.gorokhov.models.enums.City;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
+import com.gorokhov.repositories.BikesRepository;
+import com.gorokhov.repositories.ClientsRepository;
+import com.gorokhov.repositories.StoragesRepository;
+import com.gorokhov.util.StorageLocks;
+import com.gorokhov.util.exceptions.BikesNotAvailableException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "orders.lock-stripes=16")
+@Import({OrdersService.class, BikeAvailabilityIndex.class, FleetCounters.class, BikeScheduleIndex.class,
+         StorageLocks.class})
+public class OrdersServiceUpdateTest {
+
+    private final OrdersService ordersService;
+    private final BikesRepository bikesRepository;
+    private final StoragesRepository storagesRepository;
+    private final ClientsRepository clientsRepository;
+    private final TestEntityManager entityManager;
+
+    @Autowired
+    public OrdersServiceUpdateTest(OrdersService ordersService, BikesRepository bikesRepository,
+                                   StoragesRepository storagesRepository, ClientsRepository clientsRepository,
+                                   TestEntityManager entityManager) {
+        this.ordersService = ordersService;
+        this.bikesRepository = bikesRepository;
+        this.storagesRepository = storagesRepository;
+        this.clientsRepository = clientsRepository;
+        this.entityManager = entityManager;
+    }
+
+    @Test
+    public void givenOpenEndedOrder_whenUpdateBikesAndClose_thenReleaseEveryBike() {
+        Client client = clientsRepository.save(new Client("lena@email.com", "Lena"));
+        Storage storage = storagesRepository.save(new Storage(new Address(City.MOSCOW, "Tverskaya", 7)));
+        Bike bike1 = bikesRepository.save(new Bike(Color.GREEN, Size.S, Label.FORWARD, storage));
+        Bike bike2 = bikesRepository.save(new Bike(Color.ORANGE, Size.XL, Label.CANNONDALE, storage));
+        Order order = ordersService.save(new Order(client, new HashSet<>(Set.of(bike1)), storage));
+        entityManager.flush();
+        entityManager.clear();
+
+        ordersService.update(order.getId(), new Order(client, new HashSet<>(Set.of(bike2)), storage));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertTrue(bikesRepository.findById(bike1.getId()).orElseThrow().isAvailable());
+        assertFalse(bikesRepository.findById(bike2.getId()).orElseThrow().isAvailable());
+        entityManager.clear();
+
+        ordersService.close(order.getId(), null);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertTrue(bikesRepository.findById(bike1.getId()).orElseThrow().isAvailable());
+        assertTrue(bikesRepository.findById(bike2.getId()).orElseThrow().isAvailable());
+    }
+
+    @Test
+    public void givenOpenEndedOrder_whenUpdateToTimeSlot_thenReleaseBikesAndBookThem() {
+        Client client = clientsRepository.save(new Client("olga@email.com", "Olga"));
+        Storage storage = storagesRepository.save(new Storage(new Address(City.MOSCOW, "Tverskaya", 9)));
+        Bike bike = bikesRepository.save(new Bike(Color.RED, Size.M, Label.STELS, storage));
+        Order order = ordersService.save(new Order(client, new HashSet<>(Set.of(bike)), storage));
+        entityManager.flush();
+        entityManager.clear();
+
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        Order updated = ordersService.update(order.getId(), new Order(client, new HashSet<>(Set.of(bike)), storage,
+                                                                      start, start.plusHours(2)));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertTrue(updated.hasTimeSlot());
+        assertTrue(bikesRepository.findById(bike.getId()).orElseThrow().isAvailable());
+    }
+
+    @Test
+    public void givenTimeSlotOrder_whenUpdateToOpenEnded_thenReserveBikes() {
+        Client client = clientsRepository.save(new Client("pavel@email.com", "Pavel"));
+        Storage storage = storagesRepository.save(new Storage(new Address(City.MOSCOW, "Tverskaya", 11)));
+        Bike bike = bikesRepository.save(new Bike(Color.RED, Size.M, Label.STELS, storage));
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        Order order = ordersService.save(new Order(client, new HashSet<>(Set.of(bike)), storage,
+                                                   start, start.plusHours(2)));
+        entityManager.flush();
+        entityManager.clear();
+
+        ordersService.update(order.getId(), new Order(client, new HashSet<>(Set.of(bike)), storage));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertFalse(bikesRepository.findById(bike.getId()).orElseThrow().isAvailable());
+        entityManager.clear();
+
+        ordersService.close(order.getId(), null);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertTrue(bikesRepository.findById(bike.getId()).orElseThrow().isAvailable());
+    }
+
+    @Test
+    public void givenBikeBookedLater_whenSaveOpenEnded_thenThrowBikesNotAvailableException() {
+        Client client = clientsRepository.save(new Client("raya@email.com", "Raya"));
+        Storage storage = storagesRepository.save(new Storage(new Address(City.MOSCOW, "Tverskaya", 13)));
+        Bike bike = bikesRepository.save(new Bike(Color.RED, Size.M, Label.STELS, storage));
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        ordersService.save(new Order(client, new HashSet<>(Set.of(bike)), storage, start, start.plusHours(2)));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThrows(BikesNotAvailableException.class,
+                     () -> ordersService.save(new Order(client, new HashSet<>(Set.of(bike)), storage)));
+    }
+}
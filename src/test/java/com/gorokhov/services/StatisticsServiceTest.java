@@ -0,0 +1,54 @@
+package com.gorokhov.services;
+
+import com.gorokhov.dto.CacheStatistics;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+@ExtendWith(MockitoExtension.class)
+public class StatisticsServiceTest {
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @InjectMocks
+    private StatisticsService statisticsService;
+
+    @Test
+    public void givenCacheRegions_whenFindCacheStatistics_thenReturnSortedRegions() {
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        Statistics statistics = mock(Statistics.class);
+        CacheRegionStatistics storageRegion = mock(CacheRegionStatistics.class);
+        CacheRegionStatistics addressRegion = mock(CacheRegionStatistics.class);
+        String storage = "storage";
+        String address = "address";
+
+        given(entityManagerFactory.unwrap(SessionFactory.class)).willReturn(sessionFactory);
+        given(sessionFactory.getStatistics()).willReturn(statistics);
+        given(statistics.getSecondLevelCacheRegionNames()).willReturn(new String[]{storage, address});
+        given(statistics.getDomainDataRegionStatistics(storage)).willReturn(storageRegion);
+        given(statistics.getDomainDataRegionStatistics(address)).willReturn(addressRegion);
+        given(storageRegion.getHitCount()).willReturn(5L);
+        given(addressRegion.getMissCount()).willReturn(1L);
+
+        List<CacheStatistics> found = statisticsService.findCacheStatistics();
+
+        assertEquals(2, found.size());
+        assertEquals(address, found.get(0).getRegion());
+        assertEquals(1L, found.get(0).getMissCount());
+        assertEquals(storage, found.get(1).getRegion());
+        assertEquals(5L, found.get(1).getHitCount());
+    }
+}
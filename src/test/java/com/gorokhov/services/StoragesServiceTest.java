@@ -1,15 +1,25 @@
 package com.gorokhov.services;
 
+import com.gorokhov.dto.NearbyStorage;
+import com.gorokhov.dto.StorageView;
+import com.gorokhov.index.StorageLocationIndex;
 import com.gorokhov.models.Address;
+import com.gorokhov.models.Bike;
 import com.gorokhov.models.Storage;
 import com.gorokhov.models.enums.City;
+import com.gorokhov.models.enums.Color;
+import com.gorokhov.models.enums.Label;
+import com.gorokhov.models.enums.Size;
 import com.gorokhov.repositories.StoragesRepository;
+import com.gorokhov.util.CursorPage;
+import com.gorokhov.util.exceptions.InvalidLocationException;
 import com.gorokhov.util.exceptions.StorageNotFoundException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -17,6 +27,8 @@ import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.*;
 
@@ -26,6 +38,9 @@ public class StoragesServiceTest {
     @Mock
     private StoragesRepository storagesRepository;
 
+    @Mock
+    private StorageLocationIndex locationIndex;
+
     @InjectMocks
     private StoragesService storagesService;
 
@@ -75,27 +90,62 @@ public class StoragesServiceTest {
         City city1 = City.NOVOSIBIRSK;
         String street1 = "Severnaya";
         int house1 = 78;
-        Address address1 = new Address(city1, street1, house1);
-        address1.setId(id1);
-        Storage storage1 = new Storage(address1);
-        storage1.setId(id1);
+        StorageView storage1 = new StorageView(id1, id1, city1, street1, house1);
 
         long id2 = 5L;
         City city2 = City.KRASNODAR;
         String street2 = "Severnaya";
         int house2 = 89;
-        Address address2 = new Address(city2, street2, house2);
-        address2.setId(id2);
-        Storage storage2 = new Storage(address2);
-        storage2.setId(id2);
+        StorageView storage2 = new StorageView(id2, id2, city2, street2, house2);
 
-        given(storagesRepository.findAll()).willReturn(List.of(storage1, storage2));
+        given(storagesRepository.findViewsByIdGreaterThan(0L, PageRequest.ofSize(11))).willReturn(List.of(storage1, storage2));
 
-        Set<Storage> found = storagesService.findAll();
+        CursorPage<StorageView> found = storagesService.findAll(0L, 10);
 
         assertNotNull(found);
-        assertEquals(2, found.size());
-        verify(storagesRepository, times(1)).findAll();
+        assertEquals(2, found.getContent().size());
+        assertNull(found.getNextCursor());
+        verify(storagesRepository, times(1)).findViewsByIdGreaterThan(0L, PageRequest.ofSize(11));
         reset(storagesRepository);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void givenStorageWithBikes_whenFindBikesByColor_thenReturnMatchingBikes() {
+        long id = 6L;
+        Address address = new Address(City.MOSCOW, "Arbat", 12);
+        address.setId(id);
+        Storage storage = new Storage(address);
+        storage.setId(id);
+
+        Bike redBike = new Bike(Color.RED, Size.M, Label.STELS, storage);
+        redBike.setId(13L);
+        Bike greenBike = new Bike(Color.GREEN, Size.XS, Label.FORWARD, storage);
+        greenBike.setId(14L);
+        storage.setBikes(Set.of(redBike, greenBike));
+
+        given(storagesRepository.findById(id)).willReturn(Optional.of(storage));
+
+        Set<Bike> found = storagesService.findBikes(id, Color.RED);
+
+        assertEquals(Set.of(redBike), found);
+        verify(storagesRepository, times(1)).findById(id);
+        reset(storagesRepository);
+    }
+
+    @Test
+    public void givenLocation_whenFindNearest_thenReturnStoragesFromIndex() {
+        List<NearbyStorage> nearest = List.of(new NearbyStorage(6L, 55.75, 37.61, 0.4, 3));
+
+        given(locationIndex.findNearest(55.751, 37.617, Size.M, 5)).willReturn(nearest);
+
+        assertEquals(nearest, storagesService.findNearest(55.751, 37.617, Size.M, 5));
+        verifyNoInteractions(storagesRepository);
+    }
+
+    @Test
+    public void givenLatitudeOutOfRange_whenFindNearest_thenThrowInvalidLocationException() {
+        assertThrows(InvalidLocationException.class, () -> storagesService.findNearest(91, 37.617, null, 5));
+        assertThrows(InvalidLocationException.class, () -> storagesService.findNearest(55.751, Double.NaN, null, 5));
+        verifyNoInteractions(locationIndex);
+    }
+}
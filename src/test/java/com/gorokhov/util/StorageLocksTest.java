@@ -0,0 +1,85 @@
+package com.gorokhov.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StorageLocksTest {
+
+    private final StorageLocks storageLocks = new StorageLocks(1000);
+
+    @AfterEach
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    public void givenStripeCount_whenCreate_thenRoundUpToPowerOfTwo() {
+        assertEquals(1024, storageLocks.size());
+        assertEquals(1, new StorageLocks(1).size());
+    }
+
+    @Test
+    public void givenLockedStorage_whenTransactionCompletes_thenOtherThreadGetsIt() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        storageLocks.lockUntilCompletion(List.of(1L, 2L));
+
+        CompletableFuture<Void> sameStorage = lockInOtherThread(2L);
+        assertThrows(TimeoutException.class, () -> sameStorage.get(100, TimeUnit.MILLISECONDS));
+
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                                                              TransactionSynchronization.STATUS_ROLLED_BACK);
+        sameStorage.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void givenLockedStorage_whenLockOtherStorage_thenDoNotWait() throws Exception {
+        long other = 2L;
+        while (storageLocks.stripe(other) == storageLocks.stripe(1L))
+            other++;
+        TransactionSynchronizationManager.initSynchronization();
+        storageLocks.lockUntilCompletion(List.of(1L));
+
+        lockInOtherThread(other).get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void givenNoTransaction_whenLock_thenThrowIllegalStateException() {
+        assertThrows(IllegalStateException.class, () -> storageLocks.lockUntilCompletion(List.of(1L)));
+    }
+
+    @Test
+    public void givenNoTransaction_whenCallLocked_thenHoldStorageOnlyDuringAction() throws Exception {
+        CompletableFuture<Void> sameStorage = storageLocks.callLocked(List.of(1L), () -> {
+            CompletableFuture<Void> waiting = lockInOtherThread(1L);
+            assertThrows(TimeoutException.class, () -> waiting.get(100, TimeUnit.MILLISECONDS));
+            return waiting;
+        });
+
+        sameStorage.get(1, TimeUnit.SECONDS);
+    }
+
+    private CompletableFuture<Void> lockInOtherThread(long storageId) {
+        return CompletableFuture.runAsync(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                storageLocks.lockUntilCompletion(List.of(storageId));
+                TransactionSynchronizationUtils.invokeAfterCompletion(
+                        TransactionSynchronizationManager.getSynchronizations(),
+                        TransactionSynchronization.STATUS_COMMITTED);
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        });
+    }
+}
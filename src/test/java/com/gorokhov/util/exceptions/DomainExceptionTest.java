@@ -0,0 +1,25 @@
+package com.gorokhov.util.exceptions;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DomainExceptionTest {
+
+    @Test
+    public void givenNotFoundException_whenCreate_thenNoStackTrace() {
+        BikeNotFoundException e = new BikeNotFoundException();
+
+        assertEquals(0, e.getStackTrace().length);
+        assertEquals("Велосипед не был найден", e.getMessage());
+    }
+
+    @Test
+    public void givenDomainExceptions_whenCreate_thenSharedHierarchy() {
+        assertTrue(new OrderNotFoundException() instanceof NotFoundException);
+        assertTrue(new OrderNotCreatedException("client - Необходимо указать клиента; ") instanceof InvalidRequestException);
+        assertTrue(new BikesNotAvailableException(Set.of(1L)) instanceof ConflictException);
+    }
+}